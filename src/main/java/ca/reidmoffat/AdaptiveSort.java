@@ -0,0 +1,1165 @@
+package ca.reidmoffat;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Adaptive, stable merge sort behind Sorting.adaptiveSort (the TimSort design)
+ * <p>
+ * Instead of splitting the array in fixed halves, it walks the array finding runs that are already in order
+ * (reversing strictly descending ones), extends short runs to a minimum length with binary insertion sort, and merges
+ * neighbouring runs from a stack kept in roughly Fibonacci-decreasing lengths. Merges skip the parts of each run that
+ * are already in place and switch to galloping (exponential search) when one run keeps winning, so already sorted input
+ * costs n - 1 comparisons and partially sorted input is close to linear.
+ */
+final class AdaptiveSort {
+
+    // Arrays shorter than this are binary insertion sorted outright, and runs are extended to about this length
+    private static final int MIN_MERGE = 32;
+    private static final int MIN_GALLOP = 7;
+    // Run lengths on the stack grow at least as fast as the Fibonacci numbers, so this covers any int length
+    private static final int MAX_RUNS = 49;
+
+    private AdaptiveSort() {
+    }
+
+    static void sort(int[] array, int low, int high) {
+        new IntMergeState(array).sort(low, high);
+    }
+
+    static void sort(long[] array, int low, int high) {
+        new LongMergeState(array).sort(low, high);
+    }
+
+    static <T> void sort(T[] array, int low, int high, Comparator<? super T> comparator) {
+        new ObjectMergeState<>(array, comparator).sort(low, high);
+    }
+
+    /**
+     * Smallest run length to extend short runs to: between MIN_MERGE / 2 and MIN_MERGE, chosen so n / minRun is a
+     * power of two or just under, which keeps the final merges balanced
+     */
+    private static int minRunLength(int n) {
+        int lowBits = 0;
+        while (n >= MIN_MERGE) {
+            lowBits |= n & 1;
+            n >>= 1;
+        }
+        return n + lowBits;
+    }
+
+    private static final class IntMergeState {
+        private final int[] array;
+        private int[] work = new int[0];
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLength = new int[MAX_RUNS];
+        private int stackSize;
+
+        IntMergeState(int[] array) {
+            this.array = array;
+        }
+
+        void sort(int low, int high) {
+            int remaining = high - low;
+            if (remaining < 2) {
+                return;
+            }
+            if (remaining < MIN_MERGE) {
+                final int run = countRunAndMakeAscending(low, high);
+                binaryInsertionSort(low, high, low + run);
+                return;
+            }
+
+            final int minRun = minRunLength(remaining);
+            do {
+                int run = countRunAndMakeAscending(low, high);
+                if (run < minRun) {
+                    final int forced = Math.min(remaining, minRun);
+                    binaryInsertionSort(low, low + forced, low + run);
+                    run = forced;
+                }
+                runBase[stackSize] = low;
+                runLength[stackSize++] = run;
+                mergeCollapse();
+                low += run;
+                remaining -= run;
+            } while (remaining != 0);
+
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                    --n;
+                }
+                mergeAt(n);
+            }
+        }
+
+        /**
+         * Length of the run starting at low, reversing it first if it is strictly descending (strictly, so reversing
+         * can't reorder equal elements)
+         */
+        private int countRunAndMakeAscending(int low, int high) {
+            int end = low + 1;
+            if (end == high) {
+                return 1;
+            }
+            if (array[end++] < array[low]) {
+                while (end < high && array[end] < array[end - 1]) {
+                    ++end;
+                }
+                for (int i = low, j = end - 1; i < j; ++i, --j) {
+                    final int swap = array[i];
+                    array[i] = array[j];
+                    array[j] = swap;
+                }
+            } else {
+                while (end < high && array[end] >= array[end - 1]) {
+                    ++end;
+                }
+            }
+            return end - low;
+        }
+
+        /**
+         * Insertion sort of array[low, high) where array[low, start) is already sorted, using binary search to find
+         * each insertion point (after any equal elements, for stability)
+         */
+        private void binaryInsertionSort(int low, int high, int start) {
+            for (int i = start; i < high; ++i) {
+                final int pivot = array[i];
+                int left = low;
+                int right = i;
+                while (left < right) {
+                    final int mid = (left + right) >>> 1;
+                    if (pivot < array[mid]) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+                System.arraycopy(array, left, array, left + 1, i - left);
+                array[left] = pivot;
+            }
+        }
+
+        /**
+         * Merges runs until the lengths on the stack shrink at least as fast as the Fibonacci numbers from the top
+         * down, which keeps merges balanced and bounds the stack at MAX_RUNS
+         */
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                        || n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1]) {
+                    if (runLength[n - 1] < runLength[n + 1]) {
+                        --n;
+                    }
+                } else if (runLength[n] > runLength[n + 1]) {
+                    return;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int length1 = runLength[i];
+            final int base2 = runBase[i + 1];
+            int length2 = runLength[i + 1];
+
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            --stackSize;
+
+            // Elements of run 1 that are <= the first of run 2, and of run 2 that are >= the last of run 1, are
+            // already in place
+            final int skip = gallopRight(array[base2], array, base1, length1, 0);
+            base1 += skip;
+            length1 -= skip;
+            if (length1 == 0) {
+                return;
+            }
+            length2 = gallopLeft(array[base1 + length1 - 1], array, base2, length2, length2 - 1);
+            if (length2 == 0) {
+                return;
+            }
+
+            if (length1 <= length2) {
+                mergeLow(base1, length1, base2, length2);
+            } else {
+                mergeHigh(base1, length1, base2, length2);
+            }
+        }
+
+        /**
+         * Merges front to back, with the (shorter) first run copied out to work
+         */
+        private void mergeLow(int base1, int length1, int base2, int length2) {
+            final int[] work = ensureWork(length1);
+            System.arraycopy(array, base1, work, 0, length1);
+            int cursor1 = 0;
+            int cursor2 = base2;
+            int dest = base1;
+            final int end2 = base2 + length2;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0; // Number of times in a row that run 1 won
+                int count2 = 0;
+                do {
+                    if (array[cursor2] < work[cursor1]) {
+                        array[dest++] = array[cursor2++];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest++] = work[cursor1++];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                // One run keeps winning: find how far it wins by with a gallop and move that block at once
+                do {
+                    count1 = gallopRight(array[cursor2], work, cursor1, length1 - cursor1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(work, cursor1, array, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = array[cursor2++];
+                    if (cursor2 == end2) {
+                        break outer;
+                    }
+
+                    count2 = gallopLeft(work[cursor1], array, cursor2, end2 - cursor2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(array, cursor2, array, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = work[cursor1++];
+                    if (cursor1 == length1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2; // Penalize leaving galloping mode
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            // Whatever is left of run 1 goes right before the rest of run 2 (which is already in place)
+            System.arraycopy(work, cursor1, array, dest, length1 - cursor1);
+        }
+
+        /**
+         * Merges back to front, with the (shorter) second run copied out to work
+         */
+        private void mergeHigh(int base1, int length1, int base2, int length2) {
+            final int[] work = ensureWork(length2);
+            System.arraycopy(array, base2, work, 0, length2);
+            int cursor1 = base1 + length1 - 1;
+            int cursor2 = length2 - 1;
+            int dest = base2 + length2 - 1;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (work[cursor2] < array[cursor1]) {
+                        array[dest--] = array[cursor1--];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest--] = work[cursor2--];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = cursor1 - base1 + 1 - gallopRight(work[cursor2], array, base1, cursor1 - base1 + 1,
+                            cursor1 - base1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        System.arraycopy(array, cursor1 + 1, array, dest + 1, count1);
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = work[cursor2--];
+                    if (cursor2 < 0) {
+                        break outer;
+                    }
+
+                    count2 = cursor2 + 1 - gallopLeft(array[cursor1], work, 0, cursor2 + 1, cursor2);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        System.arraycopy(work, cursor2 + 1, array, dest + 1, count2);
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = array[cursor1--];
+                    if (cursor1 < base1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            System.arraycopy(work, 0, array, dest - cursor2, cursor2 + 1);
+        }
+
+        /**
+         * Position of the first element >= key in a[base, base + length), galloping outwards from base + hint
+         */
+        private int gallopLeft(int key, int[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (key > a[base + hint]) {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && key > a[base + hint + offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset; // Overflow
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            } else {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && key <= a[base + hint - offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            }
+
+            // Now a[base + lastOffset] < key <= a[base + offset]: binary search what's in between
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (key > a[base + mid]) {
+                    lastOffset = mid + 1;
+                } else {
+                    offset = mid;
+                }
+            }
+            return offset;
+        }
+
+        /**
+         * Position of the first element > key in a[base, base + length), galloping outwards from base + hint
+         */
+        private int gallopRight(int key, int[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (key < a[base + hint]) {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && key < a[base + hint - offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            } else {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && key >= a[base + hint + offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            }
+
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (key < a[base + mid]) {
+                    offset = mid;
+                } else {
+                    lastOffset = mid + 1;
+                }
+            }
+            return offset;
+        }
+
+        private int[] ensureWork(int size) {
+            if (work.length < size) {
+                work = new int[Math.max(size, Math.min(array.length >>> 1, 2 * work.length))];
+            }
+            return work;
+        }
+    }
+
+    private static final class LongMergeState {
+        private final long[] array;
+        private long[] work = new long[0];
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLength = new int[MAX_RUNS];
+        private int stackSize;
+
+        LongMergeState(long[] array) {
+            this.array = array;
+        }
+
+        void sort(int low, int high) {
+            int remaining = high - low;
+            if (remaining < 2) {
+                return;
+            }
+            if (remaining < MIN_MERGE) {
+                final int run = countRunAndMakeAscending(low, high);
+                binaryInsertionSort(low, high, low + run);
+                return;
+            }
+
+            final int minRun = minRunLength(remaining);
+            do {
+                int run = countRunAndMakeAscending(low, high);
+                if (run < minRun) {
+                    final int forced = Math.min(remaining, minRun);
+                    binaryInsertionSort(low, low + forced, low + run);
+                    run = forced;
+                }
+                runBase[stackSize] = low;
+                runLength[stackSize++] = run;
+                mergeCollapse();
+                low += run;
+                remaining -= run;
+            } while (remaining != 0);
+
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                    --n;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private int countRunAndMakeAscending(int low, int high) {
+            int end = low + 1;
+            if (end == high) {
+                return 1;
+            }
+            if (array[end++] < array[low]) {
+                while (end < high && array[end] < array[end - 1]) {
+                    ++end;
+                }
+                for (int i = low, j = end - 1; i < j; ++i, --j) {
+                    final long swap = array[i];
+                    array[i] = array[j];
+                    array[j] = swap;
+                }
+            } else {
+                while (end < high && array[end] >= array[end - 1]) {
+                    ++end;
+                }
+            }
+            return end - low;
+        }
+
+        private void binaryInsertionSort(int low, int high, int start) {
+            for (int i = start; i < high; ++i) {
+                final long pivot = array[i];
+                int left = low;
+                int right = i;
+                while (left < right) {
+                    final int mid = (left + right) >>> 1;
+                    if (pivot < array[mid]) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+                System.arraycopy(array, left, array, left + 1, i - left);
+                array[left] = pivot;
+            }
+        }
+
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                        || n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1]) {
+                    if (runLength[n - 1] < runLength[n + 1]) {
+                        --n;
+                    }
+                } else if (runLength[n] > runLength[n + 1]) {
+                    return;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int length1 = runLength[i];
+            final int base2 = runBase[i + 1];
+            int length2 = runLength[i + 1];
+
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            --stackSize;
+
+            final int skip = gallopRight(array[base2], array, base1, length1, 0);
+            base1 += skip;
+            length1 -= skip;
+            if (length1 == 0) {
+                return;
+            }
+            length2 = gallopLeft(array[base1 + length1 - 1], array, base2, length2, length2 - 1);
+            if (length2 == 0) {
+                return;
+            }
+
+            if (length1 <= length2) {
+                mergeLow(base1, length1, base2, length2);
+            } else {
+                mergeHigh(base1, length1, base2, length2);
+            }
+        }
+
+        private void mergeLow(int base1, int length1, int base2, int length2) {
+            final long[] work = ensureWork(length1);
+            System.arraycopy(array, base1, work, 0, length1);
+            int cursor1 = 0;
+            int cursor2 = base2;
+            int dest = base1;
+            final int end2 = base2 + length2;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (array[cursor2] < work[cursor1]) {
+                        array[dest++] = array[cursor2++];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest++] = work[cursor1++];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = gallopRight(array[cursor2], work, cursor1, length1 - cursor1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(work, cursor1, array, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = array[cursor2++];
+                    if (cursor2 == end2) {
+                        break outer;
+                    }
+
+                    count2 = gallopLeft(work[cursor1], array, cursor2, end2 - cursor2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(array, cursor2, array, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = work[cursor1++];
+                    if (cursor1 == length1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            System.arraycopy(work, cursor1, array, dest, length1 - cursor1);
+        }
+
+        private void mergeHigh(int base1, int length1, int base2, int length2) {
+            final long[] work = ensureWork(length2);
+            System.arraycopy(array, base2, work, 0, length2);
+            int cursor1 = base1 + length1 - 1;
+            int cursor2 = length2 - 1;
+            int dest = base2 + length2 - 1;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (work[cursor2] < array[cursor1]) {
+                        array[dest--] = array[cursor1--];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest--] = work[cursor2--];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = cursor1 - base1 + 1 - gallopRight(work[cursor2], array, base1, cursor1 - base1 + 1,
+                            cursor1 - base1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        System.arraycopy(array, cursor1 + 1, array, dest + 1, count1);
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = work[cursor2--];
+                    if (cursor2 < 0) {
+                        break outer;
+                    }
+
+                    count2 = cursor2 + 1 - gallopLeft(array[cursor1], work, 0, cursor2 + 1, cursor2);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        System.arraycopy(work, cursor2 + 1, array, dest + 1, count2);
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = array[cursor1--];
+                    if (cursor1 < base1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            System.arraycopy(work, 0, array, dest - cursor2, cursor2 + 1);
+        }
+
+        private int gallopLeft(long key, long[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (key > a[base + hint]) {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && key > a[base + hint + offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            } else {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && key <= a[base + hint - offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            }
+
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (key > a[base + mid]) {
+                    lastOffset = mid + 1;
+                } else {
+                    offset = mid;
+                }
+            }
+            return offset;
+        }
+
+        private int gallopRight(long key, long[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (key < a[base + hint]) {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && key < a[base + hint - offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            } else {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && key >= a[base + hint + offset]) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            }
+
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (key < a[base + mid]) {
+                    offset = mid;
+                } else {
+                    lastOffset = mid + 1;
+                }
+            }
+            return offset;
+        }
+
+        private long[] ensureWork(int size) {
+            if (work.length < size) {
+                work = new long[Math.max(size, Math.min(array.length >>> 1, 2 * work.length))];
+            }
+            return work;
+        }
+    }
+
+    private static final class ObjectMergeState<T> {
+        private final T[] array;
+        private final Comparator<? super T> comparator;
+        private T[] work;
+        private int minGallop = MIN_GALLOP;
+        private final int[] runBase = new int[MAX_RUNS];
+        private final int[] runLength = new int[MAX_RUNS];
+        private int stackSize;
+
+        ObjectMergeState(T[] array, Comparator<? super T> comparator) {
+            this.array = array;
+            this.work = Arrays.copyOf(array, 0);
+            this.comparator = comparator;
+        }
+
+        void sort(int low, int high) {
+            int remaining = high - low;
+            if (remaining < 2) {
+                return;
+            }
+            if (remaining < MIN_MERGE) {
+                final int run = countRunAndMakeAscending(low, high);
+                binaryInsertionSort(low, high, low + run);
+                return;
+            }
+
+            final int minRun = minRunLength(remaining);
+            do {
+                int run = countRunAndMakeAscending(low, high);
+                if (run < minRun) {
+                    final int forced = Math.min(remaining, minRun);
+                    binaryInsertionSort(low, low + forced, low + run);
+                    run = forced;
+                }
+                runBase[stackSize] = low;
+                runLength[stackSize++] = run;
+                mergeCollapse();
+                low += run;
+                remaining -= run;
+            } while (remaining != 0);
+
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                    --n;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private int countRunAndMakeAscending(int low, int high) {
+            int end = low + 1;
+            if (end == high) {
+                return 1;
+            }
+            if (comparator.compare(array[end++], array[low]) < 0) {
+                while (end < high && comparator.compare(array[end], array[end - 1]) < 0) {
+                    ++end;
+                }
+                for (int i = low, j = end - 1; i < j; ++i, --j) {
+                    final T swap = array[i];
+                    array[i] = array[j];
+                    array[j] = swap;
+                }
+            } else {
+                while (end < high && comparator.compare(array[end], array[end - 1]) >= 0) {
+                    ++end;
+                }
+            }
+            return end - low;
+        }
+
+        private void binaryInsertionSort(int low, int high, int start) {
+            for (int i = start; i < high; ++i) {
+                final T pivot = array[i];
+                int left = low;
+                int right = i;
+                while (left < right) {
+                    final int mid = (left + right) >>> 1;
+                    if (comparator.compare(pivot, array[mid]) < 0) {
+                        right = mid;
+                    } else {
+                        left = mid + 1;
+                    }
+                }
+                System.arraycopy(array, left, array, left + 1, i - left);
+                array[left] = pivot;
+            }
+        }
+
+        private void mergeCollapse() {
+            while (stackSize > 1) {
+                int n = stackSize - 2;
+                if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                        || n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1]) {
+                    if (runLength[n - 1] < runLength[n + 1]) {
+                        --n;
+                    }
+                } else if (runLength[n] > runLength[n + 1]) {
+                    return;
+                }
+                mergeAt(n);
+            }
+        }
+
+        private void mergeAt(int i) {
+            int base1 = runBase[i];
+            int length1 = runLength[i];
+            final int base2 = runBase[i + 1];
+            int length2 = runLength[i + 1];
+
+            runLength[i] = length1 + length2;
+            if (i == stackSize - 3) {
+                runBase[i + 1] = runBase[i + 2];
+                runLength[i + 1] = runLength[i + 2];
+            }
+            --stackSize;
+
+            final int skip = gallopRight(array[base2], array, base1, length1, 0);
+            base1 += skip;
+            length1 -= skip;
+            if (length1 == 0) {
+                return;
+            }
+            length2 = gallopLeft(array[base1 + length1 - 1], array, base2, length2, length2 - 1);
+            if (length2 == 0) {
+                return;
+            }
+
+            if (length1 <= length2) {
+                mergeLow(base1, length1, base2, length2);
+            } else {
+                mergeHigh(base1, length1, base2, length2);
+            }
+        }
+
+        private void mergeLow(int base1, int length1, int base2, int length2) {
+            final T[] work = ensureWork(length1);
+            System.arraycopy(array, base1, work, 0, length1);
+            int cursor1 = 0;
+            int cursor2 = base2;
+            int dest = base1;
+            final int end2 = base2 + length2;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (comparator.compare(array[cursor2], work[cursor1]) < 0) {
+                        array[dest++] = array[cursor2++];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest++] = work[cursor1++];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = gallopRight(array[cursor2], work, cursor1, length1 - cursor1, 0);
+                    if (count1 != 0) {
+                        System.arraycopy(work, cursor1, array, dest, count1);
+                        dest += count1;
+                        cursor1 += count1;
+                        if (cursor1 == length1) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = array[cursor2++];
+                    if (cursor2 == end2) {
+                        break outer;
+                    }
+
+                    count2 = gallopLeft(work[cursor1], array, cursor2, end2 - cursor2, 0);
+                    if (count2 != 0) {
+                        System.arraycopy(array, cursor2, array, dest, count2);
+                        dest += count2;
+                        cursor2 += count2;
+                        if (cursor2 == end2) {
+                            break outer;
+                        }
+                    }
+                    array[dest++] = work[cursor1++];
+                    if (cursor1 == length1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            System.arraycopy(work, cursor1, array, dest, length1 - cursor1);
+        }
+
+        private void mergeHigh(int base1, int length1, int base2, int length2) {
+            final T[] work = ensureWork(length2);
+            System.arraycopy(array, base2, work, 0, length2);
+            int cursor1 = base1 + length1 - 1;
+            int cursor2 = length2 - 1;
+            int dest = base2 + length2 - 1;
+            int minGallop = this.minGallop;
+
+            outer:
+            while (true) {
+                int count1 = 0;
+                int count2 = 0;
+                do {
+                    if (comparator.compare(work[cursor2], array[cursor1]) < 0) {
+                        array[dest--] = array[cursor1--];
+                        ++count1;
+                        count2 = 0;
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    } else {
+                        array[dest--] = work[cursor2--];
+                        ++count2;
+                        count1 = 0;
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                } while ((count1 | count2) < minGallop);
+
+                do {
+                    count1 = cursor1 - base1 + 1 - gallopRight(work[cursor2], array, base1, cursor1 - base1 + 1,
+                            cursor1 - base1);
+                    if (count1 != 0) {
+                        dest -= count1;
+                        cursor1 -= count1;
+                        System.arraycopy(array, cursor1 + 1, array, dest + 1, count1);
+                        if (cursor1 < base1) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = work[cursor2--];
+                    if (cursor2 < 0) {
+                        break outer;
+                    }
+
+                    count2 = cursor2 + 1 - gallopLeft(array[cursor1], work, 0, cursor2 + 1, cursor2);
+                    if (count2 != 0) {
+                        dest -= count2;
+                        cursor2 -= count2;
+                        System.arraycopy(work, cursor2 + 1, array, dest + 1, count2);
+                        if (cursor2 < 0) {
+                            break outer;
+                        }
+                    }
+                    array[dest--] = array[cursor1--];
+                    if (cursor1 < base1) {
+                        break outer;
+                    }
+                    --minGallop;
+                } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+                minGallop = Math.max(minGallop, 0) + 2;
+            }
+            this.minGallop = Math.max(minGallop, 1);
+
+            System.arraycopy(work, 0, array, dest - cursor2, cursor2 + 1);
+        }
+
+        private int gallopLeft(T key, T[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (comparator.compare(key, a[base + hint]) > 0) {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && comparator.compare(key, a[base + hint + offset]) > 0) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            } else {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && comparator.compare(key, a[base + hint - offset]) <= 0) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            }
+
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (comparator.compare(key, a[base + mid]) > 0) {
+                    lastOffset = mid + 1;
+                } else {
+                    offset = mid;
+                }
+            }
+            return offset;
+        }
+
+        private int gallopRight(T key, T[] a, int base, int length, int hint) {
+            int lastOffset = 0;
+            int offset = 1;
+            if (comparator.compare(key, a[base + hint]) < 0) {
+                final int maxOffset = hint + 1;
+                while (offset < maxOffset && comparator.compare(key, a[base + hint - offset]) < 0) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                final int swap = lastOffset;
+                lastOffset = hint - offset;
+                offset = hint - swap;
+            } else {
+                final int maxOffset = length - hint;
+                while (offset < maxOffset && comparator.compare(key, a[base + hint + offset]) >= 0) {
+                    lastOffset = offset;
+                    offset = (offset << 1) + 1;
+                    if (offset <= 0) {
+                        offset = maxOffset;
+                    }
+                }
+                offset = Math.min(offset, maxOffset);
+                lastOffset += hint;
+                offset += hint;
+            }
+
+            ++lastOffset;
+            while (lastOffset < offset) {
+                final int mid = lastOffset + ((offset - lastOffset) >>> 1);
+                if (comparator.compare(key, a[base + mid]) < 0) {
+                    offset = mid;
+                } else {
+                    lastOffset = mid + 1;
+                }
+            }
+            return offset;
+        }
+
+        private T[] ensureWork(int size) {
+            if (work.length < size) {
+                work = Arrays.copyOf(array, Math.max(size, Math.min(array.length >>> 1, 2 * work.length)));
+            }
+            return work;
+        }
+    }
+}
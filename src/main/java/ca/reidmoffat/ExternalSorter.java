@@ -0,0 +1,345 @@
+package ca.reidmoffat;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Sorts inputs too large to fit in memory (external merge sort)
+ * <p>
+ * 1. Read as many records as fit in the memory budget, sort them with {@link Sorting#parallelMergeSort} and write
+ * them to a temporary run file. Repeat until the input runs out
+ * 2. Merge the runs together with a loser tree (a tournament version of the heap-based priority queue: each internal
+ * node remembers the loser of the match played there, so replacing the winner only replays the matches on its path
+ * to the root, one comparison per level). If there are more runs than the maximum fan-in, merge them in groups into
+ * longer runs first
+ * <p>
+ * Run files are written and read through memory-mapped windows, and the final merge streams records straight to the
+ * sink instead of collecting them. If the whole input fits in memory, nothing is written to disk. The sort is stable.
+ *
+ * @param <T> Record type
+ */
+public final class ExternalSorter<T> {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    public static final int DEFAULT_MAX_FAN_IN = 64;
+
+    // Largest part of a run file that is mapped at once
+    private static final long MAX_WINDOW_BYTES = 1L << 26;
+    private static final int INITIAL_RUN_CAPACITY = 1024;
+
+    private final RecordCodec<T> codec;
+    private final Comparator<? super T> comparator;
+    private final int runCapacity;
+    private final int maxFanIn;
+    private final Path tempDirectory;
+
+    public ExternalSorter(RecordCodec<T> codec, Comparator<? super T> comparator) {
+        this(codec, comparator, DEFAULT_MEMORY_BUDGET, DEFAULT_MAX_FAN_IN, Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param memoryBudget  Bytes of (encoded) records to hold in memory per run. In-memory records usually take more
+     *                      space than their encoding, so leave some headroom
+     * @param maxFanIn      Most runs merged at once (each one holds an open file and a mapped window)
+     * @param tempDirectory Where to write the run files
+     */
+    public ExternalSorter(RecordCodec<T> codec, Comparator<? super T> comparator, long memoryBudget, int maxFanIn,
+                          Path tempDirectory) {
+        if (memoryBudget < codec.recordSize()) {
+            throw new IllegalArgumentException("Memory budget of " + memoryBudget + " bytes can't hold a single "
+                    + codec.recordSize() + " byte record");
+        }
+        if (maxFanIn < 2) {
+            throw new IllegalArgumentException("Maximum fan-in must be at least 2: " + maxFanIn);
+        }
+        this.codec = codec;
+        this.comparator = comparator;
+        this.runCapacity = (int) Math.min(Integer.MAX_VALUE - 8, memoryBudget / codec.recordSize());
+        this.maxFanIn = maxFanIn;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Sorts every record from input and passes them to sink in order
+     *
+     * @return Number of records sorted
+     */
+    public long sort(Iterator<? extends T> input, Consumer<? super T> sink) throws IOException {
+        final List<Run> runs = new ArrayList<>();
+        try {
+            @SuppressWarnings("unchecked")
+            T[] records = (T[]) new Object[Math.min(runCapacity, INITIAL_RUN_CAPACITY)];
+            long total = 0;
+
+            while (input.hasNext()) {
+                int count = 0;
+                while (count < runCapacity && input.hasNext()) {
+                    if (count == records.length) {
+                        records = Arrays.copyOf(records, (int) Math.min(runCapacity, 2L * records.length));
+                    }
+                    records[count++] = input.next();
+                }
+                total += count;
+
+                final T[] run = count == records.length ? records : Arrays.copyOf(records, count);
+                Sorting.parallelMergeSort(run, comparator);
+                if (runs.isEmpty() && !input.hasNext()) {
+                    for (T record : run) {
+                        sink.accept(record); // Everything fit in memory
+                    }
+                    return total;
+                }
+                runs.add(writeRun(Arrays.asList(run).iterator(), count));
+                Arrays.fill(records, null);
+            }
+
+            while (runs.size() > maxFanIn) {
+                final List<Run> merged = new ArrayList<>();
+                try {
+                    for (int start = 0; start < runs.size(); start += maxFanIn) {
+                        final List<Run> group = runs.subList(start, Math.min(start + maxFanIn, runs.size()));
+                        if (group.size() == 1) {
+                            merged.add(group.get(0));
+                            continue;
+                        }
+                        long count = 0;
+                        for (Run run : group) {
+                            count += run.count;
+                        }
+                        try (LoserTree tree = new LoserTree(group)) {
+                            merged.add(writeRun(tree, count));
+                        } catch (UncheckedIOException e) {
+                            throw e.getCause(); // Reading one of the group's runs
+                        }
+                        for (Run run : group) {
+                            run.delete();
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    for (Run run : merged) {
+                        run.delete();
+                    }
+                    throw e;
+                }
+                runs.clear();
+                runs.addAll(merged);
+            }
+
+            try (LoserTree tree = new LoserTree(runs)) {
+                while (tree.hasNext()) {
+                    sink.accept(tree.take());
+                }
+            }
+            return total;
+        } finally {
+            for (Run run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    private Run writeRun(Iterator<? extends T> records, long count) throws IOException {
+        final Path path = Files.createTempFile(tempDirectory, "sort-run-", ".bin");
+        final Run run = new Run(path, count);
+        final long recordsPerWindow = recordsPerWindow();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long written = 0;
+            while (written < count) {
+                final long windowRecords = Math.min(recordsPerWindow, count - written);
+                final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_WRITE,
+                        written * codec.recordSize(), windowRecords * codec.recordSize());
+                for (long i = 0; i < windowRecords; ++i) {
+                    codec.write(records.next(), window);
+                }
+                written += windowRecords;
+            }
+        } catch (IOException | RuntimeException e) {
+            run.delete();
+            throw e;
+        }
+        return run;
+    }
+
+    private long recordsPerWindow() {
+        return Math.max(1, MAX_WINDOW_BYTES / codec.recordSize());
+    }
+
+    /**
+     * A sorted run file of 'count' records
+     */
+    private static final class Run {
+        private final Path path;
+        private final long count;
+
+        Run(Path path, long count) {
+            this.path = path;
+            this.count = count;
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // Best effort: the file is in the temp directory anyway
+            }
+        }
+    }
+
+    /**
+     * Reads a run back one mapped window at a time
+     */
+    private final class RunReader implements AutoCloseable {
+        private final FileChannel channel;
+        private final long count;
+        private long read;
+        private MappedByteBuffer window;
+
+        RunReader(Run run) throws IOException {
+            channel = FileChannel.open(run.path, StandardOpenOption.READ);
+            count = run.count;
+        }
+
+        boolean hasNext() {
+            return read < count;
+        }
+
+        T next() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                final long windowRecords = Math.min(recordsPerWindow(), count - read);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, read * codec.recordSize(),
+                        windowRecords * codec.recordSize());
+            }
+            ++read;
+            return codec.read(window);
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * K-way merge of runs. tree[0] holds the index of the run with the smallest current record and tree[1..k) the
+     * loser of each internal match, with the runs as leaves k..2k-1 of an implicit (heap-shaped) binary tree.
+     * Exhausted runs lose every match, and ties go to the earlier run to keep the merge stable
+     */
+    private final class LoserTree implements Iterator<T>, AutoCloseable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final Object[] heads;
+        private final boolean[] exhausted;
+        private final int[] tree;
+
+        LoserTree(List<Run> runs) throws IOException {
+            final int k = runs.size();
+            heads = new Object[k];
+            exhausted = new boolean[k];
+            tree = new int[Math.max(1, k)];
+            try {
+                for (int i = 0; i < k; ++i) {
+                    final RunReader reader = new RunReader(runs.get(i));
+                    readers.add(reader);
+                    advance(i);
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+            if (k > 0) {
+                tree[0] = play(1);
+            }
+        }
+
+        /**
+         * Plays every match in the subtree under node, recording the losers, and returns the winner
+         */
+        private int play(int node) {
+            final int k = heads.length;
+            if (node >= k) {
+                return node - k;
+            }
+            final int left = play(2 * node);
+            final int right = play(2 * node + 1);
+            if (beats(left, right)) {
+                tree[node] = right;
+                return left;
+            }
+            tree[node] = left;
+            return right;
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean beats(int a, int b) {
+            if (exhausted[a] || exhausted[b]) {
+                return exhausted[b] && (!exhausted[a] || a < b);
+            }
+            final int cmp = comparator.compare((T) heads[a], (T) heads[b]);
+            return cmp < 0 || cmp == 0 && a < b;
+        }
+
+        private void advance(int source) throws IOException {
+            final RunReader reader = readers.get(source);
+            if (reader.hasNext()) {
+                heads[source] = reader.next();
+            } else {
+                heads[source] = null;
+                exhausted[source] = true;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return heads.length > 0 && !exhausted[tree[0]];
+        }
+
+        @Override
+        public T next() {
+            try {
+                return take();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * {@link #next}, but with a failed read of the winner's run left checked
+         */
+        @SuppressWarnings("unchecked")
+        T take() throws IOException {
+            int winner = tree[0];
+            final T record = (T) heads[winner];
+            advance(winner);
+
+            // Replay the matches from the winner's leaf to the root
+            for (int node = (winner + heads.length) / 2; node > 0; node /= 2) {
+                if (beats(tree[node], winner)) {
+                    final int loser = winner;
+                    winner = tree[node];
+                    tree[node] = loser;
+                }
+            }
+            tree[0] = winner;
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package ca.reidmoffat;
+
+/**
+ * Searches for the same key in many sorted arrays with one binary search plus O(1) work per array, instead of a
+ * separate binary search in each one (O(log(n) + k) instead of O(k * log(n)) for k arrays)
+ * <p>
+ * Built bottom-up: the last level is just the last array, and each level above it is its own array merged with every
+ * second element of the level below. Alongside each merged element we store how many of the level's own elements and
+ * how many of the promoted elements come before it. Once the key's position in one level is known, the promoted count
+ * pins its position in the next level down to one of two adjacent slots, so a single comparison finishes that level.
+ */
+public final class FractionalCascading {
+
+    private final int[][] lists;      // Copies of the original arrays
+    private final int[][] merged;     // merged[i] = lists[i] + every second element of merged[i + 1]
+    private final int[][] ownBefore;  // ownBefore[i][p] = elements of lists[i] in merged[i][0..p)
+    private final int[][] promotedBefore; // promotedBefore[i][p] = elements of merged[i + 1] in merged[i][0..p)
+
+    public FractionalCascading(int[]... sortedLists) {
+        final int levels = sortedLists.length;
+        lists = new int[levels][];
+        merged = new int[levels][];
+        ownBefore = new int[levels][];
+        promotedBefore = new int[levels][];
+
+        for (int i = levels - 1; i >= 0; --i) {
+            lists[i] = sortedLists[i].clone();
+            for (int j = 1; j < lists[i].length; ++j) {
+                if (lists[i][j - 1] > lists[i][j]) {
+                    throw new IllegalArgumentException("Array #" + i + " is not sorted");
+                }
+            }
+            buildLevel(i);
+        }
+    }
+
+    private void buildLevel(int level) {
+        final int[] own = lists[level];
+        final int[] below = level + 1 < lists.length ? merged[level + 1] : new int[0];
+        final int promoted = (below.length + 1) / 2; // Indices 0, 2, 4, ... of the level below
+
+        final int size = own.length + promoted;
+        final int[] values = new int[size];
+        final int[] owns = new int[size + 1];
+        final int[] promotions = new int[size + 1];
+
+        int o = 0;
+        int p = 0;
+        for (int k = 0; k < size; ++k) {
+            owns[k] = o;
+            promotions[k] = p;
+            if (p == promoted || (o < own.length && own[o] <= below[2 * p])) {
+                values[k] = own[o++];
+            } else {
+                values[k] = below[2 * p++];
+            }
+        }
+        owns[size] = o;
+        promotions[size] = p;
+
+        merged[level] = values;
+        ownBefore[level] = owns;
+        promotedBefore[level] = promotions;
+    }
+
+    public int levels() {
+        return lists.length;
+    }
+
+    /**
+     * Returns, for each array, the index of its first element >= key (or its length if every element is smaller)
+     */
+    public int[] lowerBounds(int key) {
+        final int[] result = new int[lists.length];
+        if (lists.length == 0) {
+            return result;
+        }
+
+        int position = Searching.lowerBound(merged[0], key);
+        for (int i = 0; ; ++i) {
+            result[i] = ownBefore[i][position];
+            if (i + 1 == lists.length) {
+                return result;
+            }
+
+            // The first c promoted elements are < key and promoted element c (if any) is >= key, so the lower bound
+            // one level down is either just before or at promoted element c
+            final int[] below = merged[i + 1];
+            final int c = promotedBefore[i][position];
+            position = Math.max(0, 2 * c - 1);
+            if (position < below.length && below[position] < key) {
+                ++position;
+            }
+        }
+    }
+
+    /**
+     * Returns, for each array, the index of the first occurrence of key or -1 if it isn't in that array
+     */
+    public int[] search(int key) {
+        final int[] result = lowerBounds(key);
+        for (int i = 0; i < result.length; ++i) {
+            if (result[i] == lists[i].length || lists[i][result[i]] != key) {
+                result[i] = -1;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,390 @@
+package ca.reidmoffat;
+
+import java.util.Comparator;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join merge sort behind Sorting.parallelMergeSort
+ * <p>
+ * Both the sort and the merges split recursively until a piece is no larger than the threshold, so even the final
+ * merge of two huge halves runs on every core instead of one.
+ */
+final class ParallelMergeSort {
+
+    private ParallelMergeSort() {
+    }
+
+    static void sort(int[] array, int threshold) {
+        // Forking pieces smaller than an insertion sort run only adds overhead
+        threshold = Math.max(threshold, Sorting.INSERTION_SORT_THRESHOLD);
+        new IntSortTask(array, new int[array.length], 0, array.length, false, threshold).invoke();
+    }
+
+    /**
+     * Sorts array[from, to), leaving the result in work[from, to) if intoWork is set (array is then scratch space),
+     * otherwise in array[from, to)
+     */
+    @SuppressWarnings("serial")
+    private static final class IntSortTask extends RecursiveAction {
+        private final int[] array;
+        private final int[] work;
+        private final int from;
+        private final int to;
+        private final boolean intoWork;
+        private final int threshold;
+
+        IntSortTask(int[] array, int[] work, int from, int to, boolean intoWork, int threshold) {
+            this.array = array;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.intoWork = intoWork;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                Sorting.mergeSort(array, work, from, to);
+                if (intoWork) {
+                    System.arraycopy(array, from, work, from, to - from);
+                }
+                return;
+            }
+
+            // Sort each half into the other array, then merge them back into the one we want
+            final int mid = (from + to) >>> 1;
+            invokeAll(new IntSortTask(array, work, from, mid, !intoWork, threshold),
+                    new IntSortTask(array, work, mid, to, !intoWork, threshold));
+            final int[] source = intoWork ? array : work;
+            final int[] target = intoWork ? work : array;
+            new IntMergeTask(source, target, from, mid, mid, to, from, threshold).compute();
+        }
+    }
+
+    /**
+     * Merges source[low1, high1) and source[low2, high2) into target starting at out. Large merges pick the middle
+     * element of the longer run, find where it splits the shorter run and merge the two sides in parallel
+     */
+    @SuppressWarnings("serial")
+    private static final class IntMergeTask extends RecursiveAction {
+        private final int[] source;
+        private final int[] target;
+        private final int low1;
+        private final int high1;
+        private final int low2;
+        private final int high2;
+        private final int out;
+        private final int threshold;
+
+        IntMergeTask(int[] source, int[] target, int low1, int high1, int low2, int high2, int out, int threshold) {
+            this.source = source;
+            this.target = target;
+            this.low1 = low1;
+            this.high1 = high1;
+            this.low2 = low2;
+            this.high2 = high2;
+            this.out = out;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            final int length1 = high1 - low1;
+            final int length2 = high2 - low2;
+            if (length1 + length2 <= threshold) {
+                int i = low1;
+                int j = low2;
+                int k = out;
+                while (i < high1 && j < high2) {
+                    target[k++] = source[i] <= source[j] ? source[i++] : source[j++];
+                }
+                System.arraycopy(source, i, target, k, high1 - i);
+                System.arraycopy(source, j, target, k + high1 - i, high2 - j);
+                return;
+            }
+
+            final int split1;
+            final int split2;
+            if (length1 >= length2) {
+                split1 = (low1 + high1) >>> 1;
+                split2 = lowerBound(source, source[split1], low2, high2);
+            } else {
+                split2 = (low2 + high2) >>> 1;
+                split1 = upperBound(source, source[split2], low1, high1);
+            }
+            final int splitOut = out + (split1 - low1) + (split2 - low2);
+            invokeAll(new IntMergeTask(source, target, low1, split1, low2, split2, out, threshold),
+                    new IntMergeTask(source, target, split1, high1, split2, high2, splitOut, threshold));
+        }
+    }
+
+    private static int lowerBound(int[] array, int key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(int[] array, int key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static void sort(long[] array, int threshold) {
+        threshold = Math.max(threshold, Sorting.INSERTION_SORT_THRESHOLD);
+        new LongSortTask(array, new long[array.length], 0, array.length, false, threshold).invoke();
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LongSortTask extends RecursiveAction {
+        private final long[] array;
+        private final long[] work;
+        private final int from;
+        private final int to;
+        private final boolean intoWork;
+        private final int threshold;
+
+        LongSortTask(long[] array, long[] work, int from, int to, boolean intoWork, int threshold) {
+            this.array = array;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.intoWork = intoWork;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                Sorting.mergeSort(array, work, from, to);
+                if (intoWork) {
+                    System.arraycopy(array, from, work, from, to - from);
+                }
+                return;
+            }
+
+            final int mid = (from + to) >>> 1;
+            invokeAll(new LongSortTask(array, work, from, mid, !intoWork, threshold),
+                    new LongSortTask(array, work, mid, to, !intoWork, threshold));
+            final long[] source = intoWork ? array : work;
+            final long[] target = intoWork ? work : array;
+            new LongMergeTask(source, target, from, mid, mid, to, from, threshold).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class LongMergeTask extends RecursiveAction {
+        private final long[] source;
+        private final long[] target;
+        private final int low1;
+        private final int high1;
+        private final int low2;
+        private final int high2;
+        private final int out;
+        private final int threshold;
+
+        LongMergeTask(long[] source, long[] target, int low1, int high1, int low2, int high2, int out, int threshold) {
+            this.source = source;
+            this.target = target;
+            this.low1 = low1;
+            this.high1 = high1;
+            this.low2 = low2;
+            this.high2 = high2;
+            this.out = out;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            final int length1 = high1 - low1;
+            final int length2 = high2 - low2;
+            if (length1 + length2 <= threshold) {
+                int i = low1;
+                int j = low2;
+                int k = out;
+                while (i < high1 && j < high2) {
+                    target[k++] = source[i] <= source[j] ? source[i++] : source[j++];
+                }
+                System.arraycopy(source, i, target, k, high1 - i);
+                System.arraycopy(source, j, target, k + high1 - i, high2 - j);
+                return;
+            }
+
+            final int split1;
+            final int split2;
+            if (length1 >= length2) {
+                split1 = (low1 + high1) >>> 1;
+                split2 = lowerBound(source, source[split1], low2, high2);
+            } else {
+                split2 = (low2 + high2) >>> 1;
+                split1 = upperBound(source, source[split2], low1, high1);
+            }
+            final int splitOut = out + (split1 - low1) + (split2 - low2);
+            invokeAll(new LongMergeTask(source, target, low1, split1, low2, split2, out, threshold),
+                    new LongMergeTask(source, target, split1, high1, split2, high2, splitOut, threshold));
+        }
+    }
+
+    private static int lowerBound(long[] array, long key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int upperBound(long[] array, long key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static <T> void sort(T[] array, Comparator<? super T> comparator, int threshold) {
+        threshold = Math.max(threshold, Sorting.INSERTION_SORT_THRESHOLD);
+        new ObjectSortTask<>(array, array.clone(), 0, array.length, false, comparator, threshold).invoke();
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ObjectSortTask<T> extends RecursiveAction {
+        private final T[] array;
+        private final T[] work;
+        private final int from;
+        private final int to;
+        private final boolean intoWork;
+        private final Comparator<? super T> comparator;
+        private final int threshold;
+
+        ObjectSortTask(T[] array, T[] work, int from, int to, boolean intoWork, Comparator<? super T> comparator,
+                       int threshold) {
+            this.array = array;
+            this.work = work;
+            this.from = from;
+            this.to = to;
+            this.intoWork = intoWork;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                Sorting.mergeSort(array, work, from, to, comparator);
+                if (intoWork) {
+                    System.arraycopy(array, from, work, from, to - from);
+                }
+                return;
+            }
+
+            final int mid = (from + to) >>> 1;
+            invokeAll(new ObjectSortTask<>(array, work, from, mid, !intoWork, comparator, threshold),
+                    new ObjectSortTask<>(array, work, mid, to, !intoWork, comparator, threshold));
+            final T[] source = intoWork ? array : work;
+            final T[] target = intoWork ? work : array;
+            new ObjectMergeTask<>(source, target, from, mid, mid, to, from, comparator, threshold).compute();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ObjectMergeTask<T> extends RecursiveAction {
+        private final T[] source;
+        private final T[] target;
+        private final int low1;
+        private final int high1;
+        private final int low2;
+        private final int high2;
+        private final int out;
+        private final Comparator<? super T> comparator;
+        private final int threshold;
+
+        ObjectMergeTask(T[] source, T[] target, int low1, int high1, int low2, int high2, int out,
+                        Comparator<? super T> comparator, int threshold) {
+            this.source = source;
+            this.target = target;
+            this.low1 = low1;
+            this.high1 = high1;
+            this.low2 = low2;
+            this.high2 = high2;
+            this.out = out;
+            this.comparator = comparator;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            final int length1 = high1 - low1;
+            final int length2 = high2 - low2;
+            if (length1 + length2 <= threshold) {
+                int i = low1;
+                int j = low2;
+                int k = out;
+                while (i < high1 && j < high2) {
+                    target[k++] = comparator.compare(source[i], source[j]) <= 0 ? source[i++] : source[j++];
+                }
+                System.arraycopy(source, i, target, k, high1 - i);
+                System.arraycopy(source, j, target, k + high1 - i, high2 - j);
+                return;
+            }
+
+            final int split1;
+            final int split2;
+            if (length1 >= length2) {
+                split1 = (low1 + high1) >>> 1;
+                split2 = lowerBound(source, source[split1], low2, high2, comparator);
+            } else {
+                split2 = (low2 + high2) >>> 1;
+                split1 = upperBound(source, source[split2], low1, high1, comparator);
+            }
+            final int splitOut = out + (split1 - low1) + (split2 - low2);
+            invokeAll(new ObjectMergeTask<>(source, target, low1, split1, low2, split2, out, comparator, threshold),
+                    new ObjectMergeTask<>(source, target, split1, high1, split2, high2, splitOut, comparator,
+                            threshold));
+        }
+    }
+
+    private static <T> int lowerBound(T[] array, T key, int low, int high, Comparator<? super T> comparator) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(array[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static <T> int upperBound(T[] array, T key, int low, int high, Comparator<? super T> comparator) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(array[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,318 @@
+package ca.reidmoffat;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Radix sorts behind Sorting.radixSort
+ * <p>
+ * LSD (least significant digit first) radix sort for int[] and long[] keys: one stable counting pass per byte, moving
+ * the keys between the array and a scratch buffer. All the byte histograms are counted in a single read of the input
+ * up front, which also shows which passes can be skipped because every key has the same byte there (e.g. the high
+ * bytes of small non-negative keys).
+ */
+final class RadixSort {
+
+    private static final int BITS = 8;
+    private static final int RADIX = 1 << BITS;
+    private static final int MASK = RADIX - 1;
+
+    private RadixSort() {
+    }
+
+    private static int chunkStart(int chunk, int chunks, int n) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    private static int[][] add(int[][] a, int[][] b) {
+        for (int digit = 0; digit < a.length; ++digit) {
+            for (int bucket = 0; bucket < RADIX; ++bucket) {
+                a[digit][bucket] += b[digit][bucket];
+            }
+        }
+        return a;
+    }
+
+    static void sort(int[] array, SortBuffer buffer, boolean parallelHistogram) {
+        final int n = array.length;
+        if (n <= Sorting.INSERTION_SORT_THRESHOLD) {
+            Sorting.insertionSort(array, 0, n);
+            return;
+        }
+
+        final int[][] counts = parallelHistogram && n > Sorting.DEFAULT_PARALLEL_THRESHOLD
+                ? parallelHistogram(array) : histogram(array, 0, n);
+
+        int[] source = array;
+        int[] target = buffer.ints(n);
+        for (int digit = 0; digit < Integer.BYTES; ++digit) {
+            final int shift = digit * BITS;
+            final int[] offsets = counts[digit];
+            if (offsets[digitOf(source[0], shift)] == n) {
+                continue; // Every element has the same digit here, so this pass wouldn't move anything
+            }
+
+            int position = 0;
+            for (int bucket = 0; bucket < RADIX; ++bucket) {
+                final int count = offsets[bucket];
+                offsets[bucket] = position;
+                position += count;
+            }
+            for (int i = 0; i < n; ++i) {
+                final int value = source[i];
+                target[offsets[digitOf(value, shift)]++] = value;
+            }
+
+            final int[] swap = source;
+            source = target;
+            target = swap;
+        }
+
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, n);
+        }
+    }
+
+    /**
+     * Flipping the sign bit makes signed values order correctly as unsigned digits
+     */
+    private static int digitOf(int value, int shift) {
+        return ((value ^ Integer.MIN_VALUE) >>> shift) & MASK;
+    }
+
+    /**
+     * Counts every digit position in one pass over the data
+     */
+    private static int[][] histogram(int[] array, int from, int to) {
+        final int[][] counts = new int[Integer.BYTES][RADIX];
+        for (int i = from; i < to; ++i) {
+            final int value = array[i] ^ Integer.MIN_VALUE;
+            for (int digit = 0; digit < Integer.BYTES; ++digit) {
+                ++counts[digit][(value >>> (digit * BITS)) & MASK];
+            }
+        }
+        return counts;
+    }
+
+    private static int[][] parallelHistogram(int[] array) {
+        final int chunks = ForkJoinPool.getCommonPoolParallelism() + 1;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> histogram(array, chunkStart(chunk, chunks, array.length),
+                        chunkStart(chunk + 1, chunks, array.length)))
+                .reduce(RadixSort::add)
+                .orElseThrow();
+    }
+
+    static void sort(long[] array, SortBuffer buffer, boolean parallelHistogram) {
+        final int n = array.length;
+        if (n <= Sorting.INSERTION_SORT_THRESHOLD) {
+            Sorting.insertionSort(array, 0, n);
+            return;
+        }
+
+        final int[][] counts = parallelHistogram && n > Sorting.DEFAULT_PARALLEL_THRESHOLD
+                ? parallelHistogram(array) : histogram(array, 0, n);
+
+        long[] source = array;
+        long[] target = buffer.longs(n);
+        for (int digit = 0; digit < Long.BYTES; ++digit) {
+            final int shift = digit * BITS;
+            final int[] offsets = counts[digit];
+            if (offsets[digitOf(source[0], shift)] == n) {
+                continue;
+            }
+
+            int position = 0;
+            for (int bucket = 0; bucket < RADIX; ++bucket) {
+                final int count = offsets[bucket];
+                offsets[bucket] = position;
+                position += count;
+            }
+            for (int i = 0; i < n; ++i) {
+                final long value = source[i];
+                target[offsets[digitOf(value, shift)]++] = value;
+            }
+
+            final long[] swap = source;
+            source = target;
+            target = swap;
+        }
+
+        if (source != array) {
+            System.arraycopy(source, 0, array, 0, n);
+        }
+    }
+
+    private static int digitOf(long value, int shift) {
+        return (int) ((value ^ Long.MIN_VALUE) >>> shift) & MASK;
+    }
+
+    private static int[][] histogram(long[] array, int from, int to) {
+        final int[][] counts = new int[Long.BYTES][RADIX];
+        for (int i = from; i < to; ++i) {
+            final long value = array[i] ^ Long.MIN_VALUE;
+            for (int digit = 0; digit < Long.BYTES; ++digit) {
+                ++counts[digit][(int) (value >>> (digit * BITS)) & MASK];
+            }
+        }
+        return counts;
+    }
+
+    private static int[][] parallelHistogram(long[] array) {
+        final int chunks = ForkJoinPool.getCommonPoolParallelism() + 1;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> histogram(array, chunkStart(chunk, chunks, array.length),
+                        chunkStart(chunk + 1, chunks, array.length)))
+                .reduce(RadixSort::add)
+                .orElseThrow();
+    }
+
+    /*
+     * MSD radix sort (American flag sort) for variable length keys, one byte at a time: count the keys per byte
+     * value, permute them into their buckets in place by following swap cycles, then sort each bucket on the next
+     * byte. Keys that end at the current position sort first, in bucket 0. depth is the byte position, and level is
+     * how many calls deep the sort is, which picks its count array from the buffer: a run of keys that all share a byte
+     * moves on to the next byte in the same call, so a long common prefix takes no extra memory
+     */
+
+    private static final int BUCKETS = RADIX + 1;
+
+    static void sort(byte[][] array, SortBuffer buffer) {
+        sort(array, 0, array.length, 0, 0, buffer);
+    }
+
+    private static int digitOf(byte[] key, int depth) {
+        return depth < key.length ? (key[depth] & MASK) + 1 : 0;
+    }
+
+    private static void sort(byte[][] array, int from, int to, int depth, int level, SortBuffer buffer) {
+        while (to - from > Sorting.INSERTION_SORT_THRESHOLD) {
+            // starts[b] = where bucket b begins (b = 0..BUCKETS), next[b] = the next unfilled slot in bucket b
+            final int[] positions = buffer.counts(level, 2 * BUCKETS + 1);
+            final int next = BUCKETS + 1;
+            for (int i = from; i < to; ++i) {
+                ++positions[next + digitOf(array[i], depth)];
+            }
+
+            final int only = digitOf(array[from], depth);
+            if (positions[next + only] == to - from) {
+                if (only == 0) {
+                    return; // Every key ends here, so they're all equal
+                }
+                ++depth; // Common prefix byte: move on without recursing
+                continue;
+            }
+
+            positions[0] = from;
+            for (int b = 0; b < BUCKETS; ++b) {
+                positions[b + 1] = positions[b] + positions[next + b];
+                positions[next + b] = positions[b];
+            }
+            for (int b = 0; b < BUCKETS; ++b) {
+                while (positions[next + b] < positions[b + 1]) {
+                    byte[] key = array[positions[next + b]];
+                    int d = digitOf(key, depth);
+                    while (d != b) {
+                        final byte[] displaced = array[positions[next + d]];
+                        array[positions[next + d]++] = key;
+                        key = displaced;
+                        d = digitOf(key, depth);
+                    }
+                    array[positions[next + b]++] = key;
+                }
+            }
+
+            for (int b = 1; b < BUCKETS; ++b) {
+                if (positions[b + 1] - positions[b] > 1) {
+                    sort(array, positions[b], positions[b + 1], depth + 1, level + 1, buffer);
+                }
+            }
+            return;
+        }
+
+        for (int i = from + 1; i < to; ++i) {
+            final byte[] key = array[i];
+            int j = i - 1;
+            while (j >= from && Arrays.compareUnsigned(array[j], depth, array[j].length, key, depth, key.length) > 0) {
+                array[j + 1] = array[j];
+                --j;
+            }
+            array[j + 1] = key;
+        }
+    }
+
+    /*
+     * Strings are sorted the same way as byte keys, treating each UTF-16 char as two bytes (high byte first). This
+     * gives the same order as String.compareTo
+     */
+
+    static void sort(String[] array, SortBuffer buffer) {
+        sort(array, 0, array.length, 0, 0, buffer);
+    }
+
+    private static int digitOf(String key, int depth) {
+        final int index = depth >>> 1;
+        if (index >= key.length()) {
+            return 0;
+        }
+        final char c = key.charAt(index);
+        return ((depth & 1) == 0 ? c >>> 8 : c & MASK) + 1;
+    }
+
+    private static void sort(String[] array, int from, int to, int depth, int level, SortBuffer buffer) {
+        while (to - from > Sorting.INSERTION_SORT_THRESHOLD) {
+            final int[] positions = buffer.counts(level, 2 * BUCKETS + 1);
+            final int next = BUCKETS + 1;
+            for (int i = from; i < to; ++i) {
+                ++positions[next + digitOf(array[i], depth)];
+            }
+
+            final int only = digitOf(array[from], depth);
+            if (positions[next + only] == to - from) {
+                if (only == 0) {
+                    return;
+                }
+                ++depth;
+                continue;
+            }
+
+            positions[0] = from;
+            for (int b = 0; b < BUCKETS; ++b) {
+                positions[b + 1] = positions[b] + positions[next + b];
+                positions[next + b] = positions[b];
+            }
+            for (int b = 0; b < BUCKETS; ++b) {
+                while (positions[next + b] < positions[b + 1]) {
+                    String key = array[positions[next + b]];
+                    int d = digitOf(key, depth);
+                    while (d != b) {
+                        final String displaced = array[positions[next + d]];
+                        array[positions[next + d]++] = key;
+                        key = displaced;
+                        d = digitOf(key, depth);
+                    }
+                    array[positions[next + b]++] = key;
+                }
+            }
+
+            for (int b = 1; b < BUCKETS; ++b) {
+                if (positions[b + 1] - positions[b] > 1) {
+                    sort(array, positions[b], positions[b + 1], depth + 1, level + 1, buffer);
+                }
+            }
+            return;
+        }
+
+        // Keys in this range share their first depth / 2 chars, so a plain comparison only looks past them
+        for (int i = from + 1; i < to; ++i) {
+            final String key = array[i];
+            int j = i - 1;
+            while (j >= from && array[j].compareTo(key) > 0) {
+                array[j + 1] = array[j];
+                --j;
+            }
+            array[j + 1] = key;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ca.reidmoffat;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts records to and from a fixed number of bytes, so {@link ExternalSorter} can spill them to disk
+ *
+ * @param <T> Record type
+ */
+public interface RecordCodec<T> {
+
+    /**
+     * Number of bytes every record takes up. write must put exactly this many bytes and read must consume them
+     */
+    int recordSize();
+
+    void write(T record, ByteBuffer buffer);
+
+    T read(ByteBuffer buffer);
+
+    static RecordCodec<Integer> ints() {
+        return new RecordCodec<>() {
+            @Override
+            public int recordSize() {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void write(Integer record, ByteBuffer buffer) {
+                buffer.putInt(record);
+            }
+
+            @Override
+            public Integer read(ByteBuffer buffer) {
+                return buffer.getInt();
+            }
+        };
+    }
+
+    static RecordCodec<Long> longs() {
+        return new RecordCodec<>() {
+            @Override
+            public int recordSize() {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void write(Long record, ByteBuffer buffer) {
+                buffer.putLong(record);
+            }
+
+            @Override
+            public Long read(ByteBuffer buffer) {
+                return buffer.getLong();
+            }
+        };
+    }
+
+    /**
+     * Byte arrays of exactly 'width' bytes each
+     */
+    static RecordCodec<byte[]> bytes(int width) {
+        if (width < 1) {
+            throw new IllegalArgumentException("Record width must be positive: " + width);
+        }
+        return new RecordCodec<>() {
+            @Override
+            public int recordSize() {
+                return width;
+            }
+
+            @Override
+            public void write(byte[] record, ByteBuffer buffer) {
+                if (record.length != width) {
+                    throw new IllegalArgumentException("Expected a " + width + " byte record, got " + record.length);
+                }
+                buffer.put(record);
+            }
+
+            @Override
+            public byte[] read(ByteBuffer buffer) {
+                final byte[] record = new byte[width];
+                buffer.get(record);
+                return record;
+            }
+        };
+    }
+}
@@ -0,0 +1,228 @@
+package ca.reidmoffat;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel sample sort behind Sorting.parallelSampleSort
+ * <p>
+ * Picks bucket boundaries (splitters) from a random sample so each bucket gets roughly the same number of elements,
+ * distributes the elements into their buckets in parallel, then sorts every bucket independently. Unlike merge sort,
+ * each element is moved between arrays only once before the final per-bucket sorts, and the buckets need no merging.
+ * Equal elements keep their relative order, so it is stable when the per-bucket sort is.
+ */
+final class SampleSort {
+
+    // Sample this many elements per bucket, so splitters land close to the true quantiles
+    private static final int OVERSAMPLING = 32;
+
+    private SampleSort() {
+    }
+
+    /**
+     * A few buckets per thread so one slow bucket doesn't hold up the rest, but none smaller than the threshold
+     */
+    private static int bucketCount(int n, int threshold) {
+        final int perThread = 4 * ForkJoinPool.getCommonPoolParallelism();
+        return Math.max(2, Math.min(perThread, n / threshold));
+    }
+
+    private static int chunkStart(int chunk, int chunks, int n) {
+        return (int) ((long) n * chunk / chunks);
+    }
+
+    /**
+     * Turns per-chunk bucket counts into the position each chunk starts writing each bucket at, and fills in where
+     * each bucket starts
+     */
+    private static void toOffsets(int[][] counts, int[] bucketStarts) {
+        int position = 0;
+        for (int bucket = 0; bucket < bucketStarts.length - 1; ++bucket) {
+            bucketStarts[bucket] = position;
+            for (int[] chunkCounts : counts) {
+                final int count = chunkCounts[bucket];
+                chunkCounts[bucket] = position;
+                position += count;
+            }
+        }
+        bucketStarts[bucketStarts.length - 1] = position;
+    }
+
+    static void sort(int[] array, int threshold) {
+        final int n = array.length;
+        final int buckets = bucketCount(n, threshold);
+
+        // Splitters: evenly spaced picks from a sorted random sample
+        final SplittableRandom random = new SplittableRandom(n);
+        final int[] sample = new int[buckets * OVERSAMPLING];
+        for (int i = 0; i < sample.length; ++i) {
+            sample[i] = array[random.nextInt(n)];
+        }
+        Sorting.mergeSort(sample);
+        final int[] splitters = new int[buckets - 1];
+        for (int i = 0; i < splitters.length; ++i) {
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        }
+
+        // Each chunk counts how many of its elements fall in each bucket
+        final int chunks = buckets;
+        final int[][] counts = new int[chunks][buckets];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] chunkCounts = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                ++chunkCounts[bucketOf(splitters, array[i])];
+            }
+        });
+        final int[] bucketStarts = new int[buckets + 1];
+        toOffsets(counts, bucketStarts);
+
+        // Scatter into the buckets, keeping each chunk's elements in their original order
+        final int[] work = new int[n];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] offsets = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                work[offsets[bucketOf(splitters, array[i])]++] = array[i];
+            }
+        });
+
+        // Buckets are independent: sort each one (using the original array as scratch) and copy it back
+        IntStream.range(0, buckets).parallel().forEach(bucket -> {
+            final int from = bucketStarts[bucket];
+            final int to = bucketStarts[bucket + 1];
+            Sorting.mergeSort(work, array, from, to);
+            System.arraycopy(work, from, array, from, to - from);
+        });
+    }
+
+    /**
+     * Index of the first splitter greater than value, so elements equal to a splitter all land in the same bucket
+     */
+    private static int bucketOf(int[] splitters, int value) {
+        int low = 0;
+        int high = splitters.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (splitters[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static void sort(long[] array, int threshold) {
+        final int n = array.length;
+        final int buckets = bucketCount(n, threshold);
+
+        final SplittableRandom random = new SplittableRandom(n);
+        final long[] sample = new long[buckets * OVERSAMPLING];
+        for (int i = 0; i < sample.length; ++i) {
+            sample[i] = array[random.nextInt(n)];
+        }
+        Sorting.mergeSort(sample);
+        final long[] splitters = new long[buckets - 1];
+        for (int i = 0; i < splitters.length; ++i) {
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        }
+
+        final int chunks = buckets;
+        final int[][] counts = new int[chunks][buckets];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] chunkCounts = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                ++chunkCounts[bucketOf(splitters, array[i])];
+            }
+        });
+        final int[] bucketStarts = new int[buckets + 1];
+        toOffsets(counts, bucketStarts);
+
+        final long[] work = new long[n];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] offsets = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                work[offsets[bucketOf(splitters, array[i])]++] = array[i];
+            }
+        });
+
+        IntStream.range(0, buckets).parallel().forEach(bucket -> {
+            final int from = bucketStarts[bucket];
+            final int to = bucketStarts[bucket + 1];
+            Sorting.mergeSort(work, array, from, to);
+            System.arraycopy(work, from, array, from, to - from);
+        });
+    }
+
+    private static int bucketOf(long[] splitters, long value) {
+        int low = 0;
+        int high = splitters.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (splitters[mid] <= value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static <T> void sort(T[] array, Comparator<? super T> comparator, int threshold) {
+        final int n = array.length;
+        final int buckets = bucketCount(n, threshold);
+
+        final SplittableRandom random = new SplittableRandom(n);
+        final T[] sample = Arrays.copyOf(array, buckets * OVERSAMPLING);
+        for (int i = 0; i < sample.length; ++i) {
+            sample[i] = array[random.nextInt(n)];
+        }
+        Sorting.mergeSort(sample, comparator);
+        final T[] splitters = Arrays.copyOf(sample, buckets - 1);
+        for (int i = 0; i < splitters.length; ++i) {
+            splitters[i] = sample[(i + 1) * OVERSAMPLING];
+        }
+
+        final int chunks = buckets;
+        final int[][] counts = new int[chunks][buckets];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] chunkCounts = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                ++chunkCounts[bucketOf(splitters, array[i], comparator)];
+            }
+        });
+        final int[] bucketStarts = new int[buckets + 1];
+        toOffsets(counts, bucketStarts);
+
+        final T[] work = array.clone();
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            final int[] offsets = counts[chunk];
+            for (int i = chunkStart(chunk, chunks, n), end = chunkStart(chunk + 1, chunks, n); i < end; ++i) {
+                work[offsets[bucketOf(splitters, array[i], comparator)]++] = array[i];
+            }
+        });
+
+        IntStream.range(0, buckets).parallel().forEach(bucket -> {
+            final int from = bucketStarts[bucket];
+            final int to = bucketStarts[bucket + 1];
+            Sorting.mergeSort(work, array, from, to, comparator);
+            System.arraycopy(work, from, array, from, to - from);
+        });
+    }
+
+    private static <T> int bucketOf(T[] splitters, T value, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = splitters.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(splitters[mid], value) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
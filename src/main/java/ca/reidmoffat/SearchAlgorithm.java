@@ -0,0 +1,40 @@
+package ca.reidmoffat;
+
+/**
+ * The single-array searches in {@link Searching}, so callers (and tests) can pick one at runtime
+ * <p>
+ * Every algorithm except LINEAR requires the array to be sorted in ascending order. All of them return the index of
+ * the key (the first occurrence, except for LINEAR on unsorted input which is the first match anyway) or -1.
+ */
+public enum SearchAlgorithm {
+    LINEAR(Searching::linearSearch, Searching::linearSearch),
+    BINARY(Searching::binarySearch, Searching::binarySearch),
+    RECURSIVE_BINARY(Searching::recursiveBinarySearch, Searching::recursiveBinarySearch),
+    BRANCHLESS_BINARY(Searching::branchlessBinarySearch, Searching::branchlessBinarySearch),
+    INTERPOLATION(Searching::interpolationSearch, Searching::interpolationSearch),
+    EXPONENTIAL(Searching::exponentialSearch, Searching::exponentialSearch);
+
+    private interface IntSearch {
+        int search(int[] array, int key);
+    }
+
+    private interface LongSearch {
+        int search(long[] array, long key);
+    }
+
+    private final IntSearch intSearch;
+    private final LongSearch longSearch;
+
+    SearchAlgorithm(IntSearch intSearch, LongSearch longSearch) {
+        this.intSearch = intSearch;
+        this.longSearch = longSearch;
+    }
+
+    public int search(int[] array, int key) {
+        return intSearch.search(array, key);
+    }
+
+    public int search(long[] array, long key) {
+        return longSearch.search(array, key);
+    }
+}
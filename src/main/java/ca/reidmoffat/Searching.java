@@ -1,7 +1,14 @@
 package ca.reidmoffat;
 
+import java.util.Arrays;
+import java.util.Comparator;
+
 /**
  * Searching algorithms
+ * <p>
+ * Every search returns the index of {@code key} in {@code array}, or -1 if it isn't present. The binary searches
+ * require the array to be sorted in ascending order (by {@link Arrays#sort} order for primitives, or by the
+ * given comparator) and the primitive/comparator variants return the first occurrence when there are duplicates.
  */
 public class Searching {
     public static <T> int linearSearch(T[] array, T key) {
@@ -13,16 +20,53 @@ public class Searching {
         return -1;
     }
 
+    public static int linearSearch(int[] array, int key) {
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int linearSearch(long[] array, long key) {
+        for (int i = 0; i < array.length; ++i) {
+            if (array[i] == key) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int linearSearch(double[] array, double key) {
+        for (int i = 0; i < array.length; ++i) {
+            if (Double.compare(array[i], key) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static <T> int linearSearch(T[] array, T key, Comparator<? super T> comparator) {
+        for (int i = 0; i < array.length; ++i) {
+            if (comparator.compare(array[i], key) == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public static <T extends Comparable<T>> int binarySearch(T[] array, T key) {
         int low = 0;
         int high = array.length - 1;
         int mid;
 
         while (low <= high) {
-            mid = (low + high) / 2;
-            if (array[mid].equals(key)) {
+            mid = (low + high) >>> 1; // Unsigned shift so low + high can't overflow into a negative index
+            final int cmp = array[mid].compareTo(key);
+            if (cmp == 0) {
                 return mid;
-            } else if (array[mid].compareTo(key) < 0) {
+            } else if (cmp < 0) {
                 low = mid + 1;
             } else {
                 high = mid - 1;
@@ -31,6 +75,71 @@ public class Searching {
         return -1;
     }
 
+    /*
+     * The primitive and comparator searches below narrow [low, high) down to the first element >= key with a single
+     * comparison per step and only check for equality once at the end, instead of testing == and < on every probe
+     */
+
+    public static int binarySearch(int[] array, int key) {
+        int low = 0;
+        int high = array.length;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < array.length && array[low] == key ? low : -1;
+    }
+
+    public static int binarySearch(long[] array, long key) {
+        int low = 0;
+        int high = array.length;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < array.length && array[low] == key ? low : -1;
+    }
+
+    public static int binarySearch(double[] array, double key) {
+        int low = 0;
+        int high = array.length;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (Double.compare(array[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < array.length && Double.compare(array[low], key) == 0 ? low : -1;
+    }
+
+    public static <T> int binarySearch(T[] array, T key, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = array.length;
+
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (comparator.compare(array[mid], key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < array.length && comparator.compare(array[low], key) == 0 ? low : -1;
+    }
+
     public static <T extends Comparable<T>> int recursiveBinarySearch(T[] array, T key) {
         return recursiveBinarySearchHelper(array, key, 0, array.length - 1);
     }
@@ -40,13 +149,448 @@ public class Searching {
             return -1;
         }
 
-        int mid = (low + high) / 2;
-        if (array[mid].equals(key)) {
+        int mid = (low + high) >>> 1;
+        final int cmp = array[mid].compareTo(key);
+        if (cmp == 0) {
             return mid;
-        } else if (array[mid].compareTo(key) < 0) {
+        } else if (cmp < 0) {
             return recursiveBinarySearchHelper(array, key, mid + 1, high);
         } else {
             return recursiveBinarySearchHelper(array, key, low, mid - 1);
         }
     }
+
+    public static int recursiveBinarySearch(int[] array, int key) {
+        final int low = recursiveLowerBound(array, key, 0, array.length);
+        return low < array.length && array[low] == key ? low : -1;
+    }
+
+    private static int recursiveLowerBound(int[] array, int key, int low, int high) {
+        if (low >= high) {
+            return low;
+        }
+
+        final int mid = (low + high) >>> 1;
+        if (array[mid] < key) {
+            return recursiveLowerBound(array, key, mid + 1, high);
+        } else {
+            return recursiveLowerBound(array, key, low, mid);
+        }
+    }
+
+    public static int recursiveBinarySearch(long[] array, long key) {
+        final int low = recursiveLowerBound(array, key, 0, array.length);
+        return low < array.length && array[low] == key ? low : -1;
+    }
+
+    private static int recursiveLowerBound(long[] array, long key, int low, int high) {
+        if (low >= high) {
+            return low;
+        }
+
+        final int mid = (low + high) >>> 1;
+        if (array[mid] < key) {
+            return recursiveLowerBound(array, key, mid + 1, high);
+        } else {
+            return recursiveLowerBound(array, key, low, mid);
+        }
+    }
+
+    public static int recursiveBinarySearch(double[] array, double key) {
+        final int low = recursiveLowerBound(array, key, 0, array.length);
+        return low < array.length && Double.compare(array[low], key) == 0 ? low : -1;
+    }
+
+    private static int recursiveLowerBound(double[] array, double key, int low, int high) {
+        if (low >= high) {
+            return low;
+        }
+
+        final int mid = (low + high) >>> 1;
+        if (Double.compare(array[mid], key) < 0) {
+            return recursiveLowerBound(array, key, mid + 1, high);
+        } else {
+            return recursiveLowerBound(array, key, low, mid);
+        }
+    }
+
+    public static <T> int recursiveBinarySearch(T[] array, T key, Comparator<? super T> comparator) {
+        final int low = recursiveLowerBound(array, key, comparator, 0, array.length);
+        return low < array.length && comparator.compare(array[low], key) == 0 ? low : -1;
+    }
+
+    private static <T> int recursiveLowerBound(T[] array, T key, Comparator<? super T> comparator, int low, int high) {
+        if (low >= high) {
+            return low;
+        }
+
+        final int mid = (low + high) >>> 1;
+        if (comparator.compare(array[mid], key) < 0) {
+            return recursiveLowerBound(array, key, comparator, mid + 1, high);
+        } else {
+            return recursiveLowerBound(array, key, comparator, low, mid);
+        }
+    }
+
+    /*
+     * Branchless searches: the loop always runs ceil(log2(n)) times and the only data-dependent choice is which base
+     * to keep, which the JIT can compile to a conditional move instead of a hard-to-predict branch. For repeated
+     * lookups against the same large array, see StaticSortedIndex which also fixes the memory access pattern
+     */
+
+    /**
+     * Returns the index of the first element >= key, or array.length if every element is smaller
+     */
+    public static int lowerBound(int[] array, int key) {
+        if (array.length == 0) {
+            return 0;
+        }
+
+        int base = 0;
+        int length = array.length;
+        while (length > 1) {
+            final int half = length >>> 1;
+            base = array[base + half] < key ? base + half : base;
+            length -= half;
+        }
+        return array[base] < key ? base + 1 : base;
+    }
+
+    /**
+     * Returns the index of the first element >= key, or array.length if every element is smaller
+     */
+    public static int lowerBound(long[] array, long key) {
+        if (array.length == 0) {
+            return 0;
+        }
+
+        int base = 0;
+        int length = array.length;
+        while (length > 1) {
+            final int half = length >>> 1;
+            base = array[base + half] < key ? base + half : base;
+            length -= half;
+        }
+        return array[base] < key ? base + 1 : base;
+    }
+
+    public static int branchlessBinarySearch(int[] array, int key) {
+        final int index = lowerBound(array, key);
+        return index < array.length && array[index] == key ? index : -1;
+    }
+
+    public static int branchlessBinarySearch(long[] array, long key) {
+        final int index = lowerBound(array, key);
+        return index < array.length && array[index] == key ? index : -1;
+    }
+
+    /*
+     * Batch searches: look up every key in keys and return the results (as binarySearch would, first occurrence or
+     * -1) in the original order of keys.
+     *
+     * searchAll visits the array in ascending key order so consecutive lookups start where the last one ended and
+     * gallop forwards (1, 2, 4, ... elements) instead of starting over from the middle, which keeps the touched parts
+     * of the array in cache. Unsorted keys are sorted and de-duplicated first, then mapped back through that (small)
+     * array. searchAllInterleaved instead runs several independent branchless searches in lockstep, so the CPU can
+     * have their memory loads in flight at the same time; it is the better choice when keys are few and far apart
+     */
+
+    private static final int INTERLEAVED_SEARCHES = 8;
+
+    public static int[] searchAll(int[] sortedArray, int[] keys) {
+        if (isSorted(keys)) {
+            return mergeSearch(sortedArray, keys);
+        }
+
+        final int[] distinctKeys = distinctSorted(keys);
+        final int[] distinctResults = mergeSearch(sortedArray, distinctKeys);
+        final int[] results = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            results[i] = distinctResults[lowerBound(distinctKeys, keys[i])];
+        }
+        return results;
+    }
+
+    public static int[] searchAll(long[] sortedArray, long[] keys) {
+        if (isSorted(keys)) {
+            return mergeSearch(sortedArray, keys);
+        }
+
+        final long[] distinctKeys = distinctSorted(keys);
+        final int[] distinctResults = mergeSearch(sortedArray, distinctKeys);
+        final int[] results = new int[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            results[i] = distinctResults[lowerBound(distinctKeys, keys[i])];
+        }
+        return results;
+    }
+
+    public static int[] searchAllInterleaved(int[] sortedArray, int[] keys) {
+        final int[] results = new int[keys.length];
+        final int[] bases = new int[INTERLEAVED_SEARCHES];
+        final int n = sortedArray.length;
+
+        for (int start = 0; start < keys.length; start += INTERLEAVED_SEARCHES) {
+            final int count = Math.min(INTERLEAVED_SEARCHES, keys.length - start);
+            Arrays.fill(bases, 0);
+
+            // Every search has the same length at each step, so they all take the same number of steps
+            int length = n;
+            while (length > 1) {
+                final int half = length >>> 1;
+                for (int j = 0; j < count; ++j) {
+                    final int base = bases[j];
+                    bases[j] = sortedArray[base + half] < keys[start + j] ? base + half : base;
+                }
+                length -= half;
+            }
+
+            for (int j = 0; j < count; ++j) {
+                final int key = keys[start + j];
+                final int index = n > 0 && sortedArray[bases[j]] < key ? bases[j] + 1 : bases[j];
+                results[start + j] = index < n && sortedArray[index] == key ? index : -1;
+            }
+        }
+        return results;
+    }
+
+    public static int[] searchAllInterleaved(long[] sortedArray, long[] keys) {
+        final int[] results = new int[keys.length];
+        final int[] bases = new int[INTERLEAVED_SEARCHES];
+        final int n = sortedArray.length;
+
+        for (int start = 0; start < keys.length; start += INTERLEAVED_SEARCHES) {
+            final int count = Math.min(INTERLEAVED_SEARCHES, keys.length - start);
+            Arrays.fill(bases, 0);
+
+            int length = n;
+            while (length > 1) {
+                final int half = length >>> 1;
+                for (int j = 0; j < count; ++j) {
+                    final int base = bases[j];
+                    bases[j] = sortedArray[base + half] < keys[start + j] ? base + half : base;
+                }
+                length -= half;
+            }
+
+            for (int j = 0; j < count; ++j) {
+                final long key = keys[start + j];
+                final int index = n > 0 && sortedArray[bases[j]] < key ? bases[j] + 1 : bases[j];
+                results[start + j] = index < n && sortedArray[index] == key ? index : -1;
+            }
+        }
+        return results;
+    }
+
+    private static int[] mergeSearch(int[] sortedArray, int[] sortedKeys) {
+        final int[] results = new int[sortedKeys.length];
+        int position = 0;
+        for (int i = 0; i < sortedKeys.length; ++i) {
+            final int key = sortedKeys[i];
+            position = gallopLowerBound(sortedArray, key, position);
+            results[i] = position < sortedArray.length && sortedArray[position] == key ? position : -1;
+        }
+        return results;
+    }
+
+    private static int[] mergeSearch(long[] sortedArray, long[] sortedKeys) {
+        final int[] results = new int[sortedKeys.length];
+        int position = 0;
+        for (int i = 0; i < sortedKeys.length; ++i) {
+            final long key = sortedKeys[i];
+            position = gallopLowerBound(sortedArray, key, position);
+            results[i] = position < sortedArray.length && sortedArray[position] == key ? position : -1;
+        }
+        return results;
+    }
+
+    /**
+     * Lower bound of key in array[from..], probing from + 1, from + 2, from + 4, ... until the key is passed and then
+     * binary searching the last gap. Costs O(log(d)) where d is the distance from 'from' to the result
+     */
+    private static int gallopLowerBound(int[] array, int key, int from) {
+        final int remaining = array.length - from;
+        if (remaining <= 0 || array[from] >= key) {
+            return from;
+        }
+
+        int low = from + 1;
+        int high = array.length;
+        for (int step = 1; step < remaining; step <<= 1) {
+            if (array[from + step] >= key) {
+                high = from + step;
+                break;
+            }
+            low = from + step + 1;
+            if (step > remaining >>> 1) {
+                break; // Doubling again would run past the end (or overflow)
+            }
+        }
+        return lowerBound(array, key, low, high);
+    }
+
+    private static int gallopLowerBound(long[] array, long key, int from) {
+        final int remaining = array.length - from;
+        if (remaining <= 0 || array[from] >= key) {
+            return from;
+        }
+
+        int low = from + 1;
+        int high = array.length;
+        for (int step = 1; step < remaining; step <<= 1) {
+            if (array[from + step] >= key) {
+                high = from + step;
+                break;
+            }
+            low = from + step + 1;
+            if (step > remaining >>> 1) {
+                break;
+            }
+        }
+        return lowerBound(array, key, low, high);
+    }
+
+    private static int lowerBound(int[] array, int key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] array, long key, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (array[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static boolean isSorted(int[] array) {
+        for (int i = 1; i < array.length; ++i) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSorted(long[] array) {
+        for (int i = 1; i < array.length; ++i) {
+            if (array[i - 1] > array[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int[] distinctSorted(int[] array) {
+        final int[] sorted = array.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    private static long[] distinctSorted(long[] array) {
+        final long[] sorted = array.clone();
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; ++i) {
+            if (size == 0 || sorted[size - 1] != sorted[i]) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, size);
+    }
+
+    /*
+     * Interpolation search guesses where the key should be from its value instead of always probing the middle, taking
+     * O(log(log(n))) probes on uniformly distributed keys. On skewed data each guess can shrink the range by only one
+     * element, so after log2(n) guesses it gives up and finishes with a binary search, keeping the worst case O(log(n))
+     */
+
+    public static int interpolationSearch(int[] array, int key) {
+        int low = 0;
+        int high = array.length - 1;
+        int guesses = 32 - Integer.numberOfLeadingZeros(array.length);
+
+        while (low <= high && key >= array[low] && key <= array[high]) {
+            if (guesses-- == 0) {
+                break;
+            }
+            if (array[low] == array[high]) {
+                return low; // Every element in the range equals key; low is the first occurrence
+            }
+
+            final int guess = low + (int) (((double) key - array[low]) / ((double) array[high] - array[low]) * (high - low));
+            if (array[guess] < key) {
+                low = guess + 1;
+            } else if (array[guess] > key) {
+                high = guess - 1;
+            } else {
+                high = guess; // Found, but there may be duplicates before it
+                break;
+            }
+        }
+
+        // Everything before low is < key, so the first occurrence (if there is one) is in [low, high]
+        final int index = lowerBound(array, key, low, Math.max(low, high + 1));
+        return index < array.length && array[index] == key ? index : -1;
+    }
+
+    public static int interpolationSearch(long[] array, long key) {
+        int low = 0;
+        int high = array.length - 1;
+        int guesses = 32 - Integer.numberOfLeadingZeros(array.length);
+
+        while (low <= high && key >= array[low] && key <= array[high]) {
+            if (guesses-- == 0) {
+                break;
+            }
+            if (array[low] == array[high]) {
+                return low;
+            }
+
+            final int guess = low + (int) (((double) key - array[low]) / ((double) array[high] - array[low]) * (high - low));
+            if (array[guess] < key) {
+                low = guess + 1;
+            } else if (array[guess] > key) {
+                high = guess - 1;
+            } else {
+                high = guess;
+                break;
+            }
+        }
+
+        final int index = lowerBound(array, key, low, Math.max(low, high + 1));
+        return index < array.length && array[index] == key ? index : -1;
+    }
+
+    /*
+     * Exponential search probes indices 1, 2, 4, 8, ... until it passes the key and then binary searches the last gap,
+     * costing O(log(i)) for a key at index i. It beats binary search when keys are usually near the front
+     */
+
+    public static int exponentialSearch(int[] array, int key) {
+        final int index = gallopLowerBound(array, key, 0);
+        return index < array.length && array[index] == key ? index : -1;
+    }
+
+    public static int exponentialSearch(long[] array, long key) {
+        final int index = gallopLowerBound(array, key, 0);
+        return index < array.length && array[index] == key ? index : -1;
+    }
 }
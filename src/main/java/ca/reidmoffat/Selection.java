@@ -0,0 +1,357 @@
+package ca.reidmoffat;
+
+import java.util.Comparator;
+
+/**
+ * Selection algorithms behind Sorting.nthElement and Sorting.partialSort
+ * <p>
+ * nthElement is introselect: quickselect (partition around a median-of-three pivot, then only continue into the side
+ * containing position n) with a three-way partition so runs of equal keys can't make it quadratic. If the partitions
+ * keep coming out lopsided it switches to heapsort on the remaining range, so the worst case is O(n * log(n)) while
+ * the average stays O(n).
+ * <p>
+ * partialSort picks between two strategies based on k / n. For small k it streams the array through a max-heap of the
+ * k smallest elements seen so far, O(n * log(k)) but usually one comparison per element; otherwise it selects the k-th
+ * smallest element with nthElement and sorts the k - 1 elements in front of it, O(n + k * log(k)).
+ */
+final class Selection {
+
+    // Use the heap strategy when k is at most n / HEAP_SELECT_RATIO
+    private static final int HEAP_SELECT_RATIO = 16;
+
+    private Selection() {
+    }
+
+    static void nthElement(int[] array, int n, int low, int high) {
+        int depthBudget = 2 * (32 - Integer.numberOfLeadingZeros(high - low));
+        --high; // Inclusive from here on
+        while (high - low >= Sorting.INSERTION_SORT_THRESHOLD) {
+            if (depthBudget-- == 0) {
+                heapSort(array, low, high + 1); // Bad pivots keep coming: guarantee O(n * log(n))
+                return;
+            }
+
+            // Three-way partition around the median of three: [low, lt) < pivot, [lt, gt] == pivot, (gt, high] > pivot
+            final int pivot = medianOfThree(array[low], array[(low + high) >>> 1], array[high]);
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i <= gt) {
+                if (array[i] < pivot) {
+                    swap(array, lt++, i++);
+                } else if (array[i] > pivot) {
+                    swap(array, i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+
+            if (n < lt) {
+                high = lt - 1;
+            } else if (n > gt) {
+                low = gt + 1;
+            } else {
+                return; // n landed among the elements equal to the pivot
+            }
+        }
+        Sorting.insertionSort(array, low, high + 1);
+    }
+
+    static void partialSort(int[] array, int k) {
+        final int n = array.length;
+        if (k >= n) {
+            AdaptiveSort.sort(array, 0, n);
+            return;
+        }
+        if (k == 0) {
+            return;
+        }
+
+        if (k <= n / HEAP_SELECT_RATIO) {
+            // Keep the k smallest so far in a max-heap: most elements lose to its root and cost one comparison
+            for (int i = k / 2 - 1; i >= 0; --i) {
+                siftDown(array, 0, i, k);
+            }
+            for (int i = k; i < n; ++i) {
+                if (array[i] < array[0]) {
+                    swap(array, 0, i);
+                    siftDown(array, 0, 0, k);
+                }
+            }
+            for (int end = k - 1; end > 0; --end) {
+                swap(array, 0, end);
+                siftDown(array, 0, 0, end);
+            }
+        } else {
+            nthElement(array, k - 1, 0, n);
+            AdaptiveSort.sort(array, 0, k - 1);
+        }
+    }
+
+    private static int medianOfThree(int a, int b, int c) {
+        if (b < a) {
+            final int swap = a;
+            a = b;
+            b = swap;
+        }
+        // a <= b
+        if (c < a) {
+            return a;
+        }
+        return c < b ? c : b;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        final int swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    /**
+     * Max-heap sift down within the heap array[base, base + size), where node i's children are 2i + 1 and 2i + 2
+     */
+    private static void siftDown(int[] array, int base, int root, int size) {
+        final int value = array[base + root];
+        int child;
+        while ((child = 2 * root + 1) < size) {
+            if (child + 1 < size && array[base + child] < array[base + child + 1]) {
+                ++child;
+            }
+            if (value >= array[base + child]) {
+                break;
+            }
+            array[base + root] = array[base + child];
+            root = child;
+        }
+        array[base + root] = value;
+    }
+
+    private static void heapSort(int[] array, int from, int to) {
+        final int size = to - from;
+        for (int i = size / 2 - 1; i >= 0; --i) {
+            siftDown(array, from, i, size);
+        }
+        for (int end = size - 1; end > 0; --end) {
+            swap(array, from, from + end);
+            siftDown(array, from, 0, end);
+        }
+    }
+
+    static void nthElement(long[] array, int n, int low, int high) {
+        int depthBudget = 2 * (32 - Integer.numberOfLeadingZeros(high - low));
+        --high;
+        while (high - low >= Sorting.INSERTION_SORT_THRESHOLD) {
+            if (depthBudget-- == 0) {
+                heapSort(array, low, high + 1);
+                return;
+            }
+
+            final long pivot = medianOfThree(array[low], array[(low + high) >>> 1], array[high]);
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i <= gt) {
+                if (array[i] < pivot) {
+                    swap(array, lt++, i++);
+                } else if (array[i] > pivot) {
+                    swap(array, i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+
+            if (n < lt) {
+                high = lt - 1;
+            } else if (n > gt) {
+                low = gt + 1;
+            } else {
+                return;
+            }
+        }
+        Sorting.insertionSort(array, low, high + 1);
+    }
+
+    static void partialSort(long[] array, int k) {
+        final int n = array.length;
+        if (k >= n) {
+            AdaptiveSort.sort(array, 0, n);
+            return;
+        }
+        if (k == 0) {
+            return;
+        }
+
+        if (k <= n / HEAP_SELECT_RATIO) {
+            for (int i = k / 2 - 1; i >= 0; --i) {
+                siftDown(array, 0, i, k);
+            }
+            for (int i = k; i < n; ++i) {
+                if (array[i] < array[0]) {
+                    swap(array, 0, i);
+                    siftDown(array, 0, 0, k);
+                }
+            }
+            for (int end = k - 1; end > 0; --end) {
+                swap(array, 0, end);
+                siftDown(array, 0, 0, end);
+            }
+        } else {
+            nthElement(array, k - 1, 0, n);
+            AdaptiveSort.sort(array, 0, k - 1);
+        }
+    }
+
+    private static long medianOfThree(long a, long b, long c) {
+        if (b < a) {
+            final long swap = a;
+            a = b;
+            b = swap;
+        }
+        if (c < a) {
+            return a;
+        }
+        return c < b ? c : b;
+    }
+
+    private static void swap(long[] array, int i, int j) {
+        final long swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    private static void siftDown(long[] array, int base, int root, int size) {
+        final long value = array[base + root];
+        int child;
+        while ((child = 2 * root + 1) < size) {
+            if (child + 1 < size && array[base + child] < array[base + child + 1]) {
+                ++child;
+            }
+            if (value >= array[base + child]) {
+                break;
+            }
+            array[base + root] = array[base + child];
+            root = child;
+        }
+        array[base + root] = value;
+    }
+
+    private static void heapSort(long[] array, int from, int to) {
+        final int size = to - from;
+        for (int i = size / 2 - 1; i >= 0; --i) {
+            siftDown(array, from, i, size);
+        }
+        for (int end = size - 1; end > 0; --end) {
+            swap(array, from, from + end);
+            siftDown(array, from, 0, end);
+        }
+    }
+
+    static <T> void nthElement(T[] array, int n, int low, int high, Comparator<? super T> comparator) {
+        int depthBudget = 2 * (32 - Integer.numberOfLeadingZeros(high - low));
+        --high;
+        while (high - low >= Sorting.INSERTION_SORT_THRESHOLD) {
+            if (depthBudget-- == 0) {
+                heapSort(array, low, high + 1, comparator);
+                return;
+            }
+
+            final T pivot = medianOfThree(array[low], array[(low + high) >>> 1], array[high], comparator);
+            int lt = low;
+            int gt = high;
+            int i = low;
+            while (i <= gt) {
+                if (comparator.compare(array[i], pivot) < 0) {
+                    swap(array, lt++, i++);
+                } else if (comparator.compare(array[i], pivot) > 0) {
+                    swap(array, i, gt--);
+                } else {
+                    ++i;
+                }
+            }
+
+            if (n < lt) {
+                high = lt - 1;
+            } else if (n > gt) {
+                low = gt + 1;
+            } else {
+                return;
+            }
+        }
+        Sorting.insertionSort(array, low, high + 1, comparator);
+    }
+
+    static <T> void partialSort(T[] array, int k, Comparator<? super T> comparator) {
+        final int n = array.length;
+        if (k >= n) {
+            AdaptiveSort.sort(array, 0, n, comparator);
+            return;
+        }
+        if (k == 0) {
+            return;
+        }
+
+        if (k <= n / HEAP_SELECT_RATIO) {
+            for (int i = k / 2 - 1; i >= 0; --i) {
+                siftDown(array, 0, i, k, comparator);
+            }
+            for (int i = k; i < n; ++i) {
+                if (comparator.compare(array[i], array[0]) < 0) {
+                    swap(array, 0, i);
+                    siftDown(array, 0, 0, k, comparator);
+                }
+            }
+            for (int end = k - 1; end > 0; --end) {
+                swap(array, 0, end);
+                siftDown(array, 0, 0, end, comparator);
+            }
+        } else {
+            nthElement(array, k - 1, 0, n, comparator);
+            AdaptiveSort.sort(array, 0, k - 1, comparator);
+        }
+    }
+
+    private static <T> T medianOfThree(T a, T b, T c, Comparator<? super T> comparator) {
+        if (comparator.compare(b, a) < 0) {
+            final T swap = a;
+            a = b;
+            b = swap;
+        }
+        if (comparator.compare(c, a) < 0) {
+            return a;
+        }
+        return comparator.compare(c, b) < 0 ? c : b;
+    }
+
+    private static <T> void swap(T[] array, int i, int j) {
+        final T swap = array[i];
+        array[i] = array[j];
+        array[j] = swap;
+    }
+
+    private static <T> void siftDown(T[] array, int base, int root, int size, Comparator<? super T> comparator) {
+        final T value = array[base + root];
+        int child;
+        while ((child = 2 * root + 1) < size) {
+            if (child + 1 < size && comparator.compare(array[base + child], array[base + child + 1]) < 0) {
+                ++child;
+            }
+            if (comparator.compare(value, array[base + child]) >= 0) {
+                break;
+            }
+            array[base + root] = array[base + child];
+            root = child;
+        }
+        array[base + root] = value;
+    }
+
+    private static <T> void heapSort(T[] array, int from, int to, Comparator<? super T> comparator) {
+        final int size = to - from;
+        for (int i = size / 2 - 1; i >= 0; --i) {
+            siftDown(array, from, i, size, comparator);
+        }
+        for (int end = size - 1; end > 0; --end) {
+            swap(array, from, from + end);
+            siftDown(array, from, 0, end, comparator);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ca.reidmoffat;
+
+import java.util.Arrays;
+
+/**
+ * Reusable scratch space for the radix sorts in {@link Sorting}
+ * <p>
+ * Each radix sort call otherwise allocates a scratch array as large as its input (plus bucket counts), so jobs that
+ * sort many arrays back-to-back can pass the same buffer to every call instead. Buffers only grow. A buffer must not
+ * be shared between threads sorting at the same time.
+ */
+public final class SortBuffer {
+    private int[] ints = new int[0];
+    private long[] longs = new long[0];
+    private int[][] counts = new int[0][];
+
+    int[] ints(int size) {
+        if (ints.length < size) {
+            ints = new int[size];
+        }
+        return ints;
+    }
+
+    long[] longs(int size) {
+        if (longs.length < size) {
+            longs = new long[size];
+        }
+        return longs;
+    }
+
+    /**
+     * A zeroed count array for recursion level 'level'. Sorts only ever use one count array per level at a time
+     */
+    int[] counts(int level, int size) {
+        if (level >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(level + 1, 2 * counts.length));
+        }
+        if (counts[level] == null || counts[level].length < size) {
+            counts[level] = new int[size];
+        } else {
+            Arrays.fill(counts[level], 0, size, 0);
+        }
+        return counts[level];
+    }
+
+    /**
+     * Drops the buffers so their memory can be reclaimed; the next sort allocates again
+     */
+    public void release() {
+        ints = new int[0];
+        longs = new long[0];
+        counts = new int[0][];
+    }
+}
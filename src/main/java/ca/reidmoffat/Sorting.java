@@ -1,7 +1,493 @@
 package ca.reidmoffat;
 
+import java.util.Comparator;
+
+/**
+ * Sorting algorithms
+ * <p>
+ * All sorts are ascending and in place. heapSort uses O(1) extra memory; the merge sorts use one scratch array the
+ * size of the input. The parallel sorts split the work across the common fork/join pool once the array (or part of
+ * it) is larger than the parallel threshold, and everything falls back to insertion sort on runs of
+ * INSERTION_SORT_THRESHOLD elements or fewer.
+ */
 public class Sorting {
-    public void heapSort() {
+
+    static final int INSERTION_SORT_THRESHOLD = 32;
+
+    /**
+     * Default size above which the parallel sorts split their work between threads
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 13;
+
+    static void checkThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be positive: " + parallelThreshold);
+        }
+    }
+
+    public static void heapSort(int[] array) {
+        final int n = array.length;
+        for (int i = n / 2 - 1; i >= 0; --i) { // n / 2 - 1 is the last non-leaf node
+            siftDown(array, i, n);
+        }
+        for (int end = n - 1; end > 0; --end) {
+            final int max = array[0];
+            array[0] = array[end];
+            array[end] = max;
+            siftDown(array, 0, end);
+        }
+    }
+
+    private static void siftDown(int[] array, int root, int end) {
+        final int value = array[root];
+        int child;
+        while ((child = 2 * root + 1) < end) {
+            if (child + 1 < end && array[child] < array[child + 1]) {
+                ++child;
+            }
+            if (value >= array[child]) {
+                break;
+            }
+            array[root] = array[child];
+            root = child;
+        }
+        array[root] = value;
+    }
+
+    public static void insertionSort(int[] array) {
+        insertionSort(array, 0, array.length);
+    }
+
+    static void insertionSort(int[] array, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            final int value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                --j;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    public static void mergeSort(int[] array) {
+        mergeSort(array, new int[array.length], 0, array.length);
+    }
+
+    /**
+     * Sorts array[from, to) using work[from, to) as scratch space
+     */
+    static void mergeSort(int[] array, int[] work, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, from, to);
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(array, work, from, mid);
+        mergeSort(array, work, mid, to);
+        if (array[mid - 1] <= array[mid]) {
+            return; // Halves are already in order
+        }
+
+        // Move the left half out of the way, then merge it with the right half back into place
+        System.arraycopy(array, from, work, from, mid - from);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            array[out++] = work[left] <= array[right] ? work[left++] : array[right++];
+        }
+        System.arraycopy(work, left, array, out, mid - left);
+    }
+
+    public static void parallelMergeSort(int[] array) {
+        parallelMergeSort(array, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static void parallelMergeSort(int[] array, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array);
+        } else {
+            ParallelMergeSort.sort(array, parallelThreshold);
+        }
+    }
+
+    public static void parallelSampleSort(int[] array) {
+        parallelSampleSort(array, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static void parallelSampleSort(int[] array, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array);
+        } else {
+            SampleSort.sort(array, parallelThreshold);
+        }
+    }
+
+    public static void heapSort(long[] array) {
+        final int n = array.length;
+        for (int i = n / 2 - 1; i >= 0; --i) {
+            siftDown(array, i, n);
+        }
+        for (int end = n - 1; end > 0; --end) {
+            final long max = array[0];
+            array[0] = array[end];
+            array[end] = max;
+            siftDown(array, 0, end);
+        }
+    }
+
+    private static void siftDown(long[] array, int root, int end) {
+        final long value = array[root];
+        int child;
+        while ((child = 2 * root + 1) < end) {
+            if (child + 1 < end && array[child] < array[child + 1]) {
+                ++child;
+            }
+            if (value >= array[child]) {
+                break;
+            }
+            array[root] = array[child];
+            root = child;
+        }
+        array[root] = value;
+    }
+
+    public static void insertionSort(long[] array) {
+        insertionSort(array, 0, array.length);
+    }
+
+    static void insertionSort(long[] array, int from, int to) {
+        for (int i = from + 1; i < to; ++i) {
+            final long value = array[i];
+            int j = i - 1;
+            while (j >= from && array[j] > value) {
+                array[j + 1] = array[j];
+                --j;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    public static void mergeSort(long[] array) {
+        mergeSort(array, new long[array.length], 0, array.length);
+    }
+
+    static void mergeSort(long[] array, long[] work, int from, int to) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, from, to);
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(array, work, from, mid);
+        mergeSort(array, work, mid, to);
+        if (array[mid - 1] <= array[mid]) {
+            return;
+        }
+
+        System.arraycopy(array, from, work, from, mid - from);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            array[out++] = work[left] <= array[right] ? work[left++] : array[right++];
+        }
+        System.arraycopy(work, left, array, out, mid - left);
+    }
+
+    public static void parallelMergeSort(long[] array) {
+        parallelMergeSort(array, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static void parallelMergeSort(long[] array, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array);
+        } else {
+            ParallelMergeSort.sort(array, parallelThreshold);
+        }
+    }
+
+    public static void parallelSampleSort(long[] array) {
+        parallelSampleSort(array, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static void parallelSampleSort(long[] array, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array);
+        } else {
+            SampleSort.sort(array, parallelThreshold);
+        }
+    }
+
+    public static <T extends Comparable<? super T>> void heapSort(T[] array) {
+        heapSort(array, Comparator.naturalOrder());
+    }
+
+    public static <T> void heapSort(T[] array, Comparator<? super T> comparator) {
+        final int n = array.length;
+        for (int i = n / 2 - 1; i >= 0; --i) {
+            siftDown(array, i, n, comparator);
+        }
+        for (int end = n - 1; end > 0; --end) {
+            final T max = array[0];
+            array[0] = array[end];
+            array[end] = max;
+            siftDown(array, 0, end, comparator);
+        }
+    }
+
+    private static <T> void siftDown(T[] array, int root, int end, Comparator<? super T> comparator) {
+        final T value = array[root];
+        int child;
+        while ((child = 2 * root + 1) < end) {
+            if (child + 1 < end && comparator.compare(array[child], array[child + 1]) < 0) {
+                ++child;
+            }
+            if (comparator.compare(value, array[child]) >= 0) {
+                break;
+            }
+            array[root] = array[child];
+            root = child;
+        }
+        array[root] = value;
+    }
+
+    public static <T extends Comparable<? super T>> void insertionSort(T[] array) {
+        insertionSort(array, 0, array.length, Comparator.naturalOrder());
+    }
+
+    public static <T> void insertionSort(T[] array, Comparator<? super T> comparator) {
+        insertionSort(array, 0, array.length, comparator);
+    }
+
+    static <T> void insertionSort(T[] array, int from, int to, Comparator<? super T> comparator) {
+        for (int i = from + 1; i < to; ++i) {
+            final T value = array[i];
+            int j = i - 1;
+            while (j >= from && comparator.compare(array[j], value) > 0) {
+                array[j + 1] = array[j];
+                --j;
+            }
+            array[j + 1] = value;
+        }
+    }
+
+    public static <T extends Comparable<? super T>> void mergeSort(T[] array) {
+        mergeSort(array, Comparator.naturalOrder());
+    }
+
+    /**
+     * Stable: equal elements keep their original order
+     */
+    public static <T> void mergeSort(T[] array, Comparator<? super T> comparator) {
+        mergeSort(array, array.clone(), 0, array.length, comparator);
+    }
+
+    static <T> void mergeSort(T[] array, T[] work, int from, int to, Comparator<? super T> comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            insertionSort(array, from, to, comparator);
+            return;
+        }
+
+        final int mid = (from + to) >>> 1;
+        mergeSort(array, work, from, mid, comparator);
+        mergeSort(array, work, mid, to, comparator);
+        if (comparator.compare(array[mid - 1], array[mid]) <= 0) {
+            return;
+        }
+
+        System.arraycopy(array, from, work, from, mid - from);
+        int left = from;
+        int right = mid;
+        int out = from;
+        while (left < mid && right < to) {
+            array[out++] = comparator.compare(work[left], array[right]) <= 0 ? work[left++] : array[right++];
+        }
+        System.arraycopy(work, left, array, out, mid - left);
+    }
+
+    public static <T extends Comparable<? super T>> void parallelMergeSort(T[] array) {
+        parallelMergeSort(array, Comparator.naturalOrder(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static <T> void parallelMergeSort(T[] array, Comparator<? super T> comparator) {
+        parallelMergeSort(array, comparator, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Stable: equal elements keep their original order
+     */
+    public static <T> void parallelMergeSort(T[] array, Comparator<? super T> comparator, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array, comparator);
+        } else {
+            ParallelMergeSort.sort(array, comparator, parallelThreshold);
+        }
+    }
+
+    public static <T extends Comparable<? super T>> void parallelSampleSort(T[] array) {
+        parallelSampleSort(array, Comparator.naturalOrder(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    public static <T> void parallelSampleSort(T[] array, Comparator<? super T> comparator) {
+        parallelSampleSort(array, comparator, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Stable: equal elements keep their original order
+     */
+    public static <T> void parallelSampleSort(T[] array, Comparator<? super T> comparator, int parallelThreshold) {
+        checkThreshold(parallelThreshold);
+        if (array.length <= parallelThreshold) {
+            mergeSort(array, comparator);
+        } else {
+            SampleSort.sort(array, comparator, parallelThreshold);
+        }
+    }
+
+    /*
+     * Radix sorts: no comparisons, O(n * key width). The int[] and long[] versions take one pass per byte (skipping
+     * bytes that are the same in every key); the byte[][] and String[] versions sort on the leading bytes first and
+     * only look as far into each key as needed to tell it apart. Pass a SortBuffer to reuse scratch space across
+     * calls; the parallel versions also split the histogram counting across threads for large arrays
+     */
+
+    public static void radixSort(int[] array) {
+        RadixSort.sort(array, new SortBuffer(), false);
+    }
+
+    public static void radixSort(int[] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer, false);
+    }
+
+    public static void parallelRadixSort(int[] array) {
+        RadixSort.sort(array, new SortBuffer(), true);
+    }
+
+    public static void parallelRadixSort(int[] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer, true);
+    }
+
+    public static void radixSort(long[] array) {
+        RadixSort.sort(array, new SortBuffer(), false);
+    }
+
+    public static void radixSort(long[] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer, false);
+    }
+
+    public static void parallelRadixSort(long[] array) {
+        RadixSort.sort(array, new SortBuffer(), true);
+    }
+
+    public static void parallelRadixSort(long[] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer, true);
+    }
+
+    /**
+     * Sorts byte keys lexicographically, comparing bytes as unsigned (the order of Arrays.compareUnsigned)
+     */
+    public static void radixSort(byte[][] array) {
+        RadixSort.sort(array, new SortBuffer());
+    }
+
+    public static void radixSort(byte[][] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer);
+    }
+
+    /**
+     * Sorts in String.compareTo order
+     */
+    public static void radixSort(String[] array) {
+        RadixSort.sort(array, new SortBuffer());
+    }
+
+    public static void radixSort(String[] array, SortBuffer buffer) {
+        RadixSort.sort(array, buffer);
+    }
+
+    /*
+     * Adaptive sorts take advantage of order already in the input (see AdaptiveSort): O(n) on sorted, reverse sorted
+     * or nearly sorted arrays and O(n * log(n)) otherwise. Stable
+     */
+
+    public static void adaptiveSort(int[] array) {
+        AdaptiveSort.sort(array, 0, array.length);
+    }
+
+    public static void adaptiveSort(long[] array) {
+        AdaptiveSort.sort(array, 0, array.length);
+    }
+
+    public static <T extends Comparable<? super T>> void adaptiveSort(T[] array) {
+        AdaptiveSort.sort(array, 0, array.length, Comparator.naturalOrder());
+    }
+
+    public static <T> void adaptiveSort(T[] array, Comparator<? super T> comparator) {
+        AdaptiveSort.sort(array, 0, array.length, comparator);
+    }
+
+    /*
+     * Selection: partialSort(array, k) puts the k smallest elements, sorted, in array[0, k) and nthElement(array, n)
+     * puts the element that would be at index n after sorting there, with nothing larger before it and nothing smaller
+     * after it. Neither orders the rest of the array (see Selection)
+     */
+
+    public static void partialSort(int[] array, int k) {
+        checkK(k);
+        Selection.partialSort(array, k);
+    }
+
+    public static void partialSort(long[] array, int k) {
+        checkK(k);
+        Selection.partialSort(array, k);
+    }
+
+    public static <T extends Comparable<? super T>> void partialSort(T[] array, int k) {
+        partialSort(array, k, Comparator.naturalOrder());
+    }
+
+    public static <T> void partialSort(T[] array, int k, Comparator<? super T> comparator) {
+        checkK(k);
+        Selection.partialSort(array, k, comparator);
+    }
+
+    public static void nthElement(int[] array, int n) {
+        checkIndex(n, array.length);
+        Selection.nthElement(array, n, 0, array.length);
+    }
+
+    public static void nthElement(long[] array, int n) {
+        checkIndex(n, array.length);
+        Selection.nthElement(array, n, 0, array.length);
+    }
+
+    public static <T extends Comparable<? super T>> void nthElement(T[] array, int n) {
+        nthElement(array, n, Comparator.naturalOrder());
+    }
+
+    public static <T> void nthElement(T[] array, int n, Comparator<? super T> comparator) {
+        checkIndex(n, array.length);
+        Selection.nthElement(array, n, 0, array.length, comparator);
+    }
+
+    private static void checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    private static void checkIndex(int n, int length) {
+        if (n < 0 || n >= length) {
+            throw new IndexOutOfBoundsException("Index " + n + " out of bounds for length " + length);
+        }
     }
 }
 /*
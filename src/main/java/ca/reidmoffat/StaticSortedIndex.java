@@ -0,0 +1,163 @@
+package ca.reidmoffat;
+
+/**
+ * A read-only search index over a sorted primitive array, for hot paths that look up many keys in the same data
+ * <p>
+ * Building the index copies the array once into Eytzinger (breadth-first) order: the root of the implicit binary
+ * search tree is at position 1 and the children of position k are at 2k and 2k + 1, the same layout as an array-based
+ * heap. A lookup then walks the tree top-down, so the first few levels are shared by every search and stay in cache,
+ * and each step moves to the right or left child with a single comparison and no branch on the result.
+ * <p>
+ * Results are reported as indices into the original sorted array, so the index can be swapped in for
+ * {@link Searching#binarySearch(int[], int)} or {@link Searching#lowerBound(int[], int)} without changing callers.
+ */
+public final class StaticSortedIndex {
+
+    // Positions go up to 2 * size + 1 while descending, which has to fit in an int
+    private static final int MAX_SIZE = (1 << 30) - 1;
+
+    private StaticSortedIndex() {
+    }
+
+    public static OfInt of(int[] sortedArray) {
+        return new OfInt(sortedArray);
+    }
+
+    public static OfLong of(long[] sortedArray) {
+        return new OfLong(sortedArray);
+    }
+
+    private static void checkSize(int size) {
+        if (size > MAX_SIZE) {
+            throw new IllegalArgumentException("Array too large for a static sorted index: " + size + " elements (max "
+                    + MAX_SIZE + ")");
+        }
+    }
+
+    /**
+     * Converts the position the search fell off the tree at back to the position of the lower bound: strip the
+     * trailing right turns plus the final left turn. Returns 0 if every element was smaller than the key
+     */
+    private static int lowerBoundPosition(int position) {
+        return position >>> (Integer.numberOfTrailingZeros(~position) + 1);
+    }
+
+    /**
+     * Static sorted index over an int[]
+     */
+    public static final class OfInt {
+        private final int[] tree;  // Eytzinger order, 1-based (tree[0] is unused)
+        private final int[] ranks; // ranks[k] = index in the sorted array of tree[k]
+
+        private OfInt(int[] sortedArray) {
+            checkSize(sortedArray.length);
+            tree = new int[sortedArray.length + 1];
+            ranks = new int[sortedArray.length + 1];
+            build(sortedArray, 0, 1);
+        }
+
+        // In-order traversal of the implicit tree hands out the sorted elements from smallest to largest
+        private int build(int[] sortedArray, int next, int position) {
+            if (position < tree.length) {
+                next = build(sortedArray, next, 2 * position);
+                tree[position] = sortedArray[next];
+                ranks[position] = next++;
+                next = build(sortedArray, next, 2 * position + 1);
+            }
+            return next;
+        }
+
+        public int size() {
+            return tree.length - 1;
+        }
+
+        /**
+         * Returns the index (in the original sorted array) of the first element >= key, or size() if there is none
+         */
+        public int lowerBound(int key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position == 0 ? size() : ranks[position];
+        }
+
+        /**
+         * Returns the index (in the original sorted array) of key, or -1 if it isn't present
+         */
+        public int indexOf(int key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position != 0 && tree[position] == key ? ranks[position] : -1;
+        }
+
+        public boolean contains(int key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position != 0 && tree[position] == key;
+        }
+
+        private int descend(int key) {
+            final int[] tree = this.tree;
+            int position = 1;
+            while (position < tree.length) {
+                position = 2 * position + (tree[position] < key ? 1 : 0);
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Static sorted index over a long[]
+     */
+    public static final class OfLong {
+        private final long[] tree; // Eytzinger order, 1-based (tree[0] is unused)
+        private final int[] ranks; // ranks[k] = index in the sorted array of tree[k]
+
+        private OfLong(long[] sortedArray) {
+            checkSize(sortedArray.length);
+            tree = new long[sortedArray.length + 1];
+            ranks = new int[sortedArray.length + 1];
+            build(sortedArray, 0, 1);
+        }
+
+        private int build(long[] sortedArray, int next, int position) {
+            if (position < tree.length) {
+                next = build(sortedArray, next, 2 * position);
+                tree[position] = sortedArray[next];
+                ranks[position] = next++;
+                next = build(sortedArray, next, 2 * position + 1);
+            }
+            return next;
+        }
+
+        public int size() {
+            return tree.length - 1;
+        }
+
+        /**
+         * Returns the index (in the original sorted array) of the first element >= key, or size() if there is none
+         */
+        public int lowerBound(long key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position == 0 ? size() : ranks[position];
+        }
+
+        /**
+         * Returns the index (in the original sorted array) of key, or -1 if it isn't present
+         */
+        public int indexOf(long key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position != 0 && tree[position] == key ? ranks[position] : -1;
+        }
+
+        public boolean contains(long key) {
+            final int position = lowerBoundPosition(descend(key));
+            return position != 0 && tree[position] == key;
+        }
+
+        private int descend(long key) {
+            final long[] tree = this.tree;
+            int position = 1;
+            while (position < tree.length) {
+                position = 2 * position + (tree[position] < key ? 1 : 0);
+            }
+            return position;
+        }
+    }
+}
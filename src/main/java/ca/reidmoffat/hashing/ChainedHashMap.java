@@ -0,0 +1,535 @@
+package ca.reidmoffat.hashing;
+
+import ca.reidmoffat.trees.RedBlackTree;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A separate chaining (open hashing) hash map, whose long chains turn into balanced trees
+ * <p>
+ * Each bucket is a linked list of the entries that hash to it. A list that grows past {@link #TREEIFY_THRESHOLD}
+ * entries means many keys share a bucket, whether by bad luck, a poor hashCode or on purpose (hash flooding). Such a
+ * bucket becomes a balanced search tree ordered by hash and then, for keys of a class that is Comparable to itself, by
+ * compareTo, so lookups in it are O(log n) instead of O(n). Keys that tie on both stay in a short list under one tree
+ * node. A tree that shrinks to {@link #UNTREEIFY_THRESHOLD} entries becomes a list again. Small tables double instead
+ * of treeifying, since there a long chain is more likely just a crowded table.
+ * <p>
+ * {@link #chainLengthHistogram()} shows how evenly the keys are spread, to spot a poor key distribution on a real
+ * workload. Null keys and values are allowed. Iterators are fail-fast. Not thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ChainedHashMap<K, V> extends AbstractMap<K, V> implements Map<K, V> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    public static final int TREEIFY_THRESHOLD = 8;
+    public static final int UNTREEIFY_THRESHOLD = 6;
+
+    // Buckets a table needs before a long chain is treeified rather than the table doubled
+    static final int MIN_TREEIFY_CAPACITY = 64;
+    static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final int hash;
+        final K key;
+        V value;
+        Node<K, V> next;
+
+        Node(int hash, K key, V value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            final V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e && Objects.equals(key, e.getKey())
+                    && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A treeified bucket. Each tree node is the head of a list of the entries that compare equal to it
+     */
+    private static final class TreeBin<K, V> {
+        final RedBlackTree<Node<K, V>, Node<K, V>> tree = new RedBlackTree<>(ChainedHashMap::compareNodes);
+        int size;
+    }
+
+    private final float loadFactor;
+
+    private Object[] buckets; // null, a Node (head of a list) or a TreeBin
+    private int threshold;
+    private int size;
+    private int modCount;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    public ChainedHashMap() {
+        this(0, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize Number of entries the map should hold without resizing
+     * @param loadFactor   Average number of entries per bucket before the table doubles
+     */
+    public ChainedHashMap(int expectedSize, float loadFactor) {
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("Load factor must be positive: " + loadFactor);
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        this.loadFactor = loadFactor;
+        allocate(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / loadFactor)))));
+    }
+
+    private void allocate(int capacity) {
+        buckets = new Object[capacity];
+        threshold = (int) Math.min(Integer.MAX_VALUE, (long) (capacity * (double) loadFactor));
+    }
+
+    /**
+     * Whether a class implements Comparable of itself, so compareTo between two of its instances is safe
+     */
+    private static final ClassValue<Boolean> SELF_COMPARABLE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (!Comparable.class.isAssignableFrom(type)) {
+                return false;
+            }
+            for (Type t : type.getGenericInterfaces()) {
+                if (t instanceof ParameterizedType p && p.getRawType() == Comparable.class
+                        && p.getActualTypeArguments()[0] == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    private static Class<?> comparableClass(Object x) {
+        return x != null && SELF_COMPARABLE.get(x.getClass()) ? x.getClass() : null;
+    }
+
+    /**
+     * Tree order: by hash, then by compareTo for keys of the same self-comparable class. Other keys with the same
+     * hash compare equal and share a tree node
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareNodes(Node<?, ?> a, Node<?, ?> b) {
+        if (a.hash != b.hash) {
+            return Integer.compare(a.hash, b.hash);
+        }
+        final Class<?> ca = comparableClass(a.key);
+        final Class<?> cb = comparableClass(b.key);
+        if (ca == null || cb == null) {
+            return ca == cb ? 0 : ca == null ? -1 : 1;
+        }
+        if (ca != cb) {
+            final int byName = ca.getName().compareTo(cb.getName());
+            return byName != 0 ? byName : Integer.compare(System.identityHashCode(ca), System.identityHashCode(cb));
+        }
+        return ((Comparable) a.key).compareTo(b.key);
+    }
+
+    private int index(int hash) {
+        return hash & (buckets.length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<K, V> findNode(Object key) {
+        final int hash = Hashing.hash(key);
+        final Object bucket = buckets[index(hash)];
+        Node<K, V> node;
+        if (bucket instanceof TreeBin<?, ?> bin) {
+            node = ((TreeBin<K, V>) bin).tree.get(new Node<>(hash, key, null));
+        } else {
+            node = (Node<K, V>) bucket;
+        }
+        for (; node != null; node = node.next) {
+            if (node.hash == hash && Objects.equals(node.key, key)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a node for a key that isn't in the map, treeifying its bucket if the chain gets too long
+     *
+     * @return Length of the chain it went into, or 0 if it went into a tree
+     */
+    @SuppressWarnings("unchecked")
+    private int link(Node<K, V> node) {
+        node.next = null;
+        final int index = index(node.hash);
+        final Object bucket = buckets[index];
+        if (bucket instanceof TreeBin<?, ?> bin) {
+            addToTree((TreeBin<K, V>) bin, node);
+            return 0;
+        }
+        // Append, counting the chain
+        int length = 1;
+        if (bucket == null) {
+            buckets[index] = node;
+        } else {
+            Node<K, V> tail = (Node<K, V>) bucket;
+            for (; tail.next != null; tail = tail.next) {
+                ++length;
+            }
+            tail.next = node;
+            ++length;
+        }
+        if (length > TREEIFY_THRESHOLD && buckets.length >= MIN_TREEIFY_CAPACITY) {
+            treeify(index);
+            return 0;
+        }
+        return length;
+    }
+
+    private static <K, V> void addToTree(TreeBin<K, V> bin, Node<K, V> node) {
+        final Node<K, V> head = bin.tree.putIfAbsent(node, node);
+        if (head != null) {
+            node.next = head.next;
+            head.next = node;
+        }
+        ++bin.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void treeify(int index) {
+        final TreeBin<K, V> bin = new TreeBin<>();
+        Node<K, V> node = (Node<K, V>) buckets[index];
+        while (node != null) {
+            final Node<K, V> next = node.next;
+            node.next = null;
+            addToTree(bin, node);
+            node = next;
+        }
+        buckets[index] = bin;
+    }
+
+    private void untreeify(int index, TreeBin<K, V> bin) {
+        Node<K, V> head = null;
+        for (Node<K, V> group : bin.tree.values()) {
+            // Prepend each group's list as a whole
+            Node<K, V> tail = group;
+            while (tail.next != null) {
+                tail = tail.next;
+            }
+            tail.next = head;
+            head = group;
+        }
+        buckets[index] = head;
+    }
+
+    /**
+     * Unlinks node, which must be in the map
+     */
+    @SuppressWarnings("unchecked")
+    private void unlink(Node<K, V> node) {
+        final int index = index(node.hash);
+        final Object bucket = buckets[index];
+        if (bucket instanceof TreeBin<?, ?> b) {
+            final TreeBin<K, V> bin = (TreeBin<K, V>) b;
+            final Node<K, V> head = bin.tree.get(node);
+            if (head == node) {
+                bin.tree.remove(node);
+                if (node.next != null) {
+                    bin.tree.put(node.next, node.next);
+                }
+            } else {
+                Node<K, V> previous = head;
+                while (previous.next != node) {
+                    previous = previous.next;
+                }
+                previous.next = node.next;
+            }
+            if (--bin.size <= UNTREEIFY_THRESHOLD) {
+                untreeify(index, bin);
+            }
+        } else if (bucket == node) {
+            buckets[index] = node.next;
+        } else {
+            Node<K, V> previous = (Node<K, V>) bucket;
+            while (previous.next != node) {
+                previous = previous.next;
+            }
+            previous.next = node.next;
+        }
+        node.next = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void grow() {
+        if (buckets.length >= MAX_CAPACITY) {
+            return; // Chains just get longer
+        }
+        final Object[] old = buckets;
+        allocate(2 * old.length);
+        for (Object bucket : old) {
+            if (bucket instanceof TreeBin<?, ?> bin) {
+                for (Node<K, V> group : ((TreeBin<K, V>) bin).tree.values()) {
+                    relinkChain(group);
+                }
+            } else {
+                relinkChain((Node<K, V>) bucket);
+            }
+        }
+    }
+
+    private void relinkChain(Node<K, V> node) {
+        while (node != null) {
+            final Node<K, V> next = node.next;
+            link(node);
+            node = next;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        final Node<K, V> node = findNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        final Node<K, V> node = findNode(key);
+        if (node != null) {
+            return node.setValue(value);
+        }
+        if (size >= threshold) {
+            grow();
+        }
+        if (link(new Node<>(Hashing.hash(key), key, value)) > TREEIFY_THRESHOLD) {
+            // Too small a table to treeify
+            grow();
+        }
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        final Node<K, V> node = findNode(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        --size;
+        ++modCount;
+        return node.value;
+    }
+
+    @Override
+    public void clear() {
+        allocate(buckets.length);
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * How many buckets hold each number of entries: element i is the number of buckets with exactly i entries, up to
+     * the fullest bucket. With well spread keys this is close to a Poisson distribution with mean size / buckets
+     */
+    @SuppressWarnings("unchecked")
+    public int[] chainLengthHistogram() {
+        int[] histogram = new int[TREEIFY_THRESHOLD + 1];
+        for (Object bucket : buckets) {
+            int length = 0;
+            if (bucket instanceof TreeBin<?, ?> bin) {
+                length = bin.size;
+            } else {
+                for (Node<K, V> node = (Node<K, V>) bucket; node != null; node = node.next) {
+                    ++length;
+                }
+            }
+            if (length >= histogram.length) {
+                histogram = Arrays.copyOf(histogram, length + 1);
+            }
+            ++histogram[length];
+        }
+        int longest = histogram.length - 1;
+        while (longest > 0 && histogram[longest] == 0) {
+            --longest;
+        }
+        return Arrays.copyOf(histogram, longest + 1);
+    }
+
+    /**
+     * Number of buckets that are currently trees
+     */
+    public int treeifiedBuckets() {
+        int count = 0;
+        for (Object bucket : buckets) {
+            if (bucket instanceof TreeBin<?, ?>) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    public int capacity() {
+        return buckets.length;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    ChainedHashMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Walks the buckets in order. A tree bucket's entries are copied out when the iterator gets to it, so removing
+     * them (which can turn the tree back into a list) doesn't disturb the walk
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int bucket = -1;
+        private Node<K, V> next;
+        private List<Node<K, V>> treeNodes;
+        private int treeIndex;
+        private Node<K, V> last;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            if (next != null && treeNodes == null) {
+                next = next.next;
+            } else if (treeNodes != null && treeIndex < treeNodes.size()) {
+                next = treeNodes.get(treeIndex++);
+                return;
+            } else {
+                next = null;
+            }
+            treeNodes = null;
+            while (next == null && ++bucket < buckets.length) {
+                final Object b = buckets[bucket];
+                if (b instanceof TreeBin<?, ?> bin) {
+                    treeNodes = new ArrayList<>(bin.size);
+                    for (Node<K, V> group : ((TreeBin<K, V>) bin).tree.values()) {
+                        for (Node<K, V> node = group; node != null; node = node.next) {
+                            treeNodes.add(node);
+                        }
+                    }
+                    treeIndex = 1;
+                    next = treeNodes.get(0);
+                } else {
+                    next = (Node<K, V>) b;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            unlink(last);
+            --size;
+            expectedModCount = ++modCount;
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package ca.reidmoffat.hashing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+/**
+ * A lock-free concurrent map from long keys to objects, on a linear probing table (after Cliff Click's non-blocking
+ * hash map)
+ * <p>
+ * Keys and values sit in flat arrays, as in {@link LongObjectHashMap}. A writer claims a key's slot by CASing its key
+ * into an empty slot (0), then publishes the value with a second CAS. Once claimed, a key slot never changes, so a
+ * reader just probes for the key and reads the value. Removing replaces the value with a tombstone, and the slot is
+ * reused if the key comes back.
+ * <p>
+ * When too many slots are claimed, a writer attaches a new table and the old one is migrated a chunk at a time by every
+ * writer that comes along, instead of all at once by whoever triggered it. Moving a slot first freezes its value (so
+ * no update is lost in between), copies it to the new table, then marks the old slot as moved. Lookups that hit a
+ * moved slot carry on in the new table, so during a resize both tables serve requests and nothing waits. Once every
+ * slot is moved, the new table replaces the old one.
+ * <p>
+ * Reads never block or write. The size is a {@link LongAdder}, so it's only exact when no writes are in progress.
+ * Values can't be null. Iteration ({@link #forEach}) is weakly consistent.
+ *
+ * @param <V> Value type
+ */
+public class ConcurrentLongHashMap<V> {
+
+    static final int MIN_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    // Slots each writer migrates when it helps with a resize
+    static final int COPY_CHUNK = 64;
+
+    // Probe length past which a writer checks whether the table is full (summing a LongAdder isn't free)
+    private static final int CHECK_PROBES = 4;
+
+    private static final Object TOMBSTONE = new Object();
+    private static final Object MOVED = new Object();
+
+    /**
+     * A value being copied to the next table: still readable, but can't be changed until the copy is done
+     */
+    private record Frozen(Object value) {
+    }
+
+    private static final VarHandle TABLE;
+    private static final VarHandle ZERO_VALUE;
+    private static final VarHandle NEXT;
+    private static final VarHandle COPY_INDEX;
+    private static final VarHandle COPY_DONE;
+    private static final VarHandle KEY = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle VALUE = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TABLE = lookup.findVarHandle(ConcurrentLongHashMap.class, "table", Table.class);
+            ZERO_VALUE = lookup.findVarHandle(ConcurrentLongHashMap.class, "zeroValue", Object.class);
+            NEXT = lookup.findVarHandle(Table.class, "next", Table.class);
+            COPY_INDEX = lookup.findVarHandle(Table.class, "copyIndex", long.class);
+            COPY_DONE = lookup.findVarHandle(Table.class, "copyDone", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Table {
+        final long[] keys;      // 0 = unclaimed
+        final Object[] values;  // null, a value, TOMBSTONE, Frozen or MOVED
+        final int mask;
+        final int bits;         // log2(capacity)
+        final int threshold;    // Claimed slots that trigger a resize
+        final LongAdder claimed = new LongAdder();
+
+        volatile Table next;    // Table this one is being migrated to
+        volatile long copyIndex; // Next chunk to migrate (wraps around, so stragglers get picked up again)
+        volatile int copyDone;  // Slots migrated so far
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+            bits = Integer.numberOfTrailingZeros(capacity);
+            threshold = capacity - capacity / 4;
+        }
+    }
+
+    // How update treats the current value
+    private static final int PUT = 0;
+    private static final int PUT_IF_ABSENT = 1;
+    private static final int REMOVE = 2;
+    private static final int COPY = 3; // Like PUT_IF_ABSENT, but a tombstone counts as present
+
+    private volatile Table table;
+    private volatile Object zeroValue; // The key 0 can't go in the table. null if it's missing
+    private final LongAdder size = new LongAdder();
+    private final long seed = Hashing.randomSeed();
+
+    public ConcurrentLongHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of entries the map should hold without resizing
+     */
+    public ConcurrentLongHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        table = new Table(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, expectedSize * 4L / 3 + 1))));
+    }
+
+    public int size() {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, size.sum()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Value for key, or null if it's missing
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) (key == 0 ? zeroValue : find(table, key));
+    }
+
+    private Object find(Table t, long key) {
+        search:
+        while (true) {
+            int index = Hashing.fibonacciIndex(key ^ seed, t.bits);
+            for (int probes = 0; probes <= t.mask; ++probes) {
+                final long k = (long) KEY.getVolatile(t.keys, index);
+                if (k == key || k == 0) {
+                    final Object value = VALUE.getVolatile(t.values, index);
+                    if (value == MOVED) {
+                        t = t.next;
+                        continue search;
+                    }
+                    if (k == 0 || value == TOMBSTONE) {
+                        return null;
+                    }
+                    return value instanceof Frozen frozen ? frozen.value() : value;
+                }
+                index = (index + 1) & t.mask;
+            }
+            // Every slot is claimed by other keys
+            if (t.next == null) {
+                return null;
+            }
+            t = t.next;
+        }
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        final V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @return Previous value, or null if the key was missing
+     */
+    public V put(long key, V value) {
+        return write(key, Objects.requireNonNull(value, "value"), PUT);
+    }
+
+    /**
+     * Puts value only if key is missing
+     *
+     * @return The current value, or null if value was put
+     */
+    public V putIfAbsent(long key, V value) {
+        return write(key, Objects.requireNonNull(value, "value"), PUT_IF_ABSENT);
+    }
+
+    /**
+     * Returns key's value, first putting mapping(key) if it's missing. Threads that race on a missing key may all call
+     * mapping, but only one result is put and all of them return it. Nothing is put if mapping returns null
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mapping) {
+        final V current = get(key);
+        if (current != null) {
+            return current;
+        }
+        final V value = mapping.apply(key);
+        if (value == null) {
+            return null;
+        }
+        final V previous = putIfAbsent(key, value);
+        return previous != null ? previous : value;
+    }
+
+    /**
+     * @return Removed value, or null if the key was missing
+     */
+    public V remove(long key) {
+        return write(key, TOMBSTONE, REMOVE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V write(long key, Object value, int mode) {
+        final Object previous;
+        if (key == 0) {
+            previous = writeZero(value, mode);
+        } else {
+            final Table root = table;
+            if (root.next != null) {
+                helpCopy(root);
+            }
+            previous = update(root, key, value, mode, null, -1);
+        }
+        if (previous == null && mode != REMOVE) {
+            size.increment();
+        } else if (previous != null && mode == REMOVE) {
+            size.decrement();
+        }
+        return (V) previous;
+    }
+
+    private Object writeZero(Object value, int mode) {
+        final Object newValue = mode == REMOVE ? null : value;
+        while (true) {
+            final Object current = zeroValue;
+            if (mode == PUT_IF_ABSENT && current != null) {
+                return current;
+            }
+            if (ZERO_VALUE.compareAndSet(this, current, newValue)) {
+                return current;
+            }
+        }
+    }
+
+    /**
+     * Applies a write to key in table t (or whichever table it's moved to). For COPY, value is the Frozen value in
+     * slot sourceIndex of source
+     *
+     * @return The previous value, or null if there wasn't one. With PUT_IF_ABSENT and COPY, a non-null result means
+     * nothing changed
+     */
+    private Object update(Table t, long key, Object value, int mode, Table source, int sourceIndex) {
+        search:
+        while (true) {
+            int index = Hashing.fibonacciIndex(key ^ seed, t.bits);
+            int probes = 0;
+            // Find key's slot, claiming an empty one if it's missing
+            while (true) {
+                long k = (long) KEY.getVolatile(t.keys, index);
+                if (k == 0) {
+                    if (mode == REMOVE) {
+                        if (VALUE.getVolatile(t.values, index) != MOVED) {
+                            return null;
+                        }
+                        t = t.next;
+                        continue search;
+                    }
+                    if (t.next != null || (probes >= CHECK_PROBES && t.claimed.sum() >= t.threshold)) {
+                        // New keys go to the next table, so seal this slot for anyone looking for key here
+                        final Table next = resize(t);
+                        copySlot(t, index);
+                        t = next;
+                        continue search;
+                    }
+                    if (KEY.compareAndSet(t.keys, index, 0L, key)) {
+                        t.claimed.increment();
+                        break;
+                    }
+                    k = (long) KEY.getVolatile(t.keys, index);
+                }
+                if (k == key) {
+                    break;
+                }
+                if (++probes > t.mask) {
+                    if (mode == REMOVE && t.next == null) {
+                        return null;
+                    }
+                    t = resize(t);
+                    continue search;
+                }
+                index = (index + 1) & t.mask;
+            }
+            // Publish the value
+            while (true) {
+                final Object current = VALUE.getVolatile(t.values, index);
+                if (current == MOVED || current instanceof Frozen) {
+                    copySlot(t, index);
+                    t = t.next;
+                    continue search;
+                }
+                final boolean present = current != null && current != TOMBSTONE;
+                if ((mode == PUT_IF_ABSENT && present) || (mode == COPY && current != null)) {
+                    return current;
+                }
+                if (mode == REMOVE && !present) {
+                    return null;
+                }
+                if (mode == COPY) {
+                    // Another thread already finished this copy, and the key may have been written or removed since
+                    // (the removal's tombstone may even have been dropped by a later resize), so this value is stale
+                    if (VALUE.getVolatile(source.values, sourceIndex) != value) {
+                        return value;
+                    }
+                    if (VALUE.compareAndSet(t.values, index, null, ((Frozen) value).value())) {
+                        return null;
+                    }
+                } else if (VALUE.compareAndSet(t.values, index, current, value)) {
+                    return present ? current : null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts migrating t to a new table, if it isn't already
+     *
+     * @return The new table
+     */
+    private Table resize(Table t) {
+        final Table existing = t.next;
+        if (existing != null) {
+            return existing;
+        }
+        final int capacity = t.keys.length;
+        // Mostly tombstones: rebuild at the same size to clear them
+        final boolean grow = size.sum() >= capacity / 4;
+        if (grow && capacity >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map can't grow past " + MAX_CAPACITY + " slots");
+        }
+        final Table next = new Table(grow ? 2 * capacity : capacity);
+        return NEXT.compareAndSet(t, null, next) ? next : t.next;
+    }
+
+    /**
+     * Migrates one chunk of t's slots, or replaces t with its next table if they're all done
+     */
+    private void helpCopy(Table t) {
+        final int capacity = t.keys.length;
+        if (t.copyDone == capacity) {
+            TABLE.compareAndSet(this, t, t.next);
+            return;
+        }
+        final int chunk = Math.min(COPY_CHUNK, capacity);
+        final int start = (int) ((long) COPY_INDEX.getAndAdd(t, (long) chunk) & t.mask);
+        for (int index = start; index < start + chunk; ++index) {
+            copySlot(t, index);
+        }
+    }
+
+    /**
+     * Moves slot index of t to t's next table, unless it's already moved
+     */
+    private void copySlot(Table t, int index) {
+        Object current = VALUE.getVolatile(t.values, index);
+        while (!(current instanceof Frozen)) {
+            if (current == MOVED) {
+                return;
+            }
+            if (current == null || current == TOMBSTONE) {
+                // Nothing to copy
+                if (VALUE.compareAndSet(t.values, index, current, MOVED)) {
+                    countCopied(t);
+                    return;
+                }
+            } else {
+                final Frozen frozen = new Frozen(current);
+                if (VALUE.compareAndSet(t.values, index, current, frozen)) {
+                    current = frozen;
+                    break;
+                }
+            }
+            current = VALUE.getVolatile(t.values, index);
+        }
+        update(t.next, (long) KEY.getVolatile(t.keys, index), current, COPY, t, index);
+        if (VALUE.compareAndSet(t.values, index, current, MOVED)) {
+            countCopied(t);
+        }
+    }
+
+    private void countCopied(Table t) {
+        // Counted by whoever marks the slot moved, so exactly once; whoever moves the last slot retires the table
+        if ((int) COPY_DONE.getAndAdd(t, 1) + 1 == t.keys.length) {
+            TABLE.compareAndSet(this, t, t.next);
+        }
+    }
+
+    /**
+     * Calls action for every entry, including those added during the call only if it gets to them. An entry that is
+     * updated during the call may be passed with its old or new value. Finishes any resize it comes across
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(LongObjectHashMap.EntryConsumer<? super V> action) {
+        final Object zero = zeroValue;
+        if (zero != null) {
+            action.accept(0, (V) zero);
+        }
+        Table t = table;
+        // New keys go straight to the next table of one that's being migrated, so finish the move to see them all
+        while (t.next != null) {
+            for (int index = 0; index < t.keys.length; ++index) {
+                copySlot(t, index);
+            }
+            t = t.next;
+        }
+        for (int index = 0; index < t.keys.length; ++index) {
+            Object value = VALUE.getVolatile(t.values, index);
+            final long key = (long) KEY.getVolatile(t.keys, index);
+            if (value == MOVED && key != 0) {
+                // Moved by a resize that started during the scan
+                value = find(t.next, key);
+            } else if (value instanceof Frozen frozen) {
+                value = frozen.value();
+            }
+            if (value != null && value != TOMBSTONE && value != MOVED) {
+                action.accept(key, (V) value);
+            }
+        }
+    }
+
+    /**
+     * Slots in the current table, for tests and tuning
+     */
+    int capacity() {
+        return table.keys.length;
+    }
+}
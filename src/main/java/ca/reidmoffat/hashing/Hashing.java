@@ -1,6 +1,132 @@
 package ca.reidmoffat.hashing;
 
-public class Hashing {
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Hash functions and table-sizing helpers shared by the hash tables in this package
+ * <p>
+ * Java's hashCode values are often poorly distributed in their low bits (Integer.hashCode is the value itself, and
+ * many keys differ only in their high bits), while tables pick a slot from the low bits. Every table therefore runs
+ * hash codes through a mixing function first, so that every input bit affects every output bit.
+ */
+public final class Hashing {
+
+    /**
+     * 2^64 / golden ratio, the multiplier for Fibonacci (multiplicative) hashing
+     */
+    public static final long GOLDEN_RATIO_64 = 0x9E3779B97F4A7C15L;
+    public static final int GOLDEN_RATIO_32 = 0x9E3779B9;
+
+    private Hashing() {
+    }
+
+    /**
+     * Murmur3's 32 bit finalizer: an invertible mix, so distinct inputs stay distinct
+     */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Murmur3's 64 bit finalizer
+     */
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Mixed hash code of key (0 for null)
+     */
+    public static int hash(Object key) {
+        return key == null ? 0 : mix(key.hashCode());
+    }
+
+    /**
+     * Fibonacci hashing: the top 'bits' bits of key * 2^64 / golden ratio, an index into a table of 2^bits slots. The
+     * multiplication spreads every key bit into the high bits, so this is one multiply instead of a full mix
+     */
+    public static int fibonacciIndex(long key, int bits) {
+        return bits == 0 ? 0 : (int) ((key * GOLDEN_RATIO_64) >>> (64 - bits));
+    }
+
+    /**
+     * A per-table seed to XOR into keys before {@link #fibonacciIndex}
+     * <p>
+     * Without one, every table puts a key in the same relative place, so iterating one table visits keys in order of
+     * their home slots in any other. Copying a table by iterating it then fills the new one from the low end up: each
+     * key lands at the end of one growing cluster and probes across all of it, which makes the copy quadratic. With
+     * different seeds, one table's order is random to the other.
+     */
+    public static long randomSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * Smallest power of two >= capacity, at least 1. capacity must be at most 2^30
+     */
+    public static int powerOfTwoAtLeast(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * Smallest prime >= n (2 for anything below 2)
+     */
+    public static int primeAtLeast(int n) {
+        if (n <= 2) {
+            return 2;
+        }
+        int candidate = n | 1;
+        while (!isPrime(candidate)) {
+            candidate += 2;
+        }
+        return candidate;
+    }
+
+    public static boolean isPrime(int n) {
+        if (n < 2) {
+            return false;
+        }
+        if (n % 2 == 0) {
+            return n == 2;
+        }
+        for (int d = 3; (long) d * d <= n; d += 2) {
+            if (n % d == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Probe 'i' after a collision at h with linear probing (h + i) mod m, for a power-of-two m given as mask = m - 1
+     */
+    public static int linearProbe(int h, int i, int mask) {
+        return (h + i) & mask;
+    }
+
+    /**
+     * Probe 'i' with quadratic probing (h + i^2) mod m. With a prime m and a load factor of at most 1/2, the first
+     * m/2 probes all land on different slots, so an empty one is always found
+     */
+    public static int quadraticProbe(int h, int i, int m) {
+        return (int) ((h + (long) i * i) % m);
+    }
+
+    /**
+     * Probe 'i' with double hashing (h1 + i * h2) mod m, for a power-of-two m given as mask = m - 1. h2 must be odd
+     * (relatively prime to m) for the probes to visit every slot
+     */
+    public static int doubleHash(int h1, int h2, int i, int mask) {
+        return (h1 + i * h2) & mask;
+    }
 }
 /*
 """
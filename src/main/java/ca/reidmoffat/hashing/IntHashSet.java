@@ -0,0 +1,180 @@
+package ca.reidmoffat.hashing;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints in one flat array, without boxing
+ * <p>
+ * The same layout as {@link IntIntHashMap} without the values: linear probing with Fibonacci hashing, 0 marking an
+ * empty slot, a separate flag for whether 0 itself is in the set, and backward-shift removal. Not thread safe.
+ */
+public class IntHashSet {
+
+    static final float LOAD_FACTOR = 0.75f;
+    static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int mask;
+    private int bits;      // log2(capacity)
+    private int threshold;
+    private final long seed = Hashing.randomSeed();
+    private int size;      // Elements in the array (not counting 0)
+
+    private boolean hasZero;
+
+    public IntHashSet() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of elements the set should hold without resizing
+     */
+    public IntHashSet(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        allocate(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1))));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        mask = capacity - 1;
+        bits = Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int home(int key) {
+        return Hashing.fibonacciIndex(key ^ seed, bits);
+    }
+
+    /**
+     * Slot of a non-zero key, or -(insertion slot) - 1 if it's missing
+     */
+    private int find(int key) {
+        int index = home(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    public int size() {
+        return size + (hasZero ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(int key) {
+        return key == 0 ? hasZero : find(key) >= 0;
+    }
+
+    /**
+     * @return Whether key was added (false if it was already in the set)
+     */
+    public boolean add(int key) {
+        if (key == 0) {
+            final boolean added = !hasZero;
+            hasZero = true;
+            return added;
+        }
+        int index = find(key);
+        if (index >= 0) {
+            return false;
+        }
+        if (size >= threshold) {
+            grow();
+            index = find(key);
+        }
+        keys[-index - 1] = key;
+        ++size;
+        return true;
+    }
+
+    /**
+     * @return Whether key was in the set
+     */
+    public boolean remove(int key) {
+        if (key == 0) {
+            final boolean removed = hasZero;
+            hasZero = false;
+            return removed;
+        }
+        int gap = find(key);
+        if (gap < 0) {
+            return false;
+        }
+        // Move later keys of the probe run back into the gap, when it's between their home slot and where they are
+        for (int index = (gap + 1) & mask; keys[index] != 0; index = (index + 1) & mask) {
+            if (((index - home(keys[index])) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                gap = index;
+            }
+        }
+        keys[gap] = 0;
+        --size;
+        return true;
+    }
+
+    private void grow() {
+        if (keys.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Set can't grow past " + MAX_CAPACITY + " slots");
+        }
+        final int[] oldKeys = keys;
+        allocate(2 * oldKeys.length);
+        for (int key : oldKeys) {
+            if (key != 0) {
+                int index = home(key);
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = key;
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        size = 0;
+        hasZero = false;
+    }
+
+    public void forEach(IntConsumer action) {
+        if (hasZero) {
+            action.accept(0);
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public int[] toArray() {
+        final int[] result = new int[size()];
+        int count = 0;
+        if (hasZero) {
+            result[count++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("[");
+        forEach(key -> builder.append(builder.length() > 1 ? ", " : "").append(key));
+        return builder.append(']').toString();
+    }
+}
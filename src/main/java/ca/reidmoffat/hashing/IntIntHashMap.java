@@ -0,0 +1,287 @@
+package ca.reidmoffat.hashing;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A map from int keys to int values in two flat arrays, without boxing or entry objects
+ * <p>
+ * Linear probing with Fibonacci hashing ({@link Hashing#fibonacciIndex}) of the key XORed with a random per-map seed
+ * ({@link Hashing#randomSeed}). A key of 0 in the key array marks an empty slot, so the actual key 0 is kept in a
+ * separate slot instead of needing a sentinel value. Removal shifts the rest of the probe run back (no tombstones).
+ * None of the methods allocate except when the table grows.
+ * <p>
+ * Methods that return a value return 0 when the key is missing; use containsKey or getOrDefault to tell the two
+ * apart. Not thread safe.
+ */
+public class IntIntHashMap {
+
+    /**
+     * Receives each entry in {@link #forEach}
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(int key, int value);
+    }
+
+    static final float LOAD_FACTOR = 0.75f;
+    static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int bits;      // log2(capacity)
+    private int threshold;
+    private final long seed = Hashing.randomSeed();
+    private int size;      // Entries in the arrays (not counting the zero key)
+
+    private boolean hasZeroKey;
+    private int zeroValue;
+
+    public IntIntHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of entries the map should hold without resizing
+     */
+    public IntIntHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        allocate(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1))));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        bits = Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int home(int key) {
+        return Hashing.fibonacciIndex(key ^ seed, bits);
+    }
+
+    /**
+     * Slot of a non-zero key, or -(insertion slot) - 1 if it's missing
+     */
+    private int find(int key) {
+        int index = home(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * Value for key, or 0 if it's missing
+     */
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : defaultValue;
+        }
+        final int index = find(key);
+        return index >= 0 ? values[index] : defaultValue;
+    }
+
+    /**
+     * @return Previous value, or 0 if the key was missing
+     */
+    public int put(int key, int value) {
+        if (key == 0) {
+            final int previous = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        final int index = find(key);
+        if (index >= 0) {
+            final int previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+        insert(-index - 1, key, value);
+        return 0;
+    }
+
+    /**
+     * Adds delta to key's value, treating a missing key as 0
+     *
+     * @return The new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == 0) {
+            zeroValue = hasZeroKey ? zeroValue + delta : delta;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        final int index = find(key);
+        if (index >= 0) {
+            return values[index] += delta;
+        }
+        insert(-index - 1, key, delta);
+        return delta;
+    }
+
+    /**
+     * Returns key's value, first putting mapping(key) if it's missing
+     *
+     * @throws ConcurrentModificationException If mapping put key itself (it may change the map otherwise)
+     */
+    public int computeIfAbsent(int key, IntUnaryOperator mapping) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                final int value = mapping.applyAsInt(0);
+                if (hasZeroKey) {
+                    throw new ConcurrentModificationException();
+                }
+                zeroValue = value;
+                hasZeroKey = true;
+            }
+            return zeroValue;
+        }
+        final int index = find(key);
+        if (index >= 0) {
+            return values[index];
+        }
+        final int value = mapping.applyAsInt(key);
+        insert(slotAfterMapping(key), key, value);
+        return value;
+    }
+
+    /**
+     * Insertion slot for a key that was missing before the mapping function ran. The function may have changed the
+     * map, which can move entries (or grow the table), so the slot is looked up again
+     *
+     * @throws ConcurrentModificationException If the function added the key itself
+     */
+    private int slotAfterMapping(int key) {
+        final int index = find(key);
+        if (index >= 0) {
+            throw new ConcurrentModificationException();
+        }
+        return -index - 1;
+    }
+
+    private void insert(int index, int key, int value) {
+        if (size >= threshold) {
+            grow();
+            index = -find(key) - 1;
+        }
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+    }
+
+    /**
+     * @return Removed value, or 0 if the key was missing
+     */
+    public int remove(int key) {
+        if (key == 0) {
+            final int previous = hasZeroKey ? zeroValue : 0;
+            hasZeroKey = false;
+            zeroValue = 0;
+            return previous;
+        }
+        int gap = find(key);
+        if (gap < 0) {
+            return 0;
+        }
+        final int previous = values[gap];
+        // Move later entries of the probe run back into the gap, when it's between their home slot and where they are
+        for (int index = (gap + 1) & mask; keys[index] != 0; index = (index + 1) & mask) {
+            if (((index - home(keys[index])) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        --size;
+        return previous;
+    }
+
+    private void grow() {
+        if (keys.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map can't grow past " + MAX_CAPACITY + " slots");
+        }
+        final int[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != 0) {
+                int index = home(oldKeys[i]);
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        size = 0;
+        hasZeroKey = false;
+        zeroValue = 0;
+    }
+
+    public void forEach(EntryConsumer action) {
+        if (hasZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    public int[] keys() {
+        final int[] result = new int[size()];
+        int count = 0;
+        if (hasZeroKey) {
+            result[count++] = 0;
+        }
+        for (int key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,271 @@
+package ca.reidmoffat.hashing;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+/**
+ * A map from long keys to objects in two flat arrays, without boxing the keys or creating entry objects
+ * <p>
+ * The same layout as {@link IntIntHashMap}: linear probing with Fibonacci hashing, 0 marking an empty slot, the key 0
+ * kept in a separate slot, and backward-shift removal. Values can't be null, so null always means a missing key.
+ * Not thread safe.
+ *
+ * @param <V> Value type
+ */
+public class LongObjectHashMap<V> {
+
+    /**
+     * Receives each entry in {@link #forEach}
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    static final float LOAD_FACTOR = 0.75f;
+    static final int MIN_CAPACITY = 4;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int bits;      // log2(capacity)
+    private int threshold;
+    private final long seed = Hashing.randomSeed();
+    private int size;      // Entries in the arrays (not counting the zero key)
+
+    private Object zeroValue; // null if the key 0 is missing
+
+    public LongObjectHashMap() {
+        this(0);
+    }
+
+    /**
+     * @param expectedSize Number of entries the map should hold without resizing
+     */
+    public LongObjectHashMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        allocate(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / LOAD_FACTOR) + 1))));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        bits = Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int home(long key) {
+        return Hashing.fibonacciIndex(key ^ seed, bits);
+    }
+
+    /**
+     * Slot of a non-zero key, or -(insertion slot) - 1 if it's missing
+     */
+    private int find(long key) {
+        int index = home(key);
+        while (keys[index] != 0) {
+            if (keys[index] == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -index - 1;
+    }
+
+    public int size() {
+        return size + (zeroValue != null ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return key == 0 ? zeroValue != null : find(key) >= 0;
+    }
+
+    /**
+     * Value for key, or null if it's missing
+     */
+    public V get(long key) {
+        return getOrDefault(key, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(long key, V defaultValue) {
+        if (key == 0) {
+            return zeroValue != null ? (V) zeroValue : defaultValue;
+        }
+        final int index = find(key);
+        return index >= 0 ? (V) values[index] : defaultValue;
+    }
+
+    /**
+     * @return Previous value, or null if the key was missing
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        if (key == 0) {
+            final V previous = (V) zeroValue;
+            zeroValue = value;
+            return previous;
+        }
+        final int index = find(key);
+        if (index >= 0) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        insert(-index - 1, key, value);
+        return null;
+    }
+
+    /**
+     * Returns key's value, first putting mapping(key) if it's missing. Nothing is put if mapping returns null
+     *
+     * @throws ConcurrentModificationException If mapping put key itself (it may change the map otherwise)
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(long key, LongFunction<? extends V> mapping) {
+        if (key == 0) {
+            if (zeroValue == null) {
+                final V value = mapping.apply(0);
+                if (zeroValue != null) {
+                    throw new ConcurrentModificationException();
+                }
+                zeroValue = value;
+            }
+            return (V) zeroValue;
+        }
+        final int index = find(key);
+        if (index >= 0) {
+            return (V) values[index];
+        }
+        final V value = mapping.apply(key);
+        final int slot = slotAfterMapping(key);
+        if (value != null) {
+            insert(slot, key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Insertion slot for a key that was missing before the mapping function ran. The function may have changed the
+     * map, which can move entries (or grow the table), so the slot is looked up again
+     *
+     * @throws ConcurrentModificationException If the function added the key itself
+     */
+    private int slotAfterMapping(long key) {
+        final int index = find(key);
+        if (index >= 0) {
+            throw new ConcurrentModificationException();
+        }
+        return -index - 1;
+    }
+
+    private void insert(int index, long key, Object value) {
+        if (size >= threshold) {
+            grow();
+            index = -find(key) - 1;
+        }
+        keys[index] = key;
+        values[index] = value;
+        ++size;
+    }
+
+    /**
+     * @return Removed value, or null if the key was missing
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            final V previous = (V) zeroValue;
+            zeroValue = null;
+            return previous;
+        }
+        int gap = find(key);
+        if (gap < 0) {
+            return null;
+        }
+        final V previous = (V) values[gap];
+        // Move later entries of the probe run back into the gap, when it's between their home slot and where they are
+        for (int index = (gap + 1) & mask; keys[index] != 0; index = (index + 1) & mask) {
+            if (((index - home(keys[index])) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = keys[index];
+                values[gap] = values[index];
+                gap = index;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        --size;
+        return previous;
+    }
+
+    private void grow() {
+        if (keys.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map can't grow past " + MAX_CAPACITY + " slots");
+        }
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] != 0) {
+                int index = home(oldKeys[i]);
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        size = 0;
+        zeroValue = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        if (zeroValue != null) {
+            action.accept(0, (V) zeroValue);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != 0) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    public long[] keys() {
+        final long[] result = new long[size()];
+        int count = 0;
+        if (zeroValue != null) {
+            result[count++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[count++] = key;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
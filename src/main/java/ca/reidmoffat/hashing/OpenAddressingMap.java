@@ -0,0 +1,488 @@
+package ca.reidmoffat.hashing;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A hash map with open addressing (closed hashing): every entry lives in the table itself, in parallel key, value and
+ * hash arrays, and a collision is resolved by probing for another slot with the chosen {@link ProbingStrategy}
+ * <p>
+ * Deleting leaves a tombstone so that probe sequences running through the slot still find what lies beyond it.
+ * Tombstones count towards the load factor; when the table fills up it is rebuilt at twice the size, or at the same
+ * size if it's mostly tombstones. With linear probing, a deletion directly before an empty slot doesn't need a
+ * tombstone at all, and clears any tombstones right before it too.
+ * <p>
+ * Resizing is incremental: the new table is allocated, and each put or remove moves the next few slots of the old
+ * table over, instead of stopping to rehash everything at once. Until it is done, lookups check both tables.
+ * <p>
+ * Null keys and values are allowed. Iterators are fail-fast. Not thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class OpenAddressingMap<K, V> extends AbstractMap<K, V> implements Map<K, V> {
+
+    static final int MIN_CAPACITY = 8;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    // Old slots moved to the new table per put or remove while resizing
+    static final int MIGRATION_STEP = 16;
+
+    private static final Object NULL_KEY = new Object();
+    private static final Object TOMBSTONE = new Object();
+
+    private static final class Table {
+        final Object[] keys;   // null = empty slot
+        final Object[] values;
+        final int[] hashes;
+        final int capacity;
+        final int threshold;   // Most live entries + tombstones allowed
+        int live;
+        int tombstones;
+
+        Table(int capacity, float loadFactor) {
+            keys = new Object[capacity];
+            values = new Object[capacity];
+            hashes = new int[capacity];
+            this.capacity = capacity;
+            threshold = Math.max(1, Math.min(capacity - 1, (int) (capacity * loadFactor)));
+        }
+    }
+
+    private final ProbingStrategy strategy;
+    private final float loadFactor;
+
+    private Table table;
+    private Table old;      // Table being migrated out of, or null
+    private int migrated;   // Slots of old already moved
+    private int size;
+    private int modCount;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    public OpenAddressingMap() {
+        this(ProbingStrategy.LINEAR);
+    }
+
+    public OpenAddressingMap(ProbingStrategy strategy) {
+        this(strategy, MIN_CAPACITY, strategy.defaultLoadFactor());
+    }
+
+    /**
+     * @param expectedSize  Number of entries the map should hold without resizing
+     * @param maxLoadFactor Fraction of the table that can fill up (entries and tombstones) before it is resized. At
+     *                      most {@link ProbingStrategy#maxLoadFactor()}
+     */
+    public OpenAddressingMap(ProbingStrategy strategy, int expectedSize, float maxLoadFactor) {
+        if (!(maxLoadFactor > 0 && maxLoadFactor <= strategy.maxLoadFactor())) {
+            throw new IllegalArgumentException("Load factor for " + strategy + " must be in (0, "
+                    + strategy.maxLoadFactor() + "]: " + maxLoadFactor);
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        this.strategy = strategy;
+        this.loadFactor = maxLoadFactor;
+        table = new Table(tableSize((int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / maxLoadFactor) + 1)),
+                maxLoadFactor);
+    }
+
+    public ProbingStrategy strategy() {
+        return strategy;
+    }
+
+    private int tableSize(int capacity) {
+        capacity = Math.max(MIN_CAPACITY, capacity);
+        return strategy.primeSized() ? Hashing.primeAtLeast(capacity) : Hashing.powerOfTwoAtLeast(capacity);
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K unmaskNull(Object key) {
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    private int home(Table t, int hash) {
+        return strategy.primeSized() ? (hash & Integer.MAX_VALUE) % t.capacity : hash & (t.capacity - 1);
+    }
+
+    private int step(int hash) {
+        return strategy == ProbingStrategy.DOUBLE_HASH ? Hashing.mix(hash + Hashing.GOLDEN_RATIO_32) | 1 : 0;
+    }
+
+    /**
+     * Slot of key in t, or -1
+     */
+    private int find(Table t, Object key, int hash) {
+        final int step = step(hash);
+        int index = home(t, hash);
+        for (int attempt = 1; ; ++attempt) {
+            final Object k = t.keys[index];
+            if (k == null) {
+                return -1;
+            }
+            if (k != TOMBSTONE && t.hashes[index] == hash && (k == key || k.equals(key))) {
+                return index;
+            }
+            index = strategy.next(index, attempt, step, t.capacity);
+        }
+    }
+
+    /**
+     * Puts a key that isn't in t into its first free (empty or tombstone) slot
+     */
+    private void insert(Table t, Object key, int hash, Object value) {
+        final int step = step(hash);
+        int index = home(t, hash);
+        for (int attempt = 1; t.keys[index] != null && t.keys[index] != TOMBSTONE; ++attempt) {
+            index = strategy.next(index, attempt, step, t.capacity);
+        }
+        if (t.keys[index] == TOMBSTONE) {
+            --t.tombstones;
+        }
+        t.keys[index] = key;
+        t.values[index] = value;
+        t.hashes[index] = hash;
+        ++t.live;
+    }
+
+    private void delete(Table t, int index) {
+        t.values[index] = null;
+        --t.live;
+        if (strategy == ProbingStrategy.LINEAR && t.keys[(index + 1) & (t.capacity - 1)] == null) {
+            // Nothing probes past an empty slot, so this slot and the tombstones before it can be emptied too
+            t.keys[index] = null;
+            for (int i = (index - 1) & (t.capacity - 1); t.keys[i] == TOMBSTONE; i = (i - 1) & (t.capacity - 1)) {
+                t.keys[i] = null;
+                --t.tombstones;
+            }
+        } else {
+            t.keys[index] = TOMBSTONE;
+            ++t.tombstones;
+        }
+    }
+
+    // Resizing
+
+    /**
+     * Makes room in table for one more entry, starting a resize if it's full
+     */
+    private void ensureRoom() {
+        if (table.live + table.tombstones < table.threshold) {
+            return;
+        }
+        if (old != null) {
+            finishMigration();
+            if (table.live + table.tombstones < table.threshold) {
+                return;
+            }
+        }
+        final int capacity;
+        if (table.live >= table.threshold / 2) {
+            if (table.capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Map can't grow past " + MAX_CAPACITY + " slots");
+            }
+            capacity = tableSize(2 * table.capacity);
+        } else {
+            capacity = table.capacity; // Mostly tombstones: rebuild at the same size
+        }
+        old = table;
+        migrated = 0;
+        table = new Table(capacity, loadFactor);
+        migrate(MIGRATION_STEP);
+    }
+
+    private void migrate(int slots) {
+        final Table from = old;
+        final int end = (int) Math.min(from.capacity, (long) migrated + slots);
+        for (int i = migrated; i < end; ++i) {
+            final Object key = from.keys[i];
+            if (key != null && key != TOMBSTONE) {
+                insert(table, key, from.hashes[i], from.values[i]);
+                // A tombstone (not an empty slot) so lookups in the old table still probe past it
+                from.keys[i] = TOMBSTONE;
+                from.values[i] = null;
+                --from.live;
+                ++from.tombstones;
+            }
+        }
+        migrated = end;
+        ++modCount; // Entries moved, so iterators over both tables are stale
+        if (migrated == from.capacity || from.live == 0) {
+            old = null;
+        }
+    }
+
+    private void finishMigration() {
+        migrate(old.capacity);
+    }
+
+    // Map methods
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final Object k = maskNull(key);
+        final int hash = Hashing.hash(key);
+        return find(table, k, hash) >= 0 || old != null && find(old, k, hash) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final Object k = maskNull(key);
+        final int hash = Hashing.hash(key);
+        int index = find(table, k, hash);
+        if (index >= 0) {
+            return (V) table.values[index];
+        }
+        if (old != null && (index = find(old, k, hash)) >= 0) {
+            return (V) old.values[index];
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (old != null) {
+            migrate(MIGRATION_STEP);
+        }
+        final Object k = maskNull(key);
+        final int hash = Hashing.hash(key);
+        int index = find(table, k, hash);
+        if (index >= 0) {
+            final V previous = (V) table.values[index];
+            table.values[index] = value;
+            return previous;
+        }
+
+        V previous = null;
+        if (old != null && (index = find(old, k, hash)) >= 0) {
+            // Move it over now rather than updating it where it is
+            previous = (V) old.values[index];
+            delete(old, index);
+            --size;
+        }
+        ensureRoom();
+        insert(table, k, hash, value);
+        ++size;
+        ++modCount;
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        if (old != null) {
+            migrate(MIGRATION_STEP);
+        }
+        final Object k = maskNull(key);
+        final int hash = Hashing.hash(key);
+        Table t = table;
+        int index = find(t, k, hash);
+        if (index < 0 && old != null) {
+            t = old;
+            index = find(t, k, hash);
+        }
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) t.values[index];
+        delete(t, index);
+        --size;
+        ++modCount;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        table = new Table(table.capacity, loadFactor);
+        old = null;
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * Probe lengths of every entry and the current tombstone count (including a table still being migrated)
+     */
+    public ProbeStats stats() {
+        long totalProbes = 0;
+        int maxProbes = 0;
+        for (Table t : old == null ? new Table[]{table} : new Table[]{table, old}) {
+            for (int i = 0; i < t.capacity; ++i) {
+                if (t.keys[i] != null && t.keys[i] != TOMBSTONE) {
+                    final int probes = probeLength(t, i);
+                    totalProbes += probes;
+                    maxProbes = Math.max(maxProbes, probes);
+                }
+            }
+        }
+        final int tombstones = table.tombstones + (old == null ? 0 : old.tombstones);
+        return new ProbeStats(size, table.capacity, tombstones, size == 0 ? 0 : (double) totalProbes / size,
+                maxProbes);
+    }
+
+    private int probeLength(Table t, int slot) {
+        final int hash = t.hashes[slot];
+        final int step = step(hash);
+        int index = home(t, hash);
+        int attempt = 1;
+        while (index != slot) {
+            index = strategy.next(index, attempt++, step, t.capacity);
+        }
+        return attempt;
+    }
+
+    // Views
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    OpenAddressingMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class Entry implements Map.Entry<K, V> {
+        private final Table t;
+        private final int index;
+        private final K key;
+
+        Entry(Table t, int index) {
+            this.t = t;
+            this.index = index;
+            this.key = unmaskNull(t.keys[index]);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return t.keys[index] == maskNull(key) ? (V) t.values[index] : get(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            if (t.keys[index] != maskNull(key)) {
+                return put(key, value); // Moved by a resize since the iterator returned it
+            }
+            final V previous = (V) t.values[index];
+            t.values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e && Objects.equals(key, e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private final Table[] tables = old == null ? new Table[]{table} : new Table[]{table, old};
+        private int tableIndex;
+        private int next = -1;
+        private Table lastTable;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            advance();
+        }
+
+        private void advance() {
+            while (tableIndex < tables.length) {
+                final Object[] keys = tables[tableIndex].keys;
+                while (++next < keys.length) {
+                    if (keys[next] != null && keys[next] != TOMBSTONE) {
+                        return;
+                    }
+                }
+                ++tableIndex;
+                next = -1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return tableIndex < tables.length;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastTable = tables[tableIndex];
+            last = next;
+            advance();
+            return new Entry(lastTable, last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            delete(lastTable, last);
+            --size;
+            expectedModCount = ++modCount;
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ca.reidmoffat.hashing;
+
+/**
+ * A snapshot of how well a hash table is doing, for comparing tables and strategies on a real workload
+ *
+ * @param size               Number of entries
+ * @param capacity           Number of slots
+ * @param tombstones         Slots holding a deleted-entry marker (they slow down lookups until the next rehash)
+ * @param averageProbeLength Average number of slots a successful lookup examines (1 means every entry is in its home
+ *                           slot)
+ * @param maxProbeLength     Most slots any successful lookup examines
+ */
+public record ProbeStats(int size, int capacity, int tombstones, double averageProbeLength, int maxProbeLength) {
+
+    public double loadFactor() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+}
@@ -0,0 +1,67 @@
+package ca.reidmoffat.hashing;
+
+/**
+ * How {@link OpenAddressingMap} looks for another slot after a collision (see the notes in {@link Hashing})
+ */
+public enum ProbingStrategy {
+
+    /**
+     * Try the next slot. The most cache friendly, but entries pile up into long runs (primary clustering) as the
+     * table fills up. Power-of-two table
+     */
+    LINEAR(0.75f, 0.95f) {
+        @Override
+        int next(int index, int attempt, int step, int capacity) {
+            return Hashing.linearProbe(index, 1, capacity - 1);
+        }
+    },
+
+    /**
+     * Try h + 1, h + 4, h + 9, ... which breaks up runs. Needs a prime-sized table at most half full to be sure of
+     * finding an empty slot, so the load factor is capped at 0.5
+     */
+    QUADRATIC(0.5f, 0.5f) {
+        @Override
+        int next(int index, int attempt, int step, int capacity) {
+            // (h + i^2) - (h + (i - 1)^2) = 2i - 1
+            return (int) ((index + 2L * attempt - 1) % capacity);
+        }
+    },
+
+    /**
+     * Step by a second, independent hash of the key, so keys that collide on one slot still take different paths.
+     * Fewest probes at high load, but every probe is a cache miss. Power-of-two table with an odd step
+     */
+    DOUBLE_HASH(0.75f, 0.95f) {
+        @Override
+        int next(int index, int attempt, int step, int capacity) {
+            return Hashing.doubleHash(index, step, 1, capacity - 1);
+        }
+    };
+
+    final float defaultLoadFactor;
+    final float maxLoadFactor;
+
+    ProbingStrategy(float defaultLoadFactor, float maxLoadFactor) {
+        this.defaultLoadFactor = defaultLoadFactor;
+        this.maxLoadFactor = maxLoadFactor;
+    }
+
+    /**
+     * Slot to try after 'index' on probe number 'attempt' (1 for the first collision). step is the key's second hash
+     * (only used by DOUBLE_HASH)
+     */
+    abstract int next(int index, int attempt, int step, int capacity);
+
+    boolean primeSized() {
+        return this == QUADRATIC;
+    }
+
+    public float defaultLoadFactor() {
+        return defaultLoadFactor;
+    }
+
+    public float maxLoadFactor() {
+        return maxLoadFactor;
+    }
+}
@@ -0,0 +1,386 @@
+package ca.reidmoffat.hashing;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A linear probing hash map with Robin Hood insertion and backward-shift deletion
+ * <p>
+ * Every slot records its entry's probe length: how many slots from its home slot it sits, plus one. While inserting,
+ * if the new entry has probed further than the entry in the slot it's looking at ("is poorer"), it takes the slot and
+ * the displaced entry carries on probing instead. This evens out probe lengths, so the longest one stays short even at
+ * a load factor of 0.9. It also orders every run by home slot, so a lookup can stop as soon as it reaches an entry
+ * closer to its home than the key would be at that point.
+ * <p>
+ * Deleting shifts the following entries of the run back one slot each (until an empty slot or an entry already in
+ * its home slot), which keeps the runs intact without tombstones. See {@link OpenAddressingMap} for the other
+ * probing strategies; {@link #stats()} reports the same {@link ProbeStats}.
+ * <p>
+ * Null keys and values are allowed. Iterators are fail-fast. Not thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class RobinHoodMap<K, V> extends AbstractMap<K, V> implements Map<K, V> {
+
+    public static final float DEFAULT_LOAD_FACTOR = 0.9f;
+    public static final float MAX_LOAD_FACTOR = 0.99f;
+
+    static final int MIN_CAPACITY = 8;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private static final Object NULL_KEY = new Object();
+
+    private final float loadFactor;
+
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int[] probeLengths; // 0 = empty slot, otherwise distance from the home slot + 1
+    private int mask;
+    private int threshold;
+    private int size;
+    private int modCount;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    public RobinHoodMap() {
+        this(MIN_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * @param expectedSize  Number of entries the map should hold without resizing
+     * @param maxLoadFactor Fraction of the table that can fill up before it doubles, at most {@link #MAX_LOAD_FACTOR}
+     */
+    public RobinHoodMap(int expectedSize, float maxLoadFactor) {
+        if (!(maxLoadFactor > 0 && maxLoadFactor <= MAX_LOAD_FACTOR)) {
+            throw new IllegalArgumentException("Load factor must be in (0, " + MAX_LOAD_FACTOR + "]: " + maxLoadFactor);
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size can't be negative: " + expectedSize);
+        }
+        loadFactor = maxLoadFactor;
+        allocate(Hashing.powerOfTwoAtLeast(Math.max(MIN_CAPACITY,
+                (int) Math.min(MAX_CAPACITY, (long) Math.ceil(expectedSize / maxLoadFactor) + 1))));
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        probeLengths = new int[capacity];
+        mask = capacity - 1;
+        threshold = Math.max(1, Math.min(capacity - 1, (int) (capacity * loadFactor)));
+    }
+
+    private static Object maskNull(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K unmaskNull(Object key) {
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    /**
+     * Slot of key, or -1
+     */
+    private int find(Object key, int hash) {
+        int index = hash & mask;
+        for (int probes = 1; ; ++probes) {
+            // An entry (or empty slot) with a shorter probe length means key would have displaced it
+            if (probeLengths[index] < probes) {
+                return -1;
+            }
+            if (hashes[index] == hash && (keys[index] == key || keys[index].equals(key))) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    /**
+     * Inserts a key that isn't in the table, displacing richer entries along the way
+     */
+    private void insert(Object key, int hash, Object value) {
+        int index = hash & mask;
+        int probes = 1;
+        while (probeLengths[index] != 0) {
+            if (probeLengths[index] < probes) {
+                final Object k = keys[index];
+                final Object v = values[index];
+                final int h = hashes[index];
+                final int p = probeLengths[index];
+                keys[index] = key;
+                values[index] = value;
+                hashes[index] = hash;
+                probeLengths[index] = probes;
+                key = k;
+                value = v;
+                hash = h;
+                probes = p;
+            }
+            index = (index + 1) & mask;
+            ++probes;
+        }
+        keys[index] = key;
+        values[index] = value;
+        hashes[index] = hash;
+        probeLengths[index] = probes;
+    }
+
+    /**
+     * Removes the entry at index by shifting the rest of its run back a slot
+     */
+    private void delete(int index) {
+        int next = (index + 1) & mask;
+        while (probeLengths[next] > 1) {
+            keys[index] = keys[next];
+            values[index] = values[next];
+            hashes[index] = hashes[next];
+            probeLengths[index] = probeLengths[next] - 1;
+            index = next;
+            next = (next + 1) & mask;
+        }
+        keys[index] = null;
+        values[index] = null;
+        probeLengths[index] = 0;
+    }
+
+    private void grow() {
+        if (keys.length >= MAX_CAPACITY) {
+            throw new IllegalStateException("Map can't grow past " + MAX_CAPACITY + " slots");
+        }
+        final Object[] oldKeys = keys;
+        final Object[] oldValues = values;
+        final int[] oldHashes = hashes;
+        final int[] oldProbeLengths = probeLengths;
+        allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldProbeLengths[i] != 0) {
+                insert(oldKeys[i], oldHashes[i], oldValues[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(maskNull(key), Hashing.hash(key)) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final int index = find(maskNull(key), Hashing.hash(key));
+        return index < 0 ? null : (V) values[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        final Object k = maskNull(key);
+        final int hash = Hashing.hash(key);
+        final int index = find(k, hash);
+        if (index >= 0) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (size >= threshold) {
+            grow();
+        }
+        insert(k, hash, value);
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        final int index = find(maskNull(key), Hashing.hash(key));
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) values[index];
+        delete(index);
+        --size;
+        ++modCount;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        allocate(keys.length);
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * Probe lengths of every entry. There are never any tombstones
+     */
+    public ProbeStats stats() {
+        long totalProbes = 0;
+        int maxProbes = 0;
+        for (int probes : probeLengths) {
+            totalProbes += probes;
+            maxProbes = Math.max(maxProbes, probes);
+        }
+        return new ProbeStats(size, keys.length, 0, size == 0 ? 0 : (double) totalProbes / size, maxProbes);
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    RobinHoodMap.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class Entry implements Map.Entry<K, V> {
+        private final Object[] table;
+        private final int index;
+        private final K key;
+
+        Entry(int index) {
+            this.table = keys;
+            this.index = index;
+            this.key = unmaskNull(keys[index]);
+        }
+
+        // Deletions shift entries, so check the entry is still where the iterator found it
+        private boolean inPlace() {
+            return table == keys && keys[index] == maskNull(key);
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return inPlace() ? (V) values[index] : get(key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(V value) {
+            if (!inPlace()) {
+                return put(key, value);
+            }
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e && Objects.equals(key, e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + getValue();
+        }
+    }
+
+    /**
+     * Walks the table backwards, starting just before an empty slot. Deleting shifts entries from later slots (which
+     * this has already visited) into earlier ones, and since no run crosses the empty slot, no entry it hasn't
+     * visited yet gets shifted past it
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private int next;
+        private int remaining;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            int empty = 0;
+            while (probeLengths[empty] != 0) {
+                ++empty;
+            }
+            next = empty;
+            remaining = keys.length;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                next = (next - 1) & mask;
+                --remaining;
+            } while (remaining > 0 && probeLengths[next] == 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance();
+            return new Entry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            delete(last);
+            --size;
+            expectedModCount = ++modCount;
+            last = -1;
+        }
+    }
+}
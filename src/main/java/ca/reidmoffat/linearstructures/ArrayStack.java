@@ -0,0 +1,120 @@
+package ca.reidmoffat.linearstructures;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A {@link Stack} in a growable array
+ * <p>
+ * push and pop are amortized O(1) and never allocate except when push has to grow the array (by half its size).
+ * Popped slots are cleared so the stack doesn't keep their elements from being garbage collected. Not thread safe.
+ *
+ * @param <E> Element type
+ */
+public class ArrayStack<E> implements Stack<E> {
+
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // Some VMs reserve header words in arrays
+
+    private Object[] elements;
+    private int size;
+
+    public ArrayStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ArrayStack(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative: " + initialCapacity);
+        }
+        elements = new Object[initialCapacity];
+    }
+
+    @Override
+    public void push(E element) {
+        Objects.requireNonNull(element);
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = element;
+    }
+
+    /**
+     * Pushes values[offset..offset + length) in order, so values[offset + length - 1] ends up on top
+     */
+    public void pushAll(E[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        for (int i = offset; i < offset + length; ++i) {
+            Objects.requireNonNull(values[i]);
+        }
+        if (length > elements.length - size) {
+            grow(size + length);
+        }
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    public void pushAll(E[] values) {
+        pushAll(values, 0, values.length);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E pop() {
+        if (size == 0) {
+            return null;
+        }
+        final E element = (E) elements[--size];
+        elements[size] = null;
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return size == 0 ? null : (E) elements[size - 1];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Grows the array (if needed) so it holds at least minCapacity elements without growing again
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Shrinks the array to exactly the current size
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * Returns the elements from the bottom of the stack to the top
+     */
+    public Object[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Stack can't hold " + Integer.toUnsignedString(minCapacity) + " elements");
+        }
+        final int grown = (int) Math.min(MAX_CAPACITY, elements.length + (elements.length >> 1) + 1L);
+        elements = Arrays.copyOf(elements, Math.max(minCapacity, grown));
+    }
+}
@@ -0,0 +1,477 @@
+package ca.reidmoffat.linearstructures;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A double-ended queue in a circular array
+ * <p>
+ * Elements sit in a contiguous run of the array that wraps around the end, from head to head + size. Adding or
+ * removing at either end moves head or the end of the run, so both are O(1); the array's length is a power of two,
+ * so wrapping an index around is a mask instead of a division. The bulk addAllLast and pollFirst copy with at most
+ * two arraycopy calls each, one on either side of the wrap point. Removing from the middle shifts whichever side is
+ * shorter.
+ * <p>
+ * A deque made with {@link #fixedCapacity} never grows: adding to a full deque evicts the element at the other end,
+ * which keeps the last 'capacity' elements for sliding windows and "drop oldest" buffers. Otherwise the deque doubles
+ * when it fills up. Null elements are not allowed. Iterators are fail-fast. Not thread safe.
+ *
+ * @param <E> Element type
+ * @see IntDeque
+ */
+public class CircularDeque<E> extends AbstractCollection<E> implements Deque<E> {
+
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private Object[] elements;
+    private int mask;
+    private int head;
+    private int size;
+    private final int fixedCapacity; // -1 if the deque grows instead of evicting
+    private int modCount;
+
+    public CircularDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CircularDeque(int initialCapacity) {
+        this(initialCapacity, -1);
+    }
+
+    private CircularDeque(int initialCapacity, int fixedCapacity) {
+        if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 0 and " + MAX_CAPACITY + ": "
+                    + initialCapacity);
+        }
+        elements = new Object[tableSize(initialCapacity)];
+        mask = elements.length - 1;
+        this.fixedCapacity = fixedCapacity;
+    }
+
+    /**
+     * A deque that holds at most 'capacity' elements, evicting from the other end when adding to a full one
+     */
+    public static <E> CircularDeque<E> fixedCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        return new CircularDeque<>(capacity, capacity);
+    }
+
+    /**
+     * Smallest power of two >= capacity (and >= 1)
+     */
+    static int tableSize(int capacity) {
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Most elements the deque can hold before it grows (or, with a fixed capacity, starts evicting)
+     */
+    public int capacity() {
+        return fixedCapacity > 0 ? fixedCapacity : elements.length;
+    }
+
+    // Adding
+
+    @Override
+    public void addFirst(E element) {
+        Objects.requireNonNull(element);
+        if (size == fixedCapacity) {
+            elements[(head + --size) & mask] = null; // Evict the last element
+        } else if (size == elements.length) {
+            grow(size + 1);
+        }
+        head = (head - 1) & mask;
+        elements[head] = element;
+        ++size;
+        ++modCount;
+    }
+
+    @Override
+    public void addLast(E element) {
+        Objects.requireNonNull(element);
+        if (size == fixedCapacity) {
+            elements[head] = null; // Evict the first element
+            head = (head + 1) & mask;
+            --size;
+        } else if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[(head + size) & mask] = element;
+        ++size;
+        ++modCount;
+    }
+
+    /**
+     * Appends values[offset..offset + length) in order. With a fixed capacity, this evicts as many elements from the
+     * front as it needs to (and if length is more than the capacity, only the last 'capacity' values are kept)
+     */
+    public void addAllLast(E[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        for (int i = offset; i < offset + length; ++i) {
+            Objects.requireNonNull(values[i]);
+        }
+        if (fixedCapacity > 0) {
+            if (length >= fixedCapacity) {
+                offset += length - fixedCapacity;
+                length = fixedCapacity;
+                clear();
+            } else if (size + length > fixedCapacity) {
+                removeFront(size + length - fixedCapacity);
+            }
+        } else if (length > elements.length - size) {
+            grow(size + length);
+        }
+
+        final int tail = (head + size) & mask;
+        final int beforeWrap = Math.min(length, elements.length - tail);
+        System.arraycopy(values, offset, elements, tail, beforeWrap);
+        System.arraycopy(values, offset + beforeWrap, elements, 0, length - beforeWrap);
+        size += length;
+        ++modCount;
+    }
+
+    public void addAllLast(E[] values) {
+        addAllLast(values, 0, values.length);
+    }
+
+    @Override
+    public boolean offerFirst(E element) {
+        addFirst(element);
+        return true;
+    }
+
+    @Override
+    public boolean offerLast(E element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public boolean add(E element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public boolean offer(E element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public void push(E element) {
+        addFirst(element);
+    }
+
+    // Removing
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E pollFirst() {
+        if (size == 0) {
+            return null;
+        }
+        final E element = (E) elements[head];
+        removeFront(1);
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E pollLast() {
+        if (size == 0) {
+            return null;
+        }
+        final int index = (head + --size) & mask;
+        final E element = (E) elements[index];
+        elements[index] = null;
+        ++modCount;
+        return element;
+    }
+
+    /**
+     * Removes up to 'length' elements from the front into destination[offset..)
+     *
+     * @return Number of elements removed
+     */
+    public int pollFirst(E[] destination, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, destination.length);
+        final int count = Math.min(length, size);
+        final int beforeWrap = Math.min(count, elements.length - head);
+        System.arraycopy(elements, head, destination, offset, beforeWrap);
+        System.arraycopy(elements, 0, destination, offset + beforeWrap, count - beforeWrap);
+        removeFront(count);
+        return count;
+    }
+
+    public int pollFirst(E[] destination) {
+        return pollFirst(destination, 0, destination.length);
+    }
+
+    /**
+     * Drops the first 'count' elements, clearing their slots
+     */
+    private void removeFront(int count) {
+        final int beforeWrap = Math.min(count, elements.length - head);
+        Arrays.fill(elements, head, head + beforeWrap, null);
+        Arrays.fill(elements, 0, count - beforeWrap, null);
+        head = (head + count) & mask;
+        size -= count;
+        ++modCount;
+    }
+
+    @Override
+    public E removeFirst() {
+        final E element = pollFirst();
+        if (element == null) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return element;
+    }
+
+    @Override
+    public E removeLast() {
+        final E element = pollLast();
+        if (element == null) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return element;
+    }
+
+    @Override
+    public E poll() {
+        return pollFirst();
+    }
+
+    @Override
+    public E remove() {
+        return removeFirst();
+    }
+
+    @Override
+    public E pop() {
+        return removeFirst();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return removeFirstOccurrence(o);
+    }
+
+    @Override
+    public boolean removeFirstOccurrence(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; ++i) {
+                if (o.equals(elements[(head + i) & mask])) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean removeLastOccurrence(Object o) {
+        if (o != null) {
+            for (int i = size - 1; i >= 0; --i) {
+                if (o.equals(elements[(head + i) & mask])) {
+                    removeAt(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the element 'index' places from the front by shifting the shorter side over it
+     */
+    private void removeAt(int index) {
+        if (index < size - 1 - index) {
+            for (int i = index; i > 0; --i) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+            elements[head] = null;
+            head = (head + 1) & mask;
+        } else {
+            for (int i = index; i < size - 1; ++i) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+            elements[(head + size - 1) & mask] = null;
+        }
+        --size;
+        ++modCount;
+    }
+
+    @Override
+    public void clear() {
+        removeFront(size);
+        head = 0;
+    }
+
+    // Examining
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peekFirst() {
+        return size == 0 ? null : (E) elements[head];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peekLast() {
+        return size == 0 ? null : (E) elements[(head + size - 1) & mask];
+    }
+
+    @Override
+    public E getFirst() {
+        final E element = peekFirst();
+        if (element == null) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return element;
+    }
+
+    @Override
+    public E getLast() {
+        final E element = peekLast();
+        if (element == null) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return element;
+    }
+
+    @Override
+    public E peek() {
+        return peekFirst();
+    }
+
+    @Override
+    public E element() {
+        return getFirst();
+    }
+
+    /**
+     * Returns the element 'index' places from the front
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return (E) elements[(head + index) & mask];
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o != null) {
+            for (int i = 0; i < size; ++i) {
+                if (o.equals(elements[(head + i) & mask])) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] toArray() {
+        final Object[] result = new Object[size];
+        final int beforeWrap = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, result, 0, beforeWrap);
+        System.arraycopy(elements, 0, result, beforeWrap, size - beforeWrap);
+        return result;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr(false);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator() {
+        return new Itr(true);
+    }
+
+    /**
+     * Walks the logical indices 0..size (or back), so removing through it just shifts which index comes next
+     */
+    private final class Itr implements Iterator<E> {
+        private final boolean descending;
+        private int next;
+        private int last = -1;
+        private int expectedModCount = modCount;
+
+        Itr(boolean descending) {
+            this.descending = descending;
+            next = descending ? size - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? next >= 0 : next < size;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next += descending ? -1 : 1;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeAt(last);
+            if (!descending) {
+                next = last;
+            }
+            last = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    /**
+     * Moves the elements into a larger array, unwrapped so the front is at index 0
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Deque can't hold more than " + MAX_CAPACITY + " elements");
+        }
+        final Object[] grown = new Object[tableSize(Math.max(minCapacity, 2 * elements.length))];
+        final int beforeWrap = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, beforeWrap);
+        System.arraycopy(elements, 0, grown, beforeWrap, size - beforeWrap);
+        elements = grown;
+        mask = grown.length - 1;
+        head = 0;
+    }
+}
@@ -0,0 +1,225 @@
+package ca.reidmoffat.linearstructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A double-ended queue of int values in a circular array, without boxing (see {@link CircularDeque})
+ * <p>
+ * The array's length is a power of two, so wrapping an index around is a mask instead of a division. The bulk
+ * addAllLast and pollFirst copy with at most two arraycopy calls each, one on either side of the wrap point.
+ * <p>
+ * A deque made with {@link #fixedCapacity} never grows: adding to a full deque evicts the element at the other end,
+ * which keeps the last 'capacity' values for sliding windows. Otherwise the deque doubles when it fills up. Not
+ * thread safe.
+ */
+public class IntDeque {
+
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private int[] elements;
+    private int mask;
+    private int head;
+    private int size;
+    private final int fixedCapacity; // -1 if the deque grows instead of evicting
+
+    public IntDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntDeque(int initialCapacity) {
+        this(initialCapacity, -1);
+    }
+
+    private IntDeque(int initialCapacity, int fixedCapacity) {
+        if (initialCapacity < 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 0 and " + MAX_CAPACITY + ": "
+                    + initialCapacity);
+        }
+        elements = new int[CircularDeque.tableSize(initialCapacity)];
+        mask = elements.length - 1;
+        this.fixedCapacity = fixedCapacity;
+    }
+
+    /**
+     * A deque that holds at most 'capacity' values, evicting from the other end when adding to a full one
+     */
+    public static IntDeque fixedCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        return new IntDeque(capacity, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Most values the deque can hold before it grows (or, with a fixed capacity, starts evicting)
+     */
+    public int capacity() {
+        return fixedCapacity > 0 ? fixedCapacity : elements.length;
+    }
+
+    public void addFirst(int value) {
+        if (size == fixedCapacity) {
+            --size; // Evict the last value
+        } else if (size == elements.length) {
+            grow(size + 1);
+        }
+        head = (head - 1) & mask;
+        elements[head] = value;
+        ++size;
+    }
+
+    public void addLast(int value) {
+        if (size == fixedCapacity) {
+            head = (head + 1) & mask; // Evict the first value
+            --size;
+        } else if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[(head + size) & mask] = value;
+        ++size;
+    }
+
+    /**
+     * Appends values[offset..offset + length) in order. With a fixed capacity, this evicts as many values from the
+     * front as it needs to (and if length is more than the capacity, only the last 'capacity' values are kept)
+     */
+    public void addAllLast(int[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        if (fixedCapacity > 0) {
+            if (length >= fixedCapacity) {
+                offset += length - fixedCapacity;
+                length = fixedCapacity;
+                head = 0;
+                size = 0;
+            } else if (size + length > fixedCapacity) {
+                final int evicted = size + length - fixedCapacity;
+                head = (head + evicted) & mask;
+                size -= evicted;
+            }
+        } else if (length > elements.length - size) {
+            grow(size + length);
+        }
+
+        final int tail = (head + size) & mask;
+        final int beforeWrap = Math.min(length, elements.length - tail);
+        System.arraycopy(values, offset, elements, tail, beforeWrap);
+        System.arraycopy(values, offset + beforeWrap, elements, 0, length - beforeWrap);
+        size += length;
+    }
+
+    public void addAllLast(int[] values) {
+        addAllLast(values, 0, values.length);
+    }
+
+    public int removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        final int value = elements[head];
+        head = (head + 1) & mask;
+        --size;
+        return value;
+    }
+
+    public int removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return elements[(head + --size) & mask];
+    }
+
+    /**
+     * Removes up to 'length' values from the front into destination[offset..)
+     *
+     * @return Number of values removed
+     */
+    public int pollFirst(int[] destination, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, destination.length);
+        final int count = Math.min(length, size);
+        final int beforeWrap = Math.min(count, elements.length - head);
+        System.arraycopy(elements, head, destination, offset, beforeWrap);
+        System.arraycopy(elements, 0, destination, offset + beforeWrap, count - beforeWrap);
+        head = (head + count) & mask;
+        size -= count;
+        return count;
+    }
+
+    public int pollFirst(int[] destination) {
+        return pollFirst(destination, 0, destination.length);
+    }
+
+    public int getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return elements[head];
+    }
+
+    public int getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException("Deque is empty");
+        }
+        return elements[(head + size - 1) & mask];
+    }
+
+    /**
+     * Returns the value 'index' places from the front
+     */
+    public int get(int index) {
+        Objects.checkIndex(index, size);
+        return elements[(head + index) & mask];
+    }
+
+    public void set(int index, int value) {
+        Objects.checkIndex(index, size);
+        elements[(head + index) & mask] = value;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    /**
+     * Returns the values from front to back
+     */
+    public int[] toArray() {
+        final int[] result = new int[size];
+        final int beforeWrap = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, result, 0, beforeWrap);
+        System.arraycopy(elements, 0, result, beforeWrap, size - beforeWrap);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Moves the values into a larger array, unwrapped so the front is at index 0
+     */
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new IllegalStateException("Deque can't hold more than " + MAX_CAPACITY + " values");
+        }
+        final int[] grown = new int[CircularDeque.tableSize(Math.max(minCapacity, 2 * elements.length))];
+        final int beforeWrap = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, grown, 0, beforeWrap);
+        System.arraycopy(elements, 0, grown, beforeWrap, size - beforeWrap);
+        elements = grown;
+        mask = grown.length - 1;
+        head = 0;
+    }
+}
@@ -1,6 +1,393 @@
 package ca.reidmoffat.linearstructures;
 
-public class LinkedList {
+import java.util.AbstractSequentialList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * An unrolled linked list: a doubly linked list of nodes that each hold up to NODE_CAPACITY elements in an array
+ * <p>
+ * Compared to a node per element (java.util.LinkedList), this stores one pair of links per NODE_CAPACITY elements,
+ * iterates through contiguous arrays instead of chasing a pointer per element, and finds an index by skipping whole
+ * nodes. Appending and prepending are O(1); inserting or removing in the middle is O(1) once an iterator is there
+ * (plus shifting within one node). Adjacent nodes are merged when they empty out, so the list stays dense.
+ * <p>
+ * Iterators are fail-fast: modifying the list other than through the iterator makes it throw
+ * ConcurrentModificationException. Not thread safe.
+ *
+ * @param <E> Element type
+ */
+public class LinkedList<E> extends AbstractSequentialList<E> implements List<E> {
+
+    static final int NODE_CAPACITY = 32;
+
+    private static final class Node {
+        final Object[] items = new Object[NODE_CAPACITY];
+        int count;
+        Node prev;
+        Node next;
+
+        void insert(int index, Object item) {
+            System.arraycopy(items, index, items, index + 1, count - index);
+            items[index] = item;
+            ++count;
+        }
+
+        Object remove(int index) {
+            final Object item = items[index];
+            System.arraycopy(items, index + 1, items, index, count - index - 1);
+            items[--count] = null;
+            return item;
+        }
+    }
+
+    private Node head;
+    private Node tail;
+    private int size;
+
+    public LinkedList() {
+    }
+
+    public LinkedList(Iterable<? extends E> elements) {
+        for (E element : elements) {
+            addLast(element);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(E element) {
+        addLast(element);
+        return true;
+    }
+
+    public void addLast(E element) {
+        if (tail == null || tail.count == NODE_CAPACITY) {
+            linkAfter(tail, new Node());
+        }
+        tail.items[tail.count++] = element;
+        ++size;
+        ++modCount;
+    }
+
+    public void addFirst(E element) {
+        if (head == null || head.count == NODE_CAPACITY) {
+            linkAfter(null, new Node());
+        }
+        head.insert(0, element);
+        ++size;
+        ++modCount;
+    }
+
+    public E getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return element(head, 0);
+    }
+
+    public E getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return element(tail, tail.count - 1);
+    }
+
+    public E removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return removeAt(head, 0);
+    }
+
+    public E removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return removeAt(tail, tail.count - 1);
+    }
+
+    @Override
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        final Itr at = new Itr(index);
+        return element(at.node, at.index);
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Objects.checkIndex(index, size);
+        final Itr at = new Itr(index);
+        final E old = element(at.node, at.index);
+        at.node.items[at.index] = element;
+        return old;
+    }
+
+    @Override
+    public E remove(int index) {
+        Objects.checkIndex(index, size);
+        final Itr at = new Itr(index);
+        return removeAt(at.node, at.index);
+    }
+
+    @Override
+    public void clear() {
+        head = null; // Nodes are only reachable from each other now, so they're all garbage
+        tail = null;
+        size = 0;
+        ++modCount;
+    }
+
+    @Override
+    public void forEach(Consumer<? super E> action) {
+        final int expectedModCount = modCount;
+        for (Node node = head; node != null; node = node.next) {
+            for (int i = 0; i < node.count; ++i) {
+                action.accept(element(node, i));
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public ListIterator<E> listIterator(int index) {
+        Objects.checkIndex(index, size + 1);
+        return new Itr(index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Node node, int index) {
+        return (E) node.items[index];
+    }
+
+    /**
+     * Links node after 'after', or at the front if after is null
+     */
+    private void linkAfter(Node after, Node node) {
+        node.prev = after;
+        node.next = after == null ? head : after.next;
+        if (node.next == null) {
+            tail = node;
+        } else {
+            node.next.prev = node;
+        }
+        if (after == null) {
+            head = node;
+        } else {
+            after.next = node;
+        }
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+    }
+
+    /**
+     * Moves the upper half of a full node into a new node after it
+     */
+    private void split(Node node) {
+        final Node upper = new Node();
+        final int half = node.count / 2;
+        upper.count = node.count - half;
+        System.arraycopy(node.items, half, upper.items, 0, upper.count);
+        Arrays.fill(node.items, half, node.count, null);
+        node.count = half;
+        linkAfter(node, upper);
+    }
+
+    /**
+     * Removes an element, then unlinks its node if it is empty or pulls the next node into it if both are at most
+     * half full. Either way, elements before the removed one keep their positions
+     */
+    private E removeAt(Node node, int index) {
+        final E element = element(node, index);
+        node.remove(index);
+        if (node.count == 0) {
+            unlink(node);
+        } else if (node.next != null && node.count + node.next.count <= NODE_CAPACITY / 2) {
+            final Node next = node.next;
+            System.arraycopy(next.items, 0, node.items, node.count, next.count);
+            node.count += next.count;
+            unlink(next);
+        }
+        --size;
+        ++modCount;
+        return element;
+    }
+
+    /**
+     * The cursor sits before items[index] of node, where index can be node.count at the end of a node. An empty list
+     * has no node
+     */
+    private final class Itr implements ListIterator<E> {
+        private Node node;
+        private int index;
+        private int nextIndex;
+        private int lastIndex = -1; // Index in node of the element last returned by next/previous, for set and remove
+        private int expectedModCount = modCount;
+
+        /**
+         * Finds the position by walking whole nodes from whichever end of the list is closer
+         */
+        Itr(int position) {
+            nextIndex = position;
+            if (position < size / 2) {
+                node = head;
+                while (position >= node.count) {
+                    position -= node.count;
+                    node = node.next;
+                }
+                index = position;
+            } else if (size > 0) {
+                node = tail;
+                int start = size - node.count;
+                while (position < start) {
+                    node = node.prev;
+                    start -= node.count;
+                }
+                index = position - start;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public E next() {
+            checkForComodification();
+            if (nextIndex >= size) {
+                throw new NoSuchElementException();
+            }
+            if (index == node.count) {
+                node = node.next;
+                index = 0;
+            }
+            lastIndex = index;
+            ++nextIndex;
+            return element(node, index++);
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public E previous() {
+            checkForComodification();
+            if (nextIndex <= 0) {
+                throw new NoSuchElementException();
+            }
+            if (index == 0) {
+                node = node.prev;
+                index = node.count;
+            }
+            lastIndex = --index;
+            --nextIndex;
+            return element(node, index);
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+
+            // After next() the cursor is just past the removed element, after previous() it is just before it
+            if (index > lastIndex) {
+                --nextIndex;
+            }
+            index = lastIndex;
+            final Node following = node.next;
+            final boolean emptied = node.count == 1;
+            removeAt(node, lastIndex);
+            if (emptied) {
+                node = following != null ? following : tail;
+                index = following != null || tail == null ? 0 : tail.count;
+            }
+            lastIndex = -1;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(E element) {
+            checkForComodification();
+            if (lastIndex < 0) {
+                throw new IllegalStateException();
+            }
+            node.items[lastIndex] = element;
+        }
+
+        @Override
+        public void add(E element) {
+            checkForComodification();
+            if (node == null) {
+                linkAfter(null, new Node());
+                node = head;
+                index = 0;
+            } else if (node.count == NODE_CAPACITY) {
+                if (index == NODE_CAPACITY && (node.next == null || node.next.count == NODE_CAPACITY)) {
+                    linkAfter(node, new Node()); // Appending past a full node: start a fresh one rather than split
+                    node = node.next;
+                    index = 0;
+                } else if (index == NODE_CAPACITY) {
+                    node = node.next;
+                    index = 0;
+                } else {
+                    split(node);
+                    if (index > node.count) {
+                        index -= node.count;
+                        node = node.next;
+                    }
+                }
+            }
+            node.insert(index++, element);
+            ++nextIndex;
+            ++size;
+            ++modCount;
+            lastIndex = -1;
+            expectedModCount = modCount;
+        }
+
+        private void checkForComodification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
 }
 
 /*
@@ -0,0 +1,187 @@
+package ca.reidmoffat.linearstructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+
+/**
+ * An unbounded lock-free FIFO queue (Michael & Scott, 1996)
+ * <p>
+ * A singly linked list that always starts with a dummy node: head points at the dummy and the first element lives in
+ * head.next. Producers link a new node after the last one with a CAS on its next pointer, then swing tail to it;
+ * consumers swing head forward with a CAS and the node they move onto becomes the new dummy. tail may lag one node
+ * behind when a producer has linked its node but not yet moved tail, so every thread that notices this helps by
+ * moving tail forward itself. No thread ever waits on another, so a stalled thread can't block the queue.
+ * <p>
+ * Null elements are not allowed. size() walks the whole list, and iterators are weakly consistent (they never throw
+ * ConcurrentModificationException and may or may not show changes made after they were created) and don't support
+ * remove.
+ *
+ * @param <E> Element type
+ */
+public class LockFreeQueue<E> extends AbstractQueue<E> implements Queue<E> {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle NEXT;
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(LockFreeQueue.class, "head", Node.class);
+            TAIL = lookup.findVarHandle(LockFreeQueue.class, "tail", Node.class);
+            NEXT = lookup.findVarHandle(Node.class, "next", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Node<E> {
+        volatile E item;
+        volatile Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    private volatile Node<E> head;
+    private volatile Node<E> tail;
+
+    public LockFreeQueue() {
+        head = tail = new Node<>(null);
+    }
+
+    public LockFreeQueue(Iterable<? extends E> elements) {
+        this();
+        for (E element : elements) {
+            offer(element);
+        }
+    }
+
+    @Override
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        final Node<E> node = new Node<>(element);
+        while (true) {
+            final Node<E> last = tail;
+            final Node<E> next = last.next;
+            if (last != tail) {
+                continue;
+            }
+            if (next == null) {
+                if (NEXT.compareAndSet(last, null, node)) {
+                    TAIL.compareAndSet(this, last, node); // Fine if this fails: someone already helped
+                    return true;
+                }
+            } else {
+                TAIL.compareAndSet(this, last, next); // Help the producer that linked next
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        while (true) {
+            final Node<E> first = head;
+            final Node<E> last = tail;
+            final Node<E> next = first.next;
+            if (first != head) {
+                continue;
+            }
+            if (next == null) {
+                return null;
+            }
+            if (first == last) {
+                TAIL.compareAndSet(this, last, next); // tail is lagging behind a linked node
+                continue;
+            }
+            // Read the item before the CAS: once head moves, next is the new dummy and another poll may clear it
+            final E item = next.item;
+            if (HEAD.compareAndSet(this, first, next)) {
+                next.item = null; // The dummy node shouldn't keep its old element alive
+                return item;
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            final Node<E> first = head;
+            final Node<E> next = first.next;
+            if (next == null) {
+                return null;
+            }
+            final E item = next.item;
+            // If head hasn't moved then next wasn't dequeued yet, so its item hadn't been cleared
+            if (first == head) {
+                return item;
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.next == null;
+    }
+
+    /**
+     * Counts the elements by walking the list, so this is O(n) and only a snapshot under concurrent use
+     */
+    @Override
+    public int size() {
+        int count = 0;
+        for (Node<E> node = head.next; node != null && count < Integer.MAX_VALUE; node = node.next) {
+            if (node.item != null) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        private Node<E> node;
+        private E nextItem;
+
+        Itr() {
+            node = head;
+            advance();
+        }
+
+        // Skips nodes whose item was cleared because they were dequeued after we reached them
+        private void advance() {
+            nextItem = null;
+            while (nextItem == null && node != null) {
+                node = node.next;
+                if (node != null) {
+                    nextItem = node.item;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextItem != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextItem == null) {
+                throw new NoSuchElementException();
+            }
+            final E item = nextItem;
+            advance();
+            return item;
+        }
+    }
+}
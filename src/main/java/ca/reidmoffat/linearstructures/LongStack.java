@@ -0,0 +1,114 @@
+package ca.reidmoffat.linearstructures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A stack of long values in a growable array, without boxing
+ * <p>
+ * push and pop are amortized O(1) and never allocate except when push has to grow the array (by half its size).
+ * Unlike {@link Stack}, pop and peek can't signal an empty stack with null, so they throw NoSuchElementException.
+ * Not thread safe.
+ */
+public class LongStack {
+
+    static final int DEFAULT_CAPACITY = 16;
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // Some VMs reserve header words in arrays
+
+    private long[] elements;
+    private int size;
+
+    public LongStack() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongStack(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative: " + initialCapacity);
+        }
+        elements = new long[initialCapacity];
+    }
+
+    public void push(long element) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size++] = element;
+    }
+
+    /**
+     * Pushes values[offset..offset + length) in order, so values[offset + length - 1] ends up on top
+     */
+    public void pushAll(long[] values, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, values.length);
+        if (length > elements.length - size) {
+            grow(size + length);
+        }
+        System.arraycopy(values, offset, elements, size, length);
+        size += length;
+    }
+
+    public void pushAll(long[] values) {
+        pushAll(values, 0, values.length);
+    }
+
+    public long pop() {
+        if (size == 0) {
+            throw new NoSuchElementException("Stack is empty");
+        }
+        return elements[--size];
+    }
+
+    public long peek() {
+        if (size == 0) {
+            throw new NoSuchElementException("Stack is empty");
+        }
+        return elements[size - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Grows the array (if needed) so it holds at least minCapacity elements without growing again
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Shrinks the array to exactly the current size
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+        }
+    }
+
+    /**
+     * Returns the elements from the bottom of the stack to the top
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    private void grow(int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_CAPACITY) {
+            throw new OutOfMemoryError("Stack can't hold " + Integer.toUnsignedString(minCapacity) + " elements");
+        }
+        final int grown = (int) Math.min(MAX_CAPACITY, elements.length + (elements.length >> 1) + 1L);
+        elements = Arrays.copyOf(elements, Math.max(minCapacity, grown));
+    }
+}
@@ -0,0 +1,327 @@
+package ca.reidmoffat.linearstructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+
+/**
+ * A bounded lock-free multi-producer/multi-consumer FIFO queue backed by an array (Vyukov's bounded MPMC queue)
+ * <p>
+ * Every slot has a sequence number next to it that says whose turn it is. A slot at position p (p counts up forever,
+ * the slot is p % capacity) is free for the producer claiming p when its sequence is p, and holds an element for the
+ * consumer claiming p when its sequence is p + 1. Producers and consumers claim positions with a CAS on tail and head
+ * respectively, then write or take the element and publish the slot's next sequence (p + 1 for the consumer, p +
+ * capacity for the next lap's producer). Producers and consumers therefore only contend among themselves, and the
+ * two sides only meet through individual slots.
+ * <p>
+ * head and tail are each padded onto their own cache line so consumers updating head don't keep invalidating the
+ * line producers are updating tail on (false sharing). drainTo and offerAll claim a whole run of slots with a single
+ * CAS.
+ * <p>
+ * Capacity is rounded up to a power of two. Null elements are not allowed. Iterators are weakly consistent and don't
+ * support remove.
+ *
+ * @param <E> Element type
+ */
+public class RingBufferQueue<E> extends RingBufferPadding<E> implements Queue<E> {
+
+    static final int MAX_CAPACITY = 1 << 30;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(RingBufferHead.class, "head", long.class);
+            TAIL = lookup.findVarHandle(RingBufferTail.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] slots;
+    private final long[] sequences;
+    private final int mask;
+
+    /**
+     * @param capacity Minimum number of elements the queue can hold; rounded up to a power of two
+     */
+    public RingBufferQueue(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ": " + capacity);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new Object[size];
+        sequences = new long[size];
+        mask = size - 1;
+        for (int i = 0; i < size; ++i) {
+            sequences[i] = i;
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Adds element if there is room
+     *
+     * @return false if the queue is full
+     */
+    @Override
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        long position = (long) TAIL.getVolatile(this);
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = (long) SEQUENCE.getAcquire(sequences, index) - position;
+            if (difference == 0) {
+                if (TAIL.compareAndSet(this, position, position + 1)) {
+                    SLOT.set(slots, index, element);
+                    SEQUENCE.setRelease(sequences, index, position + 1);
+                    return true;
+                }
+                position = (long) TAIL.getVolatile(this);
+            } else if (difference < 0) {
+                return false; // The slot still holds the element from a lap ago
+            } else {
+                position = (long) TAIL.getVolatile(this); // Another producer got this position first
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long position = (long) HEAD.getVolatile(this);
+        while (true) {
+            final int index = (int) position & mask;
+            final long difference = (long) SEQUENCE.getAcquire(sequences, index) - (position + 1);
+            if (difference == 0) {
+                if (HEAD.compareAndSet(this, position, position + 1)) {
+                    return take(position);
+                }
+                position = (long) HEAD.getVolatile(this);
+            } else if (difference < 0) {
+                return null; // The producer for this position hasn't published yet
+            } else {
+                position = (long) HEAD.getVolatile(this);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        while (true) {
+            final long position = (long) HEAD.getVolatile(this);
+            final int index = (int) position & mask;
+            if ((long) SEQUENCE.getAcquire(sequences, index) != position + 1) {
+                if (position == (long) HEAD.getVolatile(this)) {
+                    return null;
+                }
+                continue;
+            }
+            final E element = (E) SLOT.getAcquire(slots, index);
+            // Still at the same head means no consumer took the slot while we read it
+            if (element != null && position == (long) HEAD.getVolatile(this)) {
+                return element;
+            }
+        }
+    }
+
+    /**
+     * Moves up to maxElements elements into target, claiming every element that is ready with one CAS
+     * <p>
+     * If target throws (because it's full, say), the exception is passed on, and the elements claimed but not yet
+     * added go with it: they're in neither collection, as {@link java.util.concurrent.BlockingQueue#drainTo} allows.
+     * Their slots are still freed, so the queue stays usable.
+     *
+     * @return Number of elements moved
+     */
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        Objects.requireNonNull(target);
+        if (target == this) {
+            throw new IllegalArgumentException("Can't drain a queue into itself");
+        }
+        int drained = 0;
+        while (drained < maxElements) {
+            final long position = (long) HEAD.getVolatile(this);
+            final int limit = Math.min(maxElements - drained, slots.length);
+            int ready = 0;
+            while (ready < limit
+                    && (long) SEQUENCE.getAcquire(sequences, (int) (position + ready) & mask) == position + ready + 1) {
+                ++ready;
+            }
+            if (ready == 0) {
+                break;
+            }
+            // head only grows, so if it's still at position nobody has claimed any of these slots
+            if (!HEAD.compareAndSet(this, position, position + ready)) {
+                continue;
+            }
+            int i = 0;
+            try {
+                for (; i < ready; ++i) {
+                    target.add(take(position + i));
+                }
+            } finally {
+                // If target threw, the rest of the run still has to be handed back to the producers
+                for (++i; i < ready; ++i) {
+                    take(position + i);
+                }
+            }
+            drained += ready;
+        }
+        return drained;
+    }
+
+    /**
+     * Takes the element at a position this consumer has claimed, and frees its slot for the next lap's producer
+     */
+    @SuppressWarnings("unchecked")
+    private E take(long position) {
+        final int index = (int) position & mask;
+        final E element = (E) SLOT.get(slots, index);
+        SLOT.set(slots, index, null);
+        SEQUENCE.setRelease(sequences, index, position + slots.length);
+        return element;
+    }
+
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds as many of elements[offset..offset + length) as fit, in order, claiming free slots in runs with one CAS
+     *
+     * @return Number of elements added (a prefix of the range)
+     */
+    public int offerAll(E[] elements, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, elements.length);
+        for (int i = offset; i < offset + length; ++i) {
+            Objects.requireNonNull(elements[i]);
+        }
+        int offered = 0;
+        while (offered < length) {
+            final long position = (long) TAIL.getVolatile(this);
+            final int limit = Math.min(length - offered, slots.length);
+            int free = 0;
+            while (free < limit
+                    && (long) SEQUENCE.getAcquire(sequences, (int) (position + free) & mask) == position + free) {
+                ++free;
+            }
+            if (free == 0) {
+                break;
+            }
+            if (!TAIL.compareAndSet(this, position, position + free)) {
+                continue;
+            }
+            for (int i = 0; i < free; ++i) {
+                final int index = (int) (position + i) & mask;
+                SLOT.set(slots, index, elements[offset + offered + i]);
+                SEQUENCE.setRelease(sequences, index, position + i + 1);
+            }
+            offered += free;
+        }
+        return offered;
+    }
+
+    public int offerAll(E[] elements) {
+        return offerAll(elements, 0, elements.length);
+    }
+
+    /**
+     * Number of claimed positions between head and tail; a snapshot under concurrent use
+     */
+    @Override
+    public int size() {
+        while (true) {
+            final long head = (long) HEAD.getVolatile(this);
+            final long tail = (long) TAIL.getVolatile(this);
+            if (head == (long) HEAD.getVolatile(this)) {
+                return (int) Math.max(0, Math.min(slots.length, tail - head));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (long) TAIL.getVolatile(this) <= (long) HEAD.getVolatile(this);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        private final long end = (long) TAIL.getVolatile(RingBufferQueue.this);
+        private long position = (long) HEAD.getVolatile(RingBufferQueue.this);
+        private E nextElement;
+
+        Itr() {
+            advance();
+        }
+
+        // Skips positions that were consumed (or not yet published) since the iterator started
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            nextElement = null;
+            while (nextElement == null && position < end) {
+                final int index = (int) position & mask;
+                if ((long) SEQUENCE.getAcquire(sequences, index) == position + 1) {
+                    nextElement = (E) SLOT.getAcquire(slots, index);
+                }
+                ++position;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextElement == null) {
+                throw new NoSuchElementException();
+            }
+            final E element = nextElement;
+            advance();
+            return element;
+        }
+    }
+}
+
+/*
+ * Field layout for RingBufferQueue. A subclass's fields are laid out after its superclass's, so spreading head and
+ * tail across a chain of classes with padding fields in between keeps each on its own 64 byte cache line
+ */
+
+abstract class RingBufferPad0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingBufferTail<E> extends RingBufferPad0<E> {
+    volatile long tail;
+}
+
+abstract class RingBufferPad1<E> extends RingBufferTail<E> {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingBufferHead<E> extends RingBufferPad1<E> {
+    volatile long head;
+}
+
+abstract class RingBufferPadding<E> extends RingBufferHead<E> {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
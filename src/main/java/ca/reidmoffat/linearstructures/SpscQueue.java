@@ -0,0 +1,297 @@
+package ca.reidmoffat.linearstructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.function.Consumer;
+
+/**
+ * A bounded wait-free queue for exactly one producer thread and one consumer thread
+ * <p>
+ * With one thread on each side nothing needs a CAS: only the producer writes tail and only the consumer writes head,
+ * so each side publishes its index with a release store (a lazySet, which unlike a volatile store doesn't stall the
+ * writer until it is visible) and reads the other side's with an acquire load. Each side also keeps a cached copy
+ * of the other side's index and only re-reads the real one when the cache says the queue is full (or empty), which
+ * keeps the two threads off each other's cache lines most of the time. offerAll and the batch poll publish the index
+ * once per batch.
+ * <p>
+ * offer, poll and the batch methods must only be called from the producer and consumer thread respectively. put and
+ * take wait for room or for an element with the queue's {@link WaitStrategy}. Capacity is rounded up to a power of
+ * two. Null elements are not allowed. size and iteration are safe from any thread but only give a snapshot, and
+ * iterators don't support remove.
+ *
+ * @param <E> Element type
+ */
+public class SpscQueue<E> extends SpscQueueConsumerFields<E> implements Queue<E> {
+
+    private static final VarHandle HEAD;
+    private static final VarHandle TAIL;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(SpscQueueConsumerFields.class, "head", long.class);
+            TAIL = lookup.findVarHandle(SpscQueueProducerFields.class, "tail", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Object[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+
+    public SpscQueue(int capacity) {
+        this(capacity, WaitStrategy.PARK);
+    }
+
+    /**
+     * @param capacity     Minimum number of elements the queue can hold; rounded up to a power of two
+     * @param waitStrategy How put and take wait
+     */
+    public SpscQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || capacity > RingBufferQueue.MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + RingBufferQueue.MAX_CAPACITY
+                    + ": " + capacity);
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        slots = new Object[size];
+        mask = size - 1;
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    // Producer side
+
+    /**
+     * Number of free slots, refreshing the cached head only if the cache says fewer than 'wanted' are free
+     */
+    private int free(long position, int wanted) {
+        long free = slots.length - (position - cachedHead);
+        if (free < wanted) {
+            cachedHead = (long) HEAD.getAcquire(this);
+            free = slots.length - (position - cachedHead);
+        }
+        return (int) free;
+    }
+
+    @Override
+    public boolean offer(E element) {
+        Objects.requireNonNull(element);
+        final long position = (long) TAIL.get(this); // Only this thread writes tail
+        if (free(position, 1) == 0) {
+            return false;
+        }
+        SLOT.set(slots, (int) position & mask, element);
+        TAIL.setRelease(this, position + 1);
+        return true;
+    }
+
+    /**
+     * Adds as many of batch[offset..offset + length) as fit, in order, publishing them all at once
+     *
+     * @return Number of elements added (a prefix of the range)
+     */
+    public int offerAll(E[] batch, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, batch.length);
+        final long position = (long) TAIL.get(this); // Only this thread writes tail
+        final int count = Math.min(length, free(position, length));
+        for (int i = offset; i < offset + count; ++i) {
+            Objects.requireNonNull(batch[i]); // Before writing any slot, so a null leaves the queue untouched
+        }
+        for (int i = 0; i < count; ++i) {
+            SLOT.set(slots, (int) (position + i) & mask, batch[offset + i]);
+        }
+        TAIL.setRelease(this, position + count);
+        return count;
+    }
+
+    public int offerAll(E[] batch) {
+        return offerAll(batch, 0, batch.length);
+    }
+
+    /**
+     * Adds element, waiting with the wait strategy while the queue is full
+     */
+    public void put(E element) throws InterruptedException {
+        for (int attempt = 0; !offer(element); ++attempt) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+    }
+
+    // Consumer side
+
+    /**
+     * Number of published elements, refreshing the cached tail only if the cache says fewer than 'wanted' are ready
+     */
+    private int available(long position, int wanted) {
+        long available = cachedTail - position;
+        if (available < wanted) {
+            cachedTail = (long) TAIL.getAcquire(this);
+            available = cachedTail - position;
+        }
+        return (int) available;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        final long position = (long) HEAD.get(this); // Only this thread writes head
+        if (available(position, 1) == 0) {
+            return null;
+        }
+        final int index = (int) position & mask;
+        final E element = (E) SLOT.get(slots, index);
+        SLOT.set(slots, index, null);
+        HEAD.setRelease(this, position + 1);
+        return element;
+    }
+
+    /**
+     * Removes up to maxElements elements and passes them to sink in order, freeing their slots all at once
+     *
+     * @return Number of elements passed to sink
+     * @throws IllegalArgumentException If maxElements is negative
+     */
+    @SuppressWarnings("unchecked")
+    public int poll(int maxElements, Consumer<? super E> sink) {
+        if (maxElements < 0) {
+            throw new IllegalArgumentException("maxElements can't be negative: " + maxElements);
+        }
+        final long position = (long) HEAD.get(this); // Only this thread writes head
+        final int count = Math.min(maxElements, available(position, maxElements));
+        int removed = 0;
+        try {
+            while (removed < count) {
+                final int index = (int) (position + removed) & mask;
+                final E element = (E) SLOT.get(slots, index);
+                SLOT.set(slots, index, null);
+                ++removed;
+                sink.accept(element);
+            }
+        } finally {
+            HEAD.setRelease(this, position + removed); // Even if sink throws, what it was given is gone
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the first element, waiting with the wait strategy while the queue is empty
+     */
+    public E take() throws InterruptedException {
+        E element;
+        for (int attempt = 0; (element = poll()) == null; ++attempt) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        final long position = (long) HEAD.get(this); // Only this thread writes head
+        if (available(position, 1) == 0) {
+            return null;
+        }
+        return (E) SLOT.get(slots, (int) position & mask);
+    }
+
+    // Any thread
+
+    @Override
+    public int size() {
+        while (true) {
+            final long first = (long) HEAD.getVolatile(this);
+            final long last = (long) TAIL.getVolatile(this);
+            if (first == (long) HEAD.getVolatile(this)) {
+                return (int) Math.max(0, Math.min(slots.length, last - first));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (long) TAIL.getVolatile(this) == (long) HEAD.getVolatile(this);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Itr();
+    }
+
+    private final class Itr implements Iterator<E> {
+        private final long end = (long) TAIL.getAcquire(SpscQueue.this);
+        private long position = (long) HEAD.getVolatile(SpscQueue.this);
+        private E nextElement;
+
+        Itr() {
+            advance();
+        }
+
+        // Stops early if the consumer overtakes the iterator
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            nextElement = null;
+            while (nextElement == null && position < end) {
+                position = Math.max(position, (long) HEAD.getAcquire(SpscQueue.this));
+                if (position < end) {
+                    nextElement = (E) SLOT.getAcquire(slots, (int) position & mask);
+                    ++position;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextElement != null;
+        }
+
+        @Override
+        public E next() {
+            if (nextElement == null) {
+                throw new NoSuchElementException();
+            }
+            final E element = nextElement;
+            advance();
+            return element;
+        }
+    }
+}
+
+/*
+ * Field layout for SpscQueue: the producer's fields and the consumer's fields each get their own 64 byte cache line
+ * (see RingBufferQueue)
+ */
+
+abstract class SpscQueuePad0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SpscQueueProducerFields<E> extends SpscQueuePad0<E> {
+    volatile long tail;
+    long cachedHead; // Producer's last view of head
+}
+
+abstract class SpscQueuePad1<E> extends SpscQueueProducerFields<E> {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class SpscQueueConsumerFields<E> extends SpscQueuePad1<E> {
+    volatile long head;
+    long cachedTail; // Consumer's last view of tail
+    long p20, p21, p22, p23, p24, p25, p26;
+}
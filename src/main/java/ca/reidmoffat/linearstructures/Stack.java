@@ -1,6 +1,35 @@
 package ca.reidmoffat.linearstructures;
 
-public class Stack {
+/**
+ * A last-in-first-out collection
+ * <p>
+ * Implementations don't expose their storage, so elements can only be reached through the top of the stack. Null
+ * elements are not allowed, which lets pop and peek return null for an empty stack.
+ *
+ * @param <E> Element type
+ * @see ArrayStack
+ * @see IntStack
+ * @see LongStack
+ */
+public interface Stack<E> {
+
+    void push(E element);
+
+    /**
+     * Removes and returns the top element, or returns null if the stack is empty
+     */
+    E pop();
+
+    /**
+     * Returns the top element without removing it, or null if the stack is empty
+     */
+    E peek();
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
 }
 
 /*
@@ -0,0 +1,195 @@
+package ca.reidmoffat.linearstructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free {@link Stack} (Treiber, 1986) with an elimination-backoff array (Hendler, Shavit & Yerushalmi, 2004)
+ * <p>
+ * The stack is a singly linked list, and push and pop swing its head with a CAS. Under contention most of those
+ * CASes fail and every thread retries on the same head. A push and a pop that happen at the same time cancel each
+ * other out, though, so instead of retrying right away a thread whose CAS failed visits a random slot of a small
+ * array. A push leaves its node there for a moment. A pop that finds a node there takes it, and both operations are
+ * done without touching the head. The busier the stack, the more often a push and a pop meet in the array.
+ * <p>
+ * Counters record how often the head CAS failed and how often elimination was tried and succeeded. Null elements are
+ * not allowed. size() walks the list, so it's O(n) and only a snapshot.
+ *
+ * @param <E> Element type
+ */
+public class TreiberStack<E> implements Stack<E> {
+
+    static final int MAX_ELIMINATION_SLOTS = 16;
+
+    // How many times a push checks whether a pop took its node before withdrawing it
+    private static final int ELIMINATION_SPINS = 128;
+
+    private static final VarHandle HEAD;
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            HEAD = MethodHandles.lookup().findVarHandle(TreiberStack.class, "head", Node.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Node<E> {
+        final E item;
+        Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+
+    private volatile Node<E> head;
+    private final Object[] eliminationSlots;
+
+    private final LongAdder casFailures = new LongAdder();
+    private final LongAdder eliminationAttempts = new LongAdder();
+    private final LongAdder eliminations = new LongAdder();
+
+    public TreiberStack() {
+        this(Math.min(MAX_ELIMINATION_SLOTS, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)));
+    }
+
+    /**
+     * @param eliminationSlots Size of the elimination array; around half the number of threads that use the stack
+     *                         at once works well
+     */
+    public TreiberStack(int eliminationSlots) {
+        if (eliminationSlots < 1) {
+            throw new IllegalArgumentException("Need at least one elimination slot: " + eliminationSlots);
+        }
+        this.eliminationSlots = new Object[eliminationSlots];
+    }
+
+    @Override
+    public void push(E element) {
+        final Node<E> node = new Node<>(Objects.requireNonNull(element));
+        while (true) {
+            final Node<E> top = head;
+            node.next = top;
+            if (HEAD.compareAndSet(this, top, node)) {
+                return;
+            }
+            casFailures.increment();
+            if (eliminatePush(node)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public E pop() {
+        while (true) {
+            final Node<E> top = head;
+            if (top == null) {
+                return null;
+            }
+            if (HEAD.compareAndSet(this, top, top.next)) {
+                return top.item;
+            }
+            casFailures.increment();
+            final E item = eliminatePop();
+            if (item != null) {
+                return item;
+            }
+        }
+    }
+
+    /**
+     * Offers node in a random slot and waits briefly for a pop to take it
+     *
+     * @return true if a pop took it
+     */
+    private boolean eliminatePush(Node<E> node) {
+        eliminationAttempts.increment();
+        final int slot = ThreadLocalRandom.current().nextInt(eliminationSlots.length);
+        if (!SLOT.compareAndSet(eliminationSlots, slot, null, node)) {
+            return false; // Another push is waiting there
+        }
+        for (int spin = 0; spin < ELIMINATION_SPINS; ++spin) {
+            if (SLOT.getAcquire(eliminationSlots, slot) != node) {
+                eliminations.increment();
+                return true;
+            }
+            Thread.onSpinWait();
+        }
+        // Withdraw the offer; if that fails, a pop took the node in the meantime
+        if (SLOT.compareAndSet(eliminationSlots, slot, node, null)) {
+            return false;
+        }
+        eliminations.increment();
+        return true;
+    }
+
+    /**
+     * Takes the node a push left in a random slot, if there is one
+     *
+     * @return Its item, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    private E eliminatePop() {
+        eliminationAttempts.increment();
+        final int slot = ThreadLocalRandom.current().nextInt(eliminationSlots.length);
+        final Node<E> offer = (Node<E>) SLOT.getAcquire(eliminationSlots, slot);
+        if (offer != null && SLOT.compareAndSet(eliminationSlots, slot, offer, null)) {
+            eliminations.increment();
+            return offer.item;
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        final Node<E> top = head;
+        return top == null ? null : top.item;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    @Override
+    public int size() {
+        int count = 0;
+        for (Node<E> node = head; node != null && count < Integer.MAX_VALUE; node = node.next) {
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Number of times a push or pop lost the race for the head and had to retry
+     */
+    public long casFailures() {
+        return casFailures.sum();
+    }
+
+    /**
+     * Number of times a push or pop went to the elimination array after a failed CAS
+     */
+    public long eliminationAttempts() {
+        return eliminationAttempts.sum();
+    }
+
+    /**
+     * Number of operations completed through the elimination array (a push and the pop it met count as two)
+     */
+    public long eliminations() {
+        return eliminations.sum();
+    }
+
+    public void resetCounters() {
+        casFailures.reset();
+        eliminationAttempts.reset();
+        eliminations.reset();
+    }
+}
@@ -0,0 +1,41 @@
+package ca.reidmoffat.linearstructures;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * What a thread does while it waits for a queue to become non-empty (or non-full)
+ * <p>
+ * idle is called once per failed attempt, with attempt counting up from 0 for each wait, so a strategy can back off
+ * the longer the wait goes on. Lower latency costs CPU: BUSY_SPIN reacts fastest but keeps a core at 100%, YIELD lets
+ * other threads on the core run, and PARK sleeps and is the only one that suits a machine with fewer cores than
+ * busy threads.
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    void idle(int attempt);
+
+    /**
+     * Spins on the CPU (with a spin-wait hint)
+     */
+    WaitStrategy BUSY_SPIN = attempt -> Thread.onSpinWait();
+
+    /**
+     * Gives up the rest of the time slice each attempt
+     */
+    WaitStrategy YIELD = attempt -> Thread.yield();
+
+    /**
+     * Spins briefly, then yields, then parks for 1 microsecond doubling up to 1 millisecond
+     */
+    WaitStrategy PARK = attempt -> {
+        if (attempt < 64) {
+            Thread.onSpinWait();
+        } else if (attempt < 128) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(1L << Math.min(10, attempt - 128)));
+        }
+    };
+}
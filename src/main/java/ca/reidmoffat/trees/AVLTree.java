@@ -1,7 +1,138 @@
 package ca.reidmoffat.trees;
 
-public class AVLTree {
+import java.util.Comparator;
+
+/**
+ * An AVL tree map: a {@link BinarySearchTree} where the heights of every node's two subtrees differ by at most one,
+ * so its height is under 1.44 log2(n + 2)
+ * <p>
+ * Each node keeps its subtree's height in a single byte (it can't get past 45 for any tree that fits in memory).
+ * After an insertion or deletion, the heights are updated on the way back up from the changed node, rotating any
+ * node that got out of balance. The walk stops at the first node whose height is the same as before, since nothing
+ * above it can have changed: after an insertion that is at most one (single or double) rotation away, and on average
+ * only a couple of levels up for either.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class AVLTree<K, V> extends BinarySearchTree<K, V> {
+
+    /**
+     * A tree ordered by the keys' natural ordering
+     */
+    public AVLTree() {
+        super();
+    }
+
+    /**
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    public AVLTree(Comparator<? super K> comparator) {
+        super(comparator);
+    }
+
+    /**
+     * @param comparator   Key order, or null for the keys' natural ordering
+     * @param augmentation Summary to keep for every subtree, or null for none
+     */
+    public AVLTree(Comparator<? super K> comparator, Augmentation<? super K, ? super V, ?> augmentation) {
+        super(comparator, augmentation);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.meta;
+    }
+
+    private static void updateHeight(Node<?, ?> node) {
+        node.meta = (byte) (1 + Math.max(height(node.left), height(node.right)));
+    }
+
+    /**
+     * O(1), unlike for an unbalanced tree
+     */
+    @Override
+    public int height() {
+        return height(root);
+    }
+
+    @Override
+    void afterInsert(Node<K, V> node) {
+        node.meta = 1;
+        retrace(node.parent);
+    }
+
+    @Override
+    void deleteNode(Node<K, V> node) {
+        if (node.left != null && node.right != null) {
+            swapWithSuccessor(node);
+        }
+        final Node<K, V> parent = node.parent;
+        unlink(node, node.left != null ? node.left : node.right);
+        retrace(parent);
+    }
+
+    /**
+     * Updates heights from node up to the root, rebalancing along the way, until a subtree's height comes out unchanged
+     */
+    private void retrace(Node<K, V> node) {
+        while (node != null) {
+            final int oldHeight = node.meta;
+            node = rebalance(node);
+            if (node.meta == oldHeight) {
+                return;
+            }
+            node = node.parent;
+        }
+    }
+
+    /**
+     * Updates node's height, rotating if its subtrees' heights differ by 2
+     *
+     * @return The root of node's subtree afterwards
+     */
+    private Node<K, V> rebalance(Node<K, V> node) {
+        final int balance = height(node.right) - height(node.left);
+        if (balance > 1) {
+            // Right-left case: first make it right-right
+            if (height(node.right.left) > height(node.right.right)) {
+                rotateRightUpdating(node.right);
+            }
+            return rotateLeftUpdating(node);
+        }
+        if (balance < -1) {
+            // Left-right case: first make it left-left
+            if (height(node.left.right) > height(node.left.left)) {
+                rotateLeftUpdating(node.left);
+            }
+            return rotateRightUpdating(node);
+        }
+        updateHeight(node);
+        return node;
+    }
+
+    /**
+     * @return The node that moved up
+     */
+    private Node<K, V> rotateLeftUpdating(Node<K, V> node) {
+        final Node<K, V> pivot = node.right;
+        rotateLeft(node);
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * @return The node that moved up
+     */
+    private Node<K, V> rotateRightUpdating(Node<K, V> node) {
+        final Node<K, V> pivot = node.left;
+        rotateRight(node);
+        updateHeight(node);
+        updateHeight(pivot);
+        return pivot;
+    }
 }
+
 /*
 """
 An issue with binary trees is the insertion order can make the tree unbalanced, making the complexity O(n) for all
@@ -0,0 +1,83 @@
+package ca.reidmoffat.trees;
+
+import java.util.function.BiFunction;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * A summary a {@link BinarySearchTree} keeps for every subtree (the sum of the values, the greatest key, ...), so it can
+ * summarise any key range in O(height) with {@link BinarySearchTree#aggregate}
+ * <p>
+ * The summaries form a monoid: combine must be associative with identity as its identity, but needn't be commutative,
+ * since it's always called with the lower keys' summary first. A tree recomputes a node's summary from its children's
+ * whenever the subtree under it changes (insertions, deletions, rotations, and values being replaced), so of and
+ * combine should be cheap and shouldn't look at anything but their arguments.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ * @param <A> Summary type
+ */
+public interface Augmentation<K, V, A> {
+
+    /**
+     * Summary of no entries
+     */
+    A identity();
+
+    /**
+     * Summary of a single entry
+     */
+    A of(K key, V value);
+
+    /**
+     * Summary of the entries summarised by lower followed by those summarised by higher
+     */
+    A combine(A lower, A higher);
+
+    /**
+     * Sum of term over the entries
+     */
+    static <K, V> Augmentation<K, V, Long> sum(ToLongBiFunction<? super K, ? super V> term) {
+        return new Augmentation<>() {
+            @Override
+            public Long identity() {
+                return 0L;
+            }
+
+            @Override
+            public Long of(K key, V value) {
+                return term.applyAsLong(key, value);
+            }
+
+            @Override
+            public Long combine(Long lower, Long higher) {
+                return lower + higher;
+            }
+        };
+    }
+
+    /**
+     * Greatest measure of any entry, or null if there are none (measures must not be null)
+     */
+    static <K, V, T extends Comparable<? super T>> Augmentation<K, V, T> max(
+            BiFunction<? super K, ? super V, ? extends T> measure) {
+        return new Augmentation<>() {
+            @Override
+            public T identity() {
+                return null;
+            }
+
+            @Override
+            public T of(K key, V value) {
+                return measure.apply(key, value);
+            }
+
+            @Override
+            public T combine(T lower, T higher) {
+                if (lower == null) {
+                    return higher;
+                }
+                return higher == null || lower.compareTo(higher) >= 0 ? lower : higher;
+            }
+        };
+    }
+}
@@ -0,0 +1,641 @@
+package ca.reidmoffat.trees;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * A B+ tree map for any ordered keys. It's the same structure as {@link LongBPlusTree}: entries in linked leaves, and
+ * up to {@link #ORDER} keys per node so the tree stays a few levels high
+ * <p>
+ * The nodes hold references to the keys rather than the keys themselves. Each comparison in a node's binary search
+ * still has to load its key, so lookups save the misses on the nodes themselves but not on the keys. For long keys,
+ * {@link LongBPlusTree} is the fast one. Range scans still gain the most, since they read the leaves' arrays in order.
+ * <p>
+ * Null keys are not allowed (unless the comparator does), null values are. The entries handed out are snapshots, so
+ * they don't support setValue, and iterators are fail-fast. Not thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class BPlusTree<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Most keys in a node
+     */
+    public static final int ORDER = LongBPlusTree.ORDER;
+    static final int MIN_KEYS = ORDER / 2;
+    private static final int MAX_HEIGHT = 8; // Half-full nodes fan out by 33, so 2^31 entries take 7 levels
+
+    private static class Node {
+        final Object[] keys = new Object[ORDER];
+        int size; // Keys in use
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values = new Object[ORDER];
+        Leaf next;
+    }
+
+    /**
+     * children[i] has the keys below keys[i], and children[i + 1] those from keys[i] up
+     */
+    private static final class Branch extends Node {
+        final Node[] children = new Node[ORDER + 1];
+    }
+
+    private final Comparator<Object> comparator;
+
+    private Node root = new Leaf();
+    private int height = 1; // Levels, counting the leaves
+    private int size;
+    private int modCount;
+
+    // The branches the last put or remove came down through, and which child it took at each
+    private final Branch[] path = new Branch[MAX_HEIGHT];
+    private final int[] pathIndexes = new int[MAX_HEIGHT];
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * A tree ordered by the keys' natural ordering
+     */
+    public BPlusTree() {
+        this(null);
+    }
+
+    /**
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    public BPlusTree(Comparator<? super K> comparator) {
+        this.comparator = (Comparator<Object>) comparator;
+    }
+
+    /**
+     * Builds a tree from entries in the keys' natural ordering
+     *
+     * @see #fromSorted(Comparator, Iterator)
+     */
+    public static <K, V> BPlusTree<K, V> fromSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return fromSorted(null, entries);
+    }
+
+    /**
+     * Builds a tree from entries in strictly increasing key order, in O(n). The leaves are full, for the fastest scans
+     * and the fewest levels
+     *
+     * @param comparator Key order, or null for the keys' natural ordering
+     * @throws IllegalArgumentException If the keys aren't in strictly increasing order
+     */
+    public static <K, V> BPlusTree<K, V> fromSorted(Comparator<? super K> comparator,
+                                                    Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        final BPlusTree<K, V> tree = new BPlusTree<>(comparator);
+        final List<Object> keys = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        while (entries.hasNext()) {
+            final Map.Entry<? extends K, ? extends V> entry = entries.next();
+            final K key = entry.getKey();
+            if (keys.isEmpty()) {
+                tree.compare(key, key); // Type (and null) check
+            } else if (tree.compare(keys.get(keys.size() - 1), key) >= 0) {
+                throw new IllegalArgumentException("Keys out of order: " + keys.get(keys.size() - 1) + " then " + key);
+            }
+            keys.add(key);
+            values.add(entry.getValue());
+        }
+        final int n = keys.size();
+        if (n == 0) {
+            return tree;
+        }
+        // Spreading the entries evenly over the fewest leaves that hold them leaves none less than half full
+        int count = (n + ORDER - 1) / ORDER;
+        Node[] level = new Node[count];
+        Object[] firstKeys = new Object[count];
+        Leaf previous = null;
+        for (int j = 0, start = 0; j < count; ++j) {
+            final int end = (int) ((long) n * (j + 1) / count);
+            final Leaf leaf = new Leaf();
+            leaf.size = end - start;
+            for (int i = 0; i < leaf.size; ++i) {
+                leaf.keys[i] = keys.get(start + i);
+                leaf.values[i] = values.get(start + i);
+            }
+            if (previous != null) {
+                previous.next = leaf;
+            }
+            previous = leaf;
+            level[j] = leaf;
+            firstKeys[j] = leaf.keys[0];
+            start = end;
+        }
+        // Then the same for each level of branches, until one is left
+        int height = 1;
+        while (count > 1) {
+            final int parents = (count + ORDER) / (ORDER + 1);
+            final Node[] up = new Node[parents];
+            final Object[] upFirstKeys = new Object[parents];
+            for (int j = 0, start = 0; j < parents; ++j) {
+                final int end = (int) ((long) count * (j + 1) / parents);
+                final Branch branch = new Branch();
+                branch.size = end - start - 1;
+                System.arraycopy(level, start, branch.children, 0, end - start);
+                System.arraycopy(firstKeys, start + 1, branch.keys, 0, branch.size);
+                up[j] = branch;
+                upFirstKeys[j] = firstKeys[start];
+                start = end;
+            }
+            level = up;
+            firstKeys = upFirstKeys;
+            count = parents;
+            ++height;
+        }
+        tree.root = level[0];
+        tree.height = height;
+        tree.size = n;
+        return tree;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator == null ? ((Comparable<Object>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    /**
+     * Like {@link Arrays#binarySearch}: the key's index in node, or -(where it would go) - 1
+     */
+    private int search(Node node, Object key) {
+        return Arrays.binarySearch(node.keys, 0, node.size, key, comparator);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of levels, counting the leaves (1 for an empty tree)
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Index of the child of branch that key would be under
+     */
+    private int childIndex(Branch branch, Object key) {
+        final int index = search(branch, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Leaf findLeaf(Object key) {
+        if (comparator == null) {
+            Objects.requireNonNull(key);
+        }
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            final Branch branch = (Branch) node;
+            node = branch.children[childIndex(branch, key)];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Like {@link #findLeaf}, but records the way down in path
+     */
+    private Leaf descend(Object key) {
+        if (comparator == null) {
+            Objects.requireNonNull(key);
+        }
+        Node node = root;
+        for (int level = 0; level < height - 1; ++level) {
+            final Branch branch = (Branch) node;
+            final int index = childIndex(branch, key);
+            path[level] = branch;
+            pathIndexes[level] = index;
+            node = branch.children[index];
+        }
+        return (Leaf) node;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        final Leaf leaf = findLeaf(key);
+        return search(leaf, key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        final Leaf leaf = findLeaf(key);
+        final int index = search(leaf, key);
+        return index >= 0 ? (V) leaf.values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (size == 0) {
+            compare(key, key); // Type (and null) check
+        }
+        final Leaf leaf = descend(key);
+        int index = search(leaf, key);
+        if (index >= 0) {
+            final V previous = (V) leaf.values[index];
+            leaf.values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (leaf.size < ORDER) {
+            insert(leaf, index, key, value);
+        } else {
+            // Split the full leaf in half, and put the key in whichever half it belongs in
+            final Leaf right = new Leaf();
+            right.size = ORDER - MIN_KEYS;
+            System.arraycopy(leaf.keys, MIN_KEYS, right.keys, 0, right.size);
+            System.arraycopy(leaf.values, MIN_KEYS, right.values, 0, right.size);
+            Arrays.fill(leaf.keys, MIN_KEYS, ORDER, null);
+            Arrays.fill(leaf.values, MIN_KEYS, ORDER, null);
+            leaf.size = MIN_KEYS;
+            right.next = leaf.next;
+            leaf.next = right;
+            if (index <= MIN_KEYS) {
+                insert(leaf, index, key, value);
+            } else {
+                insert(right, index - MIN_KEYS, key, value);
+            }
+            addChild(height - 2, right.keys[0], right);
+        }
+        ++size;
+        ++modCount;
+        return null;
+    }
+
+    private static void insert(Leaf leaf, int index, Object key, Object value) {
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.size - index);
+        System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.size - index);
+        leaf.keys[index] = key;
+        leaf.values[index] = value;
+        ++leaf.size;
+    }
+
+    /**
+     * Adds child, whose keys start at key, just right of the child the path took at level. Splits branches that are
+     * full on the way up, and adds a level at the top if the root splits
+     */
+    private void addChild(int level, Object key, Node child) {
+        for (; level >= 0; --level) {
+            final Branch branch = path[level];
+            final int index = pathIndexes[level];
+            if (branch.size < ORDER) {
+                insert(branch, index, key, child);
+                return;
+            }
+            // ORDER + 1 keys with the new one: the middle one goes up, and the halves either side of it split
+            final Object[] keys = Arrays.copyOf(branch.keys, ORDER + 1);
+            final Node[] children = Arrays.copyOf(branch.children, ORDER + 2);
+            System.arraycopy(keys, index, keys, index + 1, ORDER - index);
+            System.arraycopy(children, index + 1, children, index + 2, ORDER - index);
+            keys[index] = key;
+            children[index + 1] = child;
+
+            final int middle = (ORDER + 1) / 2;
+            final Branch right = new Branch();
+            right.size = ORDER - middle;
+            System.arraycopy(keys, middle + 1, right.keys, 0, right.size);
+            System.arraycopy(children, middle + 1, right.children, 0, right.size + 1);
+            System.arraycopy(keys, 0, branch.keys, 0, middle);
+            System.arraycopy(children, 0, branch.children, 0, middle + 1);
+            Arrays.fill(branch.keys, middle, ORDER, null);
+            Arrays.fill(branch.children, middle + 1, ORDER + 1, null);
+            branch.size = middle;
+            key = keys[middle];
+            child = right;
+        }
+        final Branch newRoot = new Branch();
+        newRoot.keys[0] = key;
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.size = 1;
+        root = newRoot;
+        ++height;
+    }
+
+    private static void insert(Branch branch, int index, Object key, Node child) {
+        System.arraycopy(branch.keys, index, branch.keys, index + 1, branch.size - index);
+        System.arraycopy(branch.children, index + 1, branch.children, index + 2, branch.size - index);
+        branch.keys[index] = key;
+        branch.children[index + 1] = child;
+        ++branch.size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        final Leaf leaf = descend(key);
+        final int index = search(leaf, key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) leaf.values[index];
+        System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.size - index - 1);
+        System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.size - index - 1);
+        --leaf.size;
+        leaf.keys[leaf.size] = null;
+        leaf.values[leaf.size] = null;
+        --size;
+        ++modCount;
+        if (leaf.size < MIN_KEYS && height > 1) {
+            rebalance(leaf, height - 2);
+        }
+        return previous;
+    }
+
+    /**
+     * Tops up leaf, which has one key too few, from a sibling: by taking one of its entries if it can spare one, or
+     * else merging the two. The sibling is the one on the left if there is one, under the same parent (path[level])
+     */
+    private void rebalance(Leaf leaf, int level) {
+        final Branch parent = path[level];
+        final int index = pathIndexes[level];
+        if (index > 0) {
+            final Leaf left = (Leaf) parent.children[index - 1];
+            if (left.size > MIN_KEYS) {
+                System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.size);
+                System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.size);
+                --left.size;
+                leaf.keys[0] = left.keys[left.size];
+                leaf.values[0] = left.values[left.size];
+                left.keys[left.size] = null;
+                left.values[left.size] = null;
+                ++leaf.size;
+                parent.keys[index - 1] = leaf.keys[0];
+                return;
+            }
+            merge(left, leaf);
+            removeChild(level, index - 1);
+        } else {
+            final Leaf right = (Leaf) parent.children[1];
+            if (right.size > MIN_KEYS) {
+                leaf.keys[leaf.size] = right.keys[0];
+                leaf.values[leaf.size] = right.values[0];
+                ++leaf.size;
+                System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+                System.arraycopy(right.values, 1, right.values, 0, right.size - 1);
+                --right.size;
+                right.keys[right.size] = null;
+                right.values[right.size] = null;
+                parent.keys[0] = right.keys[0];
+                return;
+            }
+            merge(leaf, right);
+            removeChild(level, 0);
+        }
+    }
+
+    /**
+     * Moves right's entries onto the end of left, its neighbour, taking right out of the chain of leaves
+     */
+    private static void merge(Leaf left, Leaf right) {
+        System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+        System.arraycopy(right.values, 0, left.values, left.size, right.size);
+        left.size += right.size;
+        left.next = right.next;
+    }
+
+    /**
+     * Removes keys[keyIndex] and the child to its right from path[level] (after that child was merged into its left
+     * neighbour), then tops the branch up in turn if that left it less than half full
+     */
+    private void removeChild(int level, int keyIndex) {
+        final Branch branch = path[level];
+        System.arraycopy(branch.keys, keyIndex + 1, branch.keys, keyIndex, branch.size - keyIndex - 1);
+        System.arraycopy(branch.children, keyIndex + 2, branch.children, keyIndex + 1, branch.size - keyIndex - 1);
+        branch.children[branch.size--] = null;
+        branch.keys[branch.size] = null;
+        if (level == 0) {
+            if (branch.size == 0) {
+                // The root is down to one child, which takes its place
+                root = branch.children[0];
+                --height;
+            }
+            return;
+        }
+        if (branch.size >= MIN_KEYS) {
+            return;
+        }
+        final Branch parent = path[level - 1];
+        final int index = pathIndexes[level - 1];
+        if (index > 0) {
+            final Branch left = (Branch) parent.children[index - 1];
+            if (left.size > MIN_KEYS) {
+                // Rotate through the parent: its key comes down in front, and left's last key goes up
+                System.arraycopy(branch.keys, 0, branch.keys, 1, branch.size);
+                System.arraycopy(branch.children, 0, branch.children, 1, branch.size + 1);
+                branch.keys[0] = parent.keys[index - 1];
+                branch.children[0] = left.children[left.size];
+                ++branch.size;
+                parent.keys[index - 1] = left.keys[left.size - 1];
+                left.children[left.size--] = null;
+                left.keys[left.size] = null;
+                return;
+            }
+            merge(left, parent.keys[index - 1], branch);
+            removeChild(level - 1, index - 1);
+        } else {
+            final Branch right = (Branch) parent.children[1];
+            if (right.size > MIN_KEYS) {
+                branch.keys[branch.size] = parent.keys[0];
+                branch.children[branch.size + 1] = right.children[0];
+                ++branch.size;
+                parent.keys[0] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+                System.arraycopy(right.children, 1, right.children, 0, right.size);
+                right.children[right.size--] = null;
+                right.keys[right.size] = null;
+                return;
+            }
+            merge(branch, parent.keys[0], right);
+            removeChild(level - 1, 0);
+        }
+    }
+
+    /**
+     * Moves the parent's key between them and right's keys and children onto the end of left
+     */
+    private static void merge(Branch left, Object separator, Branch right) {
+        left.keys[left.size] = separator;
+        System.arraycopy(right.keys, 0, left.keys, left.size + 1, right.size);
+        System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+        left.size += 1 + right.size;
+    }
+
+    @Override
+    public void clear() {
+        root = new Leaf();
+        height = 1;
+        size = 0;
+        ++modCount;
+    }
+
+    private Leaf firstLeaf() {
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            node = ((Branch) node).children[0];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    @SuppressWarnings("unchecked")
+    public K firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return (K) firstLeaf().keys[0];
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    @SuppressWarnings("unchecked")
+    public K lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            final Branch branch = (Branch) node;
+            node = branch.children[branch.size];
+        }
+        return (K) node.keys[node.size - 1];
+    }
+
+    /**
+     * Calls action on every entry with a key in [fromKey, toKey], in key order. action mustn't change the tree
+     *
+     * @throws IllegalArgumentException If fromKey > toKey
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachInRange(K fromKey, K toKey, BiConsumer<? super K, ? super V> action) {
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        final int expectedModCount = modCount;
+        Leaf leaf = findLeaf(fromKey);
+        int index = search(leaf, fromKey);
+        for (index = index >= 0 ? index : -index - 1; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.size; ++index) {
+                if (compare(leaf.keys[index], toKey) > 0) {
+                    return;
+                }
+                action.accept((K) leaf.keys[index], (V) leaf.values[index]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public void clear() {
+                    BPlusTree.this.clear();
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private Leaf leaf = firstLeaf();
+        private int index;
+        private Object lastKey;
+        private boolean canRemove;
+        private int expectedModCount = modCount;
+
+        EntryIterator() {
+            skipEmptyLeaf();
+        }
+
+        private void skipEmptyLeaf() {
+            if (leaf != null && index == leaf.size) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (leaf == null) {
+                throw new NoSuchElementException();
+            }
+            lastKey = leaf.keys[index];
+            final Map.Entry<K, V> entry = new SimpleImmutableEntry<>((K) lastKey, (V) leaf.values[index]);
+            ++index;
+            skipEmptyLeaf();
+            canRemove = true;
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            BPlusTree.this.remove(lastKey);
+            expectedModCount = modCount;
+            canRemove = false;
+            // Entries may have moved between leaves, so find the next one again
+            leaf = findLeaf(lastKey);
+            index = -search(leaf, lastKey) - 1;
+            skipEmptyLeaf();
+        }
+    }
+}
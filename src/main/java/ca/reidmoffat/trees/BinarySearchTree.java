@@ -1,6 +1,1474 @@
 package ca.reidmoffat.trees;
 
-public class BinarySearchTree {
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+/**
+ * A binary search tree map with no balancing, and the base of the balanced trees ({@link AVLTree})
+ * <p>
+ * Nodes point to their parent as well as their children, so everything (lookups, insertion, deletion, iteration) is a
+ * loop rather than recursion. Deleting a node with two children swaps it with its successor node in the tree instead
+ * of copying the successor's entry into it, so an entry object stays valid for as long as it's in the map.
+ * <p>
+ * Every node also counts the nodes in its subtree, which costs no memory (the int fits in the node's alignment
+ * padding) and gives the order statistics {@link #select}, {@link #rank} and {@link #countInRange} in O(height). An
+ * {@link Augmentation} given to the constructor keeps a summary of every subtree as well, such as a sum or maximum, for
+ * {@link #aggregate} to answer range queries with in O(height).
+ * <p>
+ * The range views (subMap, headMap, tailMap and the descending views) are views, not copies: they look up their first
+ * entry in O(height) and then step through the tree, so iterating k entries takes O(height + k). Writes through them
+ * change the tree. Their size() is O(height), from the subtree counts.
+ * <p>
+ * Subclasses balance the tree by overriding {@link #afterInsert} and {@link #deleteNode}, using the rotations and the
+ * spare {@link Node#meta} byte. The rotations and {@link #unlink} keep the counts and summaries up to date. Null keys
+ * are not allowed (unless the comparator does), null values are. Iterators are fail-fast. Not thread safe.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class BinarySearchTree<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+
+    static class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        V value;
+        Node<K, V> left;
+        Node<K, V> right;
+        Node<K, V> parent;
+        byte meta; // Balancing information for subclasses (AVL height, red-black colour)
+        int count = 1; // Nodes in this subtree
+
+        Node(K key, V value, Node<K, V> parent) {
+            this.key = key;
+            this.value = value;
+            this.parent = parent;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            final V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> e && Objects.equals(key, e.getKey())
+                    && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A node in an augmented tree, which also summarises its subtree
+     */
+    static final class AugmentedNode<K, V> extends Node<K, V> {
+        final Augmentation<? super K, ? super V, Object> augmentation;
+        Object aggregate;
+
+        AugmentedNode(K key, V value, Node<K, V> parent, Augmentation<? super K, ? super V, Object> augmentation) {
+            super(key, value, parent);
+            this.augmentation = augmentation;
+            aggregate = augmentation.of(key, value);
+        }
+
+        void recompute() {
+            Object aggregate = augmentation.of(key, value);
+            if (left != null) {
+                aggregate = augmentation.combine(((AugmentedNode<K, V>) left).aggregate, aggregate);
+            }
+            if (right != null) {
+                aggregate = augmentation.combine(aggregate, ((AugmentedNode<K, V>) right).aggregate);
+            }
+            this.aggregate = aggregate;
+        }
+
+        @Override
+        public V setValue(V value) {
+            final V previous = super.setValue(value);
+            for (Node<K, V> node = this; node != null; node = node.parent) {
+                ((AugmentedNode<K, V>) node).recompute();
+            }
+            return previous;
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private final Augmentation<? super K, ? super V, Object> augmentation;
+
+    Node<K, V> root;
+    int size;
+    int modCount;
+
+    private Set<Map.Entry<K, V>> entrySet;
+    private NavigableSet<K> keySet;
+    private NavigableMap<K, V> descendingMap;
+
+    /**
+     * A tree ordered by the keys' natural ordering
+     */
+    public BinarySearchTree() {
+        this(null);
+    }
+
+    /**
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    public BinarySearchTree(Comparator<? super K> comparator) {
+        this(comparator, null);
+    }
+
+    /**
+     * @param comparator   Key order, or null for the keys' natural ordering
+     * @param augmentation Summary to keep for every subtree, or null for none
+     */
+    @SuppressWarnings("unchecked")
+    public BinarySearchTree(Comparator<? super K> comparator, Augmentation<? super K, ? super V, ?> augmentation) {
+        this.comparator = comparator;
+        this.augmentation = (Augmentation<? super K, ? super V, Object>) augmentation;
+    }
+
+    final Augmentation<? super K, ? super V, ?> augmentation() {
+        return augmentation;
+    }
+
+    @SuppressWarnings("unchecked")
+    final int compare(Object a, Object b) {
+        return comparator == null ? ((Comparable<Object>) a).compareTo(b) : comparator.compare((K) a, (K) b);
+    }
+
+    // Balancing hooks
+
+    /**
+     * Called after node is linked in as a new leaf and counted
+     */
+    void afterInsert(Node<K, V> node) {
+    }
+
+    /**
+     * Unlinks node from the tree (the size is handled by the caller)
+     */
+    void deleteNode(Node<K, V> node) {
+        if (node.left != null && node.right != null) {
+            swapWithSuccessor(node);
+        }
+        unlink(node, node.left != null ? node.left : node.right);
+    }
+
+    // Structural helpers for the balancing subclasses
+
+    final Node<K, V> newNode(K key, V value, Node<K, V> parent) {
+        return augmentation == null ? new Node<>(key, value, parent)
+                : new AugmentedNode<>(key, value, parent, augmentation);
+    }
+
+    static int count(Node<?, ?> node) {
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * Recomputes node's count (and summary) from its children's
+     */
+    static void update(Node<?, ?> node) {
+        node.count = 1 + count(node.left) + count(node.right);
+        if (node instanceof AugmentedNode<?, ?> augmented) {
+            augmented.recompute();
+        }
+    }
+
+    /**
+     * Updates node and everything above it
+     */
+    static void updatePath(Node<?, ?> node) {
+        for (; node != null; node = node.parent) {
+            update(node);
+        }
+    }
+
+    /**
+     * Removes node, which has at most one child, from the tree, putting child (which may be null) in its place and
+     * updating the counts above it
+     */
+    final void unlink(Node<K, V> node, Node<K, V> child) {
+        replace(node, child);
+        updatePath(node.parent);
+    }
+
+    /**
+     * Puts replacement (which may be null) where node is in the tree, making node's parent its parent
+     */
+    final void replace(Node<K, V> node, Node<K, V> replacement) {
+        final Node<K, V> parent = node.parent;
+        if (parent == null) {
+            root = replacement;
+        } else if (parent.left == node) {
+            parent.left = replacement;
+        } else {
+            parent.right = replacement;
+        }
+        if (replacement != null) {
+            replacement.parent = parent;
+        }
+    }
+
+    /**
+     * Swaps a node that has two children with its successor, so it ends up with no left child. The two swap meta and
+     * count too, since those belong to the position in the tree
+     */
+    final void swapWithSuccessor(Node<K, V> node) {
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        final Node<K, V> left = node.left;
+        final Node<K, V> right = node.right;
+        final Node<K, V> successorParent = successor.parent;
+        final Node<K, V> successorRight = successor.right;
+
+        replace(node, successor);
+        successor.left = left;
+        left.parent = successor;
+        if (right == successor) {
+            successor.right = node;
+            node.parent = successor;
+        } else {
+            successor.right = right;
+            right.parent = successor;
+            successorParent.left = node;
+            node.parent = successorParent;
+        }
+        node.left = null;
+        node.right = successorRight;
+        if (successorRight != null) {
+            successorRight.parent = node;
+        }
+        final byte meta = node.meta;
+        node.meta = successor.meta;
+        successor.meta = meta;
+        final int count = node.count;
+        node.count = successor.count;
+        successor.count = count;
+        if (augmentation != null) {
+            // The subtrees between the two positions swapped an entry
+            for (Node<K, V> above = node; above != successor; above = above.parent) {
+                update(above);
+            }
+            update(successor);
+        }
+    }
+
+    /**
+     * Rotates node's right child up into its place
+     */
+    final void rotateLeft(Node<K, V> node) {
+        final Node<K, V> pivot = node.right;
+        node.right = pivot.left;
+        if (pivot.left != null) {
+            pivot.left.parent = node;
+        }
+        replace(node, pivot);
+        pivot.left = node;
+        node.parent = pivot;
+        update(node);
+        update(pivot);
+    }
+
+    /**
+     * Rotates node's left child up into its place
+     */
+    final void rotateRight(Node<K, V> node) {
+        final Node<K, V> pivot = node.left;
+        node.left = pivot.right;
+        if (pivot.right != null) {
+            pivot.right.parent = node;
+        }
+        replace(node, pivot);
+        pivot.right = node;
+        node.parent = pivot;
+        update(node);
+        update(pivot);
+    }
+
+    // Navigation
+
+    final Node<K, V> getNode(Object key) {
+        if (comparator == null) {
+            Objects.requireNonNull(key);
+        }
+        Node<K, V> node = root;
+        while (node != null) {
+            final int c = compare(key, node.key);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Node with the least key >= key, or null
+     */
+    final Node<K, V> ceilingNode(Object key) {
+        Node<K, V> best = null;
+        Node<K, V> node = root;
+        while (node != null) {
+            final int c = compare(key, node.key);
+            if (c < 0) {
+                best = node;
+                node = node.left;
+            } else if (c > 0) {
+                node = node.right;
+            } else {
+                return node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Node with the least key > key, or null
+     */
+    final Node<K, V> higherNode(Object key) {
+        Node<K, V> best = null;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (compare(key, node.key) < 0) {
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Node with the greatest key <= key, or null
+     */
+    final Node<K, V> floorNode(Object key) {
+        Node<K, V> best = null;
+        Node<K, V> node = root;
+        while (node != null) {
+            final int c = compare(key, node.key);
+            if (c > 0) {
+                best = node;
+                node = node.right;
+            } else if (c < 0) {
+                node = node.left;
+            } else {
+                return node;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Node with the greatest key < key, or null
+     */
+    final Node<K, V> lowerNode(Object key) {
+        Node<K, V> best = null;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (compare(key, node.key) > 0) {
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    final Node<K, V> firstNode() {
+        Node<K, V> node = root;
+        if (node != null) {
+            while (node.left != null) {
+                node = node.left;
+            }
+        }
+        return node;
+    }
+
+    final Node<K, V> lastNode() {
+        Node<K, V> node = root;
+        if (node != null) {
+            while (node.right != null) {
+                node = node.right;
+            }
+        }
+        return node;
+    }
+
+    static <K, V> Node<K, V> successor(Node<K, V> node) {
+        if (node.right != null) {
+            node = node.right;
+            while (node.left != null) {
+                node = node.left;
+            }
+            return node;
+        }
+        Node<K, V> parent = node.parent;
+        while (parent != null && node == parent.right) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
+    static <K, V> Node<K, V> predecessor(Node<K, V> node) {
+        if (node.left != null) {
+            node = node.left;
+            while (node.right != null) {
+                node = node.right;
+            }
+            return node;
+        }
+        Node<K, V> parent = node.parent;
+        while (parent != null && node == parent.left) {
+            node = parent;
+            parent = parent.parent;
+        }
+        return parent;
+    }
+
+    private static <K, V> Map.Entry<K, V> export(Node<K, V> node) {
+        return node == null ? null : new SimpleImmutableEntry<>(node);
+    }
+
+    private static <K> K keyOrNull(Node<K, ?> node) {
+        return node == null ? null : node.key;
+    }
+
+    private static <K> K key(Node<K, ?> node) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        return node.key;
+    }
+
+    // Map
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        final Node<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Node<K, V> node = root;
+        if (node == null) {
+            compare(key, key); // Type (and null) check
+        }
+        Node<K, V> parent = null;
+        int c = 0;
+        while (node != null) {
+            parent = node;
+            c = compare(key, node.key);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                node = node.right;
+            } else {
+                return node.setValue(value);
+            }
+        }
+        final Node<K, V> added = newNode(key, value, parent);
+        if (parent == null) {
+            root = added;
+        } else if (c < 0) {
+            parent.left = added;
+        } else {
+            parent.right = added;
+        }
+        updatePath(parent);
+        ++size;
+        ++modCount;
+        afterInsert(added);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        final Node<K, V> node = getNode(key);
+        if (node == null) {
+            return null;
+        }
+        deleteEntry(node);
+        return node.value;
+    }
+
+    final void deleteEntry(Node<K, V> node) {
+        deleteNode(node);
+        node.left = node.right = node.parent = null;
+        --size;
+        ++modCount;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * Number of nodes on the longest path from the root down (0 for an empty tree). O(n) here, since nothing is
+     * stored to work it out from
+     */
+    public int height() {
+        if (root == null) {
+            return 0;
+        }
+        // Level by level
+        final ArrayDeque<Node<K, V>> level = new ArrayDeque<>();
+        level.add(root);
+        int height = 0;
+        while (!level.isEmpty()) {
+            ++height;
+            for (int i = level.size(); i > 0; --i) {
+                final Node<K, V> node = level.poll();
+                if (node.left != null) {
+                    level.add(node.left);
+                }
+                if (node.right != null) {
+                    level.add(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
+    // Order statistics and summaries
+
+    /**
+     * The key with the given index in key order, so select(0) is the first key. O(height)
+     *
+     * @throws IndexOutOfBoundsException If index isn't in [0, size())
+     */
+    public K select(int index) {
+        Objects.checkIndex(index, size);
+        Node<K, V> node = root;
+        while (true) {
+            final int left = count(node.left);
+            if (index < left) {
+                node = node.left;
+            } else if (index > left) {
+                index -= left + 1;
+                node = node.right;
+            } else {
+                return node.key;
+            }
+        }
+    }
+
+    /**
+     * Number of keys less than key, which is its index if it's in the tree. O(height)
+     */
+    public int rank(K key) {
+        compare(key, key); // Type (and null) check
+        return countBelow(key, false);
+    }
+
+    /**
+     * Number of keys in [fromKey, toKey). O(height)
+     */
+    public int countInRange(K fromKey, K toKey) {
+        return countInRange(fromKey, true, toKey, false);
+    }
+
+    /**
+     * Number of keys between fromKey and toKey. O(height)
+     *
+     * @throws IllegalArgumentException If fromKey > toKey
+     */
+    public int countInRange(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return countBelow(toKey, toInclusive) - countBelow(fromKey, !fromInclusive);
+    }
+
+    /**
+     * Number of keys < key, or <= key if inclusive
+     */
+    final int countBelow(Object key, boolean inclusive) {
+        int count = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            final int c = compare(key, node.key);
+            if (c < 0) {
+                node = node.left;
+            } else if (c > 0) {
+                count += count(node.left) + 1;
+                node = node.right;
+            } else {
+                return count + count(node.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Summary of every entry. O(1)
+     *
+     * @param augmentation The augmentation this tree was made with
+     * @throws IllegalArgumentException If it's not
+     */
+    public <A> A aggregate(Augmentation<? super K, ? super V, A> augmentation) {
+        checkAugmentation(augmentation);
+        return root == null ? augmentation.identity() : aggregateOf(root);
+    }
+
+    /**
+     * Summary of the entries with keys between fromKey and toKey. O(height)
+     *
+     * @param augmentation The augmentation this tree was made with
+     * @throws IllegalArgumentException If it's not, or fromKey > toKey
+     */
+    public <A> A aggregate(Augmentation<? super K, ? super V, A> augmentation, K fromKey, boolean fromInclusive,
+                           K toKey, boolean toInclusive) {
+        checkAugmentation(augmentation);
+        if (compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        // Find the highest node in range; everything else in range hangs off the two paths down from it
+        Node<K, V> top = root;
+        while (top != null) {
+            final int low = compare(top.key, fromKey);
+            final int high = compare(top.key, toKey);
+            if (low < 0 || (low == 0 && !fromInclusive)) {
+                top = top.right;
+            } else if (high > 0 || (high == 0 && !toInclusive)) {
+                top = top.left;
+            } else {
+                break;
+            }
+        }
+        if (top == null) {
+            return augmentation.identity();
+        }
+        // Where the path down the left turns left, the node and its right subtree are all in range; and the other way
+        // round on the right
+        A lower = augmentation.identity();
+        for (Node<K, V> node = top.left; node != null; ) {
+            final int c = compare(node.key, fromKey);
+            if (c < 0 || (c == 0 && !fromInclusive)) {
+                node = node.right;
+            } else {
+                lower = augmentation.combine(augmentation.combine(augmentation.of(node.key, node.value),
+                        aggregateOrIdentity(node.right, augmentation)), lower);
+                node = node.left;
+            }
+        }
+        A higher = augmentation.identity();
+        for (Node<K, V> node = top.right; node != null; ) {
+            final int c = compare(node.key, toKey);
+            if (c > 0 || (c == 0 && !toInclusive)) {
+                node = node.left;
+            } else {
+                higher = augmentation.combine(higher, augmentation.combine(
+                        aggregateOrIdentity(node.left, augmentation), augmentation.of(node.key, node.value)));
+                node = node.right;
+            }
+        }
+        return augmentation.combine(augmentation.combine(lower, augmentation.of(top.key, top.value)), higher);
+    }
+
+    private void checkAugmentation(Augmentation<?, ?, ?> augmentation) {
+        if (augmentation == null || augmentation != this.augmentation) {
+            throw new IllegalArgumentException("Not this tree's augmentation");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <A> A aggregateOf(Node<?, ?> node) {
+        return (A) ((AugmentedNode<?, ?>) node).aggregate;
+    }
+
+    private static <A> A aggregateOrIdentity(Node<?, ?> node, Augmentation<?, ?, A> augmentation) {
+        return node == null ? augmentation.identity() : aggregateOf(node);
+    }
+
+    // NavigableMap
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public K firstKey() {
+        return key(firstNode());
+    }
+
+    @Override
+    public K lastKey() {
+        return key(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return export(firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return export(lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        final Node<K, V> node = firstNode();
+        final Map.Entry<K, V> entry = export(node);
+        if (node != null) {
+            deleteEntry(node);
+        }
+        return entry;
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        final Node<K, V> node = lastNode();
+        final Map.Entry<K, V> entry = export(node);
+        if (node != null) {
+            deleteEntry(node);
+        }
+        return entry;
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return export(lowerNode(key));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOrNull(lowerNode(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return export(floorNode(key));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOrNull(floorNode(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return export(ceilingNode(key));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOrNull(ceilingNode(key));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return export(higherNode(key));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOrNull(higherNode(key));
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet(this) {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator(firstNode(), null, false);
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        if (keySet == null) {
+            keySet = new KeySet<>(this);
+        }
+        return keySet;
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        if (descendingMap == null) {
+            descendingMap = new SubMap(true, null, true, true, null, true, true);
+        }
+        return descendingMap;
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        return new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new SubMap(true, null, true, false, toKey, inclusive, false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap(false, fromKey, inclusive, true, null, true, false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    // Views
+
+    /**
+     * Walks the nodes from first up to (not including) fence, forwards or backwards
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        private Node<K, V> next;
+        private final Node<K, V> fence;
+        private final boolean descending;
+        private Node<K, V> last;
+        private int expectedModCount = modCount;
+
+        EntryIterator(Node<K, V> first, Node<K, V> fence, boolean descending) {
+            this.next = first;
+            this.fence = fence;
+            this.descending = descending;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null && next != fence;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = descending ? predecessor(next) : successor(next);
+            return last;
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Nodes are swapped rather than copied on deletion, so next is still the right node
+            deleteEntry(last);
+            expectedModCount = modCount;
+            last = null;
+        }
+    }
+
+    /**
+     * Entry set of this tree or one of its range views
+     */
+    private abstract class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        private final NavigableMap<K, V> map;
+
+        EntrySet(NavigableMap<K, V> map) {
+            this.map = map;
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return !iterator().hasNext();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Map.Entry<?, ?> entry) || !containsKeySafely(entry.getKey())) {
+                return false;
+            }
+            final Node<K, V> node = getNode(entry.getKey());
+            return node != null && Objects.equals(node.value, entry.getValue());
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!contains(o)) {
+                return false;
+            }
+            deleteEntry(getNode(((Map.Entry<?, ?>) o).getKey()));
+            return true;
+        }
+
+        private boolean containsKeySafely(Object key) {
+            return (key != null || comparator != null) && map.containsKey(key);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+    }
+
+    /**
+     * The keys of a navigable map, as a navigable set backed by it
+     */
+    static final class KeySet<E> extends AbstractSet<E> implements NavigableSet<E> {
+        private final NavigableMap<E, ?> map;
+
+        KeySet(NavigableMap<E, ?> map) {
+            this.map = map;
+        }
+
+        private static <E> Iterator<E> keys(Iterator<? extends Map.Entry<E, ?>> entries) {
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public E next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return keys(map.entrySet().iterator());
+        }
+
+        @Override
+        public Iterator<E> descendingIterator() {
+            return keys(map.descendingMap().entrySet().iterator());
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            final int before = map.size();
+            map.remove(o);
+            return map.size() != before;
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super E> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public E first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public E last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public E lower(E e) {
+            return map.lowerKey(e);
+        }
+
+        @Override
+        public E floor(E e) {
+            return map.floorKey(e);
+        }
+
+        @Override
+        public E ceiling(E e) {
+            return map.ceilingKey(e);
+        }
+
+        @Override
+        public E higher(E e) {
+            return map.higherKey(e);
+        }
+
+        @Override
+        public E pollFirst() {
+            final Map.Entry<E, ?> entry = map.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public E pollLast() {
+            final Map.Entry<E, ?> entry = map.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<E> descendingSet() {
+            return new KeySet<>(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+            return new KeySet<>(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+            return new KeySet<>(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+            return new KeySet<>(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<E> subSet(E fromElement, E toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> headSet(E toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<E> tailSet(E fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * A range of the tree, in either direction. Bounds are kept in ascending terms (lo <= hi) whatever the direction,
+     * and the abs* methods navigate in ascending order within them
+     */
+    private final class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        private final boolean fromStart;
+        private final K lo;
+        private final boolean loInclusive;
+        private final boolean toEnd;
+        private final K hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        private Set<Map.Entry<K, V>> entrySet;
+
+        SubMap(boolean fromStart, K lo, boolean loInclusive, boolean toEnd, K hi, boolean hiInclusive,
+               boolean descending) {
+            if (!fromStart && !toEnd) {
+                if (compare(lo, hi) > 0) {
+                    throw new IllegalArgumentException("fromKey > toKey");
+                }
+            } else {
+                // Type (and null) checks
+                if (!fromStart) {
+                    compare(lo, lo);
+                }
+                if (!toEnd) {
+                    compare(hi, hi);
+                }
+            }
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(Object key) {
+            if (fromStart) {
+                return false;
+            }
+            final int c = compare(key, lo);
+            return c < 0 || (c == 0 && !loInclusive);
+        }
+
+        private boolean tooHigh(Object key) {
+            if (toEnd) {
+                return false;
+            }
+            final int c = compare(key, hi);
+            return c > 0 || (c == 0 && !hiInclusive);
+        }
+
+        private boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Whether key can bound a view of this one: an exclusive bound may sit on this view's own exclusive bound
+         */
+        private boolean inRange(Object key, boolean inclusive) {
+            return inclusive ? inRange(key)
+                    : (fromStart || compare(key, lo) >= 0) && (toEnd || compare(hi, key) >= 0);
+        }
+
+        private Node<K, V> checkHigh(Node<K, V> node) {
+            return node == null || tooHigh(node.key) ? null : node;
+        }
+
+        private Node<K, V> checkLow(Node<K, V> node) {
+            return node == null || tooLow(node.key) ? null : node;
+        }
+
+        private Node<K, V> absLowest() {
+            return checkHigh(fromStart ? firstNode() : loInclusive ? ceilingNode(lo) : higherNode(lo));
+        }
+
+        private Node<K, V> absHighest() {
+            return checkLow(toEnd ? lastNode() : hiInclusive ? floorNode(hi) : lowerNode(hi));
+        }
+
+        private Node<K, V> absCeiling(Object key) {
+            return tooLow(key) ? absLowest() : checkHigh(ceilingNode(key));
+        }
+
+        private Node<K, V> absHigher(Object key) {
+            return tooLow(key) ? absLowest() : checkHigh(higherNode(key));
+        }
+
+        private Node<K, V> absFloor(Object key) {
+            return tooHigh(key) ? absHighest() : checkLow(floorNode(key));
+        }
+
+        private Node<K, V> absLower(Object key) {
+            return tooHigh(key) ? absHighest() : checkLow(lowerNode(key));
+        }
+
+        /**
+         * First node past the high end, where an ascending iteration stops
+         */
+        private Node<K, V> absHighFence() {
+            return toEnd ? null : hiInclusive ? higherNode(hi) : ceilingNode(hi);
+        }
+
+        private Node<K, V> absLowFence() {
+            return fromStart ? null : loInclusive ? lowerNode(lo) : floorNode(lo);
+        }
+
+        // The same in this view's order
+
+        private Node<K, V> lowest() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        private Node<K, V> highest() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        @Override
+        public int size() {
+            final int below = fromStart ? 0 : countBelow(lo, !loInclusive);
+            return (toEnd ? BinarySearchTree.this.size() : countBelow(hi, hiInclusive)) - below;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return lowest() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return inRange(key) && BinarySearchTree.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return inRange(key) ? BinarySearchTree.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("Key out of range: " + key);
+            }
+            return BinarySearchTree.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return inRange(key) ? BinarySearchTree.this.remove(key) : null;
+        }
+
+        @Override
+        public void clear() {
+            if (fromStart && toEnd) {
+                BinarySearchTree.this.clear();
+                return;
+            }
+            for (Iterator<Map.Entry<K, V>> iterator = entrySet().iterator(); iterator.hasNext(); ) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(comparator) : comparator;
+        }
+
+        @Override
+        public K firstKey() {
+            return key(lowest());
+        }
+
+        @Override
+        public K lastKey() {
+            return key(highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return export(lowest());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return export(highest());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return poll(lowest());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return poll(highest());
+        }
+
+        private Map.Entry<K, V> poll(Node<K, V> node) {
+            final Map.Entry<K, V> entry = export(node);
+            if (node != null) {
+                deleteEntry(node);
+            }
+            return entry;
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return export(descending ? absHigher(key) : absLower(key));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOrNull(descending ? absHigher(key) : absLower(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return export(descending ? absCeiling(key) : absFloor(key));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOrNull(descending ? absCeiling(key) : absFloor(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return export(descending ? absFloor(key) : absCeiling(key));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOrNull(descending ? absFloor(key) : absCeiling(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return export(descending ? absLower(key) : absHigher(key));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOrNull(descending ? absLower(key) : absHigher(key));
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new EntrySet(this) {
+                    @Override
+                    public Iterator<Map.Entry<K, V>> iterator() {
+                        return descending ? new EntryIterator(absHighest(), absLowFence(), true)
+                                : new EntryIterator(absLowest(), absHighFence(), false);
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this);
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (!inRange(fromKey, fromInclusive) || !inRange(toKey, toInclusive)) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            return descending ? new SubMap(false, toKey, toInclusive, false, fromKey, fromInclusive, true)
+                    : new SubMap(false, fromKey, fromInclusive, false, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            if (!inRange(toKey, inclusive)) {
+                throw new IllegalArgumentException("Key out of range: " + toKey);
+            }
+            return descending ? new SubMap(false, toKey, inclusive, toEnd, hi, hiInclusive, true)
+                    : new SubMap(fromStart, lo, loInclusive, false, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            if (!inRange(fromKey, inclusive)) {
+                throw new IllegalArgumentException("Key out of range: " + fromKey);
+            }
+            return descending ? new SubMap(fromStart, lo, loInclusive, false, fromKey, inclusive, true)
+                    : new SubMap(false, fromKey, inclusive, toEnd, hi, hiInclusive, false);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
 }
 
 /*
@@ -0,0 +1,520 @@
+package ca.reidmoffat.trees;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A B+ tree map from long keys to objects. All the entries are in the leaves, which are linked in key order, and the
+ * branches above them only hold copies of keys to steer lookups
+ * <p>
+ * A binary tree like {@link RedBlackTree} costs a node per level, each a likely cache miss (and another for the boxed
+ * key it compares against), so about 2 log2(n) misses a lookup. Here a node holds up to {@link #ORDER} keys in a plain
+ * long[] of 8 cache lines, so the tree is only 4 or 5 levels high for 10 million keys and a lookup is a binary search
+ * within each of a few nodes. A range scan finds its first leaf and then walks the leaves' links, reading keys and
+ * values sequentially.
+ * <p>
+ * Every node but the root is at least half full: a full node splits in two as it's inserted into, and a node that
+ * drops below half borrows from or merges with a sibling. {@link #fromSorted} builds a tree with full leaves in O(n).
+ * Values can't be null, so null always means a missing key. Not thread safe.
+ *
+ * @param <V> Value type
+ * @see BPlusTree
+ */
+public class LongBPlusTree<V> {
+
+    /**
+     * Receives each entry in {@link #forEach} and {@link #forEachInRange}
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * Most keys in a node: 8 cache lines of longs
+     */
+    public static final int ORDER = 8 * 64 / Long.BYTES;
+    static final int MIN_KEYS = ORDER / 2;
+    private static final int MAX_HEIGHT = 8; // Half-full nodes fan out by 33, so 2^31 entries take 7 levels
+
+    private static class Node {
+        final long[] keys = new long[ORDER];
+        int size; // Keys in use
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values = new Object[ORDER];
+        Leaf next;
+    }
+
+    /**
+     * children[i] has the keys below keys[i], and children[i + 1] those from keys[i] up
+     */
+    private static final class Branch extends Node {
+        final Node[] children = new Node[ORDER + 1];
+    }
+
+    private Node root = new Leaf();
+    private int height = 1; // Levels, counting the leaves
+    private int size;
+
+    // The branches the last put or remove came down through, and which child it took at each
+    private final Branch[] path = new Branch[MAX_HEIGHT];
+    private final int[] pathIndexes = new int[MAX_HEIGHT];
+
+    /**
+     * Builds a tree from keys in strictly increasing order and their values, in O(n). The leaves are full, for the
+     * fastest scans and the fewest levels
+     *
+     * @throws IllegalArgumentException If the keys aren't in strictly increasing order, or there isn't one value per
+     *                                  key
+     */
+    public static <V> LongBPlusTree<V> fromSorted(long[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException(keys.length + " keys but " + values.length + " values");
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            if (i > 0 && keys[i] <= keys[i - 1]) {
+                throw new IllegalArgumentException("Keys out of order: " + keys[i - 1] + " then " + keys[i]);
+            }
+            Objects.requireNonNull(values[i], "value");
+        }
+        final LongBPlusTree<V> tree = new LongBPlusTree<>();
+        final int n = keys.length;
+        if (n == 0) {
+            return tree;
+        }
+        // Spreading the entries evenly over the fewest leaves that hold them leaves none less than half full
+        int count = (n + ORDER - 1) / ORDER;
+        Node[] level = new Node[count];
+        long[] firstKeys = new long[count];
+        Leaf previous = null;
+        for (int j = 0, start = 0; j < count; ++j) {
+            final int end = (int) ((long) n * (j + 1) / count);
+            final Leaf leaf = new Leaf();
+            leaf.size = end - start;
+            System.arraycopy(keys, start, leaf.keys, 0, leaf.size);
+            System.arraycopy(values, start, leaf.values, 0, leaf.size);
+            if (previous != null) {
+                previous.next = leaf;
+            }
+            previous = leaf;
+            level[j] = leaf;
+            firstKeys[j] = keys[start];
+            start = end;
+        }
+        // Then the same for each level of branches, until one is left
+        int height = 1;
+        while (count > 1) {
+            final int parents = (count + ORDER) / (ORDER + 1);
+            final Node[] up = new Node[parents];
+            final long[] upFirstKeys = new long[parents];
+            for (int j = 0, start = 0; j < parents; ++j) {
+                final int end = (int) ((long) count * (j + 1) / parents);
+                final Branch branch = new Branch();
+                branch.size = end - start - 1;
+                System.arraycopy(level, start, branch.children, 0, end - start);
+                System.arraycopy(firstKeys, start + 1, branch.keys, 0, branch.size);
+                up[j] = branch;
+                upFirstKeys[j] = firstKeys[start];
+                start = end;
+            }
+            level = up;
+            firstKeys = upFirstKeys;
+            count = parents;
+            ++height;
+        }
+        tree.root = level[0];
+        tree.height = height;
+        tree.size = n;
+        return tree;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of levels, counting the leaves (1 for an empty tree)
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Index of the child of branch that key would be under
+     */
+    private static int childIndex(Branch branch, long key) {
+        final int index = Arrays.binarySearch(branch.keys, 0, branch.size, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Leaf findLeaf(long key) {
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            final Branch branch = (Branch) node;
+            node = branch.children[childIndex(branch, key)];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * Like {@link #findLeaf}, but records the way down in path
+     */
+    private Leaf descend(long key) {
+        Node node = root;
+        for (int level = 0; level < height - 1; ++level) {
+            final Branch branch = (Branch) node;
+            final int index = childIndex(branch, key);
+            path[level] = branch;
+            pathIndexes[level] = index;
+            node = branch.children[index];
+        }
+        return (Leaf) node;
+    }
+
+    public boolean containsKey(long key) {
+        final Leaf leaf = findLeaf(key);
+        return Arrays.binarySearch(leaf.keys, 0, leaf.size, key) >= 0;
+    }
+
+    /**
+     * @return key's value, or null if it's missing
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final Leaf leaf = findLeaf(key);
+        final int index = Arrays.binarySearch(leaf.keys, 0, leaf.size, key);
+        return index >= 0 ? (V) leaf.values[index] : null;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        final V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @return Previous value, or null if the key was missing
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value, "value");
+        final Leaf leaf = descend(key);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.size, key);
+        if (index >= 0) {
+            final V previous = (V) leaf.values[index];
+            leaf.values[index] = value;
+            return previous;
+        }
+        index = -index - 1;
+        if (leaf.size < ORDER) {
+            insert(leaf, index, key, value);
+        } else {
+            // Split the full leaf in half, and put the key in whichever half it belongs in
+            final Leaf right = new Leaf();
+            right.size = ORDER - MIN_KEYS;
+            System.arraycopy(leaf.keys, MIN_KEYS, right.keys, 0, right.size);
+            System.arraycopy(leaf.values, MIN_KEYS, right.values, 0, right.size);
+            Arrays.fill(leaf.values, MIN_KEYS, ORDER, null);
+            leaf.size = MIN_KEYS;
+            right.next = leaf.next;
+            leaf.next = right;
+            if (index <= MIN_KEYS) {
+                insert(leaf, index, key, value);
+            } else {
+                insert(right, index - MIN_KEYS, key, value);
+            }
+            addChild(height - 2, right.keys[0], right);
+        }
+        ++size;
+        return null;
+    }
+
+    private static void insert(Leaf leaf, int index, long key, Object value) {
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.size - index);
+        System.arraycopy(leaf.values, index, leaf.values, index + 1, leaf.size - index);
+        leaf.keys[index] = key;
+        leaf.values[index] = value;
+        ++leaf.size;
+    }
+
+    /**
+     * Adds child, whose keys start at key, just right of the child the path took at level. Splits branches that are
+     * full on the way up, and adds a level at the top if the root splits
+     */
+    private void addChild(int level, long key, Node child) {
+        for (; level >= 0; --level) {
+            final Branch branch = path[level];
+            final int index = pathIndexes[level];
+            if (branch.size < ORDER) {
+                insert(branch, index, key, child);
+                return;
+            }
+            // ORDER + 1 keys with the new one: the middle one goes up, and the halves either side of it split
+            final long[] keys = Arrays.copyOf(branch.keys, ORDER + 1);
+            final Node[] children = Arrays.copyOf(branch.children, ORDER + 2);
+            System.arraycopy(keys, index, keys, index + 1, ORDER - index);
+            System.arraycopy(children, index + 1, children, index + 2, ORDER - index);
+            keys[index] = key;
+            children[index + 1] = child;
+
+            final int middle = (ORDER + 1) / 2;
+            final Branch right = new Branch();
+            right.size = ORDER - middle;
+            System.arraycopy(keys, middle + 1, right.keys, 0, right.size);
+            System.arraycopy(children, middle + 1, right.children, 0, right.size + 1);
+            System.arraycopy(keys, 0, branch.keys, 0, middle);
+            System.arraycopy(children, 0, branch.children, 0, middle + 1);
+            Arrays.fill(branch.children, middle + 1, ORDER + 1, null);
+            branch.size = middle;
+            key = keys[middle];
+            child = right;
+        }
+        final Branch newRoot = new Branch();
+        newRoot.keys[0] = key;
+        newRoot.children[0] = root;
+        newRoot.children[1] = child;
+        newRoot.size = 1;
+        root = newRoot;
+        ++height;
+    }
+
+    private static void insert(Branch branch, int index, long key, Node child) {
+        System.arraycopy(branch.keys, index, branch.keys, index + 1, branch.size - index);
+        System.arraycopy(branch.children, index + 1, branch.children, index + 2, branch.size - index);
+        branch.keys[index] = key;
+        branch.children[index + 1] = child;
+        ++branch.size;
+    }
+
+    /**
+     * @return Removed value, or null if the key was missing
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final Leaf leaf = descend(key);
+        final int index = Arrays.binarySearch(leaf.keys, 0, leaf.size, key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) leaf.values[index];
+        System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.size - index - 1);
+        System.arraycopy(leaf.values, index + 1, leaf.values, index, leaf.size - index - 1);
+        leaf.values[--leaf.size] = null;
+        --size;
+        if (leaf.size < MIN_KEYS && height > 1) {
+            rebalance(leaf, height - 2);
+        }
+        return previous;
+    }
+
+    /**
+     * Tops up leaf, which has one key too few, from a sibling: by taking one of its entries if it can spare one, or
+     * else merging the two. The sibling is the one on the left if there is one, under the same parent (path[level])
+     */
+    private void rebalance(Leaf leaf, int level) {
+        final Branch parent = path[level];
+        final int index = pathIndexes[level];
+        if (index > 0) {
+            final Leaf left = (Leaf) parent.children[index - 1];
+            if (left.size > MIN_KEYS) {
+                System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.size);
+                System.arraycopy(leaf.values, 0, leaf.values, 1, leaf.size);
+                leaf.keys[0] = left.keys[left.size - 1];
+                leaf.values[0] = left.values[left.size - 1];
+                left.values[--left.size] = null;
+                ++leaf.size;
+                parent.keys[index - 1] = leaf.keys[0];
+                return;
+            }
+            merge(left, leaf);
+            removeChild(level, index - 1);
+        } else {
+            final Leaf right = (Leaf) parent.children[1];
+            if (right.size > MIN_KEYS) {
+                leaf.keys[leaf.size] = right.keys[0];
+                leaf.values[leaf.size] = right.values[0];
+                ++leaf.size;
+                System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+                System.arraycopy(right.values, 1, right.values, 0, right.size - 1);
+                right.values[--right.size] = null;
+                parent.keys[0] = right.keys[0];
+                return;
+            }
+            merge(leaf, right);
+            removeChild(level, 0);
+        }
+    }
+
+    /**
+     * Moves right's entries onto the end of left, its neighbour, taking right out of the chain of leaves
+     */
+    private static void merge(Leaf left, Leaf right) {
+        System.arraycopy(right.keys, 0, left.keys, left.size, right.size);
+        System.arraycopy(right.values, 0, left.values, left.size, right.size);
+        left.size += right.size;
+        left.next = right.next;
+    }
+
+    /**
+     * Removes keys[keyIndex] and the child to its right from path[level] (after that child was merged into its left
+     * neighbour), then tops the branch up in turn if that left it less than half full
+     */
+    private void removeChild(int level, int keyIndex) {
+        final Branch branch = path[level];
+        System.arraycopy(branch.keys, keyIndex + 1, branch.keys, keyIndex, branch.size - keyIndex - 1);
+        System.arraycopy(branch.children, keyIndex + 2, branch.children, keyIndex + 1, branch.size - keyIndex - 1);
+        branch.children[branch.size--] = null;
+        if (level == 0) {
+            if (branch.size == 0) {
+                // The root is down to one child, which takes its place
+                root = branch.children[0];
+                --height;
+            }
+            return;
+        }
+        if (branch.size >= MIN_KEYS) {
+            return;
+        }
+        final Branch parent = path[level - 1];
+        final int index = pathIndexes[level - 1];
+        if (index > 0) {
+            final Branch left = (Branch) parent.children[index - 1];
+            if (left.size > MIN_KEYS) {
+                // Rotate through the parent: its key comes down in front, and left's last key goes up
+                System.arraycopy(branch.keys, 0, branch.keys, 1, branch.size);
+                System.arraycopy(branch.children, 0, branch.children, 1, branch.size + 1);
+                branch.keys[0] = parent.keys[index - 1];
+                branch.children[0] = left.children[left.size];
+                ++branch.size;
+                parent.keys[index - 1] = left.keys[left.size - 1];
+                left.children[left.size--] = null;
+                return;
+            }
+            merge(left, parent.keys[index - 1], branch);
+            removeChild(level - 1, index - 1);
+        } else {
+            final Branch right = (Branch) parent.children[1];
+            if (right.size > MIN_KEYS) {
+                branch.keys[branch.size] = parent.keys[0];
+                branch.children[branch.size + 1] = right.children[0];
+                ++branch.size;
+                parent.keys[0] = right.keys[0];
+                System.arraycopy(right.keys, 1, right.keys, 0, right.size - 1);
+                System.arraycopy(right.children, 1, right.children, 0, right.size);
+                right.children[right.size--] = null;
+                return;
+            }
+            merge(branch, parent.keys[0], right);
+            removeChild(level - 1, 0);
+        }
+    }
+
+    /**
+     * Moves the parent's key between them and right's keys and children onto the end of left
+     */
+    private static void merge(Branch left, long separator, Branch right) {
+        left.keys[left.size] = separator;
+        System.arraycopy(right.keys, 0, left.keys, left.size + 1, right.size);
+        System.arraycopy(right.children, 0, left.children, left.size + 1, right.size + 1);
+        left.size += 1 + right.size;
+    }
+
+    public void clear() {
+        root = new Leaf();
+        height = 1;
+        size = 0;
+    }
+
+    private Leaf firstLeaf() {
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            node = ((Branch) node).children[0];
+        }
+        return (Leaf) node;
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    public long firstKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return firstLeaf().keys[0];
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    public long lastKey() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        Node node = root;
+        for (int level = height; level > 1; --level) {
+            final Branch branch = (Branch) node;
+            node = branch.children[branch.size];
+        }
+        return node.keys[node.size - 1];
+    }
+
+    /**
+     * Calls action on every entry in key order. action mustn't change the tree
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.size; ++i) {
+                action.accept(leaf.keys[i], (V) leaf.values[i]);
+            }
+        }
+    }
+
+    /**
+     * Calls action on every entry with a key in [fromKey, toKey], in key order. action mustn't change the tree
+     *
+     * @throws IllegalArgumentException If fromKey > toKey
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachInRange(long fromKey, long toKey, EntryConsumer<? super V> action) {
+        if (fromKey > toKey) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        Leaf leaf = findLeaf(fromKey);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.size, fromKey);
+        for (index = index >= 0 ? index : -index - 1; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.size; ++index) {
+                if (leaf.keys[index] > toKey) {
+                    return;
+                }
+                action.accept(leaf.keys[index], (V) leaf.values[index]);
+            }
+        }
+    }
+
+    /**
+     * @return The keys in increasing order
+     */
+    public long[] keys() {
+        final long[] keys = new long[size];
+        int i = 0;
+        for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.keys, 0, keys, i, leaf.size);
+            i += leaf.size;
+        }
+        return keys;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,504 @@
+package ca.reidmoffat.trees;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * An immutable AVL tree map. {@link #with} and {@link #without} return a new tree and leave this one as it was
+ * <p>
+ * The trees share structure: an update copies only the nodes on the path from the root to the changed key (and the
+ * few that the {@link AVLTree} rotations move), O(log n) of them, and the new tree points to every other subtree of the
+ * old one. So holding on to an old tree is a consistent snapshot that costs nothing until it's the only tree left
+ * using some nodes. Nodes have no parent pointers (a shared node has a different parent in every tree), so updates
+ * recurse down and rebalance on the way back up instead.
+ * <p>
+ * For many updates at once, {@link #asTransient} gives a mutable copy whose nodes are stamped with its own token.
+ * Nodes it has already copied carry that token, so it changes them in place instead of copying them again, and
+ * {@link Transient#persistent} freezes the result. The tree it came from is never changed.
+ * <p>
+ * Trees are safe to share between threads without locking, since their nodes are never changed once they're part of
+ * one (see {@link SnapshotTree}). Null keys are not allowed (unless the comparator does), null values are.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public final class PersistentAVLTree<K, V> extends AbstractMap<K, V> {
+
+    private static final class Node<K, V> {
+        K key;
+        V value;
+        Node<K, V> left;
+        Node<K, V> right;
+        byte height = 1;
+        final Object owner; // The transient that may change this node in place, if any
+
+        Node(K key, V value, Object owner) {
+            this.key = key;
+            this.value = value;
+            this.owner = owner;
+        }
+    }
+
+    private final Comparator<Object> comparator;
+    private final Node<K, V> root;
+    private final int size;
+
+    private Set<Map.Entry<K, V>> entrySet;
+
+    /**
+     * An empty tree ordered by the keys' natural ordering
+     */
+    public PersistentAVLTree() {
+        this(null);
+    }
+
+    /**
+     * An empty tree
+     *
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    @SuppressWarnings("unchecked")
+    public PersistentAVLTree(Comparator<? super K> comparator) {
+        this((Comparator<Object>) comparator, null, 0);
+    }
+
+    private PersistentAVLTree(Comparator<Object> comparator, Node<K, V> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compare(Object a, Object b) {
+        return comparator == null ? ((Comparable<Object>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    public Comparator<? super K> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Number of levels (0 for an empty tree)
+     */
+    public int height() {
+        return height(root);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private Node<K, V> getNode(Node<K, V> node, Object key) {
+        if (comparator == null) {
+            Objects.requireNonNull(key);
+        }
+        while (node != null) {
+            final int cmp = compare(key, node.key);
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getNode(root, key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        final Node<K, V> node = getNode(root, key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * @return A tree with key mapped to value, or this tree if it already was
+     */
+    public PersistentAVLTree<K, V> with(K key, V value) {
+        final Transient<K, V> edit = new Transient<>(this, null);
+        edit.put(key, value);
+        return edit.persistent();
+    }
+
+    /**
+     * @return A tree without key, or this tree if it didn't have it
+     */
+    public PersistentAVLTree<K, V> without(Object key) {
+        final Transient<K, V> edit = new Transient<>(this, null);
+        edit.remove(key);
+        return edit.persistent();
+    }
+
+    /**
+     * @return A mutable copy of this tree, for a batch of updates
+     */
+    public Transient<K, V> asTransient() {
+        return new Transient<>(this, new Object());
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    public K firstKey() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        Node<K, V> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.key;
+    }
+
+    /**
+     * @throws NoSuchElementException If the tree is empty
+     */
+    public K lastKey() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        Node<K, V> node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    /**
+     * The entries, in key order. They're snapshots, so setValue isn't supported, and the set can't be changed
+     */
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+        // The nodes still to visit along with their right subtrees; the tree can't change, so it's never deeper
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private final Node<K, V>[] stack = new Node[height(root)];
+        private int depth;
+
+        EntryIterator() {
+            pushLeftSpine(root);
+        }
+
+        private void pushLeftSpine(Node<K, V> node) {
+            for (; node != null; node = node.left) {
+                stack[depth++] = node;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            final Node<K, V> node = stack[--depth];
+            pushLeftSpine(node.right);
+            return new SimpleImmutableEntry<>(node.key, node.value);
+        }
+    }
+
+    /**
+     * A mutable copy of a {@link PersistentAVLTree}, for making many updates without copying the same nodes over and
+     * over: the first update to touch a node copies it, and later ones change the copy in place. Once done,
+     * {@link #persistent} returns the result as a tree, and the transient can't be used any more. Not thread safe.
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     */
+    public static final class Transient<K, V> {
+
+        private final PersistentAVLTree<K, V> base;
+        private Object owner; // Stamped on this transient's nodes; null to copy every node, like the persistent updates
+        private boolean finished;
+        private Node<K, V> root;
+        private int size;
+
+        // What the last put or remove found
+        private boolean found;
+        private V oldValue;
+
+        private Transient(PersistentAVLTree<K, V> base, Object owner) {
+            this.base = base;
+            this.owner = owner;
+            this.root = base.root;
+            this.size = base.size;
+        }
+
+        private void ensureEditable() {
+            if (finished) {
+                throw new IllegalStateException("Transient used after persistent()");
+            }
+        }
+
+        public int size() {
+            ensureEditable();
+            return size;
+        }
+
+        public boolean containsKey(Object key) {
+            ensureEditable();
+            return base.getNode(root, key) != null;
+        }
+
+        public V get(Object key) {
+            ensureEditable();
+            final Node<K, V> node = base.getNode(root, key);
+            return node == null ? null : node.value;
+        }
+
+        /**
+         * @return Previous value, or null if the key was missing
+         */
+        public V put(K key, V value) {
+            ensureEditable();
+            if (root == null) {
+                base.compare(key, key); // Type (and null) check
+            }
+            found = false;
+            root = put(root, key, value);
+            if (!found) {
+                ++size;
+            }
+            return takeOldValue();
+        }
+
+        /**
+         * @return Removed value, or null if the key was missing
+         */
+        public V remove(Object key) {
+            ensureEditable();
+            if (base.comparator == null) {
+                Objects.requireNonNull(key);
+            }
+            found = false;
+            root = remove(root, key);
+            if (found) {
+                --size;
+            }
+            return takeOldValue();
+        }
+
+        private V takeOldValue() {
+            final V value = oldValue;
+            oldValue = null;
+            return value;
+        }
+
+        /**
+         * Ends the batch
+         *
+         * @return The tree with all the updates, which is the original tree if there weren't any
+         * @throws IllegalStateException If it was already called
+         */
+        public PersistentAVLTree<K, V> persistent() {
+            ensureEditable();
+            finished = true;
+            owner = null;
+            return root == base.root ? base : new PersistentAVLTree<>(base.comparator, root, size);
+        }
+
+        /**
+         * @return node itself if this transient owns it, or else a copy that it does
+         */
+        private Node<K, V> editable(Node<K, V> node) {
+            if (owner != null && node.owner == owner) {
+                return node;
+            }
+            final Node<K, V> copy = new Node<>(node.key, node.value, owner);
+            copy.left = node.left;
+            copy.right = node.right;
+            copy.height = node.height;
+            return copy;
+        }
+
+        /**
+         * A child that comes back as the same node may still have changed, if this transient owns it, so the
+         * shortcuts below only skip the rebalancing when the key's search says the shape can't have changed
+         *
+         * @return The new root of node's subtree, which is node itself if nothing changed
+         */
+        private Node<K, V> put(Node<K, V> node, K key, V value) {
+            if (node == null) {
+                return new Node<>(key, value, owner);
+            }
+            final int cmp = base.compare(key, node.key);
+            if (cmp == 0) {
+                found = true;
+                oldValue = node.value;
+                if (node.value == value) {
+                    return node;
+                }
+                final Node<K, V> edited = editable(node);
+                edited.value = value;
+                return edited;
+            }
+            if (cmp < 0) {
+                final Node<K, V> left = put(node.left, key, value);
+                if (found && left == node.left) {
+                    return node;
+                }
+                final Node<K, V> edited = editable(node);
+                edited.left = left;
+                return rebalance(edited);
+            }
+            final Node<K, V> right = put(node.right, key, value);
+            if (found && right == node.right) {
+                return node;
+            }
+            final Node<K, V> edited = editable(node);
+            edited.right = right;
+            return rebalance(edited);
+        }
+
+        /**
+         * @return The new root of node's subtree, which is node itself if nothing changed
+         */
+        private Node<K, V> remove(Node<K, V> node, Object key) {
+            if (node == null) {
+                return null;
+            }
+            final int cmp = base.compare(key, node.key);
+            if (cmp < 0) {
+                final Node<K, V> left = remove(node.left, key);
+                if (!found) {
+                    return node;
+                }
+                final Node<K, V> edited = editable(node);
+                edited.left = left;
+                return rebalance(edited);
+            }
+            if (cmp > 0) {
+                final Node<K, V> right = remove(node.right, key);
+                if (!found) {
+                    return node;
+                }
+                final Node<K, V> edited = editable(node);
+                edited.right = right;
+                return rebalance(edited);
+            }
+            found = true;
+            oldValue = node.value;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Two children: the successor's entry takes this node's place, and its own node goes
+            final Node<K, V> edited = editable(node);
+            edited.right = removeFirst(node.right, edited);
+            return rebalance(edited);
+        }
+
+        /**
+         * Removes the first node of node's subtree, moving its entry into into
+         *
+         * @return The new root of node's subtree
+         */
+        private Node<K, V> removeFirst(Node<K, V> node, Node<K, V> into) {
+            if (node.left == null) {
+                into.key = node.key;
+                into.value = node.value;
+                return node.right;
+            }
+            final Node<K, V> edited = editable(node);
+            edited.left = removeFirst(node.left, into);
+            return rebalance(edited);
+        }
+
+        private static void updateHeight(Node<?, ?> node) {
+            node.height = (byte) (1 + Math.max(height(node.left), height(node.right)));
+        }
+
+        /**
+         * Updates node's height, rotating if its subtrees' heights differ by 2. node must be editable
+         *
+         * @return The root of node's subtree afterwards
+         */
+        private Node<K, V> rebalance(Node<K, V> node) {
+            final int balance = height(node.right) - height(node.left);
+            if (balance > 1) {
+                // Right-left case: first make it right-right
+                if (height(node.right.left) > height(node.right.right)) {
+                    node.right = rotateRight(editable(node.right));
+                }
+                return rotateLeft(node);
+            }
+            if (balance < -1) {
+                // Left-right case: first make it left-left
+                if (height(node.left.right) > height(node.left.left)) {
+                    node.left = rotateLeft(editable(node.left));
+                }
+                return rotateRight(node);
+            }
+            updateHeight(node);
+            return node;
+        }
+
+        /**
+         * node must be editable
+         *
+         * @return The node that moved up
+         */
+        private Node<K, V> rotateLeft(Node<K, V> node) {
+            final Node<K, V> pivot = editable(node.right);
+            node.right = pivot.left;
+            pivot.left = node;
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+
+        /**
+         * node must be editable
+         *
+         * @return The node that moved up
+         */
+        private Node<K, V> rotateRight(Node<K, V> node) {
+            final Node<K, V> pivot = editable(node.left);
+            node.left = pivot.right;
+            pivot.right = node;
+            updateHeight(node);
+            updateHeight(pivot);
+            return pivot;
+        }
+    }
+}
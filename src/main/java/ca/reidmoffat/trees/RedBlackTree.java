@@ -1,4 +1,460 @@
 package ca.reidmoffat.trees;
 
-public class RedBlackTree {
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A red-black tree map: a {@link BinarySearchTree} whose nodes are coloured so that no red node has a red child and
+ * every path from a node down to a null link passes the same number of black nodes (its black height). The longest
+ * path is then at most twice the shortest, so the height is under 2 log2(n + 1)
+ * <p>
+ * It's less strictly balanced than an {@link AVLTree}, but an insertion needs at most two rotations and a deletion at
+ * most three, with the rest of the fixing up done by recolouring. The colour is kept in {@link Node#meta}.
+ * <p>
+ * Besides the usual map operations:
+ * <ul>
+ *     <li>{@link #fromSorted} builds a tree from entries already in order in O(n), with no comparisons beyond checking
+ *     the order and no rotations</li>
+ *     <li>{@link #join} makes one tree out of two whose keys don't overlap plus a key between them, and
+ *     {@link #split} cuts a tree in two at a key, both in O(log n). Nodes are moved rather than copied, so entries
+ *     stay valid</li>
+ * </ul>
+ * Both keep the subtree counts and any {@link Augmentation} up to date, so the trees they make know their sizes.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class RedBlackTree<K, V> extends BinarySearchTree<K, V> {
+
+    private static final byte RED = 0;
+    private static final byte BLACK = 1;
+
+    /**
+     * A tree ordered by the keys' natural ordering
+     */
+    public RedBlackTree() {
+        super();
+    }
+
+    /**
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    public RedBlackTree(Comparator<? super K> comparator) {
+        super(comparator);
+    }
+
+    /**
+     * @param comparator   Key order, or null for the keys' natural ordering
+     * @param augmentation Summary to keep for every subtree, or null for none
+     */
+    public RedBlackTree(Comparator<? super K> comparator, Augmentation<? super K, ? super V, ?> augmentation) {
+        super(comparator, augmentation);
+    }
+
+    private static boolean isRed(Node<?, ?> node) {
+        return node != null && node.meta == RED;
+    }
+
+    private static boolean isBlack(Node<?, ?> node) {
+        return node == null || node.meta == BLACK;
+    }
+
+    /**
+     * Number of black nodes on every path from node down to a null link, including node itself
+     */
+    private static int blackHeight(Node<?, ?> node) {
+        int height = 0;
+        for (; node != null; node = node.left) {
+            if (node.meta == BLACK) {
+                ++height;
+            }
+        }
+        return height;
+    }
+
+    // Balancing
+
+    @Override
+    void afterInsert(Node<K, V> node) {
+        node.meta = RED;
+        fixRedRed(node);
+        root.meta = BLACK;
+    }
+
+    /**
+     * Restores the colouring after node, which is red, has been put under a parent that may also be red. Leaves the
+     * root red if the fix reaches it
+     */
+    private void fixRedRed(Node<K, V> node) {
+        while (isRed(node.parent)) {
+            Node<K, V> parent = node.parent;
+            final Node<K, V> grandparent = parent.parent; // Exists, since a red node isn't the root
+            if (parent == grandparent.left) {
+                final Node<K, V> uncle = grandparent.right;
+                if (isRed(uncle)) {
+                    // Push the grandparent's black down a level and carry on from there
+                    parent.meta = BLACK;
+                    uncle.meta = BLACK;
+                    grandparent.meta = RED;
+                    node = grandparent;
+                    continue;
+                }
+                if (node == parent.right) {
+                    rotateLeft(parent);
+                    parent = node;
+                }
+                parent.meta = BLACK;
+                grandparent.meta = RED;
+                rotateRight(grandparent);
+            } else {
+                final Node<K, V> uncle = grandparent.left;
+                if (isRed(uncle)) {
+                    parent.meta = BLACK;
+                    uncle.meta = BLACK;
+                    grandparent.meta = RED;
+                    node = grandparent;
+                    continue;
+                }
+                if (node == parent.left) {
+                    rotateRight(parent);
+                    parent = node;
+                }
+                parent.meta = BLACK;
+                grandparent.meta = RED;
+                rotateLeft(grandparent);
+            }
+            return;
+        }
+    }
+
+    @Override
+    void deleteNode(Node<K, V> node) {
+        if (node.left != null && node.right != null) {
+            swapWithSuccessor(node);
+        }
+        final Node<K, V> child = node.left != null ? node.left : node.right;
+        if (child != null) {
+            // A node with one child is black and the child is red, so the child can take its place and colour
+            unlink(node, child);
+            child.meta = BLACK;
+        } else {
+            if (node.meta == BLACK) {
+                // Removing it would leave its paths a black node short, so fix that first while it's still there
+                fixDoubleBlack(node);
+            }
+            unlink(node, null);
+        }
+    }
+
+    /**
+     * Restores the black heights when the paths through node (which is black) are about to lose a black node
+     */
+    private void fixDoubleBlack(Node<K, V> node) {
+        while (node != root && node.meta == BLACK) {
+            final Node<K, V> parent = node.parent;
+            if (node == parent.left) {
+                Node<K, V> sibling = parent.right; // Not null, since it has as many black nodes below it as node
+                if (sibling.meta == RED) {
+                    sibling.meta = BLACK;
+                    parent.meta = RED;
+                    rotateLeft(parent);
+                    sibling = parent.right;
+                }
+                if (isBlack(sibling.left) && isBlack(sibling.right)) {
+                    // Take a black off the sibling's side too, and move the shortage up to the parent
+                    sibling.meta = RED;
+                    node = parent;
+                    continue;
+                }
+                if (isBlack(sibling.right)) {
+                    sibling.left.meta = BLACK;
+                    sibling.meta = RED;
+                    rotateRight(sibling);
+                    sibling = parent.right;
+                }
+                sibling.meta = parent.meta;
+                parent.meta = BLACK;
+                sibling.right.meta = BLACK;
+                rotateLeft(parent);
+            } else {
+                Node<K, V> sibling = parent.left;
+                if (sibling.meta == RED) {
+                    sibling.meta = BLACK;
+                    parent.meta = RED;
+                    rotateRight(parent);
+                    sibling = parent.left;
+                }
+                if (isBlack(sibling.left) && isBlack(sibling.right)) {
+                    sibling.meta = RED;
+                    node = parent;
+                    continue;
+                }
+                if (isBlack(sibling.left)) {
+                    sibling.right.meta = BLACK;
+                    sibling.meta = RED;
+                    rotateLeft(sibling);
+                    sibling = parent.left;
+                }
+                sibling.meta = parent.meta;
+                parent.meta = BLACK;
+                sibling.left.meta = BLACK;
+                rotateRight(parent);
+            }
+            return;
+        }
+        node.meta = BLACK;
+    }
+
+    // Bulk operations
+
+    /**
+     * Builds a tree from entries in the keys' natural ordering
+     *
+     * @see #fromSorted(Comparator, Iterator)
+     */
+    public static <K, V> RedBlackTree<K, V> fromSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return fromSorted(null, entries);
+    }
+
+    /**
+     * Builds a tree with no augmentation
+     *
+     * @see #fromSorted(Comparator, Augmentation, Iterator)
+     */
+    public static <K, V> RedBlackTree<K, V> fromSorted(Comparator<? super K> comparator,
+                                                       Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        return fromSorted(comparator, null, entries);
+    }
+
+    /**
+     * Builds a tree from entries in strictly increasing key order, in O(n). The tree is as balanced as it can be: every
+     * level is full except maybe the bottom one, whose nodes are red
+     *
+     * @param comparator   Key order, or null for the keys' natural ordering
+     * @param augmentation Summary to keep for every subtree, or null for none
+     * @throws IllegalArgumentException If the keys aren't in strictly increasing order
+     */
+    public static <K, V> RedBlackTree<K, V> fromSorted(Comparator<? super K> comparator,
+                                                       Augmentation<? super K, ? super V, ?> augmentation,
+                                                       Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        final RedBlackTree<K, V> tree = new RedBlackTree<>(comparator, augmentation);
+        final List<Node<K, V>> nodes = new ArrayList<>();
+        K previous = null;
+        while (entries.hasNext()) {
+            final Map.Entry<? extends K, ? extends V> entry = entries.next();
+            final K key = entry.getKey();
+            if (nodes.isEmpty()) {
+                tree.compare(key, key); // Type (and null) check
+            } else if (tree.compare(previous, key) >= 0) {
+                throw new IllegalArgumentException("Keys out of order: " + previous + " then " + key);
+            }
+            nodes.add(tree.newNode(key, entry.getValue(), null));
+            previous = key;
+        }
+        // Levels 0 to redLevel - 1 will be full, and anything on level redLevel is red
+        int redLevel = 0;
+        for (int m = nodes.size() - 1; m >= 0; m = m / 2 - 1) {
+            ++redLevel;
+        }
+        tree.root = build(nodes, 0, nodes.size() - 1, 0, redLevel);
+        tree.size = nodes.size();
+        return tree;
+    }
+
+    /**
+     * Links nodes[low..high] into a subtree with the middle one at the top
+     */
+    private static <K, V> Node<K, V> build(List<Node<K, V>> nodes, int low, int high, int level, int redLevel) {
+        if (low > high) {
+            return null;
+        }
+        final int middle = (low + high) >>> 1;
+        final Node<K, V> node = nodes.get(middle);
+        node.left = build(nodes, low, middle - 1, level + 1, redLevel);
+        node.right = build(nodes, middle + 1, high, level + 1, redLevel);
+        if (node.left != null) {
+            node.left.parent = node;
+        }
+        if (node.right != null) {
+            node.right.parent = node;
+        }
+        node.meta = level == redLevel ? RED : BLACK;
+        update(node);
+        return node;
+    }
+
+    /**
+     * Makes a tree of left's entries, key, and right's entries, in O(log n). Every key in left must be less than key,
+     * and every key in right greater. Both trees are emptied, since their nodes now belong to the new one
+     *
+     * @throws IllegalArgumentException If the trees are ordered differently or their keys aren't either side of key
+     */
+    public static <K, V> RedBlackTree<K, V> join(RedBlackTree<K, V> left, K key, V value, RedBlackTree<K, V> right) {
+        if (left == right) {
+            throw new IllegalArgumentException("Can't join a tree with itself");
+        }
+        if (!Objects.equals(left.comparator(), right.comparator())) {
+            throw new IllegalArgumentException("Trees are ordered differently");
+        }
+        if (left.augmentation() != right.augmentation()) {
+            throw new IllegalArgumentException("Trees are augmented differently");
+        }
+        final RedBlackTree<K, V> tree = new RedBlackTree<>(left.comparator(), left.augmentation());
+        tree.compare(key, key); // Type (and null) check
+        final Node<K, V> leftLast = left.lastNode();
+        final Node<K, V> rightFirst = right.firstNode();
+        if (leftLast != null && tree.compare(leftLast.key, key) >= 0
+                || rightFirst != null && tree.compare(key, rightFirst.key) >= 0) {
+            throw new IllegalArgumentException("Keys aren't ordered left < " + key + " < right");
+        }
+        tree.link(left.root, blackHeight(left.root), tree.newNode(key, value, null), right.root,
+                blackHeight(right.root));
+        tree.size = left.size + right.size + 1;
+        left.clear();
+        right.clear();
+        return tree;
+    }
+
+    /**
+     * Moves every entry with a key >= key out of this tree into a new one, in O(log n)
+     *
+     * @return The tree of entries with keys >= key
+     */
+    public RedBlackTree<K, V> split(K key) {
+        compare(key, key); // Type (and null) check
+        final RedBlackTree<K, V> upper = new RedBlackTree<>(comparator(), augmentation());
+        // Record the search path and its black heights before changing anything, so a throwing comparator can't leave
+        // the tree half split
+        final List<Node<K, V>> path = new ArrayList<>();
+        final List<Integer> heights = new ArrayList<>();
+        final List<Boolean> wentLeft = new ArrayList<>();
+        int height = blackHeight(root);
+        for (Node<K, V> node = root; node != null; ) {
+            final boolean left = compare(key, node.key) <= 0;
+            path.add(node);
+            heights.add(height);
+            wentLeft.add(left);
+            if (node.meta == BLACK) {
+                --height;
+            }
+            node = left ? node.left : node.right;
+        }
+
+        // Each node on the path goes between the off-path subtree beside it and what was split below it, from the
+        // bottom up. The black heights being joined only grow, so the joins' costs add up to O(log n)
+        Node<K, V> lower = null;
+        Node<K, V> higher = null;
+        int lowerHeight = 0;
+        int higherHeight = 0;
+        for (int i = path.size() - 1; i >= 0; --i) {
+            final Node<K, V> node = path.get(i);
+            final int childHeight = heights.get(i) - (node.meta == BLACK ? 1 : 0);
+            if (wentLeft.get(i)) {
+                final Node<K, V> right = detach(node.right);
+                higherHeight = upper.link(higher, higherHeight, node, right, childHeight);
+                higher = upper.root;
+            } else {
+                final Node<K, V> left = detach(node.left);
+                lowerHeight = link(left, childHeight, node, lower, lowerHeight);
+                lower = root;
+            }
+        }
+        root = lower;
+        upper.root = higher;
+        size = count(lower);
+        upper.size = count(higher);
+        ++modCount;
+        return upper;
+    }
+
+    private static <K, V> Node<K, V> detach(Node<K, V> node) {
+        if (node != null) {
+            node.parent = null;
+        }
+        return node;
+    }
+
+    /**
+     * Makes this tree's root the join of left, pivot and right, which are valid red-black trees apart from maybe having
+     * red roots, and whose keys are in order. Uses this tree's root as scratch space, so the tree's own contents are
+     * lost
+     *
+     * @param leftHeight  Black height of left
+     * @param rightHeight Black height of right
+     * @return Black height of the joined tree
+     */
+    private int link(Node<K, V> left, int leftHeight, Node<K, V> pivot, Node<K, V> right, int rightHeight) {
+        if (isRed(left)) {
+            left.meta = BLACK;
+            ++leftHeight;
+        }
+        if (isRed(right)) {
+            right.meta = BLACK;
+            ++rightHeight;
+        }
+        pivot.parent = null;
+        if (leftHeight == rightHeight) {
+            setChildren(pivot, left, right);
+            update(pivot);
+            pivot.meta = BLACK;
+            root = pivot;
+            return leftHeight + 1;
+        }
+
+        // Hang pivot, red, in place of the first black node down the taller tree's inside edge whose black height
+        // matches the other tree's. That leaves at most a red node under a red parent to fix, like an insertion
+        Node<K, V> parent = null;
+        if (leftHeight > rightHeight) {
+            root = left;
+            Node<K, V> node = left;
+            int height = leftHeight;
+            while (!(isBlack(node) && height == rightHeight)) {
+                if (node.meta == BLACK) {
+                    --height;
+                }
+                parent = node;
+                node = node.right;
+            }
+            setChildren(pivot, node, right);
+            parent.right = pivot;
+        } else {
+            root = right;
+            Node<K, V> node = right;
+            int height = rightHeight;
+            while (!(isBlack(node) && height == leftHeight)) {
+                if (node.meta == BLACK) {
+                    --height;
+                }
+                parent = node;
+                node = node.left;
+            }
+            setChildren(pivot, left, node);
+            parent.left = pivot;
+        }
+        pivot.parent = parent;
+        updatePath(pivot);
+        pivot.meta = RED;
+        fixRedRed(pivot);
+        final int height = Math.max(leftHeight, rightHeight);
+        if (root.meta == RED) {
+            root.meta = BLACK;
+            return height + 1;
+        }
+        return height;
+    }
+
+    private static <K, V> void setChildren(Node<K, V> node, Node<K, V> left, Node<K, V> right) {
+        node.left = left;
+        node.right = right;
+        if (left != null) {
+            left.parent = node;
+        }
+        if (right != null) {
+            right.parent = node;
+        }
+    }
 }
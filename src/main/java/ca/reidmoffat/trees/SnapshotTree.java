@@ -0,0 +1,100 @@
+package ca.reidmoffat.trees;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A map that any number of threads can read and update at once, holding the current {@link PersistentAVLTree} in an
+ * {@link AtomicReference}
+ * <p>
+ * Readers never lock or wait: {@link #snapshot} is a single volatile read, and the tree it returns never changes, so
+ * a reader sees one consistent version for as long as it keeps it however the map is updated meanwhile. Writers build
+ * the next tree from the current one and swap it in with a CAS, retrying from the new current tree if another writer
+ * got in first. Writers therefore never block readers, but contending writers redo their (O(log n)) work, so this
+ * suits indexes that are read far more often than they're written.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class SnapshotTree<K, V> {
+
+    private final AtomicReference<PersistentAVLTree<K, V>> current;
+
+    /**
+     * An empty map ordered by the keys' natural ordering
+     */
+    public SnapshotTree() {
+        this(new PersistentAVLTree<>());
+    }
+
+    /**
+     * @param comparator Key order, or null for the keys' natural ordering
+     */
+    public SnapshotTree(Comparator<? super K> comparator) {
+        this(new PersistentAVLTree<>(comparator));
+    }
+
+    /**
+     * @param initial Starting contents
+     */
+    public SnapshotTree(PersistentAVLTree<K, V> initial) {
+        current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * @return The current version, which later updates won't change
+     */
+    public PersistentAVLTree<K, V> snapshot() {
+        return current.get();
+    }
+
+    public V get(Object key) {
+        return current.get().get(key);
+    }
+
+    public boolean containsKey(Object key) {
+        return current.get().containsKey(key);
+    }
+
+    public int size() {
+        return current.get().size();
+    }
+
+    /**
+     * @return Previous value, or null if the key was missing
+     */
+    public V put(K key, V value) {
+        while (true) {
+            final PersistentAVLTree<K, V> tree = current.get();
+            final PersistentAVLTree<K, V> next = tree.with(key, value);
+            if (next == tree || current.compareAndSet(tree, next)) {
+                return tree.get(key);
+            }
+        }
+    }
+
+    /**
+     * @return Removed value, or null if the key was missing
+     */
+    public V remove(Object key) {
+        while (true) {
+            final PersistentAVLTree<K, V> tree = current.get();
+            final PersistentAVLTree<K, V> next = tree.without(key);
+            if (next == tree || current.compareAndSet(tree, next)) {
+                return tree.get(key);
+            }
+        }
+    }
+
+    /**
+     * Replaces the current tree with update's result, atomically. For a batch, update can make its changes through
+     * {@link PersistentAVLTree#asTransient}. It may be called more than once if other writers get in first, so it
+     * shouldn't have side effects
+     *
+     * @return The new tree
+     */
+    public PersistentAVLTree<K, V> update(UnaryOperator<PersistentAVLTree<K, V>> update) {
+        return current.updateAndGet(update);
+    }
+}
@@ -0,0 +1,103 @@
+package algorithms;
+
+import ca.reidmoffat.ExternalSorter;
+import ca.reidmoffat.RecordCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ExternalSorterTests {
+
+    @TempDir
+    Path tempDirectory;
+
+    private List<Long> sortLongs(List<Long> input, long memoryBudget, int maxFanIn) throws IOException {
+        final ExternalSorter<Long> sorter = new ExternalSorter<>(RecordCodec.longs(), Comparator.naturalOrder(),
+                memoryBudget, maxFanIn, tempDirectory);
+        final List<Long> output = new ArrayList<>();
+        assertEquals(input.size(), sorter.sort(input.iterator(), output::add));
+        return output;
+    }
+
+    private void checkLongs(int n, long memoryBudget, int maxFanIn) throws IOException {
+        final List<Long> input = new Random(n).longs(n).boxed().toList();
+        final List<Long> expected = input.stream().sorted().toList();
+        assertEquals(expected, sortLongs(input, memoryBudget, maxFanIn), n + " records, budget " + memoryBudget);
+
+        try (Stream<Path> leftovers = Files.list(tempDirectory)) {
+            assertEquals(0, leftovers.count(), "Run files weren't cleaned up");
+        }
+    }
+
+    @Test
+    public void FitsInMemory() throws IOException {
+        checkLongs(0, 1024, 4);
+        checkLongs(100, 1024, 4);
+    }
+
+    @Test
+    public void SingleMergePass() throws IOException {
+        checkLongs(10_000, 8 * 1000, 64); // 10 runs
+    }
+
+    @Test
+    public void MultipleMergePasses() throws IOException {
+        checkLongs(10_000, 8 * 100, 3); // 100 runs, merged 3 at a time
+        checkLongs(1, 8, 2);
+        checkLongs(7, 8, 2); // One record per run
+    }
+
+    @Test
+    public void StableOnFixedWidthRecords() throws IOException {
+        // Sort 4-byte records by their first byte only; the rest records the input order
+        final Random random = new Random(5);
+        final List<byte[]> input = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i) {
+            input.add(new byte[]{(byte) random.nextInt(8), (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+        }
+        final Comparator<byte[]> byFirstByte = Comparator.comparingInt(record -> record[0]);
+        final ExternalSorter<byte[]> sorter = new ExternalSorter<>(RecordCodec.bytes(4), byFirstByte, 4 * 300, 4,
+                tempDirectory);
+
+        final List<byte[]> output = new ArrayList<>();
+        sorter.sort(input.iterator(), output::add);
+
+        final List<byte[]> expected = new ArrayList<>(input);
+        expected.sort(byFirstByte); // List.sort is stable
+        assertEquals(expected.size(), output.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertArrayEquals(expected.get(i), output.get(i), "Record " + i + ": " + Arrays.toString(output.get(i)));
+        }
+    }
+
+    @Test
+    public void SinkExceptionsPassThroughUnchanged() throws IOException {
+        // Only failed run reads are unwrapped to IOException; whatever the sink throws is the caller's own
+        final ExternalSorter<Long> sorter = new ExternalSorter<>(RecordCodec.longs(), Comparator.naturalOrder(),
+                8 * 100, 4, tempDirectory);
+        final List<Long> input = new Random(6).longs(1000).boxed().toList();
+        final UncheckedIOException thrown = new UncheckedIOException(new IOException("sink"));
+        assertSame(thrown, assertThrows(UncheckedIOException.class, () -> sorter.sort(input.iterator(), record -> {
+            throw thrown;
+        })));
+
+        try (Stream<Path> leftovers = Files.list(tempDirectory)) {
+            assertEquals(0, leftovers.count(), "Run files weren't cleaned up");
+        }
+    }
+}
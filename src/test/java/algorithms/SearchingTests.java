@@ -5,14 +5,22 @@ import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import ca.reidmoffat.FractionalCascading;
+import ca.reidmoffat.SearchAlgorithm;
 import ca.reidmoffat.Searching;
+import ca.reidmoffat.StaticSortedIndex;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Random;
 
 public class SearchingTests {
 
@@ -45,7 +53,7 @@ public class SearchingTests {
 
             final JSONArray jsonArray = (JSONArray) tc.get("Array"); // Need loop to convert JSONArray -> array
             final Integer[] array = new Integer[jsonArray.size()];
-            for (int j = 0; j < jsonArray.size(); ++j) array[j] = (int) jsonArray.get(j);
+            for (int j = 0; j < jsonArray.size(); ++j) array[j] = Math.toIntExact((Long) jsonArray.get(j));
 
             testCases.add(new SearchTestCase<>(name, array, target, expected));
         }
@@ -89,4 +97,137 @@ public class SearchingTests {
     public void RecursiveBinarySearch() {
         runAllTCs("RecursiveBinarySearch", Searching::recursiveBinarySearch);
     }
+
+    @Test
+    public void PrimitiveLinearSearch() {
+        runAllTCs("LinearSearch(int[])", (array, target) -> Searching.linearSearch(toInts(array), target));
+        runAllTCs("LinearSearch(long[])", (array, target) -> Searching.linearSearch(toLongs(array), target));
+        runAllTCs("LinearSearch(double[])", (array, target) -> Searching.linearSearch(toDoubles(array), target));
+    }
+
+    @Test
+    public void PrimitiveBinarySearch() {
+        runAllTCs("BinarySearch(int[])", (array, target) -> Searching.binarySearch(toInts(array), target));
+        runAllTCs("BinarySearch(long[])", (array, target) -> Searching.binarySearch(toLongs(array), target));
+        runAllTCs("BinarySearch(double[])", (array, target) -> Searching.binarySearch(toDoubles(array), target));
+    }
+
+    @Test
+    public void PrimitiveRecursiveBinarySearch() {
+        runAllTCs("RecursiveBinarySearch(int[])", (array, target) -> Searching.recursiveBinarySearch(toInts(array), target));
+        runAllTCs("RecursiveBinarySearch(long[])", (array, target) -> Searching.recursiveBinarySearch(toLongs(array), target));
+        runAllTCs("RecursiveBinarySearch(double[])", (array, target) -> Searching.recursiveBinarySearch(toDoubles(array), target));
+    }
+
+    @Test
+    public void ComparatorSearches() {
+        final Comparator<Integer> comparator = Comparator.naturalOrder();
+        runAllTCs("LinearSearch(Comparator)", (array, target) -> Searching.linearSearch(array, target, comparator));
+        runAllTCs("BinarySearch(Comparator)", (array, target) -> Searching.binarySearch(array, target, comparator));
+        runAllTCs("RecursiveBinarySearch(Comparator)", (array, target) -> Searching.recursiveBinarySearch(array, target, comparator));
+    }
+
+    @Test
+    public void BranchlessBinarySearch() {
+        runAllTCs("BranchlessBinarySearch(int[])", (array, target) -> Searching.branchlessBinarySearch(toInts(array), target));
+        runAllTCs("BranchlessBinarySearch(long[])", (array, target) -> Searching.branchlessBinarySearch(toLongs(array), target));
+    }
+
+    @Test
+    public void StaticSortedIndex() {
+        runAllTCs("StaticSortedIndex(int[])", (array, target) -> StaticSortedIndex.of(toInts(array)).indexOf(target));
+        runAllTCs("StaticSortedIndex(long[])", (array, target) -> StaticSortedIndex.of(toLongs(array)).indexOf((long) target));
+    }
+
+    @Test
+    public void LowerBoundsMatchAcrossLayouts() {
+        final Random random = new Random(42);
+        for (int n = 0; n < 300; ++n) {
+            final int[] array = random.ints(n, -100, 100).sorted().toArray();
+            final StaticSortedIndex.OfInt index = StaticSortedIndex.of(array);
+
+            for (int key = -105; key <= 105; ++key) {
+                int expected = 0;
+                while (expected < n && array[expected] < key) ++expected;
+
+                assertEquals(expected, Searching.lowerBound(array, key), "lowerBound, n = " + n + ", key = " + key);
+                assertEquals(expected, index.lowerBound(key), "StaticSortedIndex, n = " + n + ", key = " + key);
+                assertEquals(expected < n && array[expected] == key ? expected : -1, index.indexOf(key));
+            }
+        }
+    }
+
+    @Test
+    public void BatchSearches() {
+        final Random random = new Random(7);
+        for (int trial = 0; trial < 200; ++trial) {
+            final int[] array = random.ints(random.nextInt(500), -1000, 1000).sorted().toArray();
+            final int[] keys = random.ints(random.nextInt(100), -1100, 1100).toArray();
+            if (trial % 4 == 0) Arrays.sort(keys); // Already sorted queries take the merge-only path
+
+            final int[] expected = new int[keys.length];
+            for (int i = 0; i < keys.length; ++i) expected[i] = Searching.binarySearch(array, keys[i]);
+            final long[] longArray = Arrays.stream(array).asLongStream().toArray();
+            final long[] longKeys = Arrays.stream(keys).asLongStream().toArray();
+
+            assertArrayEquals(expected, Searching.searchAll(array, keys));
+            assertArrayEquals(expected, Searching.searchAll(longArray, longKeys));
+            assertArrayEquals(expected, Searching.searchAllInterleaved(array, keys));
+            assertArrayEquals(expected, Searching.searchAllInterleaved(longArray, longKeys));
+        }
+    }
+
+    @Test
+    public void AllSearchAlgorithms() {
+        for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+            runAllTCs(algorithm + "(int[])", (array, target) -> algorithm.search(toInts(array), target));
+            runAllTCs(algorithm + "(long[])", (array, target) -> algorithm.search(toLongs(array), (long) target));
+        }
+    }
+
+    @Test
+    public void SearchAlgorithmsOnSkewedData() {
+        // Exponentially growing values with duplicates: worst case for interpolation's guesses
+        final long[] array = new long[2000];
+        for (int i = 0; i < array.length; ++i) array[i] = i < 1000 ? i / 3 : 1L << Math.min(62, i / 30);
+
+        for (SearchAlgorithm algorithm : SearchAlgorithm.values()) {
+            for (int i = 0; i < array.length; i += 7) {
+                final long key = array[i];
+                assertEquals(Searching.binarySearch(array, key), algorithm.search(array, key), algorithm + ", key = " + key);
+                assertEquals(Searching.binarySearch(array, key + 1), algorithm.search(array, key + 1), algorithm + ", key = " + (key + 1));
+            }
+            assertEquals(-1, algorithm.search(array, -1L));
+            assertEquals(-1, algorithm.search(array, Long.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void FractionalCascading() {
+        final Random random = new Random(3);
+        final int[][] lists = new int[12][];
+        for (int i = 0; i < lists.length; ++i) lists[i] = random.ints(random.nextInt(60), 0, 200).sorted().toArray();
+        final FractionalCascading cascade = new FractionalCascading(lists);
+
+        for (int key = -5; key <= 205; ++key) {
+            final int[] lowerBounds = cascade.lowerBounds(key);
+            final int[] found = cascade.search(key);
+            for (int i = 0; i < lists.length; ++i) {
+                assertEquals(Searching.lowerBound(lists[i], key), lowerBounds[i], "list " + i + ", key = " + key);
+                assertEquals(Searching.binarySearch(lists[i], key), found[i], "list " + i + ", key = " + key);
+            }
+        }
+    }
+
+    private static int[] toInts(Integer[] array) {
+        return Arrays.stream(array).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static long[] toLongs(Integer[] array) {
+        return Arrays.stream(array).mapToLong(Integer::longValue).toArray();
+    }
+
+    private static double[] toDoubles(Integer[] array) {
+        return Arrays.stream(array).mapToDouble(Integer::doubleValue).toArray();
+    }
 }
@@ -0,0 +1,261 @@
+package algorithms;
+
+import ca.reidmoffat.SortBuffer;
+import ca.reidmoffat.Sorting;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SortingTests {
+
+    private record Person(String name, int age) {}
+
+    // Sizes around the insertion sort cutoff and large enough to go parallel with a small threshold
+    private static final int[] SIZES = {0, 1, 2, 3, 31, 32, 33, 100, 1000, 20_000};
+    private static final int SMALL_THRESHOLD = 64;
+
+    private static int[] randomInts(Random random, int n, int bound) {
+        return random.ints(n, -bound, bound).toArray();
+    }
+
+    private void checkIntSort(String name, Consumer<int[]> sort) {
+        final Random random = new Random(name.hashCode());
+        for (int n : SIZES) {
+            for (int bound : new int[]{3, 1000, Integer.MAX_VALUE}) { // Lots of duplicates up to almost none
+                final int[] array = randomInts(random, n, bound);
+                final int[] expected = array.clone();
+                Arrays.sort(expected);
+                sort.accept(array);
+                assertArrayEquals(expected, array, name + " failed on " + n + " elements");
+            }
+        }
+    }
+
+    private void checkLongSort(String name, Consumer<long[]> sort) {
+        final Random random = new Random(name.hashCode());
+        for (int n : SIZES) {
+            final long[] array = random.longs(n).toArray();
+            final long[] expected = array.clone();
+            Arrays.sort(expected);
+            sort.accept(array);
+            assertArrayEquals(expected, array, name + " failed on " + n + " elements");
+        }
+    }
+
+    private void checkStableSort(String name, Consumer<Person[]> sort) {
+        final Random random = new Random(name.hashCode());
+        for (int n : SIZES) {
+            final Person[] array = new Person[n];
+            for (int i = 0; i < n; ++i) array[i] = new Person("#" + i, random.nextInt(50));
+            final Person[] expected = array.clone();
+            Arrays.sort(expected, Comparator.comparingInt(Person::age)); // Arrays.sort on objects is stable
+            sort.accept(array);
+            assertArrayEquals(expected, array, name + " failed on " + n + " elements");
+        }
+    }
+
+    @Test
+    public void HeapSort() {
+        checkIntSort("heapSort(int[])", Sorting::heapSort);
+        checkLongSort("heapSort(long[])", Sorting::heapSort);
+
+        final Integer[] array = {5, 3, 9, 1, 1, 7};
+        Sorting.heapSort(array, Comparator.reverseOrder());
+        assertArrayEquals(new Integer[]{9, 7, 5, 3, 1, 1}, array);
+    }
+
+    @Test
+    public void InsertionSort() {
+        checkIntSort("insertionSort(int[])", Sorting::insertionSort);
+        checkStableSort("insertionSort(T[])", array -> Sorting.insertionSort(array, Comparator.comparingInt(Person::age)));
+    }
+
+    @Test
+    public void MergeSort() {
+        checkIntSort("mergeSort(int[])", Sorting::mergeSort);
+        checkLongSort("mergeSort(long[])", Sorting::mergeSort);
+        checkStableSort("mergeSort(T[])", array -> Sorting.mergeSort(array, Comparator.comparingInt(Person::age)));
+    }
+
+    @Test
+    public void ParallelMergeSort() {
+        checkIntSort("parallelMergeSort(int[])", array -> Sorting.parallelMergeSort(array, SMALL_THRESHOLD));
+        checkLongSort("parallelMergeSort(long[])", array -> Sorting.parallelMergeSort(array, SMALL_THRESHOLD));
+        checkStableSort("parallelMergeSort(T[])",
+                array -> Sorting.parallelMergeSort(array, Comparator.comparingInt(Person::age), SMALL_THRESHOLD));
+        checkIntSort("parallelMergeSort(int[], 1)", array -> Sorting.parallelMergeSort(array, 1));
+    }
+
+    @Test
+    public void ParallelSampleSort() {
+        checkIntSort("parallelSampleSort(int[])", array -> Sorting.parallelSampleSort(array, SMALL_THRESHOLD));
+        checkLongSort("parallelSampleSort(long[])", array -> Sorting.parallelSampleSort(array, SMALL_THRESHOLD));
+        checkStableSort("parallelSampleSort(T[])",
+                array -> Sorting.parallelSampleSort(array, Comparator.comparingInt(Person::age), SMALL_THRESHOLD));
+        checkIntSort("parallelSampleSort(int[], 1)", array -> Sorting.parallelSampleSort(array, 1));
+    }
+
+    @Test
+    public void RadixSort() {
+        final SortBuffer buffer = new SortBuffer();
+        checkIntSort("radixSort(int[])", Sorting::radixSort);
+        checkIntSort("radixSort(int[], SortBuffer)", array -> Sorting.radixSort(array, buffer));
+        checkIntSort("parallelRadixSort(int[])", Sorting::parallelRadixSort);
+        checkLongSort("radixSort(long[])", array -> Sorting.radixSort(array, buffer));
+        checkLongSort("parallelRadixSort(long[])", Sorting::parallelRadixSort);
+
+        // Small non-negative keys skip the passes over their all-zero high bytes
+        final long[] small = new Random(1).longs(5000, 0, 300).toArray();
+        final long[] expected = small.clone();
+        Arrays.sort(expected);
+        Sorting.radixSort(small);
+        assertArrayEquals(expected, small);
+    }
+
+    @Test
+    public void StringRadixSort() {
+        final Random random = new Random(11);
+        final SortBuffer buffer = new SortBuffer();
+        for (int n : SIZES) {
+            final String[] strings = new String[n];
+            for (int i = 0; i < n; ++i) {
+                // Shared prefixes, empty strings and chars with a non-zero high byte
+                final StringBuilder builder = new StringBuilder(i % 3 == 0 ? "prefix" : "");
+                for (int length = random.nextInt(6); length > 0; --length) {
+                    builder.append(random.nextInt(10) == 0 ? (char) (0x100 + random.nextInt(4)) : (char) ('a' + random.nextInt(3)));
+                }
+                strings[i] = builder.toString();
+            }
+
+            final String[] expectedStrings = strings.clone();
+            Arrays.sort(expectedStrings);
+            Sorting.radixSort(strings, buffer);
+            assertArrayEquals(expectedStrings, strings, "radixSort(String[]) failed on " + n + " elements");
+
+            final byte[][] bytes = new byte[n][];
+            for (int i = 0; i < n; ++i) bytes[i] = expectedStrings[n - 1 - i].getBytes(StandardCharsets.UTF_8);
+            final byte[][] expectedBytes = bytes.clone();
+            Arrays.sort(expectedBytes, Arrays::compareUnsigned);
+            Sorting.radixSort(bytes, buffer);
+            assertArrayEquals(expectedBytes, bytes, "radixSort(byte[][]) failed on " + n + " elements");
+        }
+    }
+
+    @Test
+    public void RadixSortLongCommonPrefix() {
+        // A 1 MB prefix once took a new count array per byte of it, gigabytes in all
+        final Random random = new Random(12);
+        final SortBuffer buffer = new SortBuffer();
+        final byte[] prefix = new byte[1 << 20];
+        Arrays.fill(prefix, (byte) 7);
+        final byte[][] bytes = new byte[48][];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = i % 4 == 0 ? prefix : Arrays.copyOf(prefix, prefix.length + 1);
+            if (i % 4 != 0) bytes[i][prefix.length] = (byte) random.nextInt(256);
+        }
+        final byte[][] expectedBytes = bytes.clone();
+        Arrays.sort(expectedBytes, Arrays::compareUnsigned);
+        Sorting.radixSort(bytes, buffer);
+        assertArrayEquals(expectedBytes, bytes);
+
+        final String base = "x".repeat(1 << 20);
+        final String[] strings = new String[48];
+        for (int i = 0; i < strings.length; ++i) {
+            strings[i] = i % 4 == 0 ? base : base + (char) ('a' + random.nextInt(26));
+        }
+        final String[] expectedStrings = strings.clone();
+        Arrays.sort(expectedStrings);
+        Sorting.radixSort(strings, buffer);
+        assertArrayEquals(expectedStrings, strings);
+    }
+
+    @Test
+    public void AdaptiveSort() {
+        checkIntSort("adaptiveSort(int[])", Sorting::adaptiveSort);
+        checkLongSort("adaptiveSort(long[])", Sorting::adaptiveSort);
+        checkStableSort("adaptiveSort(T[])", array -> Sorting.adaptiveSort(array, Comparator.comparingInt(Person::age)));
+
+        // Presorted patterns: ascending, descending, sawtooth runs and a sorted array with a few random swaps
+        final Random random = new Random(9);
+        final int n = 50_000;
+        final int[][] patterns = {
+                IntStream.range(0, n).toArray(),
+                IntStream.range(0, n).map(i -> n - i).toArray(),
+                IntStream.range(0, n).map(i -> i % 1000).toArray(),
+                IntStream.range(0, n).map(i -> random.nextInt(100) == 0 ? random.nextInt(n) : i).toArray()
+        };
+        for (int[] array : patterns) {
+            final int[] expected = array.clone();
+            Arrays.sort(expected);
+            Sorting.adaptiveSort(array);
+            assertArrayEquals(expected, array);
+        }
+    }
+
+    @Test
+    public void AdaptiveSortIsLinearOnSortedInput() {
+        final Integer[] array = IntStream.range(0, 100_000).boxed().toArray(Integer[]::new);
+        final int[] comparisons = {0};
+        Sorting.adaptiveSort(array, (a, b) -> {
+            ++comparisons[0];
+            return Integer.compare(a, b);
+        });
+        assertEquals(array.length - 1, comparisons[0]);
+    }
+
+    @Test
+    public void NthElement() {
+        final Random random = new Random(13);
+        for (int n : SIZES) {
+            if (n == 0) continue;
+            for (int bound : new int[]{3, Integer.MAX_VALUE}) {
+                final int[] array = randomInts(random, n, bound);
+                final int[] sorted = array.clone();
+                Arrays.sort(sorted);
+
+                for (int index : new int[]{0, n / 3, n / 2, n - 1}) {
+                    final int[] selected = array.clone();
+                    Sorting.nthElement(selected, index);
+                    assertEquals(sorted[index], selected[index], "nthElement(" + index + ") on " + n + " elements");
+                    for (int i = 0; i < index; ++i) assertTrue(selected[i] <= selected[index]);
+                    for (int i = index + 1; i < n; ++i) assertTrue(selected[i] >= selected[index]);
+                }
+            }
+        }
+
+        final String[] words = {"pear", "apple", "fig", "kiwi", "banana"};
+        Sorting.nthElement(words, 2);
+        assertEquals("fig", words[2]);
+    }
+
+    @Test
+    public void PartialSort() {
+        final Random random = new Random(17);
+        for (int n : SIZES) {
+            // k small enough for the heap strategy, large enough for the selection one, and past the end
+            for (int k : new int[]{0, 1, n / 20, n / 2, n, n + 5}) {
+                final long[] array = random.longs(n, 0, 100).toArray();
+                final long[] sorted = array.clone();
+                Arrays.sort(sorted);
+                Sorting.partialSort(array, k);
+                final int prefix = Math.min(k, n);
+                assertArrayEquals(Arrays.copyOf(sorted, prefix), Arrays.copyOf(array, prefix), "partialSort(" + k + ") on " + n);
+
+                final Integer[] boxed = Arrays.stream(sorted).mapToObj(value -> (int) value).toArray(Integer[]::new);
+                Collections.shuffle(Arrays.asList(boxed), random);
+                Sorting.partialSort(boxed, k, Comparator.reverseOrder());
+                for (int i = 0; i < prefix; ++i) assertEquals(sorted[n - 1 - i], (long) boxed[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package hashing;
+
+import ca.reidmoffat.hashing.ChainedHashMap;
+import hashing.RandomMapOperations.Colliding;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static hashing.RandomMapOperations.checkMatchesHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChainedHashMapTests {
+
+    /**
+     * Every instance has the same hash code, like a hash flooding attack, but they can be ordered
+     */
+    private record Flooding(int value) implements Comparable<Flooding> {
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public int compareTo(Flooding o) {
+            return Integer.compare(value, o.value);
+        }
+    }
+
+    /**
+     * Same hash code for every instance, and no order to fall back on
+     */
+    private record Unordered(int value) {
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    private static Object key(int n) {
+        return switch (n % 5) {
+            case 0 -> new Colliding(n);
+            case 1 -> new Flooding(n);
+            case 2 -> n == 2 ? null : new Unordered(n % 40);
+            case 3 -> "s" + n;
+            default -> n;
+        };
+    }
+
+    @Test
+    public void RandomOperationsMatchHashMap() {
+        checkMatchesHashMap(ChainedHashMap::new, 20, 100_000, 20_000, ChainedHashMapTests::key);
+        checkMatchesHashMap(() -> new ChainedHashMap<>(0, 4f), 21, 100_000, 5_000, ChainedHashMapTests::key);
+    }
+
+    @Test
+    public void FloodedBucketBecomesTree() {
+        final ChainedHashMap<Flooding, Integer> map = new ChainedHashMap<>();
+        // A small table doubles instead, until it's big enough to treeify
+        for (int i = 0; i < 9; ++i) map.put(new Flooding(i), i);
+        assertEquals(0, map.treeifiedBuckets());
+        map.put(new Flooding(9), 9);
+        assertEquals(1, map.treeifiedBuckets());
+        assertEquals(64, map.capacity());
+
+        for (int i = 10; i < 1000; ++i) map.put(new Flooding(i), i);
+        assertEquals(1, map.treeifiedBuckets());
+        for (int i = 0; i < 1000; ++i) assertEquals(i, map.get(new Flooding(i)));
+        assertNull(map.get(new Flooding(-1)));
+
+        final int[] histogram = map.chainLengthHistogram();
+        assertEquals(1001, histogram.length);
+        assertEquals(1, histogram[1000]);
+        assertEquals(map.capacity() - 1, histogram[0]);
+
+        for (int i = 0; i < 995; ++i) assertEquals(i, map.remove(new Flooding(i)));
+        assertEquals(0, map.treeifiedBuckets());
+        for (int i = 995; i < 1000; ++i) assertTrue(map.containsKey(new Flooding(i)));
+    }
+
+    @Test
+    public void UnorderedCollisionsStayCorrect() {
+        final ChainedHashMap<Unordered, Integer> map = new ChainedHashMap<>(100, 0.75f);
+        for (int i = 0; i < 100; ++i) map.put(new Unordered(i), i);
+        assertEquals(1, map.treeifiedBuckets());
+        for (int i = 0; i < 100; ++i) assertEquals(i, map.get(new Unordered(i)));
+        for (int i = 0; i < 100; i += 2) assertEquals(i, map.remove(new Unordered(i)));
+        assertEquals(50, map.size());
+        for (int i = 0; i < 100; ++i) assertEquals(i % 2 == 1, map.containsKey(new Unordered(i)));
+    }
+
+    @Test
+    public void HistogramCountsEveryBucket() {
+        final ChainedHashMap<Integer, Integer> map = new ChainedHashMap<>();
+        assertEquals(1, map.chainLengthHistogram().length);
+        for (int i = 0; i < 10_000; ++i) map.put(i * 7919, i);
+        final int[] histogram = map.chainLengthHistogram();
+        int buckets = 0;
+        int entries = 0;
+        for (int length = 0; length < histogram.length; ++length) {
+            buckets += histogram[length];
+            entries += length * histogram[length];
+        }
+        assertEquals(map.capacity(), buckets);
+        assertEquals(10_000, entries);
+        assertTrue(histogram.length <= ChainedHashMap.TREEIFY_THRESHOLD + 1);
+        assertEquals(0, map.treeifiedBuckets());
+    }
+
+    @Test
+    public void IteratorRemoveAndSetValue() {
+        final ChainedHashMap<Object, Integer> map = new ChainedHashMap<>();
+        for (int i = 0; i < 1000; ++i) map.put(i % 2 == 0 ? new Flooding(i) : i, i);
+        assertTrue(map.treeifiedBuckets() > 0);
+
+        final Iterator<Map.Entry<Object, Integer>> iterator = map.entrySet().iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            final Map.Entry<Object, Integer> entry = iterator.next();
+            ++visited;
+            if (entry.getValue() % 3 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        assertEquals(1000, visited);
+        for (int i = 0; i < 1000; ++i) {
+            final Object key = i % 2 == 0 ? new Flooding(i) : i;
+            assertEquals(i % 3 == 0 ? null : -i, map.get(key));
+        }
+        assertThrows(IllegalStateException.class, () -> map.entrySet().iterator().remove());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(new Flooding(2)));
+        assertThrows(IllegalArgumentException.class, () -> new ChainedHashMap<>(0, 0f));
+    }
+}
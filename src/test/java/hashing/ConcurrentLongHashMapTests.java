@@ -0,0 +1,187 @@
+package hashing;
+
+import ca.reidmoffat.hashing.ConcurrentLongHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentLongHashMapTests {
+
+    @Test
+    public void RandomOperationsMatchHashMap() {
+        final Random random = new Random(19);
+        final ConcurrentLongHashMap<Integer> map = new ConcurrentLongHashMap<>();
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; ++step) {
+            // Few keys later on, so removals leave the table full of tombstones
+            final long key = random.nextInt(step < 100_000 ? 20_000 : 500) - 10;
+            final int op = random.nextInt(10);
+            if (op < 4) {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            } else if (op < 5) {
+                assertEquals(expected.putIfAbsent(key, step), map.putIfAbsent(key, step));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        final Map<Long, Integer> seen = new HashMap<>();
+        map.forEach((key, value) -> assertNull(seen.put(key, value)));
+        assertEquals(expected, seen);
+    }
+
+    @Test
+    public void ComputeIfAbsentAndNulls() {
+        final ConcurrentLongHashMap<String> map = new ConcurrentLongHashMap<>(100);
+        assertEquals("0", map.computeIfAbsent(0, Long::toString));
+        assertEquals("0", map.computeIfAbsent(0, key -> "x"));
+        assertEquals("5", map.computeIfAbsent(5, Long::toString));
+        assertNull(map.computeIfAbsent(6, key -> null));
+        assertFalse(map.containsKey(6));
+        assertEquals("d", map.getOrDefault(6, "d"));
+        assertEquals(2, map.size());
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentLongHashMap<>(-1));
+    }
+
+    /**
+     * Writers race to insert overlapping key ranges into a map that starts tiny, so it resizes many times while they
+     * (and a reader) use it. Exactly one putIfAbsent must win each key
+     */
+    @Test
+    public void ConcurrentInsertsDuringResize() throws Exception {
+        final int threads = 4;
+        final int keys = 20_000;
+        final ConcurrentLongHashMap<Integer> map = new ConcurrentLongHashMap<>();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicBoolean done = new AtomicBoolean();
+            final List<Future<Integer>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int thread = t;
+                writers.add(pool.submit(() -> {
+                    start.await();
+                    int wins = 0;
+                    for (int i = 0; i < keys; ++i) {
+                        // Each thread walks the keys from a different starting point
+                        final long key = (i + thread * (keys / threads)) % keys * 31L;
+                        if (map.putIfAbsent(key, thread) == null) {
+                            ++wins;
+                        }
+                        if (i % 1000 == 0) Thread.yield();
+                    }
+                    return wins;
+                }));
+            }
+            final Future<?> reader = pool.submit(() -> {
+                start.await();
+                while (!done.get()) {
+                    for (long key = 0; key < keys * 31L; key += 31 * 97) {
+                        final Integer value = map.get(key);
+                        assertTrue(value == null || (value >= 0 && value < threads));
+                    }
+                    Thread.yield();
+                }
+                return null;
+            });
+            start.countDown();
+            int wins = 0;
+            for (Future<Integer> writer : writers) wins += writer.get(60, TimeUnit.SECONDS);
+            done.set(true);
+            reader.get(60, TimeUnit.SECONDS);
+
+            assertEquals(keys, wins);
+            assertEquals(keys, map.size());
+            for (int i = 0; i < keys; ++i) assertTrue(map.containsKey(i * 31L));
+            final int[] count = new int[1];
+            map.forEach((key, value) -> ++count[0]);
+            assertEquals(keys, count[0]);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Each thread owns its own keys and churns through put and remove, so every thread knows what its keys should map
+     * to at the end even though the table is resized and cleaned of tombstones underneath
+     */
+    @Test
+    public void ConcurrentPutAndRemove() throws Exception {
+        final int threads = 4;
+        final int keysPerThread = 500;
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>();
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Map<Long, Long>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    final Random random = new Random(thread);
+                    final Map<Long, Long> expected = new HashMap<>();
+                    start.await();
+                    for (int step = 0; step < 50_000; ++step) {
+                        final long key = (long) random.nextInt(keysPerThread) * threads + thread;
+                        if (random.nextBoolean()) {
+                            assertEquals(expected.put(key, (long) step), map.put(key, (long) step));
+                        } else {
+                            assertEquals(expected.remove(key), map.remove(key));
+                        }
+                        if (step % 1000 == 0) Thread.yield();
+                    }
+                    return expected;
+                }));
+            }
+            start.countDown();
+            final Map<Long, Long> expected = new HashMap<>();
+            for (Future<Map<Long, Long>> result : results) expected.putAll(result.get(60, TimeUnit.SECONDS));
+
+            assertEquals(expected.size(), map.size());
+            final Map<Long, Long> seen = new HashMap<>();
+            map.forEach(seen::put);
+            assertEquals(expected, seen);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void CopyingInIterationOrderStaysLinear() {
+        // Without a per-map seed, forEach visited keys in the copy's home slot order and the copy went quadratic
+        final int n = 1 << 19;
+        final ConcurrentLongHashMap<Long> map = new ConcurrentLongHashMap<>();
+        for (long key = 1; key <= n; ++key) map.put(key, -key);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            ConcurrentLongHashMap<Long> copy = map;
+            for (int generation = 0; generation < 3; ++generation) {
+                final ConcurrentLongHashMap<Long> next = new ConcurrentLongHashMap<>();
+                copy.forEach(next::put);
+                copy = next;
+            }
+            assertEquals(n, copy.size());
+            for (long key = 1; key <= n; key += 997) assertEquals(-key, copy.get(key));
+        });
+    }
+}
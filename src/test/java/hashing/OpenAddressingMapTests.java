@@ -0,0 +1,121 @@
+package hashing;
+
+import ca.reidmoffat.hashing.OpenAddressingMap;
+import ca.reidmoffat.hashing.ProbeStats;
+import ca.reidmoffat.hashing.ProbingStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import static hashing.RandomMapOperations.checkMatchesHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OpenAddressingMapTests {
+
+    @Test
+    public void LinearProbing() {
+        checkMatchesHashMap(() -> new OpenAddressingMap<>(ProbingStrategy.LINEAR), 1, 100_000, 20_000);
+    }
+
+    @Test
+    public void QuadraticProbing() {
+        checkMatchesHashMap(() -> new OpenAddressingMap<>(ProbingStrategy.QUADRATIC), 2, 100_000, 20_000);
+    }
+
+    @Test
+    public void DoubleHashing() {
+        checkMatchesHashMap(() -> new OpenAddressingMap<>(ProbingStrategy.DOUBLE_HASH), 3, 100_000, 20_000);
+    }
+
+    @Test
+    public void HighLoadFactor() {
+        checkMatchesHashMap(() -> new OpenAddressingMap<>(ProbingStrategy.LINEAR, 0, 0.95f), 4, 100_000, 20_000);
+        checkMatchesHashMap(() -> new OpenAddressingMap<>(ProbingStrategy.DOUBLE_HASH, 100, 0.9f), 5, 100_000, 20_000);
+    }
+
+    @Test
+    public void LoadFactorLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingMap<>(ProbingStrategy.QUADRATIC, 0, 0.6f));
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingMap<>(ProbingStrategy.LINEAR, 0, 1f));
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingMap<>(ProbingStrategy.LINEAR, 0, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingMap<>(ProbingStrategy.LINEAR, -1, 0.5f));
+    }
+
+    @Test
+    public void NullKeysAndValues() {
+        final OpenAddressingMap<String, String> map = new OpenAddressingMap<>();
+        assertFalse(map.containsKey(null));
+        map.put(null, "a");
+        map.put("b", null);
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey("b"));
+        assertNull(map.get("b"));
+        assertTrue(map.containsValue(null));
+        assertEquals("a", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void IteratorRemoveAndSetValue() {
+        for (ProbingStrategy strategy : ProbingStrategy.values()) {
+            final OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(strategy);
+            for (int i = 0; i < 1000; ++i) map.put(i, i);
+
+            final Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Integer, Integer> entry = iterator.next();
+                if (entry.getKey() % 2 == 0) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(-entry.getKey());
+                }
+            }
+            assertEquals(500, map.size());
+            for (int i = 0; i < 1000; ++i) assertEquals(i % 2 == 0 ? null : -i, map.get(i));
+
+            map.keySet().removeIf(key -> key < 500);
+            assertEquals(250, map.size());
+            map.clear();
+            assertTrue(map.isEmpty());
+            assertNull(map.get(999));
+        }
+    }
+
+    @Test
+    public void Stats() {
+        for (ProbingStrategy strategy : ProbingStrategy.values()) {
+            final OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(strategy);
+            assertEquals(0, map.stats().size());
+            for (int i = 0; i < 10_000; ++i) map.put(i * 7919, i);
+
+            ProbeStats stats = map.stats();
+            assertEquals(10_000, stats.size());
+            assertTrue(stats.averageProbeLength() >= 1 && stats.averageProbeLength() < 3, strategy + " " + stats);
+            assertTrue(stats.maxProbeLength() >= 1);
+            assertTrue(stats.loadFactor() <= strategy.defaultLoadFactor());
+
+            for (int i = 0; i < 10_000; i += 2) map.remove(i * 7919);
+            stats = map.stats();
+            assertEquals(5_000, stats.size());
+            if (strategy != ProbingStrategy.LINEAR) assertTrue(stats.tombstones() > 0);
+        }
+    }
+
+    @Test
+    public void TombstonesAreReclaimed() {
+        // Churning through distinct keys at a constant size must not keep growing the table
+        final OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(ProbingStrategy.DOUBLE_HASH);
+        for (int i = 0; i < 100_000; ++i) {
+            map.put(i, i);
+            if (i >= 100) map.remove(i - 100);
+        }
+        assertEquals(100, map.size());
+        assertTrue(map.stats().capacity() <= 512, map.stats().toString());
+    }
+}
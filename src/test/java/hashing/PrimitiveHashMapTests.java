@@ -0,0 +1,232 @@
+package hashing;
+
+import ca.reidmoffat.hashing.IntHashSet;
+import ca.reidmoffat.hashing.IntIntHashMap;
+import ca.reidmoffat.hashing.LongObjectHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PrimitiveHashMapTests {
+
+    @Test
+    public void IntIntRandomOperationsMatchHashMap() {
+        final Random random = new Random(18);
+        final IntIntHashMap map = new IntIntHashMap();
+        final Map<Integer, Integer> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; ++step) {
+            // Small keys (including 0 and negatives) and keys that are multiples of a large power of two
+            final int key = random.nextBoolean() ? random.nextInt(2_000) - 100 : random.nextInt(64) << 24;
+            final int op = random.nextInt(10);
+            if (op < 3) {
+                assertEquals(expected.getOrDefault(key, 0), map.put(key, step));
+                expected.put(key, step);
+            } else if (op < 5) {
+                assertEquals(expected.merge(key, 3, Integer::sum), map.addTo(key, 3));
+            } else if (op < 8) {
+                final Integer removed = expected.remove(key);
+                assertEquals(removed == null ? 0 : removed, map.remove(key));
+            } else {
+                assertEquals(expected.getOrDefault(key, -1), map.getOrDefault(key, -1));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        final Map<Integer, Integer> seen = new HashMap<>();
+        map.forEach((key, value) -> assertNull(seen.put(key, value)));
+        assertEquals(expected, seen);
+        final int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), keys);
+    }
+
+    @Test
+    public void IntIntZeroKey() {
+        final IntIntHashMap map = new IntIntHashMap();
+        assertFalse(map.containsKey(0));
+        assertEquals(0, map.put(0, 5));
+        assertTrue(map.containsKey(0));
+        assertEquals(7, map.addTo(0, 2));
+        assertEquals(7, map.computeIfAbsent(0, key -> 100));
+        assertEquals(1, map.size());
+        assertEquals("{0=7}", map.toString());
+        assertEquals(7, map.remove(0));
+        assertTrue(map.isEmpty());
+        assertEquals(-1, map.getOrDefault(0, -1));
+    }
+
+    @Test
+    public void IntIntComputeIfAbsent() {
+        final IntIntHashMap map = new IntIntHashMap(4);
+        final int[] calls = new int[1];
+        for (int round = 0; round < 2; ++round) {
+            for (int key = 0; key < 1000; ++key) {
+                assertEquals(key * 2, map.computeIfAbsent(key, k -> {
+                    ++calls[0];
+                    return k * 2;
+                }));
+            }
+        }
+        assertEquals(1000, calls[0]);
+        assertEquals(1000, map.size());
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(1));
+        assertThrows(IllegalArgumentException.class, () -> new IntIntHashMap(-1));
+    }
+
+    @Test
+    public void ComputeIfAbsentMappingMayChangeTheMap() {
+        // Mappings that grow the table or shift entries around must not leave the new entry in a stale slot
+        final IntIntHashMap ints = new IntIntHashMap();
+        final LongObjectHashMap<String> objects = new LongObjectHashMap<>();
+        final Map<Integer, Integer> expected = new HashMap<>();
+        for (int key = 1; key <= 200; ++key) {
+            final int k = key;
+            assertEquals(-k, ints.computeIfAbsent(k, unused -> {
+                for (int i = 0; i < 50; ++i) ints.put(1000 * k + i, i);
+                ints.remove(k - 1);
+                return -k;
+            }));
+            assertEquals("v" + k, objects.computeIfAbsent(k, unused -> {
+                for (int i = 0; i < 50; ++i) objects.put(1000L * k + i, "");
+                objects.remove(k - 1);
+                return "v" + k;
+            }));
+            for (int i = 0; i < 50; ++i) expected.put(1000 * k + i, i);
+            expected.remove(k - 1);
+            expected.put(k, -k);
+        }
+        assertEquals(expected.size(), ints.size());
+        assertEquals(expected.size(), objects.size());
+        expected.forEach((key, value) -> {
+            assertEquals(value, ints.get(key));
+            assertTrue(objects.containsKey(key));
+        });
+
+        assertThrows(ConcurrentModificationException.class, () -> ints.computeIfAbsent(999_999, k -> ints.put(k, 1)));
+        assertThrows(ConcurrentModificationException.class, () -> ints.computeIfAbsent(0, k -> ints.put(k, 1)));
+        assertThrows(ConcurrentModificationException.class,
+                () -> objects.computeIfAbsent(999_999, k -> objects.put(k, "a")));
+        assertThrows(ConcurrentModificationException.class,
+                () -> objects.computeIfAbsent(0, k -> objects.put(k, "a")));
+    }
+
+    @Test
+    public void LongObjectRandomOperationsMatchHashMap() {
+        final Random random = new Random(81);
+        final LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        final Map<Long, String> expected = new HashMap<>();
+        for (int step = 0; step < 200_000; ++step) {
+            final long key = random.nextBoolean() ? random.nextInt(2_000) - 100 : (long) random.nextInt(64) << 40;
+            final int op = random.nextInt(10);
+            if (op < 3) {
+                assertEquals(expected.put(key, "v" + step), map.put(key, "v" + step));
+            } else if (op < 5) {
+                final String value = "c" + step;
+                assertEquals(expected.computeIfAbsent(key, k -> value), map.computeIfAbsent(key, k -> value));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        final Map<Long, String> seen = new HashMap<>();
+        map.forEach((key, value) -> assertNull(seen.put(key, value)));
+        assertEquals(expected, seen);
+        assertEquals(expected.size(), map.keys().length);
+    }
+
+    @Test
+    public void LongObjectNullValues() {
+        final LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        assertThrows(NullPointerException.class, () -> map.put(1, null));
+        assertNull(map.computeIfAbsent(2, key -> null));
+        assertFalse(map.containsKey(2));
+        assertEquals("a", map.computeIfAbsent(0, key -> "a"));
+        assertEquals("a", map.getOrDefault(0, "b"));
+        assertEquals("b", map.getOrDefault(3, "b"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void IntSetRandomOperationsMatchHashSet() {
+        final Random random = new Random(53);
+        final IntHashSet set = new IntHashSet();
+        final Set<Integer> expected = new HashSet<>();
+        for (int step = 0; step < 200_000; ++step) {
+            final int key = random.nextBoolean() ? random.nextInt(2_000) - 100 : random.nextInt(64) << 24;
+            final int op = random.nextInt(10);
+            if (op < 5) {
+                assertEquals(expected.add(key), set.add(key));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), set.remove(key));
+            } else {
+                assertEquals(expected.contains(key), set.contains(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        final Set<Integer> seen = new HashSet<>();
+        set.forEach(key -> assertTrue(seen.add(key)));
+        assertEquals(expected, seen);
+        assertEquals(expected.size(), set.toArray().length);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals("[]", set.toString());
+    }
+
+    @Test
+    public void CopyingInIterationOrderStaysLinear() {
+        // Without per-table seeds each copy inserted keys in home slot order, one growing cluster, and took minutes
+        final int n = 1 << 20;
+        final IntIntHashMap map = new IntIntHashMap();
+        final IntHashSet set = new IntHashSet();
+        final LongObjectHashMap<String> objects = new LongObjectHashMap<>();
+        for (int i = 1; i <= n; ++i) {
+            map.put(i, -i);
+            set.add(i);
+            objects.put(i, "");
+        }
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            IntIntHashMap mapCopy = map;
+            IntHashSet setCopy = set;
+            LongObjectHashMap<String> objectsCopy = objects;
+            for (int generation = 0; generation < 3; ++generation) {
+                final IntIntHashMap nextMap = new IntIntHashMap();
+                mapCopy.forEach(nextMap::put);
+                mapCopy = nextMap;
+                final IntHashSet nextSet = new IntHashSet();
+                for (int key : setCopy.toArray()) nextSet.add(key);
+                setCopy = nextSet;
+                final LongObjectHashMap<String> nextObjects = new LongObjectHashMap<>();
+                objectsCopy.forEach(nextObjects::put);
+                objectsCopy = nextObjects;
+            }
+            assertEquals(n, mapCopy.size());
+            assertEquals(n, setCopy.size());
+            assertEquals(n, objectsCopy.size());
+            for (int i = 1; i <= n; i += 997) {
+                assertEquals(-i, mapCopy.get(i));
+                assertTrue(setCopy.contains(i));
+                assertEquals("", objectsCopy.get(i));
+            }
+        });
+    }
+}
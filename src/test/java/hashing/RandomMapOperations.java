@@ -0,0 +1,73 @@
+package hashing;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Random puts, removes and lookups on a map, checked step by step against {@link HashMap}
+ */
+final class RandomMapOperations {
+
+    private RandomMapOperations() {
+    }
+
+    /**
+     * A key whose hash codes collide in groups, to force long probe sequences (and shared tags and home groups)
+     */
+    record Colliding(int value) {
+        @Override
+        public int hashCode() {
+            return value / 8;
+        }
+    }
+
+    /**
+     * Plain integers, with every third one {@link Colliding} and 1 replaced by the null key
+     */
+    static Object mixedKey(int n) {
+        return n % 3 == 0 ? new Colliding(n) : n == 1 ? null : (Object) n;
+    }
+
+    /**
+     * Runs the operations with {@link #mixedKey} keys
+     */
+    static <M extends Map<Object, Integer>> M checkMatchesHashMap(Supplier<M> factory, long seed, int steps,
+                                                                 int keyRange) {
+        return checkMatchesHashMap(factory, seed, steps, keyRange, RandomMapOperations::mixedKey);
+    }
+
+    /**
+     * Runs the operations on a map from factory. Keys are keyOf(n) for n below keyRange for the first half of the
+     * steps, then below keyRange / 10 so that the second half mostly removes and reuses slots
+     *
+     * @return The map, for checks of its own
+     */
+    static <M extends Map<Object, Integer>> M checkMatchesHashMap(Supplier<M> factory, long seed, int steps,
+                                                                 int keyRange, IntFunction<Object> keyOf) {
+        final M map = factory.get();
+        final Random random = new Random(seed);
+        final Map<Object, Integer> expected = new HashMap<>();
+        for (int step = 0; step < steps; ++step) {
+            final Object key = keyOf.apply(random.nextInt(step < steps / 2 ? keyRange : keyRange / 10));
+            final int op = random.nextInt(10);
+            if (op < 5) {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(map, expected);
+        assertEquals(expected.hashCode(), map.hashCode());
+        return map;
+    }
+}
@@ -0,0 +1,89 @@
+package hashing;
+
+import ca.reidmoffat.hashing.OpenAddressingMap;
+import ca.reidmoffat.hashing.ProbeStats;
+import ca.reidmoffat.hashing.ProbingStrategy;
+import ca.reidmoffat.hashing.RobinHoodMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static hashing.RandomMapOperations.checkMatchesHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RobinHoodMapTests {
+
+    @Test
+    public void RandomOperationsMatchHashMap() {
+        final RobinHoodMap<Object, Integer> map = checkMatchesHashMap(RobinHoodMap::new, 16, 200_000, 30_000);
+        assertEquals(0, map.stats().tombstones());
+    }
+
+    @Test
+    public void NullKeysAndValues() {
+        final RobinHoodMap<String, String> map = new RobinHoodMap<>();
+        map.put(null, "a");
+        map.put("b", null);
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey("b"));
+        assertNull(map.get("b"));
+        assertEquals("a", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertThrows(IllegalArgumentException.class, () -> new RobinHoodMap<>(0, 1f));
+    }
+
+    @Test
+    public void IteratorRemoveVisitsEveryEntryOnce() {
+        final Random random = new Random(61);
+        for (int round = 0; round < 20; ++round) {
+            // Small tables at high load, so runs wrap around the end of the table
+            final RobinHoodMap<Integer, Integer> map = new RobinHoodMap<>(0, 0.95f);
+            final int count = 1 + random.nextInt(500);
+            for (int i = 0; i < count; ++i) map.put(random.nextInt(), i);
+
+            final Set<Integer> seen = new HashSet<>();
+            final Map<Integer, Integer> kept = new HashMap<>();
+            final Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<Integer, Integer> entry = iterator.next();
+                assertTrue(seen.add(entry.getKey()), "Visited twice");
+                if (random.nextBoolean()) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(entry.getValue() + 1);
+                    kept.put(entry.getKey(), entry.getValue());
+                }
+            }
+            assertEquals(count, seen.size());
+            assertEquals(kept, map);
+        }
+    }
+
+    @Test
+    public void ShortProbesAtHighLoad() {
+        final Random random = new Random(90);
+        final RobinHoodMap<Long, Long> robinHood = new RobinHoodMap<>(0, 0.9f);
+        final OpenAddressingMap<Long, Long> linear = new OpenAddressingMap<>(ProbingStrategy.LINEAR, 0, 0.9f);
+        for (int i = 0; i < 200_000; ++i) {
+            final long key = random.nextLong();
+            robinHood.put(key, key);
+            linear.put(key, key);
+        }
+        final ProbeStats robinHoodStats = robinHood.stats();
+        final ProbeStats linearStats = linear.stats();
+        assertEquals(200_000, robinHoodStats.size());
+        assertTrue(robinHoodStats.maxProbeLength() < linearStats.maxProbeLength(),
+                robinHoodStats + " vs " + linearStats);
+        // Same total displacement as linear probing, just spread evenly
+        assertTrue(Math.abs(robinHoodStats.averageProbeLength() - linearStats.averageProbeLength()) < 0.01);
+    }
+}
@@ -0,0 +1,82 @@
+package hashing;
+
+import ca.reidmoffat.hashing.ProbeStats;
+import ca.reidmoffat.hashing.SwissTableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static hashing.RandomMapOperations.checkMatchesHashMap;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SwissTableMapTests {
+
+    @Test
+    public void RandomOperationsMatchHashMap() {
+        checkMatchesHashMap(SwissTableMap::new, 17, 200_000, 30_000);
+    }
+
+    @Test
+    public void NullKeysAndValues() {
+        final SwissTableMap<String, String> map = new SwissTableMap<>(100);
+        map.put(null, "a");
+        map.put("b", null);
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey("b"));
+        assertNull(map.get("b"));
+        assertEquals("a", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void IteratorRemoveAndSetValue() {
+        final SwissTableMap<Integer, Integer> map = new SwissTableMap<>();
+        for (int i = 0; i < 5000; ++i) map.put(i, i);
+        final Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+        int visited = 0;
+        while (iterator.hasNext()) {
+            final Map.Entry<Integer, Integer> entry = iterator.next();
+            ++visited;
+            if (entry.getKey() % 3 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getValue());
+            }
+        }
+        assertEquals(5000, visited);
+        for (int i = 0; i < 5000; ++i) assertEquals(i % 3 == 0 ? null : -i, map.get(i));
+        assertEquals(1667, map.stats().tombstones());
+    }
+
+    @Test
+    public void TombstonesAreReclaimed() {
+        final SwissTableMap<Integer, Integer> map = new SwissTableMap<>();
+        for (int i = 0; i < 200_000; ++i) {
+            map.put(i, i);
+            if (i >= 100) assertEquals(i - 100, map.remove(i - 100));
+        }
+        assertEquals(100, map.size());
+        final ProbeStats stats = map.stats();
+        assertTrue(stats.capacity() <= 512, stats.toString());
+        assertTrue(stats.tombstones() < stats.capacity(), stats.toString());
+    }
+
+    @Test
+    public void Stats() {
+        final SwissTableMap<Long, Long> map = new SwissTableMap<>();
+        final Random random = new Random(71);
+        for (int i = 0; i < 100_000; ++i) map.put(random.nextLong(), (long) i);
+        final ProbeStats stats = map.stats();
+        assertEquals(100_000, stats.size());
+        assertTrue(stats.loadFactor() <= 7.0 / 8, stats.toString());
+        // Almost every key is in its home group even at 7/8 load
+        assertTrue(stats.averageProbeLength() < 1.5, stats.toString());
+        assertEquals(0, stats.tombstones());
+    }
+}
@@ -0,0 +1,187 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.LockFreeQueue;
+import ca.reidmoffat.linearstructures.RingBufferQueue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentQueueTests {
+
+    private static final int PRODUCERS = 4;
+    private static final int CONSUMERS = 4;
+    private static final int PER_PRODUCER = 50_000;
+
+    private static void checkFifo(Queue<Integer> queue) {
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+        for (int i = 0; i < 10; ++i) assertTrue(queue.offer(i));
+        assertEquals(10, queue.size());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), new ArrayList<>(queue));
+        assertEquals(0, queue.peek());
+        for (int i = 0; i < 5; ++i) assertEquals(i, queue.poll());
+        for (int i = 10; i < 13; ++i) queue.add(i);
+        for (int i = 5; i < 13; ++i) assertEquals(i, queue.remove());
+        assertTrue(queue.isEmpty());
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+    }
+
+    /**
+     * Runs producers and consumers against the queue at once and checks every element came out exactly once, and
+     * that each consumer saw each producer's elements in order
+     */
+    private static void checkConcurrent(Supplier<Queue<Integer>> factory) throws Exception {
+        final Queue<Integer> queue = factory.get();
+        final ExecutorService pool = Executors.newFixedThreadPool(PRODUCERS + CONSUMERS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger remaining = new AtomicInteger(PRODUCERS * PER_PRODUCER);
+            final List<Future<int[]>> consumers = new ArrayList<>();
+
+            for (int p = 0; p < PRODUCERS; ++p) {
+                final int producer = p;
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < PER_PRODUCER; ++i) {
+                        while (!queue.offer(producer * PER_PRODUCER + i)) Thread.yield();
+                    }
+                    return null;
+                });
+            }
+            for (int c = 0; c < CONSUMERS; ++c) {
+                consumers.add(pool.submit(() -> {
+                    final int[] seen = new int[PRODUCERS * PER_PRODUCER];
+                    final int[] last = new int[PRODUCERS];
+                    Arrays.fill(last, -1);
+                    start.await();
+                    while (remaining.get() > 0) {
+                        final Integer value = queue.poll();
+                        if (value == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        remaining.decrementAndGet();
+                        ++seen[value];
+                        final int producer = value / PER_PRODUCER;
+                        assertTrue(value % PER_PRODUCER > last[producer], "Out of order");
+                        last[producer] = value % PER_PRODUCER;
+                    }
+                    return seen;
+                }));
+            }
+            start.countDown();
+
+            final int[] total = new int[PRODUCERS * PER_PRODUCER];
+            for (Future<int[]> consumer : consumers) {
+                final int[] seen = consumer.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < total.length; ++i) total[i] += seen[i];
+            }
+            for (int i = 0; i < total.length; ++i) assertEquals(1, total[i], "Element " + i);
+            assertTrue(queue.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void LockFreeQueueIsFifo() {
+        checkFifo(new LockFreeQueue<>());
+        assertEquals(List.of(3, 1, 2), new ArrayList<>(new LockFreeQueue<>(List.of(3, 1, 2))));
+    }
+
+    @Test
+    public void LockFreeQueueConcurrent() throws Exception {
+        checkConcurrent(LockFreeQueue::new);
+    }
+
+    @Test
+    public void RingBufferQueueIsFifo() {
+        checkFifo(new RingBufferQueue<>(16));
+    }
+
+    @Test
+    public void RingBufferQueueIsBounded() {
+        assertEquals(1, new RingBufferQueue<>(1).capacity());
+        assertEquals(8, new RingBufferQueue<>(5).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferQueue<>(0));
+
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<>(4);
+        for (int lap = 0; lap < 3; ++lap) {
+            for (int i = 0; i < 4; ++i) assertTrue(queue.offer(i));
+            assertFalse(queue.offer(4));
+            assertThrows(IllegalStateException.class, () -> queue.add(4));
+            assertEquals(4, queue.size());
+            for (int i = 0; i < 4; ++i) assertEquals(i, queue.poll());
+            assertNull(queue.poll());
+        }
+    }
+
+    @Test
+    public void RingBufferQueueBatches() {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<>(8);
+        final Integer[] values = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertEquals(5, queue.offerAll(values, 0, 5));
+        assertEquals(3, queue.offerAll(values, 5, 6)); // Only 3 free slots left
+        assertEquals(0, queue.offerAll(values, 8, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> queue.offerAll(values, 9, 3));
+
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(3, queue.drainTo(drained, 3));
+        assertEquals(3, queue.offerAll(values, 8, 3)); // Wraps around
+        assertEquals(8, queue.drainTo(drained));
+        assertArrayEquals(values, drained.toArray());
+        assertEquals(0, queue.drainTo(drained));
+        assertThrows(IllegalArgumentException.class, () -> queue.drainTo(queue));
+    }
+
+    @Test
+    public void RingBufferQueueSurvivesAThrowingDrainTarget() {
+        final RingBufferQueue<Integer> queue = new RingBufferQueue<>(8);
+        for (int i = 0; i < 8; ++i) assertTrue(queue.offer(i));
+        // Holds two elements, then rejects the rest of the run
+        final List<Integer> bounded = new ArrayList<>() {
+            @Override
+            public boolean add(Integer element) {
+                if (size() == 2) {
+                    throw new IllegalStateException("Full");
+                }
+                return super.add(element);
+            }
+        };
+        assertThrows(IllegalStateException.class, () -> queue.drainTo(bounded));
+        assertEquals(List.of(0, 1), bounded);
+        assertTrue(queue.isEmpty());
+        // Every slot of the run was freed, so a whole lap fits again
+        for (int lap = 0; lap < 2; ++lap) {
+            for (int i = 0; i < 8; ++i) assertTrue(queue.offer(i));
+            assertFalse(queue.offer(8));
+            final List<Integer> drained = new ArrayList<>();
+            assertEquals(8, queue.drainTo(drained));
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), drained);
+        }
+    }
+
+    @Test
+    public void RingBufferQueueConcurrent() throws Exception {
+        checkConcurrent(() -> new RingBufferQueue<>(1024));
+        checkConcurrent(() -> new RingBufferQueue<>(2)); // Constantly full and empty
+    }
+}
@@ -0,0 +1,203 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.CircularDeque;
+import ca.reidmoffat.linearstructures.IntDeque;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DequeTests {
+
+    @Test
+    public void RandomOperationsMatchArrayDeque() {
+        final Random random = new Random(14);
+        final CircularDeque<Integer> deque = new CircularDeque<>(1);
+        final ArrayDeque<Integer> expected = new ArrayDeque<>();
+
+        for (int step = 0; step < 50_000; ++step) {
+            final int op = random.nextInt(12);
+            if (op < 3) {
+                deque.addFirst(step);
+                expected.addFirst(step);
+            } else if (op < 6) {
+                deque.addLast(step);
+                expected.addLast(step);
+            } else if (op < 8) {
+                assertEquals(expected.pollFirst(), deque.pollFirst());
+            } else if (op < 10) {
+                assertEquals(expected.pollLast(), deque.pollLast());
+            } else if (op < 11) {
+                final Integer value = step - random.nextInt(50);
+                assertEquals(expected.removeFirstOccurrence(value), deque.removeFirstOccurrence(value));
+            } else {
+                final Integer value = step - random.nextInt(50);
+                assertEquals(expected.removeLastOccurrence(value), deque.removeLastOccurrence(value));
+            }
+            assertEquals(expected.size(), deque.size());
+            assertEquals(expected.peekFirst(), deque.peekFirst());
+            assertEquals(expected.peekLast(), deque.peekLast());
+        }
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(deque));
+    }
+
+    @Test
+    public void DequeMethods() {
+        final CircularDeque<String> deque = new CircularDeque<>();
+        assertNull(deque.poll());
+        assertNull(deque.peek());
+        assertThrows(NoSuchElementException.class, deque::removeFirst);
+        assertThrows(NoSuchElementException.class, deque::getLast);
+        assertThrows(NullPointerException.class, () -> deque.add(null));
+
+        deque.push("b");
+        deque.push("a");
+        deque.offer("c");
+        assertEquals(List.of("a", "b", "c"), new ArrayList<>(deque));
+        assertEquals("b", deque.get(1));
+        assertTrue(deque.contains("c"));
+        assertFalse(deque.contains("d"));
+
+        final List<String> backwards = new ArrayList<>();
+        deque.descendingIterator().forEachRemaining(backwards::add);
+        assertEquals(List.of("c", "b", "a"), backwards);
+
+        assertEquals("a", deque.pop());
+        assertEquals("b", deque.element());
+        assertEquals("b", deque.remove());
+        assertTrue(deque.remove("c"));
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void IteratorRemove() {
+        final CircularDeque<Integer> deque = new CircularDeque<>(8);
+        for (int i = 0; i < 6; ++i) deque.addLast(i);
+        for (int i = 1; i <= 4; ++i) deque.addFirst(-i); // Wraps around
+
+        final Iterator<Integer> iterator = deque.iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 != 0) iterator.remove();
+        }
+        assertEquals(List.of(-4, -2, 0, 2, 4), new ArrayList<>(deque));
+
+        final Iterator<Integer> descending = deque.descendingIterator();
+        while (descending.hasNext()) {
+            if (descending.next() < 0) descending.remove();
+        }
+        assertEquals(List.of(0, 2, 4), new ArrayList<>(deque));
+
+        final Iterator<Integer> stale = deque.iterator();
+        deque.addLast(6);
+        assertThrows(ConcurrentModificationException.class, stale::next);
+    }
+
+    @Test
+    public void EvictOldest() {
+        final CircularDeque<Integer> window = CircularDeque.fixedCapacity(5);
+        assertEquals(5, window.capacity());
+        for (int i = 0; i < 12; ++i) window.addLast(i);
+        assertEquals(List.of(7, 8, 9, 10, 11), new ArrayList<>(window));
+        window.addFirst(6); // Evicts from the back
+        assertEquals(List.of(6, 7, 8, 9, 10), new ArrayList<>(window));
+
+        window.addAllLast(new Integer[]{20, 21});
+        assertEquals(List.of(8, 9, 10, 20, 21), new ArrayList<>(window));
+        window.addAllLast(new Integer[]{30, 31, 32, 33, 34, 35, 36});
+        assertEquals(List.of(32, 33, 34, 35, 36), new ArrayList<>(window));
+        assertThrows(IllegalArgumentException.class, () -> CircularDeque.fixedCapacity(0));
+    }
+
+    @Test
+    public void BulkCopiesAcrossWrapPoint() {
+        final CircularDeque<Integer> deque = new CircularDeque<>(8);
+        for (int i = 0; i < 6; ++i) deque.addLast(i);
+        for (int i = 0; i < 5; ++i) deque.pollFirst();
+        deque.addAllLast(new Integer[]{6, 7, 8, 9, 10, 11}); // Wraps around the end of the array
+        assertEquals(8, deque.capacity());
+
+        final Integer[] out = new Integer[10];
+        assertEquals(4, deque.pollFirst(out, 0, 4));
+        assertEquals(3, deque.pollFirst(out, 4, 6));
+        assertArrayEquals(new Integer[]{5, 6, 7, 8, 9, 10, 11, null, null, null}, out);
+        assertTrue(deque.isEmpty());
+
+        deque.addAllLast(new Integer[]{1, 2, 3});
+        deque.addAllLast(new Integer[]{4, 5, 6, 7, 8, 9, 10, 11, 12, 13}); // Grows
+        assertEquals(13, deque.size());
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13), new ArrayList<>(deque));
+        assertThrows(NullPointerException.class, () -> deque.addAllLast(new Integer[]{1, null}));
+        assertEquals(13, deque.size());
+    }
+
+    @Test
+    public void IntDeque() {
+        final IntDeque deque = new IntDeque(4);
+        assertThrows(NoSuchElementException.class, deque::removeFirst);
+        assertThrows(NoSuchElementException.class, deque::getLast);
+
+        final ArrayDeque<Integer> expected = new ArrayDeque<>();
+        final Random random = new Random(41);
+        for (int step = 0; step < 20_000; ++step) {
+            final int op = random.nextInt(6);
+            if (op == 0) {
+                deque.addFirst(step);
+                expected.addFirst(step);
+            } else if (op < 3) {
+                deque.addLast(step);
+                expected.addLast(step);
+            } else if (op == 3 && !expected.isEmpty()) {
+                assertEquals(expected.removeFirst(), deque.removeFirst());
+            } else if (op == 4 && !expected.isEmpty()) {
+                assertEquals(expected.removeLast(), deque.removeLast());
+            } else if (op == 5) {
+                final int[] values = new int[random.nextInt(20)];
+                for (int i = 0; i < values.length; ++i) values[i] = -step - i;
+                deque.addAllLast(values);
+                for (int value : values) expected.addLast(value);
+            }
+            assertEquals(expected.size(), deque.size());
+        }
+
+        final int[] drained = new int[expected.size() + 5];
+        assertEquals(expected.size(), deque.pollFirst(drained, 5, expected.size()));
+        for (int i = 5; i < drained.length; ++i) assertEquals(expected.removeFirst(), drained[i]);
+        assertTrue(deque.isEmpty());
+    }
+
+    @Test
+    public void IntDequeSlidingWindow() {
+        final IntDeque window = IntDeque.fixedCapacity(3);
+        for (int i = 0; i < 10; ++i) window.addLast(i);
+        assertArrayEquals(new int[]{7, 8, 9}, window.toArray());
+        window.addFirst(6);
+        assertArrayEquals(new int[]{6, 7, 8}, window.toArray());
+        window.addAllLast(new int[]{1, 2, 3, 4}, 1, 2);
+        assertArrayEquals(new int[]{8, 2, 3}, window.toArray());
+        window.addAllLast(new int[]{10, 11, 12, 13, 14});
+        assertArrayEquals(new int[]{12, 13, 14}, window.toArray());
+        assertEquals(13, window.get(1));
+        window.set(1, -1);
+        assertEquals(-1, window.get(1));
+        assertEquals(12, window.getFirst());
+        assertEquals(14, window.getLast());
+
+        final int[] out = new int[2];
+        assertEquals(2, window.pollFirst(out));
+        assertArrayEquals(new int[]{12, -1}, out);
+        assertEquals(1, window.size());
+    }
+}
@@ -0,0 +1,137 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.LinkedList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinkedListTests {
+
+    @Test
+    public void AppendAndPrepend() {
+        final LinkedList<Integer> list = new LinkedList<>();
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            if (i % 3 == 0) {
+                list.addFirst(i);
+                expected.add(0, i);
+            } else {
+                list.add(i);
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, list);
+        assertEquals(expected.get(0), list.getFirst());
+        assertEquals(expected.get(999), list.getLast());
+        for (int i = 0; i < expected.size(); i += 37) assertEquals(expected.get(i), list.get(i));
+
+        assertEquals(expected.remove(0), list.removeFirst());
+        assertEquals(expected.remove(expected.size() - 1), list.removeLast());
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void RandomOperationsMatchArrayList() {
+        final Random random = new Random(21);
+        final LinkedList<Integer> list = new LinkedList<>();
+        final List<Integer> expected = new ArrayList<>();
+
+        for (int step = 0; step < 20_000; ++step) {
+            final int op = random.nextInt(10);
+            if (op < 4 || expected.isEmpty()) {
+                final int index = random.nextInt(expected.size() + 1);
+                list.add(index, step);
+                expected.add(index, step);
+            } else if (op < 7) {
+                final int index = random.nextInt(expected.size());
+                assertEquals(expected.remove(index), list.remove(index));
+            } else if (op < 9) {
+                final int index = random.nextInt(expected.size());
+                assertEquals(expected.set(index, -step), list.set(index, -step));
+            } else {
+                final int index = random.nextInt(expected.size());
+                assertEquals(expected.get(index), list.get(index));
+            }
+            assertEquals(expected.size(), list.size());
+        }
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void ListIteratorEdits() {
+        final Random random = new Random(4);
+        final LinkedList<Integer> list = new LinkedList<>();
+        final List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 500; ++i) {
+            list.add(i);
+            expected.add(i);
+        }
+
+        for (int pass = 0; pass < 20; ++pass) {
+            final int start = random.nextInt(expected.size() + 1);
+            final ListIterator<Integer> actual = list.listIterator(start);
+            final ListIterator<Integer> reference = expected.listIterator(start);
+            boolean canEdit = false;
+
+            for (int step = 0; step < 400; ++step) {
+                final int op = random.nextInt(6);
+                if (op == 0 && reference.hasNext()) {
+                    assertEquals(reference.next(), actual.next());
+                    canEdit = true;
+                } else if (op == 1 && reference.hasPrevious()) {
+                    assertEquals(reference.previous(), actual.previous());
+                    canEdit = true;
+                } else if (op == 2) {
+                    reference.add(-step);
+                    actual.add(-step);
+                    canEdit = false;
+                } else if (op == 3 && canEdit) {
+                    reference.remove();
+                    actual.remove();
+                    canEdit = false;
+                } else if (op == 4 && canEdit) {
+                    reference.set(step);
+                    actual.set(step);
+                }
+                assertEquals(reference.nextIndex(), actual.nextIndex());
+                assertEquals(reference.hasNext(), actual.hasNext());
+                assertEquals(reference.hasPrevious(), actual.hasPrevious());
+            }
+            assertEquals(expected, list);
+        }
+
+        // Remove everything through an iterator, then build it back up through one
+        final Iterator<Integer> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(0, list.size());
+        final ListIterator<Integer> adder = list.listIterator();
+        for (int i = 0; i < 100; ++i) adder.add(i);
+        assertEquals(100, list.size());
+        assertEquals(99, list.getLast());
+    }
+
+    @Test
+    public void IteratorsAreFailFast() {
+        final LinkedList<Integer> list = new LinkedList<>(List.of(1, 2, 3));
+        final Iterator<Integer> iterator = list.iterator();
+        iterator.next();
+        list.add(4);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+
+        assertThrows(NoSuchElementException.class, () -> new LinkedList<Integer>().removeFirst());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(4));
+        assertThrows(IllegalStateException.class, () -> list.listIterator().remove());
+    }
+}
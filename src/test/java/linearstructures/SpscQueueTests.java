@@ -0,0 +1,149 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.SpscQueue;
+import ca.reidmoffat.linearstructures.WaitStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SpscQueueTests {
+
+    @Test
+    public void SingleThreaded() {
+        final SpscQueue<Integer> queue = new SpscQueue<>(5);
+        assertEquals(8, queue.capacity());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+
+        for (int lap = 0; lap < 3; ++lap) {
+            for (int i = 0; i < 8; ++i) assertTrue(queue.offer(i));
+            assertFalse(queue.offer(8));
+            assertEquals(8, queue.size());
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), new ArrayList<>(queue));
+            assertEquals(0, queue.peek());
+            for (int i = 0; i < 8; ++i) assertEquals(i, queue.poll());
+            assertNull(queue.poll());
+        }
+        assertThrows(NullPointerException.class, () -> queue.offer(null));
+        assertThrows(IllegalArgumentException.class, () -> new SpscQueue<>(0));
+    }
+
+    @Test
+    public void Batches() {
+        final SpscQueue<Integer> queue = new SpscQueue<>(8);
+        final Integer[] values = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10};
+        assertEquals(6, queue.offerAll(values, 0, 6));
+        assertEquals(2, queue.offerAll(values, 6, 5));
+        assertEquals(0, queue.offerAll(values, 8, 3));
+
+        final List<Integer> polled = new ArrayList<>();
+        assertEquals(3, queue.poll(3, polled::add));
+        assertEquals(3, queue.offerAll(values, 8, 3)); // Wraps around
+        assertEquals(8, queue.poll(100, polled::add));
+        assertEquals(List.of(values), polled);
+        assertEquals(0, queue.poll(100, polled::add));
+        queue.offerAll(values, 0, 2);
+        assertEquals(0, queue.poll(0, polled::add));
+        assertThrows(IllegalArgumentException.class, () -> queue.poll(-1, polled::add));
+        assertEquals(2, queue.poll(100, value -> { }));
+
+        // A failing sink only loses the element it was handed
+        queue.offerAll(values, 0, 3);
+        assertThrows(IllegalStateException.class, () -> queue.poll(3, value -> {
+            if (value == 1) throw new IllegalStateException();
+        }));
+        assertEquals(List.of(2), new ArrayList<>(queue));
+
+        // A null in the batch is found before any of it goes in; nulls past the part that fits aren't looked at
+        final Integer[] withNull = {3, 4, null, 5};
+        assertThrows(NullPointerException.class, () -> queue.offerAll(withNull));
+        assertEquals(List.of(2), new ArrayList<>(queue));
+        assertEquals(2, queue.offerAll(withNull, 0, 2));
+        assertEquals(List.of(2, 3, 4), new ArrayList<>(queue));
+        final SpscQueue<Integer> full = new SpscQueue<>(2);
+        assertEquals(2, full.offerAll(withNull));
+    }
+
+    private static void checkPipeline(WaitStrategy strategy, int capacity, int count) throws Exception {
+        final SpscQueue<Integer> queue = new SpscQueue<>(capacity, strategy);
+        final ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            final Future<?> producer = pool.submit(() -> {
+                final Integer[] batch = new Integer[7];
+                int next = 0;
+                while (next < count) {
+                    if (next % 3 == 0) {
+                        queue.put(next++);
+                    } else {
+                        final int size = Math.min(batch.length, count - next);
+                        for (int i = 0; i < size; ++i) batch[i] = next + i;
+                        next += queue.offerAll(batch, 0, size);
+                        Thread.yield();
+                    }
+                }
+                return null;
+            });
+            final Future<Long> consumer = pool.submit(() -> {
+                final long[] state = {0, 0}; // Next expected value, checksum
+                while (state[0] < count) {
+                    if (state[0] % 2 == 0) {
+                        final int value = queue.take();
+                        assertEquals(state[0]++, value);
+                        state[1] += value;
+                    } else if (queue.poll(5, value -> {
+                        assertEquals(state[0]++, (long) value);
+                        state[1] += value;
+                    }) == 0) {
+                        Thread.yield(); // Don't starve the producer when there's only one core
+                    }
+                }
+                return state[1];
+            });
+            producer.get(60, TimeUnit.SECONDS);
+            assertEquals((long) count * (count - 1) / 2, consumer.get(60, TimeUnit.SECONDS));
+            assertTrue(queue.isEmpty());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void WaitStrategies() throws Exception {
+        checkPipeline(WaitStrategy.PARK, 64, 20_000);
+        checkPipeline(WaitStrategy.YIELD, 2, 50_000);
+        checkPipeline(WaitStrategy.BUSY_SPIN, 1024, 10_000);
+    }
+
+    @Test
+    public void TakeIsInterruptible() throws Exception {
+        final SpscQueue<Integer> queue = new SpscQueue<>(4, WaitStrategy.PARK);
+        // Whatever take ends with, so it can be checked here rather than dying with the consumer thread
+        final AtomicReference<Object> outcome = new AtomicReference<>();
+        final Thread consumer = new Thread(() -> {
+            try {
+                outcome.set(queue.take());
+            } catch (Throwable t) {
+                outcome.set(t);
+            }
+        });
+        consumer.start();
+        consumer.interrupt();
+        consumer.join(10_000);
+        assertFalse(consumer.isAlive());
+        assertInstanceOf(InterruptedException.class, outcome.get());
+    }
+}
@@ -0,0 +1,89 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.ArrayStack;
+import ca.reidmoffat.linearstructures.IntStack;
+import ca.reidmoffat.linearstructures.LongStack;
+import ca.reidmoffat.linearstructures.Stack;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StackTests {
+
+    @Test
+    public void IntStack() {
+        final IntStack stack = new IntStack(0);
+        assertTrue(stack.isEmpty());
+        assertThrows(NoSuchElementException.class, stack::pop);
+        assertThrows(NoSuchElementException.class, stack::peek);
+
+        for (int i = 0; i < 1000; ++i) stack.push(i);
+        stack.pushAll(new int[]{-1, 1000, 1001, 1002, -1}, 1, 3);
+        assertEquals(1003, stack.size());
+        assertEquals(1002, stack.peek());
+        for (int i = 1002; i >= 0; --i) assertEquals(i, stack.pop());
+        assertTrue(stack.isEmpty());
+        assertThrows(IndexOutOfBoundsException.class, () -> stack.pushAll(new int[2], 1, 2));
+
+        stack.ensureCapacity(5000);
+        stack.pushAll(new int[]{1, 2, 3});
+        stack.trimToSize();
+        stack.push(4);
+        assertArrayEquals(new int[]{1, 2, 3, 4}, stack.toArray());
+        stack.clear();
+        assertEquals(0, stack.size());
+        assertThrows(IllegalArgumentException.class, () -> new IntStack(-1));
+    }
+
+    @Test
+    public void LongStack() {
+        final LongStack stack = new LongStack();
+        for (long i = 0; i < 100; ++i) stack.push(i << 40);
+        stack.pushAll(new long[]{Long.MIN_VALUE, Long.MAX_VALUE});
+        assertEquals(Long.MAX_VALUE, stack.pop());
+        assertEquals(Long.MIN_VALUE, stack.pop());
+        for (long i = 99; i >= 0; --i) assertEquals(i << 40, stack.pop());
+        assertThrows(NoSuchElementException.class, stack::pop);
+    }
+
+    @Test
+    public void ArrayStack() {
+        final Stack<String> stack = new ArrayStack<>(1);
+        assertTrue(stack.isEmpty());
+        assertNull(stack.pop());
+        assertNull(stack.peek());
+
+        for (char c : "Hello, world!".toCharArray()) stack.push(String.valueOf(c));
+        final StringBuilder reversed = new StringBuilder();
+        while (!stack.isEmpty()) reversed.append(stack.pop());
+        assertEquals("!dlrow ,olleH", reversed.toString());
+        assertThrows(NullPointerException.class, () -> stack.push(null));
+
+        final ArrayStack<Integer> numbers = new ArrayStack<>();
+        numbers.pushAll(new Integer[]{0, 1, 2, 3, 4}, 1, 3);
+        numbers.trimToSize();
+        numbers.push(4);
+        assertArrayEquals(new Object[]{1, 2, 3, 4}, numbers.toArray());
+        assertThrows(NullPointerException.class, () -> numbers.pushAll(new Integer[]{5, null}));
+        assertEquals(4, numbers.size());
+    }
+
+    @Test
+    public void PoppedElementsCanBeCollected() {
+        final ArrayStack<Object> stack = new ArrayStack<>();
+        Object element = new Object();
+        final WeakReference<Object> reference = new WeakReference<>(element);
+        stack.push(element);
+        stack.pop();
+        element = null;
+        for (int i = 0; i < 10 && reference.get() != null; ++i) System.gc();
+        assertNull(reference.get());
+    }
+}
@@ -0,0 +1,87 @@
+package linearstructures;
+
+import ca.reidmoffat.linearstructures.TreiberStack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TreiberStackTests {
+
+    @Test
+    public void LastInFirstOut() {
+        final TreiberStack<Integer> stack = new TreiberStack<>();
+        assertTrue(stack.isEmpty());
+        assertNull(stack.pop());
+        assertNull(stack.peek());
+
+        for (int i = 0; i < 100; ++i) stack.push(i);
+        assertEquals(100, stack.size());
+        assertEquals(99, stack.peek());
+        for (int i = 99; i >= 0; --i) assertEquals(i, stack.pop());
+        assertTrue(stack.isEmpty());
+
+        // Nothing contends on a single thread
+        assertEquals(0, stack.casFailures());
+        assertEquals(0, stack.eliminationAttempts());
+        assertThrows(NullPointerException.class, () -> stack.push(null));
+        assertThrows(IllegalArgumentException.class, () -> new TreiberStack<>(0));
+    }
+
+    /**
+     * Threads that each push and pop through a shared stack, like a free list, must neither lose nor duplicate
+     * elements
+     */
+    @Test
+    public void ConcurrentPushAndPop() throws Exception {
+        final int threads = 8;
+        final int perThread = 20_000;
+        final TreiberStack<Integer> stack = new TreiberStack<>(4);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < threads; ++t) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    final int[] popped = new int[threads * perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; ++i) {
+                        stack.push(thread * perThread + i);
+                        if (i % 2 == 1) {
+                            final Integer value = stack.pop(); // Leaves about half of everything pushed behind
+                            if (value != null) ++popped[value];
+                        }
+                    }
+                    return popped;
+                }));
+            }
+            start.countDown();
+
+            final int[] seen = new int[threads * perThread];
+            for (Future<int[]> result : results) {
+                final int[] popped = result.get(60, TimeUnit.SECONDS);
+                for (int i = 0; i < seen.length; ++i) seen[i] += popped[i];
+            }
+            for (Integer value = stack.pop(); value != null; value = stack.pop()) ++seen[value];
+            for (int i = 0; i < seen.length; ++i) assertEquals(1, seen[i], "Element " + i);
+
+            assertTrue(stack.eliminations() <= stack.eliminationAttempts());
+            assertTrue(stack.eliminationAttempts() <= stack.casFailures());
+            stack.resetCounters();
+            assertEquals(0, stack.casFailures());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
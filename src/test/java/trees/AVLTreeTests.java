@@ -0,0 +1,169 @@
+package trees;
+
+import ca.reidmoffat.trees.AVLTree;
+import ca.reidmoffat.trees.BinarySearchTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AVLTreeTests {
+
+    private static void checkMatchesTreeMap(NavigableMap<Integer, Integer> map, long seed) {
+        final Random random = new Random(seed);
+        final NavigableMap<Integer, Integer> expected = new TreeMap<>(map.comparator());
+        for (int step = 0; step < 100_000; ++step) {
+            final int key = random.nextInt(step < 50_000 ? 10_000 : 1_000);
+            final int op = random.nextInt(12);
+            if (op < 5) {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else if (op < 11) {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.lowerKey(key), map.lowerKey(key));
+                assertEquals(expected.floorEntry(key), map.floorEntry(key));
+                assertEquals(expected.ceilingKey(key), map.ceilingKey(key));
+                assertEquals(expected.higherEntry(key), map.higherEntry(key));
+            } else {
+                assertEquals(expected.firstEntry(), map.firstEntry());
+                assertEquals(expected.lastEntry(), map.lastEntry());
+                if (random.nextInt(10) == 0) {
+                    assertEquals(expected.pollFirstEntry(), map.pollFirstEntry());
+                    assertEquals(expected.pollLastEntry(), map.pollLastEntry());
+                }
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+        assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(map.descendingKeySet()));
+    }
+
+    @Test
+    public void RandomOperationsMatchTreeMap() {
+        checkMatchesTreeMap(new AVLTree<>(), 21);
+        checkMatchesTreeMap(new AVLTree<>(Comparator.reverseOrder()), 22);
+        checkMatchesTreeMap(new BinarySearchTree<>(), 23);
+    }
+
+    @Test
+    public void HeightStaysLogarithmic() {
+        final int n = (1 << 16) - 1;
+        final AVLTree<Integer, Integer> avl = new AVLTree<>();
+        // Sorted insertion is the worst case for an unbalanced tree
+        for (int i = 0; i < n; ++i) avl.put(i, i);
+        assertTrue(avl.height() <= 1.44 * Math.log(n + 2) / Math.log(2), "Height " + avl.height());
+        for (int i = 0; i < n; i += 3) avl.remove(i);
+        assertTrue(avl.height() <= 1.44 * Math.log(avl.size() + 2) / Math.log(2), "Height " + avl.height());
+
+        final BinarySearchTree<Integer, Integer> bst = new BinarySearchTree<>();
+        for (int i = 0; i < 1000; ++i) bst.put(i, i);
+        assertEquals(1000, bst.height());
+        assertEquals(0, new AVLTree<Integer, Integer>().height());
+    }
+
+    @Test
+    public void RangeViewsMatchTreeMap() {
+        final Random random = new Random(24);
+        final AVLTree<Integer, Integer> map = new AVLTree<>();
+        final TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 500; ++i) {
+            final int key = random.nextInt(1000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+        for (int round = 0; round < 500; ++round) {
+            final int a = random.nextInt(1100) - 50;
+            final int b = a + 1 + random.nextInt(600);
+            final boolean ai = random.nextBoolean();
+            final boolean bi = random.nextBoolean();
+            final List<NavigableMap<Integer, Integer>> views = List.of(
+                    map.subMap(a, ai, b, bi), map.headMap(b, bi), map.tailMap(a, ai), map.descendingMap(),
+                    map.subMap(a, ai, b, bi).descendingMap(), map.descendingMap().headMap(a, ai),
+                    map.descendingMap().subMap(b, bi, a, ai).tailMap(b, bi));
+            final List<NavigableMap<Integer, Integer>> expectedViews = List.of(
+                    expected.subMap(a, ai, b, bi), expected.headMap(b, bi), expected.tailMap(a, ai),
+                    expected.descendingMap(), expected.subMap(a, ai, b, bi).descendingMap(),
+                    expected.descendingMap().headMap(a, ai), expected.descendingMap().subMap(b, bi, a, ai).tailMap(b, bi));
+            for (int v = 0; v < views.size(); ++v) {
+                final NavigableMap<Integer, Integer> view = views.get(v);
+                final NavigableMap<Integer, Integer> expectedView = expectedViews.get(v);
+                assertEquals(new ArrayList<>(expectedView.entrySet()), new ArrayList<>(view.entrySet()));
+                assertEquals(expectedView.size(), view.size());
+                assertEquals(expectedView.isEmpty(), view.isEmpty());
+                assertEquals(expectedView.firstEntry(), view.firstEntry());
+                assertEquals(expectedView.lastEntry(), view.lastEntry());
+                final int key = random.nextInt(1100) - 50;
+                assertEquals(expectedView.containsKey(key), view.containsKey(key));
+                assertEquals(expectedView.lowerKey(key), view.lowerKey(key));
+                assertEquals(expectedView.floorKey(key), view.floorKey(key));
+                assertEquals(expectedView.ceilingKey(key), view.ceilingKey(key));
+                assertEquals(expectedView.higherKey(key), view.higherKey(key));
+                assertEquals(new ArrayList<>(expectedView.descendingKeySet()),
+                        new ArrayList<>(view.descendingKeySet()));
+            }
+        }
+    }
+
+    @Test
+    public void WritesThroughViews() {
+        final AVLTree<Integer, String> map = new AVLTree<>();
+        for (int i = 0; i < 100; ++i) map.put(i, "v" + i);
+        final NavigableMap<Integer, String> view = map.subMap(20, true, 40, false);
+        assertThrows(IllegalArgumentException.class, () -> view.put(40, "x"));
+        assertThrows(IllegalArgumentException.class, () -> view.headMap(50, true));
+        assertNull(view.remove(50));
+        assertEquals("v50", map.get(50));
+
+        view.put(25, "x");
+        assertEquals("x", map.get(25));
+        assertEquals(20, view.pollFirstEntry().getKey());
+        assertEquals(39, view.descendingMap().pollFirstEntry().getKey());
+        view.navigableKeySet().removeIf(key -> key % 2 == 0);
+        assertEquals(9, view.size());
+        assertEquals(100 - 2 - 9, map.size());
+
+        final Iterator<Integer> keys = view.descendingKeySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next() < 30) keys.remove();
+        }
+        assertEquals(List.of(31, 33, 35, 37), new ArrayList<>(view.keySet()));
+        view.clear();
+        assertTrue(view.isEmpty());
+        assertEquals(19, map.lowerKey(40));
+        assertThrows(IllegalArgumentException.class, () -> map.subMap(5, 4));
+    }
+
+    @Test
+    public void EntriesSurviveOtherDeletions() {
+        final AVLTree<Integer, Integer> map = new AVLTree<>();
+        for (int i = 0; i < 1000; ++i) map.put(i, i);
+        final List<Map.Entry<Integer, Integer>> kept = new ArrayList<>();
+        final Iterator<Map.Entry<Integer, Integer>> iterator = map.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Integer, Integer> entry = iterator.next();
+            if (entry.getKey() % 4 == 0) {
+                kept.add(entry);
+            } else {
+                iterator.remove();
+            }
+        }
+        assertEquals(250, map.size());
+        // Deleting a node with two children moves nodes around instead of copying entries, so these still write through
+        for (Map.Entry<Integer, Integer> entry : kept) entry.setValue(-entry.getKey());
+        for (int i = 0; i < 1000; i += 4) assertEquals(-i, map.get(i));
+        assertThrows(NullPointerException.class, () -> map.put(null, 1));
+    }
+}
@@ -0,0 +1,218 @@
+package trees;
+
+import ca.reidmoffat.trees.BPlusTree;
+import ca.reidmoffat.trees.LongBPlusTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BPlusTreeTests {
+
+    /**
+     * A tree of height h > 1 has a root with 2+ children, branches with 33+ and leaves with 32+ entries
+     */
+    private static void assertBalanced(int height, int size) {
+        if (height > 1) {
+            assertTrue(size >= 2 * 32 * Math.pow(33, height - 2), "Height " + height + " for " + size);
+        }
+    }
+
+    @Test
+    public void RandomOperationsMatchTreeMap() {
+        final Random random = new Random(24);
+        final LongBPlusTree<Integer> tree = new LongBPlusTree<>();
+        final TreeMap<Long, Integer> expected = new TreeMap<>();
+        int maxHeight = 1;
+        // Grow to a few levels, then shrink through the merges back down to a single leaf
+        for (int step = 0; step < 400_000; ++step) {
+            final long key = random.nextInt(step < 200_000 ? 200_000 : 20_000) - 1000L;
+            final int op = random.nextInt(10);
+            if (step < 200_000 ? op < 7 : op < 2) {
+                assertEquals(expected.put(key, step), tree.put(key, step));
+            } else if (op < 9) {
+                assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                assertEquals(expected.get(key), tree.get(key));
+                assertEquals(expected.containsKey(key), tree.containsKey(key));
+            }
+            if (step % 10_000 == 0) {
+                assertEquals(expected.size(), tree.size());
+                assertBalanced(tree.height(), tree.size());
+                maxHeight = Math.max(maxHeight, tree.height());
+            }
+        }
+        assertTrue(maxHeight >= 3);
+        assertEquals(expected.size(), tree.size());
+        assertArrayEquals(expected.keySet().stream().mapToLong(Long::longValue).toArray(), tree.keys());
+        for (long key : new ArrayList<>(expected.keySet())) {
+            assertEquals(expected.remove(key), tree.remove(key));
+        }
+        assertTrue(tree.isEmpty());
+        assertEquals(1, tree.height());
+        assertEquals("{}", tree.toString());
+    }
+
+    @Test
+    public void RangeScansMatchSubMap() {
+        final Random random = new Random(25);
+        final TreeMap<Long, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 50_000; ++i) expected.put(random.nextLong() % 1_000_000, i);
+        final LongBPlusTree<Integer> tree = new LongBPlusTree<>();
+        expected.forEach(tree::put);
+        assertEquals(expected.firstKey(), tree.firstKey());
+        assertEquals(expected.lastKey(), tree.lastKey());
+        for (int i = 0; i < 200; ++i) {
+            final long from = random.nextInt(2_200_000) - 1_100_000;
+            final long to = from + random.nextInt(i < 100 ? 1000 : 100_000);
+            final List<Map.Entry<Long, Integer>> scanned = new ArrayList<>();
+            tree.forEachInRange(from, to, (key, value) -> scanned.add(Map.entry(key, value)));
+            assertEquals(new ArrayList<>(expected.subMap(from, true, to, true).entrySet()), scanned);
+        }
+        final List<Long> all = new ArrayList<>();
+        tree.forEachInRange(Long.MIN_VALUE, Long.MAX_VALUE, (key, value) -> all.add(key));
+        assertEquals(new ArrayList<>(expected.keySet()), all);
+        assertThrows(IllegalArgumentException.class, () -> tree.forEachInRange(5, 4, (key, value) -> { }));
+    }
+
+    @Test
+    public void FromSortedBuildsFullLeaves() {
+        for (int n : new int[]{0, 1, 63, 64, 65, 64 * 65, 64 * 65 + 1, 100_000}) {
+            final long[] keys = new long[n];
+            final Integer[] values = new Integer[n];
+            for (int i = 0; i < n; ++i) {
+                keys[i] = 3L * i - n;
+                values[i] = i;
+            }
+            final LongBPlusTree<Integer> tree = LongBPlusTree.fromSorted(keys, values);
+            assertEquals(n, tree.size());
+            assertArrayEquals(keys, tree.keys());
+            assertBalanced(tree.height(), n);
+            // With full leaves, the height is the least it can be
+            int leaves = (n + LongBPlusTree.ORDER - 1) / LongBPlusTree.ORDER;
+            int height = 1;
+            for (; leaves > 1; leaves = (leaves + LongBPlusTree.ORDER) / (LongBPlusTree.ORDER + 1)) ++height;
+            assertEquals(height, tree.height());
+            // And it can still be changed like any other
+            for (int i = 0; i < n; i += 2) {
+                assertEquals(i, tree.remove(keys[i]));
+                assertNull(tree.put(keys[i] + 1, -i));
+            }
+            for (int i = 0; i < n; ++i) {
+                assertEquals(i % 2 == 0 ? null : (Integer) i, tree.get(keys[i]));
+                assertEquals(i % 2 == 0 ? (Integer) (-i) : null, tree.get(keys[i] + 1));
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> LongBPlusTree.fromSorted(new long[]{1, 1}, new Integer[]{1, 2}));
+        assertThrows(IllegalArgumentException.class, () -> LongBPlusTree.fromSorted(new long[]{1}, new Integer[0]));
+    }
+
+    @Test
+    public void LongTreeChecksArguments() {
+        final LongBPlusTree<String> tree = new LongBPlusTree<>();
+        assertThrows(NullPointerException.class, () -> tree.put(1, null));
+        assertThrows(NoSuchElementException.class, tree::firstKey);
+        assertThrows(NoSuchElementException.class, tree::lastKey);
+        assertEquals("x", tree.getOrDefault(1, "x"));
+        tree.put(2, "b");
+        tree.put(1, "a");
+        assertEquals("{1=a, 2=b}", tree.toString());
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertArrayEquals(new long[0], tree.keys());
+    }
+
+    @Test
+    public void GenericTreeMatchesTreeMap() {
+        final Random random = new Random(26);
+        for (Comparator<Integer> comparator : Arrays.<Comparator<Integer>>asList(null, Comparator.reverseOrder())) {
+            final BPlusTree<Integer, Integer> tree = new BPlusTree<>(comparator);
+            final TreeMap<Integer, Integer> expected = new TreeMap<>(comparator);
+            int maxHeight = 1;
+            for (int step = 0; step < 300_000; ++step) {
+                final int key = random.nextInt(step < 150_000 ? 150_000 : 15_000);
+                final int op = random.nextInt(10);
+                if (step < 150_000 ? op < 7 : op < 2) {
+                    // Null values are fine here
+                    final Integer value = op == 0 ? null : step;
+                    assertEquals(expected.put(key, value), tree.put(key, value));
+                } else if (op < 9) {
+                    assertEquals(expected.remove(key), tree.remove(key));
+                } else {
+                    assertEquals(expected.get(key), tree.get(key));
+                    assertEquals(expected.containsKey(key), tree.containsKey(key));
+                }
+                if (step % 10_000 == 0) {
+                    assertEquals(expected.size(), tree.size());
+                    assertBalanced(tree.height(), tree.size());
+                    maxHeight = Math.max(maxHeight, tree.height());
+                }
+            }
+            assertTrue(maxHeight >= 3);
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(tree.entrySet()));
+            assertEquals(expected, tree);
+            assertEquals(expected.firstKey(), tree.firstKey());
+            assertEquals(expected.lastKey(), tree.lastKey());
+
+            final int from = comparator == null ? 2000 : 9000;
+            final int to = comparator == null ? 9000 : 2000;
+            final List<Integer> scanned = new ArrayList<>();
+            tree.forEachInRange(from, to, (key, value) -> scanned.add(key));
+            assertEquals(new ArrayList<>(expected.subMap(from, true, to, true).keySet()), scanned);
+            assertThrows(IllegalArgumentException.class, () -> tree.forEachInRange(to, from, (key, value) -> { }));
+
+            // Removing through the iterator, across leaves that merge under it
+            for (Iterator<Integer> iterator = tree.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next() % 3 != 0) iterator.remove();
+            }
+            expected.keySet().removeIf(key -> key % 3 != 0);
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(tree.entrySet()));
+            tree.entrySet().clear();
+            assertTrue(tree.isEmpty());
+            assertEquals(1, tree.height());
+        }
+    }
+
+    @Test
+    public void GenericTreeFromSortedAndArguments() {
+        final TreeMap<String, Integer> expected = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < 10_000; ++i) expected.put(Integer.toString(i * 7919 % 10_007, 36), i);
+        final BPlusTree<String, Integer> tree = BPlusTree.fromSorted(String.CASE_INSENSITIVE_ORDER,
+                expected.entrySet().iterator());
+        assertEquals(expected, tree);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree.keySet()));
+        assertEquals(3, tree.height());
+        assertEquals(expected.get("a"), tree.get("A"));
+        assertThrows(IllegalArgumentException.class,
+                () -> BPlusTree.fromSorted(List.of(Map.entry(2, 2), Map.entry(1, 1)).iterator()));
+        assertTrue(BPlusTree.fromSorted(List.<Map.Entry<Integer, Integer>>of().iterator()).isEmpty());
+
+        final BPlusTree<Integer, Integer> empty = new BPlusTree<>();
+        assertThrows(NullPointerException.class, () -> empty.put(null, 1));
+        assertThrows(NullPointerException.class, () -> empty.get(null));
+        assertThrows(NoSuchElementException.class, empty::firstKey);
+        assertThrows(NoSuchElementException.class, empty::lastKey);
+        empty.put(1, 1);
+        final Iterator<Map.Entry<Integer, Integer>> iterator = empty.entrySet().iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        iterator.next();
+        assertThrows(UnsupportedOperationException.class, () -> empty.entrySet().iterator().next().setValue(2));
+        empty.put(2, 2);
+        assertThrows(ConcurrentModificationException.class, iterator::remove);
+    }
+}
@@ -0,0 +1,194 @@
+package trees;
+
+import ca.reidmoffat.trees.AVLTree;
+import ca.reidmoffat.trees.Augmentation;
+import ca.reidmoffat.trees.BinarySearchTree;
+import ca.reidmoffat.trees.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class OrderStatisticsTests {
+
+    private static final Augmentation<Integer, Integer, Long> SUM = Augmentation.sum((key, value) -> value);
+    private static final Augmentation<Integer, Integer, Integer> MAX = Augmentation.max((key, value) -> value);
+
+    private static long sum(NavigableMap<Integer, Integer> map) {
+        return map.values().stream().mapToLong(Integer::longValue).sum();
+    }
+
+    private static Integer max(NavigableMap<Integer, Integer> map) {
+        return map.values().stream().max(Integer::compare).orElse(null);
+    }
+
+    private static void checkOrderStatistics(BinarySearchTree<Integer, Integer> tree, TreeMap<Integer, Integer> expected,
+                                             Random random) {
+        final List<Integer> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < keys.size(); i += 1 + random.nextInt(10)) {
+            assertEquals(keys.get(i), tree.select(i));
+            assertEquals(i, tree.rank(keys.get(i)));
+        }
+        for (int i = 0; i < 20; ++i) {
+            final int a = random.nextInt(11_000) - 500;
+            final int b = a + random.nextInt(3000);
+            final boolean ai = random.nextBoolean();
+            final boolean bi = random.nextBoolean();
+            assertEquals(expected.headMap(a).size(), tree.rank(a));
+            assertEquals(expected.subMap(a, b).size(), tree.countInRange(a, b));
+            assertEquals(expected.subMap(a, ai, b, bi).size(), tree.countInRange(a, ai, b, bi));
+            assertEquals(expected.subMap(a, ai, b, bi).size(), tree.subMap(a, ai, b, bi).size());
+            assertEquals(expected.headMap(b, bi).size(), tree.headMap(b, bi).size());
+            assertEquals(expected.descendingMap().tailMap(a, ai).size(), tree.descendingMap().tailMap(a, ai).size());
+        }
+    }
+
+    @Test
+    public void SelectRankAndCountMatchTreeMap() {
+        final Random random = new Random(23);
+        final List<BinarySearchTree<Integer, Integer>> trees = List.of(new AVLTree<>(), new RedBlackTree<>(),
+                new BinarySearchTree<>(), new RedBlackTree<>(null, SUM));
+        for (BinarySearchTree<Integer, Integer> tree : trees) {
+            final TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int step = 0; step < 20_000; ++step) {
+                final int key = random.nextInt(step < 10_000 ? 10_000 : 2_000);
+                if (random.nextInt(3) < 2) {
+                    assertEquals(expected.put(key, step), tree.put(key, step));
+                } else {
+                    assertEquals(expected.remove(key), tree.remove(key));
+                }
+                if (step % 1000 == 0) {
+                    checkOrderStatistics(tree, expected, random);
+                }
+            }
+            checkOrderStatistics(tree, expected, random);
+            assertThrows(IndexOutOfBoundsException.class, () -> tree.select(expected.size()));
+            assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+            assertThrows(IllegalArgumentException.class, () -> tree.countInRange(5, 4));
+        }
+    }
+
+    @Test
+    public void AggregatesFollowEveryChange() {
+        final Random random = new Random(24);
+        final List<BinarySearchTree<Integer, Integer>> trees = List.of(new AVLTree<>(null, SUM),
+                new RedBlackTree<>(null, SUM), new BinarySearchTree<>(null, SUM));
+        for (BinarySearchTree<Integer, Integer> tree : trees) {
+            final TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int step = 0; step < 20_000; ++step) {
+                final int key = random.nextInt(step < 10_000 ? 10_000 : 2_000);
+                final int op = random.nextInt(10);
+                if (op < 6) {
+                    tree.put(key, step);
+                    expected.put(key, step);
+                } else if (op < 9) {
+                    tree.remove(key);
+                    expected.remove(key);
+                } else if (!tree.isEmpty()) {
+                    // Replacing a value through an entry updates the sums above it too
+                    final Map.Entry<Integer, Integer> entry = tree.entrySet().iterator().next();
+                    entry.setValue(-step);
+                    expected.put(entry.getKey(), -step);
+                }
+                if (step % 500 == 0) {
+                    assertEquals(sum(expected), tree.aggregate(SUM));
+                    for (int i = 0; i < 10; ++i) {
+                        final int a = random.nextInt(11_000) - 500;
+                        final int b = a + random.nextInt(3000);
+                        final boolean ai = random.nextBoolean();
+                        final boolean bi = random.nextBoolean();
+                        assertEquals(sum(expected.subMap(a, ai, b, bi)), tree.aggregate(SUM, a, ai, b, bi));
+                    }
+                }
+            }
+            // Removing through an iterator, which swaps nodes with their successors
+            for (Iterator<Integer> iterator = tree.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next() % 3 == 0) iterator.remove();
+            }
+            expected.keySet().removeIf(key -> key % 3 == 0);
+            assertEquals(sum(expected), tree.aggregate(SUM));
+            assertEquals(sum(expected.subMap(100, true, 1000, false)), tree.aggregate(SUM, 100, true, 1000, false));
+        }
+    }
+
+    @Test
+    public void AggregatesSurviveBulkBuildSplitAndJoin() {
+        final Random random = new Random(25);
+        for (int round = 0; round < 100; ++round) {
+            final TreeMap<Integer, Integer> expected = new TreeMap<>();
+            final int n = random.nextInt(3000);
+            for (int i = 0; i < n; ++i) expected.put(random.nextInt(10_000), random.nextInt(1_000_000));
+            final RedBlackTree<Integer, Integer> tree = RedBlackTree.fromSorted(null, MAX, expected.entrySet().iterator());
+            assertEquals(max(expected), tree.aggregate(MAX));
+
+            final int at = random.nextInt(10_200) - 100;
+            final RedBlackTree<Integer, Integer> upper = tree.split(at);
+            assertEquals(max(expected.headMap(at, false)), tree.aggregate(MAX));
+            assertEquals(max(expected.tailMap(at, true)), upper.aggregate(MAX));
+            assertEquals(expected.headMap(at, false).size(), tree.size());
+            if (!upper.isEmpty()) {
+                assertEquals(upper.size() - 1, upper.rank(upper.lastKey()));
+            }
+
+            upper.remove(at);
+            final RedBlackTree<Integer, Integer> joined = RedBlackTree.join(tree, at, -1, upper);
+            expected.put(at, -1);
+            assertEquals(max(expected), joined.aggregate(MAX));
+            assertEquals(expected.size(), joined.size());
+            assertEquals(at, joined.select(joined.rank(at)));
+            for (int i = 0; i < 10; ++i) {
+                final int a = random.nextInt(11_000) - 500;
+                final int b = a + random.nextInt(3000);
+                assertEquals(max(expected.subMap(a, true, b, true)), joined.aggregate(MAX, a, true, b, true));
+                assertEquals(expected.subMap(a, true, b, true).size(), joined.countInRange(a, true, b, true));
+            }
+        }
+    }
+
+    @Test
+    public void AggregateNeedsTheTreesAugmentation() {
+        final AVLTree<Integer, Integer> plain = new AVLTree<>();
+        assertThrows(IllegalArgumentException.class, () -> plain.aggregate(SUM));
+        final RedBlackTree<Integer, Integer> summed = new RedBlackTree<>(null, SUM);
+        assertEquals(0L, summed.aggregate(SUM));
+        assertEquals(0L, summed.aggregate(SUM, 1, true, 5, true));
+        assertThrows(IllegalArgumentException.class, () -> summed.aggregate(MAX));
+        assertThrows(IllegalArgumentException.class, () -> summed.aggregate(SUM, 5, true, 4, true));
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(summed, 1, 1, new RedBlackTree<>()));
+        assertNull(new AVLTree<Integer, Integer>(null, MAX).aggregate(MAX));
+
+        // Summaries are combined in key order, so they needn't be commutative
+        final Augmentation<Integer, String, String> concatenation = new Augmentation<>() {
+            @Override
+            public String identity() {
+                return "";
+            }
+
+            @Override
+            public String of(Integer key, String value) {
+                return value;
+            }
+
+            @Override
+            public String combine(String lower, String higher) {
+                return lower + higher;
+            }
+        };
+        final AVLTree<Integer, String> letters = new AVLTree<>(null, concatenation);
+        for (int i = 25; i >= 0; --i) letters.put(i, String.valueOf((char) ('a' + i)));
+        assertEquals("abcdefghijklmnopqrstuvwxyz", letters.aggregate(concatenation));
+        assertEquals("defg", letters.aggregate(concatenation, 3, true, 7, false));
+        letters.remove(4);
+        letters.put(5, "F");
+        assertEquals("dFg", letters.aggregate(concatenation, 3, true, 7, false));
+    }
+}
@@ -0,0 +1,176 @@
+package trees;
+
+import ca.reidmoffat.trees.PersistentAVLTree;
+import ca.reidmoffat.trees.SnapshotTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentAVLTreeTests {
+
+    private static void assertBalanced(PersistentAVLTree<?, ?> tree) {
+        assertTrue(tree.height() <= 1.45 * Math.log(tree.size() + 2) / Math.log(2),
+                "Height " + tree.height() + " for " + tree.size());
+    }
+
+    @Test
+    public void OldVersionsNeverChange() {
+        final Random random = new Random(27);
+        for (Comparator<Integer> comparator : Arrays.<Comparator<Integer>>asList(null, Comparator.reverseOrder())) {
+            PersistentAVLTree<Integer, Integer> tree = new PersistentAVLTree<>(comparator);
+            final TreeMap<Integer, Integer> expected = new TreeMap<>(comparator);
+            final List<PersistentAVLTree<Integer, Integer>> versions = new ArrayList<>();
+            final List<TreeMap<Integer, Integer>> expectedVersions = new ArrayList<>();
+            for (int step = 0; step < 100_000; ++step) {
+                final int key = random.nextInt(step < 50_000 ? 10_000 : 1_000);
+                final int op = random.nextInt(10);
+                if (op < 5) {
+                    final Integer value = op == 0 ? null : step; // Null values are fine here
+                    expected.put(key, value);
+                    tree = tree.with(key, value);
+                } else if (op < 8) {
+                    expected.remove(key);
+                    tree = tree.without(key);
+                } else {
+                    assertEquals(expected.get(key), tree.get(key));
+                    assertEquals(expected.containsKey(key), tree.containsKey(key));
+                }
+                assertEquals(expected.size(), tree.size());
+                if (step % 5000 == 0) {
+                    versions.add(tree);
+                    expectedVersions.add(new TreeMap<>(expected));
+                    assertBalanced(tree);
+                }
+            }
+            for (int i = 0; i < versions.size(); ++i) {
+                assertEquals(new ArrayList<>(expectedVersions.get(i).entrySet()),
+                        new ArrayList<>(versions.get(i).entrySet()));
+            }
+            assertEquals(expected.firstKey(), tree.firstKey());
+            assertEquals(expected.lastKey(), tree.lastKey());
+        }
+    }
+
+    @Test
+    public void UnchangedUpdatesReturnTheSameTree() {
+        final PersistentAVLTree<String, Integer> empty = new PersistentAVLTree<>();
+        final Integer one = 1;
+        final PersistentAVLTree<String, Integer> tree = empty.with("a", one).with("b", 2);
+        assertSame(tree, tree.with("a", one));
+        assertSame(tree, tree.without("c"));
+        assertSame(empty, empty.without("a"));
+        assertSame(tree, tree.asTransient().persistent());
+        assertEquals(Map.of("a", 1, "b", 2), tree);
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.height());
+
+        assertThrows(NullPointerException.class, () -> empty.with(null, 1));
+        assertThrows(NullPointerException.class, () -> tree.get(null));
+        assertThrows(NoSuchElementException.class, empty::firstKey);
+        assertThrows(NoSuchElementException.class, empty::lastKey);
+        assertThrows(UnsupportedOperationException.class, () -> tree.put("c", 3));
+        assertThrows(UnsupportedOperationException.class, () -> tree.entrySet().iterator().next().setValue(3));
+        assertThrows(UnsupportedOperationException.class, () -> tree.entrySet().iterator().remove());
+    }
+
+    @Test
+    public void TransientBatchesLeaveTheirSourceAlone() {
+        final Random random = new Random(28);
+        PersistentAVLTree<Integer, Integer> tree = new PersistentAVLTree<>();
+        final TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int batch = 0; batch < 50; ++batch) {
+            final PersistentAVLTree<Integer, Integer> before = tree;
+            final List<Map.Entry<Integer, Integer>> beforeEntries = new ArrayList<>(before.entrySet());
+            final PersistentAVLTree.Transient<Integer, Integer> edit = tree.asTransient();
+            for (int step = 0; step < 2000; ++step) {
+                final int key = random.nextInt(batch < 25 ? 20_000 : 2_000);
+                if (random.nextInt(3) < (batch < 25 ? 2 : 1)) {
+                    assertEquals(expected.put(key, step), edit.put(key, step));
+                } else {
+                    assertEquals(expected.remove(key), edit.remove(key));
+                }
+                assertEquals(expected.get(key), edit.get(key));
+                assertEquals(expected.containsKey(key), edit.containsKey(key));
+                assertEquals(expected.size(), edit.size());
+            }
+            tree = edit.persistent();
+            assertThrows(IllegalStateException.class, () -> edit.put(1, 1));
+            assertThrows(IllegalStateException.class, edit::persistent);
+            assertEquals(beforeEntries, new ArrayList<>(before.entrySet()));
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(tree.entrySet()));
+            assertBalanced(tree);
+        }
+        // A second transient of the same tree can't change the first one's nodes either
+        final PersistentAVLTree<Integer, Integer> frozen = tree;
+        final List<Map.Entry<Integer, Integer>> frozenEntries = new ArrayList<>(frozen.entrySet());
+        final PersistentAVLTree.Transient<Integer, Integer> edit = frozen.asTransient();
+        for (int key = 0; key < 2000; ++key) edit.put(key, -key);
+        assertEquals(frozenEntries, new ArrayList<>(frozen.entrySet()));
+        assertEquals(-5, edit.persistent().get(5));
+    }
+
+    @Test
+    public void ReadersSeeConsistentSnapshots() throws InterruptedException {
+        // Writers add keys in pairs (k, -k) with one batch each, so every snapshot must have both or neither
+        final SnapshotTree<Integer, Integer> index = new SnapshotTree<>();
+        final int writers = 2;
+        final int pairsPerWriter = 5000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; ++w) {
+            final int first = 1 + w * pairsPerWriter;
+            threads.add(new Thread(() -> {
+                for (int key = first; key < first + pairsPerWriter; ++key) {
+                    final int k = key;
+                    index.update(tree -> {
+                        final PersistentAVLTree.Transient<Integer, Integer> edit = tree.asTransient();
+                        edit.put(k, k);
+                        edit.put(-k, k);
+                        return edit.persistent();
+                    });
+                }
+            }));
+        }
+        final Thread reader = new Thread(() -> {
+            try {
+                while (index.size() < 2 * writers * pairsPerWriter) {
+                    final PersistentAVLTree<Integer, Integer> snapshot = index.snapshot();
+                    assertEquals(0, snapshot.size() % 2);
+                    for (Map.Entry<Integer, Integer> entry : snapshot.entrySet()) {
+                        assertEquals(entry.getValue(), snapshot.get(-entry.getKey()));
+                    }
+                    Thread.yield();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+        reader.join();
+        assertNull(failure.get());
+
+        assertEquals(2 * writers * pairsPerWriter, index.size());
+        assertNull(index.put(0, 0));
+        assertEquals(0, index.put(0, 1));
+        assertEquals(1, index.remove(0));
+        assertNull(index.remove(0));
+        assertEquals(3, index.get(-3));
+        assertTrue(index.containsKey(writers * pairsPerWriter));
+    }
+}
@@ -0,0 +1,155 @@
+package trees;
+
+import ca.reidmoffat.trees.RedBlackTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RedBlackTreeTests {
+
+    private static void assertBalanced(RedBlackTree<?, ?> tree) {
+        assertTrue(tree.height() <= 2 * Math.log(tree.size() + 1) / Math.log(2),
+                "Height " + tree.height() + " for " + tree.size());
+    }
+
+    private static void checkMatchesTreeMap(NavigableMap<Integer, Integer> map, NavigableMap<Integer, Integer> expected,
+                                            Random random, int steps) {
+        for (int step = 0; step < steps; ++step) {
+            final int key = random.nextInt(step < steps / 2 ? 10_000 : 1_000);
+            final int op = random.nextInt(10);
+            if (op < 5) {
+                assertEquals(expected.put(key, step), map.put(key, step));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.floorEntry(key), map.floorEntry(key));
+                assertEquals(expected.higherKey(key), map.higherKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(map.entrySet()));
+    }
+
+    @Test
+    public void RandomOperationsMatchTreeMap() {
+        final RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+        checkMatchesTreeMap(tree, new TreeMap<>(), new Random(22), 100_000);
+        assertBalanced(tree);
+        final RedBlackTree<Integer, Integer> reversed = new RedBlackTree<>(Comparator.reverseOrder());
+        checkMatchesTreeMap(reversed, new TreeMap<>(Comparator.reverseOrder()), new Random(23), 100_000);
+        assertBalanced(reversed);
+
+        final RedBlackTree<Integer, Integer> sorted = new RedBlackTree<>();
+        for (int i = 0; i < 100_000; ++i) sorted.put(i, i);
+        assertBalanced(sorted);
+        for (int i = 0; i < 100_000; i += 2) sorted.remove(i);
+        assertBalanced(sorted);
+    }
+
+    @Test
+    public void FromSortedIsPerfectlyBalanced() {
+        for (int n = 0; n < 300; ++n) {
+            final TreeMap<Integer, Integer> expected = new TreeMap<>();
+            for (int i = 0; i < n; ++i) expected.put(i * 3, i);
+            final RedBlackTree<Integer, Integer> tree = RedBlackTree.fromSorted(expected.entrySet().iterator());
+            assertEquals(expected, tree);
+            assertEquals(n, tree.size());
+            assertEquals(32 - Integer.numberOfLeadingZeros(n), tree.height());
+            // Still a valid red-black tree to insert into and delete from
+            checkMatchesTreeMap(tree, expected, new Random(n), 200);
+        }
+
+        final List<Map.Entry<String, Integer>> descending = List.of(Map.entry("c", 1), Map.entry("b", 2));
+        assertEquals(List.of("c", "b"), new ArrayList<>(
+                RedBlackTree.fromSorted(Comparator.<String>reverseOrder(), descending.iterator()).keySet()));
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.fromSorted(descending.iterator()));
+        final List<Map.Entry<String, Integer>> duplicate = List.of(Map.entry("a", 1), Map.entry("a", 2));
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.fromSorted(duplicate.iterator()));
+    }
+
+    @Test
+    public void SplitAndJoinMatchTreeMap() {
+        final Random random = new Random(24);
+        for (int round = 0; round < 200; ++round) {
+            final TreeMap<Integer, Integer> expected = new TreeMap<>();
+            final RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+            final int n = random.nextInt(round < 100 ? 50 : 5000);
+            for (int i = 0; i < n; ++i) {
+                final int key = random.nextInt(10_000);
+                expected.put(key, i);
+                tree.put(key, i);
+            }
+            final List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(tree.entrySet());
+
+            final int at = random.nextInt(10_200) - 100;
+            final RedBlackTree<Integer, Integer> upper = tree.split(at);
+            assertEquals(expected.headMap(at, false), tree);
+            assertEquals(expected.tailMap(at, true), upper);
+            assertEquals(expected.headMap(at, false).size(), tree.size());
+            assertEquals(expected.tailMap(at, true).size(), upper.size());
+            assertBalanced(tree);
+            assertBalanced(upper);
+
+            // Join the pieces back together around the lower side's last key
+            final Integer pivot = tree.isEmpty() ? at - 1 : tree.lastKey();
+            tree.remove(pivot);
+            final RedBlackTree<Integer, Integer> joined = RedBlackTree.join(tree, pivot, -1, upper);
+            expected.put(pivot, -1);
+            assertEquals(expected, joined);
+            assertEquals(expected.size(), joined.size());
+            assertTrue(tree.isEmpty() && upper.isEmpty());
+            assertBalanced(joined);
+
+            // Nodes were moved, not copied, so entries taken before still write through
+            for (Map.Entry<Integer, Integer> entry : entries) {
+                if (!entry.getKey().equals(pivot)) {
+                    entry.setValue(-2);
+                    expected.put(entry.getKey(), -2);
+                }
+            }
+            assertEquals(expected, joined);
+            checkMatchesTreeMap(joined, expected, random, 1000);
+            assertBalanced(joined);
+        }
+    }
+
+    @Test
+    public void JoinChecksItsArguments() {
+        final RedBlackTree<Integer, String> left = new RedBlackTree<>();
+        final RedBlackTree<Integer, String> right = new RedBlackTree<>();
+        for (int i = 0; i < 10; ++i) left.put(i, "l");
+        for (int i = 20; i < 1000; ++i) right.put(i, "r");
+
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, 9, "x", right));
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, 20, "x", right));
+        assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, 15, "x", left));
+        assertThrows(IllegalArgumentException.class,
+                () -> RedBlackTree.join(left, 15, "x", new RedBlackTree<>(Comparator.reverseOrder())));
+        assertThrows(NullPointerException.class, () -> RedBlackTree.join(left, null, "x", right));
+        assertEquals(10, left.size());
+
+        final RedBlackTree<Integer, String> joined = RedBlackTree.join(left, 15, "x", right);
+        assertEquals(991, joined.size());
+        assertEquals("x", joined.get(15));
+        assertBalanced(joined);
+        assertTrue(left.isEmpty());
+        assertEquals(0, right.size());
+
+        final RedBlackTree<Integer, String> single =
+                RedBlackTree.join(new RedBlackTree<>(), 1, "a", new RedBlackTree<>());
+        assertEquals(Map.of(1, "a"), single);
+        assertTrue(single.split(0).containsKey(1));
+        assertTrue(single.isEmpty());
+    }
+}